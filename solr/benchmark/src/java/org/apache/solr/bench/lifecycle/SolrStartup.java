@@ -34,6 +34,7 @@ import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -43,6 +44,10 @@ import org.openjdk.jmh.annotations.Threads;
 /**
  * A simple JMH benchmark that attempts to measure approximate Solr startup behavior by measuring
  * {@link JettySolrRunner#start()}
+ *
+ * <p>All the cores are created from the same configset, so that the benchmark also reflects the
+ * sharing of the parsed configuration files (and of the schema when <code>shareSchema</code> is
+ * enabled) between cores.
  */
 @BenchmarkMode(Mode.Throughput)
 @OutputTimeUnit(TimeUnit.SECONDS)
@@ -60,13 +65,18 @@ public class SolrStartup {
   @State(Scope.Thread)
   public static class PerThreadState {
 
-    private static final int NUM_CORES = 10;
+    @Param({"10", "100"})
+    public int numCores;
+
+    @Param({"false", "true"})
+    public boolean shareSchema;
 
     public Path tmpSolrHome;
     public JettySolrRunner solrRunner;
 
     @Setup(Level.Trial)
     public void bootstrapJettyServer() throws Exception {
+      System.setProperty("shareSchema", Boolean.toString(shareSchema));
       tmpSolrHome = Files.createTempDirectory("solrstartup-perthreadstate-jsr").toAbsolutePath();
 
       final Path configsetsDir = tmpSolrHome.resolve("configsets");
@@ -79,7 +89,7 @@ public class SolrStartup {
       solrRunner = new JettySolrRunner(tmpSolrHome.toString(), buildJettyConfig());
       solrRunner.start(false);
       try (SolrClient client = solrRunner.newClient()) {
-        for (int i = 0; i < NUM_CORES; i++) {
+        for (int i = 0; i < numCores; i++) {
           createCore(client, "core-prefix-" + i);
         }
       }
@@ -111,6 +121,7 @@ public class SolrStartup {
       }
 
       IOUtils.rm(tmpSolrHome);
+      System.clearProperty("shareSchema");
     }
 
     private static JettyConfig buildJettyConfig() {
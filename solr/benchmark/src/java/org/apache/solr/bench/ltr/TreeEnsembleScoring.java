@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.ltr;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.file.PathUtils;
+import org.apache.lucene.util.IOUtils;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.ltr.feature.Feature;
+import org.apache.solr.ltr.feature.ValueFeature;
+import org.apache.solr.ltr.model.LTRScoringModel;
+import org.apache.solr.ltr.model.MultipleAdditiveTreesModel;
+import org.apache.solr.ltr.norm.IdentityNormalizer;
+import org.apache.solr.ltr.norm.Normalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the rescoring of the top documents of a query by a {@link MultipleAdditiveTreesModel},
+ * with forests of the sizes produced by LambdaMART training: hundreds to thousands of trees of 16
+ * to 64 leaves over tens of features.
+ *
+ * <p>Each invocation scores <code>reRankDocs</code> documents, either one at a time, or as a
+ * block going through the trees one after the other.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@Warmup(time = 5, iterations = 3)
+@Measurement(time = 5, iterations = 5)
+@Threads(1)
+public class TreeEnsembleScoring {
+
+  private static final int NUM_FEATURES = 50;
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"100", "1000"})
+    public int numTrees;
+
+    @Param({"4", "6"})
+    public int treeDepth;
+
+    @Param({"500"})
+    public int reRankDocs;
+
+    Path instanceDir;
+    SolrResourceLoader loader;
+    LTRScoringModel model;
+    float[][] featureVectors;
+    float[] scores;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+
+      List<Feature> features = new ArrayList<>();
+      List<Normalizer> norms = new ArrayList<>();
+      for (int i = 0; i < NUM_FEATURES; i++) {
+        features.add(new ValueFeature("feature" + i, Collections.emptyMap()));
+        norms.add(IdentityNormalizer.INSTANCE);
+      }
+      List<Object> trees = new ArrayList<>();
+      for (int t = 0; t < numTrees; t++) {
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("weight", Float.toString((float) random.nextDouble(0.01, 0.1)));
+        tree.put("root", treeNode(random, treeDepth));
+        trees.add(tree);
+      }
+      instanceDir = Files.createTempDirectory("treeensemblescoring");
+      loader = new SolrResourceLoader(instanceDir);
+      model =
+          LTRScoringModel.getInstance(
+              loader,
+              MultipleAdditiveTreesModel.class.getName(),
+              "model",
+              features,
+              norms,
+              "store",
+              features,
+              Map.of("trees", trees));
+
+      featureVectors = new float[reRankDocs][NUM_FEATURES];
+      for (float[] featureVector : featureVectors) {
+        for (int i = 0; i < NUM_FEATURES; i++) {
+          featureVector[i] = (float) random.nextDouble();
+        }
+      }
+      scores = new float[reRankDocs];
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+      IOUtils.close(loader);
+      PathUtils.deleteDirectory(instanceDir);
+    }
+  }
+
+  private static Map<String, Object> treeNode(SplittableRandom random, int depth) {
+    Map<String, Object> node = new HashMap<>();
+    if (depth == 0) {
+      node.put("value", Float.toString((float) random.nextDouble(-1, 1)));
+    } else {
+      node.put("feature", "feature" + random.nextInt(NUM_FEATURES));
+      node.put("threshold", Float.toString((float) random.nextDouble()));
+      node.put("left", treeNode(random, depth - 1));
+      node.put("right", treeNode(random, depth - 1));
+    }
+    return node;
+  }
+
+  @Benchmark
+  public void scoreOneByOne(BenchState state, Blackhole bh) {
+    for (float[] featureVector : state.featureVectors) {
+      bh.consume(state.model.score(featureVector));
+    }
+  }
+
+  @Benchmark
+  public void scoreBlock(BenchState state, Blackhole bh) {
+    state.model.score(state.featureVectors, state.reRankDocs, state.scores);
+    bh.consume(state.scores);
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.schema;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.file.PathUtils;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.Version;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IndexSchemaFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the resolution of field names by a schema with many dynamic fields, as done for each
+ * field of each document indexed by a schemaless collection.
+ *
+ * <p>The names are more numerous than the entries of the dynamic field cache of the schema, so
+ * that most lookups match the names against the dynamic field patterns. Half of the patterns are
+ * prefixes, the other half suffixes, and every suffix pattern is the source of a dynamic copy
+ * field.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1)
+@Warmup(time = 5, iterations = 3)
+@Measurement(time = 5, iterations = 5)
+@Threads(4)
+public class DynamicFieldMatching {
+
+  private static final int NAMES = 100_000;
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"10", "100", "1000"})
+    public int numPatterns;
+
+    /** Percentage of the names matching no dynamic field */
+    @Param({"10"})
+    public int unknownPercent;
+
+    Path instanceDir;
+    SolrResourceLoader loader;
+    IndexSchema schema;
+    String[] names;
+    String[] matchingNames;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      instanceDir = Files.createTempDirectory("dynamicfieldmatching");
+      loader = new SolrResourceLoader(instanceDir);
+      byte[] xml = schemaXml(numPatterns).getBytes(StandardCharsets.UTF_8);
+      schema =
+          new IndexSchema(
+              "schema.xml",
+              () ->
+                  IndexSchemaFactory.getParsedSchema(
+                      new ByteArrayInputStream(xml), loader, "schema.xml"),
+              Version.LATEST,
+              loader,
+              new Properties());
+
+      SplittableRandom random = new SplittableRandom(BaseBenchState.getRandomSeed());
+      names = new String[NAMES];
+      matchingNames = new String[NAMES];
+      for (int i = 0; i < NAMES; i++) {
+        int pattern = random.nextInt(numPatterns / 2);
+        String prefixed = "p" + pattern + "_f" + i;
+        String suffixed = "f" + i + "_s" + pattern;
+        matchingNames[i] = random.nextBoolean() ? prefixed : suffixed;
+        names[i] = random.nextInt(100) < unknownPercent ? "unknown_f" + i : matchingNames[i];
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+      IOUtils.close(loader);
+      PathUtils.deleteDirectory(instanceDir);
+    }
+  }
+
+  private static String schemaXml(int numPatterns) {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<schema name=\"bench\" version=\"1.6\">\n");
+    xml.append("  <fieldType name=\"string\" class=\"solr.StrField\"/>\n");
+    xml.append("  <field name=\"id\" type=\"string\" indexed=\"true\" stored=\"true\"/>\n");
+    xml.append("  <uniqueKey>id</uniqueKey>\n");
+    xml.append("  <dynamicField name=\"copy_*\" type=\"string\" indexed=\"true\"/>\n");
+    for (int i = 0; i < numPatterns / 2; i++) {
+      xml.append("  <dynamicField name=\"p").append(i).append("_*\" type=\"string\"/>\n");
+      xml.append("  <dynamicField name=\"*_s").append(i).append("\" type=\"string\"/>\n");
+      xml.append("  <copyField source=\"*_s").append(i).append("\" dest=\"copy_*\"/>\n");
+    }
+    xml.append("</schema>\n");
+    return xml.toString();
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+    int next;
+
+    int nextIndex() {
+      next = (next + 1) % NAMES;
+      return next;
+    }
+  }
+
+  @Benchmark
+  public void getFieldOrNull(BenchState state, ThreadState thread, Blackhole bh) {
+    bh.consume(state.schema.getFieldOrNull(state.names[thread.nextIndex()]));
+  }
+
+  @Benchmark
+  public void isDynamicField(BenchState state, ThreadState thread, Blackhole bh) {
+    bh.consume(state.schema.isDynamicField(state.names[thread.nextIndex()]));
+  }
+
+  @Benchmark
+  public void getDynamicFieldType(BenchState state, ThreadState thread, Blackhole bh) {
+    bh.consume(state.schema.getDynamicFieldType(state.matchingNames[thread.nextIndex()]));
+  }
+
+  @Benchmark
+  public void getCopyFieldsList(BenchState state, ThreadState thread, Blackhole bh) {
+    bh.consume(state.schema.getCopyFieldsList(state.matchingNames[thread.nextIndex()]));
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.bench.search;
+
+import static org.apache.solr.bench.Docs.docs;
+import static org.apache.solr.bench.generators.SourceDSL.integers;
+import static org.apache.solr.bench.generators.SourceDSL.strings;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.bench.BaseBenchState;
+import org.apache.solr.bench.Docs;
+import org.apache.solr.bench.MiniClusterState;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.util.NamedList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Timeout;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A benchmark of the join query parser methods, with join keys of high cardinality spread over
+ * many segments.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+@Warmup(time = 10, iterations = 4)
+@Measurement(time = 15, iterations = 5)
+@Fork(value = 1)
+@Timeout(time = 60)
+public class JoinSearch {
+
+  static final String COLLECTION = "c1";
+
+  @State(Scope.Benchmark)
+  public static class BenchState {
+
+    @Param({"500000"})
+    int docCount;
+
+    // the number of distinct join keys, in both the "from" and the "to" fields
+    @Param({"10000", "1000000"})
+    int keyCardinality;
+
+    @Param({"20"})
+    int segmentCount;
+
+    @Param({"index", "topLevelDV", "segmentOrds"})
+    String method;
+
+    // only used by the segmentOrds method
+    @Param({"1", "4"})
+    int parallelism;
+
+    // the number of buckets, among 100, matched by the "from" query
+    @Param({"1", "50"})
+    int fromBuckets;
+
+    @Setup(Level.Trial)
+    public void setup(MiniClusterState.MiniClusterBenchState miniClusterState) throws Exception {
+      System.setProperty("maxMergeAtOnce", "50");
+      System.setProperty("segmentsPerTier", "50");
+      System.setProperty("joinSegmentOrds.enabled", "true");
+      System.setProperty("joinSegmentOrds.size", "10000");
+
+      miniClusterState.startMiniCluster(1);
+      miniClusterState.createCollection(COLLECTION, 1, 1);
+
+      Docs docs =
+          docs()
+              .field("id", integers().incrementing())
+              .field("from_key_s", strings().numericBetween(0, keyCardinality - 1))
+              .field("to_key_s", strings().numericBetween(0, keyCardinality - 1))
+              .field("bucket_i", integers().between(0, 99));
+
+      miniClusterState.index(COLLECTION, docs, docCount);
+      miniClusterState.forceMerge(COLLECTION, segmentCount);
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+      private SplittableRandom random;
+
+      @Setup(Level.Trial)
+      public void setup() {
+        this.random = new SplittableRandom(BaseBenchState.getRandomSeed());
+      }
+    }
+
+    QueryRequest joinRequest(int firstBucket) {
+      final int lastBucket = Math.min(99, firstBucket + fromBuckets - 1);
+      return new QueryRequest(
+          MiniClusterState.params(
+              "q",
+              "{!join from=from_key_s to=to_key_s method="
+                  + method
+                  + ("segmentOrds".equals(method) ? " parallelism=" + parallelism : "")
+                  + "}bucket_i:["
+                  + firstBucket
+                  + " TO "
+                  + lastBucket
+                  + "]",
+              "rows",
+              "10"));
+    }
+  }
+
+  @Benchmark
+  public Object join(
+      MiniClusterState.MiniClusterBenchState miniClusterState,
+      BenchState state,
+      BenchState.ThreadState threadState)
+      throws Exception {
+    // a random "from" query, so that the requests do not all join the same documents
+    QueryRequest queryRequest = state.joinRequest(threadState.random.nextInt(100));
+    queryRequest.setBasePath(miniClusterState.nodes.get(0));
+
+    NamedList<Object> result = miniClusterState.client.request(queryRequest, COLLECTION);
+    return result;
+  }
+}
@@ -23,6 +23,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -44,6 +45,7 @@ import org.apache.solr.cloud.api.collections.CreateCollectionCmd;
 import org.apache.solr.cloud.api.collections.OverseerCollectionMessageHandler;
 import org.apache.solr.cloud.overseer.ClusterStateMutator;
 import org.apache.solr.cloud.overseer.CollectionMutator;
+import org.apache.solr.cloud.overseer.CollectionShardedStateUpdater;
 import org.apache.solr.cloud.overseer.NodeMutator;
 import org.apache.solr.cloud.overseer.OverseerAction;
 import org.apache.solr.cloud.overseer.ReplicaMutator;
@@ -159,6 +161,15 @@ public class Overseer implements SolrCloseable {
   public static final int STATE_UPDATE_MAX_QUEUE =
       Integer.getInteger("solr.OverseerStateUpdateMaxQueueSize", 20000);
 
+  /**
+   * Number of threads applying collection scoped state updates concurrently. When set to 1 (the
+   * default) all state updates are processed sequentially by the cluster state updater thread.
+   *
+   * @see CollectionShardedStateUpdater
+   */
+  public static final int STATE_UPDATE_THREADS =
+      Integer.getInteger("solr.OverseerStateUpdateThreads", 1);
+
   public static final int NUM_RESPONSES_TO_STORE = 10000;
   public static final String OVERSEER_ELECT = "/overseer_elect";
   private final CopyOnWriteArrayList<Message> unprocessedMessages = new CopyOnWriteArrayList<>();
@@ -179,7 +190,10 @@ public class Overseer implements SolrCloseable {
    * <code>/overseer/queue</code> and executing the requested cluster change (essentially writing or
    * updating <code>state.json</code> for a collection).
    *
-   * <p>The cluster state updater is a single thread dequeueing and executing requests.
+   * <p>The cluster state updater is a single thread dequeueing and executing requests. When {@link
+   * #STATE_UPDATE_THREADS} is greater than 1, the updates that only touch a single collection are
+   * handed to a {@link CollectionShardedStateUpdater} so that independent collections are updated
+   * concurrently, while the other updates are still executed by this thread.
    */
   private class ClusterStateUpdater implements Runnable, Closeable {
 
@@ -207,6 +221,11 @@ public class Overseer implements SolrCloseable {
 
     private final Compressor compressor;
 
+    // null when state updates are processed sequentially
+    private final CollectionShardedStateUpdater shardedUpdater;
+
+    private final Timer messageLatency;
+
     private boolean isClosed = false;
 
     public ClusterStateUpdater(
@@ -233,6 +252,21 @@ public class Overseer implements SolrCloseable {
           true,
           "stateUpdateQueueSize",
           "queue");
+      Timer messageLatency = clusterStateUpdaterMetricContext.timer("stateUpdateLatency", "queue");
+      if (STATE_UPDATE_THREADS > 1) {
+        shardedUpdater =
+            new CollectionShardedStateUpdater(
+                STATE_UPDATE_THREADS,
+                (clusterState, message) ->
+                    computeWriteCommands(clusterState, message, message.getStr(QUEUE_OPERATION)),
+                () -> new ZkStateWriter(reader, stats, minStateByteLenForCompression, compressor),
+                messageLatency);
+        clusterStateUpdaterMetricContext.gauge(
+            shardedUpdater::getInFlightCount, true, "stateUpdateInFlight", "queue");
+      } else {
+        shardedUpdater = null;
+      }
+      this.messageLatency = messageLatency;
     }
 
     public Stats getStateUpdateQueueStats() {
@@ -280,6 +314,9 @@ public class Overseer implements SolrCloseable {
               clusterState = reader.getClusterState();
               zkStateWriter =
                   new ZkStateWriter(reader, stats, minStateByteLenForCompression, compressor);
+              if (shardedUpdater != null) {
+                shardedUpdater.resetWriters();
+              }
               refreshClusterState = false;
 
               // if there were any errors while processing
@@ -349,6 +386,8 @@ public class Overseer implements SolrCloseable {
           }
           try {
             Set<String> processedNodes = new HashSet<>();
+            // collection scoped messages waiting to be applied by the sharded updater
+            List<ZkNodeProps> shardedMessages = new ArrayList<>();
             while (queue != null && !queue.isEmpty()) {
               for (Pair<String, byte[]> head : queue) {
                 byte[] data = head.second();
@@ -360,6 +399,19 @@ public class Overseer implements SolrCloseable {
                       message);
                 }
 
+                if (shardedUpdater != null
+                    && unprocessedMessages.isEmpty()
+                    && CollectionShardedStateUpdater.isCollectionScoped(message)) {
+                  processedNodes.add(head.first());
+                  fallbackQueueSize = processedNodes.size();
+                  shardedMessages.add(message);
+                  continue;
+                }
+                // keep the queue order: everything handed to the sharded updater so far must be
+                // applied before this message, and before the callback below removes the
+                // corresponding nodes from the queue
+                clusterState = applySharded(shardedMessages, clusterState, zkStateWriter);
+
                 processedNodes.add(head.first());
                 fallbackQueueSize = processedNodes.size();
                 // force flush to ZK after each message because there is no fallback if workQueue
@@ -382,6 +434,7 @@ public class Overseer implements SolrCloseable {
                           processedNodes.clear();
                         });
               }
+              clusterState = applySharded(shardedMessages, clusterState, zkStateWriter);
               if (isClosed) break;
               // if an event comes in the next 100ms batch it together
               queue =
@@ -429,6 +482,28 @@ public class Overseer implements SolrCloseable {
       return !(e instanceof InterruptedException);
     }
 
+    /**
+     * Hands the pending collection scoped messages to the sharded updater and waits for them to be
+     * written to ZooKeeper.
+     */
+    private ClusterState applySharded(
+        List<ZkNodeProps> shardedMessages, ClusterState clusterState, ZkStateWriter zkStateWriter)
+        throws Exception {
+      if (shardedMessages.isEmpty()) {
+        return clusterState;
+      }
+      // the workers start from this state, make sure it is what is in ZK
+      clusterState = zkStateWriter.writePendingUpdates();
+      try {
+        clusterState = shardedUpdater.apply(clusterState, shardedMessages);
+      } finally {
+        shardedMessages.clear();
+      }
+      final ClusterState updated = clusterState;
+      zkStateWriter.updateClusterState(s -> updated);
+      return clusterState;
+    }
+
     private ClusterState processQueueItem(
         ZkNodeProps message,
         ClusterState clusterState,
@@ -442,6 +517,28 @@ public class Overseer implements SolrCloseable {
             SolrException.ErrorCode.SERVER_ERROR,
             "Message missing " + QUEUE_OPERATION + ":" + message);
       }
+      final Timer.Context latencyContext = messageLatency.time();
+      try {
+        List<ZkWriteCommand> zkWriteCommands =
+            computeWriteCommands(clusterState, message, operation);
+        if (zkWriteCommands != null) {
+          clusterState = zkStateWriter.enqueueUpdate(clusterState, zkWriteCommands, callback);
+          if (!enableBatching) {
+            clusterState = zkStateWriter.writePendingUpdates();
+          }
+        }
+      } finally {
+        latencyContext.stop();
+      }
+      return clusterState;
+    }
+
+    /**
+     * Computes the changes to apply for a message, or returns null if the message could not be
+     * processed and should be skipped.
+     */
+    private List<ZkWriteCommand> computeWriteCommands(
+        ClusterState clusterState, ZkNodeProps message, String operation) {
       List<ZkWriteCommand> zkWriteCommands = null;
       final Timer.Context timerContext = stats.time(operation);
       try {
@@ -461,13 +558,7 @@ public class Overseer implements SolrCloseable {
       } finally {
         timerContext.stop();
       }
-      if (zkWriteCommands != null) {
-        clusterState = zkStateWriter.enqueueUpdate(clusterState, zkWriteCommands, callback);
-        if (!enableBatching) {
-          clusterState = zkStateWriter.writePendingUpdates();
-        }
-      }
-      return clusterState;
+      return zkWriteCommands;
     }
 
     private void checkIfIamStillLeader() {
@@ -654,6 +745,9 @@ public class Overseer implements SolrCloseable {
     @Override
     public void close() {
       this.isClosed = true;
+      if (shardedUpdater != null) {
+        shardedUpdater.close();
+      }
       clusterStateUpdaterMetricContext.unregister();
     }
   }
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.PerReplicaStates;
+import org.apache.solr.common.cloud.PerReplicaStatesOps;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.SolrZkClient;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coalesces the per-replica state changes published concurrently by the cores of a node into a
+ * single ZooKeeper multi operation per collection.
+ *
+ * <p>When a node starts or stops, all its cores publish their state at about the same time. Each
+ * caller of {@link #flipState(DocCollection, String, Replica.State)} enqueues its change and then
+ * competes for the lock of the collection: the thread that gets it persists every change enqueued
+ * so far (group commit), while the others wait and return as soon as their change is written.
+ * There is no timer involved, a lone caller pays a single round trip as before, and changes only
+ * get batched when several cores publish while a write is in progress.
+ */
+class PerReplicaStatesBatcher {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final SolrZkClient zkClient;
+  private final Map<String, CollectionBatch> batches = new ConcurrentHashMap<>();
+
+  PerReplicaStatesBatcher(SolrZkClient zkClient) {
+    this.zkClient = zkClient;
+  }
+
+  /**
+   * Sets the state of a replica of a collection with per replica states, returns once the change
+   * is persisted in ZooKeeper, possibly together with changes enqueued by other threads.
+   */
+  void flipState(DocCollection coll, String replica, Replica.State state)
+      throws KeeperException, InterruptedException {
+    CollectionBatch batch = batches.computeIfAbsent(coll.getName(), k -> new CollectionBatch());
+    PendingChange change = new PendingChange(replica, state);
+    synchronized (batch) {
+      batch.pending.add(change);
+    }
+
+    batch.lock.lockInterruptibly();
+    try {
+      if (!change.done) {
+        List<PendingChange> toWrite;
+        synchronized (batch) {
+          toWrite = new ArrayList<>(batch.pending);
+          batch.pending.clear();
+        }
+        write(coll, toWrite);
+      }
+    } finally {
+      batch.lock.unlock();
+    }
+
+    if (change.failed) {
+      // the batch could not be written, try on our own so that the error (if any) is reported to
+      // the caller that published this change
+      PerReplicaStatesOps.flipState(
+              replica,
+              state,
+              PerReplicaStatesOps.fetch(coll.getZNode(), zkClient, coll.getPerReplicaStates()))
+          .persist(coll.getZNode(), zkClient);
+    }
+  }
+
+  private void write(DocCollection coll, List<PendingChange> changes)
+      throws InterruptedException {
+    // changes are in publish order, the last one for a replica wins
+    Map<String, Replica.State> newStates = new LinkedHashMap<>();
+    for (PendingChange change : changes) {
+      newStates.put(change.replica, change.state);
+    }
+    boolean failed = true;
+    try {
+      PerReplicaStates prs =
+          PerReplicaStatesOps.fetch(coll.getZNode(), zkClient, coll.getPerReplicaStates());
+      PerReplicaStatesOps.flipStates(newStates, prs).persist(coll.getZNode(), zkClient);
+      if (log.isDebugEnabled()) {
+        log.debug("Persisted {} replica state changes for {}", newStates.size(), coll.getName());
+      }
+      failed = false;
+    } catch (KeeperException | RuntimeException e) {
+      log.warn(
+          "Could not persist {} replica state changes for {} at once, falling back to one by one",
+          newStates.size(),
+          coll.getName(),
+          e);
+    } finally {
+      for (PendingChange change : changes) {
+        change.failed = failed;
+        change.done = true;
+      }
+    }
+  }
+
+  private static class CollectionBatch {
+    final ReentrantLock lock = new ReentrantLock();
+    // guarded by this
+    final List<PendingChange> pending = new ArrayList<>();
+  }
+
+  private static class PendingChange {
+    final String replica;
+    final Replica.State state;
+    // written by the thread holding the collection lock, read after acquiring it
+    volatile boolean done;
+    volatile boolean failed;
+
+    PendingChange(String replica, Replica.State state) {
+      this.replica = replica;
+      this.state = state;
+    }
+  }
+}
@@ -217,6 +217,9 @@ public class ZkController implements Closeable {
   private Map<String, ReplicateFromLeader> replicateFromLeaders = new ConcurrentHashMap<>();
   private final Map<String, ZkCollectionTerms> collectionToTerms = new HashMap<>();
 
+  // coalesces the per replica state changes of the cores of this node
+  private final PerReplicaStatesBatcher perReplicaStatesBatcher;
+
   // for now, this can be null in tests, in which case recovery will be inactive, and other features
   // may accept defaults or use mocks rather than pulling things from a CoreContainer
   private CoreContainer cc;
@@ -375,6 +378,7 @@ public class ZkController implements Closeable {
             .build();
     // Refuse to start if ZK has a non empty /clusterstate.json or a /solr.xml file
     checkNoOldClusterstate(zkClient);
+    this.perReplicaStatesBatcher = new PerReplicaStatesBatcher(zkClient);
 
     this.overseerRunningMap = Overseer.getRunningMap(zkClient);
     this.overseerCompletedMap = Overseer.getCompletedMap(zkClient);
@@ -1762,12 +1766,10 @@ public class ZkController implements Closeable {
         }
       }
       // extra handling for PRS, we need to write the PRS entries from this node directly,
-      // as overseer does not and should not handle those entries
+      // as overseer does not and should not handle those entries. Cores of this node publishing
+      // concurrently (e.g. on startup) get their changes written in a single multi operation
       if (coll != null && coll.isPerReplicaState() && coreNodeName != null) {
-        PerReplicaStates perReplicaStates =
-            PerReplicaStatesOps.fetch(coll.getZNode(), zkClient, coll.getPerReplicaStates());
-        PerReplicaStatesOps.flipState(coreNodeName, state, perReplicaStates)
-            .persist(coll.getZNode(), zkClient);
+        perReplicaStatesBatcher.flipState(coll, coreNodeName, state);
       }
     } finally {
       MDCLoggingContext.clear();
@@ -2908,7 +2910,8 @@ public class ZkController implements Closeable {
    * registered
    */
   private static void ensureRegisteredSearcher(SolrCore core) throws InterruptedException {
-    if (!core.getSolrConfig().useColdSearcher) {
+    // a lazy core opens its searcher on the first request, not when becoming active
+    if (!core.getSolrConfig().useColdSearcher && !core.getSolrConfig().lazySearcher) {
       RefCounted<SolrIndexSearcher> registeredSearcher = core.getRegisteredSearcher();
       if (registeredSearcher != null) {
         if (log.isDebugEnabled()) {
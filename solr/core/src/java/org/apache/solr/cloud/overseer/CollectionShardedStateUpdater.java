@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud.overseer;
+
+import com.codahale.metrics.Timer;
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.apache.solr.cloud.Overseer;
+import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CollectionParams.CollectionAction;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies state update messages that only touch a single collection on a fixed number of worker
+ * threads, so that updates to independent collections are computed and written to ZooKeeper
+ * concurrently.
+ *
+ * <p>Messages are partitioned by collection name: every message for a given collection is handled
+ * by the same worker, in the order it was handed to {@link #apply(ClusterState, List)}, which
+ * preserves per-collection ordering. Each worker owns its own {@link ZkStateWriter}. Since a
+ * collection is only ever written by a single worker, the ZooKeeper version checks done by the
+ * writers never conflict with each other.
+ *
+ * <p>Messages that are not {@link #isCollectionScoped(ZkNodeProps) collection scoped} (collection
+ * creation and deletion, node down, Overseer quit...) must still be processed sequentially by the
+ * caller, after all previously submitted collection scoped messages have been applied.
+ *
+ * <p>This class is not thread safe, it is meant to be driven by the single Overseer cluster state
+ * updater thread.
+ */
+public class CollectionShardedStateUpdater implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final Set<OverseerAction> COLLECTION_SCOPED_ACTIONS =
+      EnumSet.of(
+          OverseerAction.STATE,
+          OverseerAction.LEADER,
+          OverseerAction.DELETECORE,
+          OverseerAction.ADDROUTINGRULE,
+          OverseerAction.REMOVEROUTINGRULE,
+          OverseerAction.UPDATESHARDSTATE);
+
+  private static final Set<CollectionAction> COLLECTION_SCOPED_COLLECTION_ACTIONS =
+      EnumSet.of(
+          CollectionAction.CREATESHARD,
+          CollectionAction.DELETESHARD,
+          CollectionAction.ADDREPLICA,
+          CollectionAction.ADDREPLICAPROP,
+          CollectionAction.DELETEREPLICAPROP,
+          CollectionAction.MODIFYCOLLECTION);
+
+  /** Computes the {@link ZkWriteCommand}s for a message against a given cluster state. */
+  public interface MessageProcessor {
+    /**
+     * @return the commands to apply, or an empty list if the message should be skipped
+     */
+    List<ZkWriteCommand> process(ClusterState clusterState, ZkNodeProps message);
+  }
+
+  private final MessageProcessor processor;
+  private final Supplier<ZkStateWriter> writerFactory;
+  private final Timer messageLatency;
+  private final ExecutorService[] workers;
+  private final ZkStateWriter[] writers;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /**
+   * @param numThreads number of workers, i.e. number of collections updated concurrently
+   * @param processor computes the commands for each message
+   * @param writerFactory creates a fresh {@link ZkStateWriter} for a worker
+   * @param messageLatency timer updated with the time taken to process and enqueue each message
+   */
+  public CollectionShardedStateUpdater(
+      int numThreads,
+      MessageProcessor processor,
+      Supplier<ZkStateWriter> writerFactory,
+      Timer messageLatency) {
+    if (numThreads < 1) {
+      throw new IllegalArgumentException("numThreads must be at least 1, got " + numThreads);
+    }
+    this.processor = processor;
+    this.writerFactory = writerFactory;
+    this.messageLatency = messageLatency;
+    this.workers = new ExecutorService[numThreads];
+    this.writers = new ZkStateWriter[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      // a single thread per shard guarantees the ordering of the messages of a collection
+      workers[i] =
+          ExecutorUtil.newMDCAwareSingleThreadExecutor(
+              new SolrNamedThreadFactory("OverseerStateUpdater-" + i));
+    }
+    resetWriters();
+  }
+
+  /**
+   * Returns true if the message only reads and modifies the state of the collection it names, and
+   * can therefore be processed concurrently with messages for other collections.
+   */
+  public static boolean isCollectionScoped(ZkNodeProps message) {
+    if (message.getStr(ZkStateReader.COLLECTION_PROP) == null) {
+      return false;
+    }
+    final String operation = message.getStr(Overseer.QUEUE_OPERATION);
+    if (operation == null) {
+      return false;
+    }
+    CollectionAction collectionAction = CollectionAction.get(operation);
+    if (collectionAction != null) {
+      return COLLECTION_SCOPED_COLLECTION_ACTIONS.contains(collectionAction);
+    }
+    OverseerAction overseerAction = OverseerAction.get(operation);
+    return overseerAction != null && COLLECTION_SCOPED_ACTIONS.contains(overseerAction);
+  }
+
+  /**
+   * Discards the per worker {@link ZkStateWriter}s and creates new ones. Must be called whenever
+   * the caller refreshes its cluster state after an error, since a writer that saw a {@link
+   * org.apache.zookeeper.KeeperException.BadVersionException} can no longer be used.
+   */
+  public void resetWriters() {
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = writerFactory.get();
+    }
+  }
+
+  /** Number of messages handed to workers and not yet applied */
+  public int getInFlightCount() {
+    return inFlight.get();
+  }
+
+  public int getNumThreads() {
+    return workers.length;
+  }
+
+  /**
+   * Applies the given collection scoped messages, and blocks until all resulting updates have been
+   * written to ZooKeeper.
+   *
+   * @param clusterState the current cluster state, with no pending updates for the collections
+   *     referenced by the messages
+   * @param messages messages for which {@link #isCollectionScoped(ZkNodeProps)} is true, in queue
+   *     order
+   * @return the given cluster state in which every collection touched by the messages is replaced
+   *     by its updated state
+   * @throws Exception the first error thrown by a worker. The caller is then expected to refresh
+   *     its cluster state and call {@link #resetWriters()}
+   */
+  public ClusterState apply(ClusterState clusterState, List<ZkNodeProps> messages)
+      throws Exception {
+    if (messages.isEmpty()) return clusterState;
+
+    List<List<ZkNodeProps>> partitions = new ArrayList<>(workers.length);
+    for (int i = 0; i < workers.length; i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (ZkNodeProps message : messages) {
+      String collection = message.getStr(ZkStateReader.COLLECTION_PROP);
+      partitions.get(Math.floorMod(collection.hashCode(), workers.length)).add(message);
+    }
+
+    final ClusterState snapshot = clusterState;
+    List<Future<ClusterState>> futures = new ArrayList<>(workers.length);
+    List<Set<String>> touched = new ArrayList<>(workers.length);
+    for (int i = 0; i < workers.length; i++) {
+      final List<ZkNodeProps> partition = partitions.get(i);
+      if (partition.isEmpty()) continue;
+      final ZkStateWriter writer = writers[i];
+      final Set<String> collections = new HashSet<>();
+      for (ZkNodeProps message : partition) {
+        collections.add(message.getStr(ZkStateReader.COLLECTION_PROP));
+      }
+      touched.add(collections);
+      inFlight.addAndGet(partition.size());
+      futures.add(workers[i].submit(() -> applyPartition(writer, snapshot, partition)));
+    }
+
+    Exception firstError = null;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        ClusterState workerState = futures.get(i).get();
+        clusterState = mergeCollections(clusterState, workerState, touched.get(i));
+      } catch (ExecutionException e) {
+        if (firstError == null) {
+          firstError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } else {
+          log.warn("Additional error while applying state updates", e.getCause());
+        }
+      }
+    }
+    if (firstError != null) {
+      throw firstError;
+    }
+    return clusterState;
+  }
+
+  private ClusterState applyPartition(
+      ZkStateWriter writer, ClusterState state, List<ZkNodeProps> partition) throws Exception {
+    // start from the state of the caller, the writer may have an outdated view of the collections
+    // modified sequentially since the last batch
+    final ClusterState initial = state;
+    writer.updateClusterState(s -> initial);
+    int remaining = partition.size();
+    try {
+      for (ZkNodeProps message : partition) {
+        final Timer.Context timerContext = messageLatency.time();
+        try {
+          List<ZkWriteCommand> cmds = processor.process(state, message);
+          if (cmds != null && !cmds.isEmpty()) {
+            state = writer.enqueueUpdate(state, cmds, null);
+          }
+        } finally {
+          timerContext.stop();
+          remaining--;
+          inFlight.decrementAndGet();
+        }
+      }
+      return writer.writePendingUpdates();
+    } finally {
+      // messages left over after an error are not going to be processed
+      inFlight.addAndGet(-remaining);
+    }
+  }
+
+  private static ClusterState mergeCollections(
+      ClusterState target, ClusterState source, Collection<String> collections) {
+    for (String collection : collections) {
+      target = target.copyWith(collection, source.getCollectionOrNull(collection));
+    }
+    return target;
+  }
+
+  @Override
+  public void close() {
+    for (ExecutorService worker : workers) {
+      ExecutorUtil.shutdownAndAwaitTermination(worker);
+    }
+  }
+}
@@ -49,6 +49,8 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -232,6 +234,10 @@ public class CoreContainer {
 
   private final OrderedExecutor replayUpdatesExecutor;
 
+  private volatile ExecutorService indexSearcherExecutor;
+
+  private volatile ScheduledExecutorService mergeLoadChecker;
+
   protected volatile LogWatcher<?> logging = null;
 
   private volatile CloserThread backgroundCloser = null;
@@ -306,6 +312,8 @@ public class CoreContainer {
   private ExecutorService coreContainerAsyncTaskExecutor =
       ExecutorUtil.newMDCAwareCachedThreadPool("Core Container Async Task");
 
+  private final LazySearcherManager lazySearcherManager = new LazySearcherManager(this);
+
   /**
    * Non-empty if the Collection API is executed in a distributed way and not on Overseer, once the
    * CoreContainer has been initialized properly, i.e. method {@link #load()} called. Until then it
@@ -707,6 +715,25 @@ public class CoreContainer {
     return replayUpdatesExecutor;
   }
 
+  /**
+   * The pool searching the segments of an index concurrently, shared by all the cores of the node,
+   * or null if the container is not loaded.
+   *
+   * @see org.apache.solr.search.ParallelLeafSearch
+   */
+  public ExecutorService getIndexSearcherExecutor() {
+    return indexSearcherExecutor;
+  }
+
+  /**
+   * The single thread checking the load of the node for the {@link
+   * org.apache.solr.update.LoadAwareMergeScheduler}s of all the cores, or null if the container is
+   * not loaded. The thread is only started when a check is scheduled.
+   */
+  public ScheduledExecutorService getMergeLoadChecker() {
+    return mergeLoadChecker;
+  }
+
   public SolrPackageLoader getPackageLoader() {
     return packageLoader;
   }
@@ -797,6 +824,21 @@ public class CoreContainer {
                 SolrInfoBean.Category.CONTAINER.toString(),
                 "threadPool"));
 
+    indexSearcherExecutor =
+        MetricUtils.instrumentedExecutorService(
+            ExecutorUtil.newMDCAwareFixedThreadPool(
+                cfg.getIndexSearcherExecutorThreads(),
+                new SolrNamedThreadFactory("indexSearcherExecutor")),
+            null,
+            metricManager.registry(SolrMetricManager.getRegistryName(SolrInfoBean.Group.node)),
+            SolrMetricManager.mkName(
+                "indexSearcherExecutor", SolrInfoBean.Category.CONTAINER.toString(), "threadPool"));
+
+    ScheduledThreadPoolExecutor loadChecker =
+        new ScheduledThreadPoolExecutor(1, new SolrNamedThreadFactory("mergeLoadChecker"));
+    loadChecker.setRemoveOnCancelPolicy(true);
+    mergeLoadChecker = loadChecker;
+
     shardHandlerFactory =
         ShardHandlerFactory.newInstance(cfg.getShardHandlerFactoryPluginInfo(), loader);
     if (shardHandlerFactory instanceof SolrMetricProducer) {
@@ -1244,6 +1286,7 @@ public class CoreContainer {
     }
 
     ExecutorUtil.shutdownAndAwaitTermination(coreContainerAsyncTaskExecutor);
+    lazySearcherManager.close();
     ExecutorService customThreadPool =
         ExecutorUtil.newMDCAwareCachedThreadPool(new SolrNamedThreadFactory("closeThreadPool"));
 
@@ -1317,6 +1360,17 @@ public class CoreContainer {
             replayUpdatesExecutor.shutdownAndAwaitTermination();
           });
 
+      if (indexSearcherExecutor != null) {
+        customThreadPool.submit(
+            () -> {
+              ExecutorUtil.shutdownAndAwaitTermination(indexSearcherExecutor);
+            });
+      }
+
+      if (mergeLoadChecker != null) {
+        mergeLoadChecker.shutdownNow();
+      }
+
       if (metricManager != null) {
         metricManager.closeReporters(SolrMetricManager.getRegistryName(SolrInfoBean.Group.node));
         metricManager.closeReporters(SolrMetricManager.getRegistryName(SolrInfoBean.Group.jvm));
@@ -2407,6 +2461,11 @@ public class CoreContainer {
     return zkSys.getZkController() != null;
   }
 
+  /** Opens and closes the searchers of the cores configured with <code>lazySearcher</code> */
+  public LazySearcherManager getLazySearcherManager() {
+    return lazySearcherManager;
+  }
+
   public ZkController getZkController() {
     return zkSys.getZkController();
   }
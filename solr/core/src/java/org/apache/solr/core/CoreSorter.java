@@ -23,6 +23,7 @@ import static java.util.stream.Collectors.toList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -36,7 +37,12 @@ import org.apache.solr.common.cloud.Slice;
 /**
  * This is a utility class that sorts cores in such a way as to minimize other cores waiting for
  * replicas in the current node. This helps in avoiding leaderVote timeouts happening in other nodes
- * of the cluster
+ * of the cluster.
+ *
+ * <p>When several shards are equally important to the rest of the cluster, the shards for which a
+ * core of this node was the leader are loaded first: that core has the most up-to-date index, so
+ * it can become leader again right away instead of having the other replicas wait for it, and they
+ * recover from it rather than from a less up-to-date replica.
  */
 public class CoreSorter {
 
@@ -88,7 +94,9 @@ public class CoreSorter {
   public List<CoreDescriptor> sort(List<CoreDescriptor> cds) {
     // sort the cores if it is in SolrCloud. In standalone mode the order does not matter
     if (cc.isZooKeeperAware()) {
-      Map<String, CountsForEachShard> shardsVsReplicaCounts = computeShardsVsReplicaCounts(cds);
+      Map<String, CountsForEachShard> shardsVsReplicaCounts = new HashMap<>();
+      Set<String> formerLeaderShards = new HashSet<>();
+      computeShardsVsReplicaCounts(cds, shardsVsReplicaCounts, formerLeaderShards);
       return cds.stream()
           .sorted(
               (cd1, cd2) -> {
@@ -98,6 +106,11 @@ public class CoreSorter {
                 CountsForEachShard c1 = shardsVsReplicaCounts.get(s1);
                 CountsForEachShard c2 = shardsVsReplicaCounts.get(s2);
                 int result = countsComparator.compare(c1, c2);
+                if (result == 0) {
+                  result =
+                      Boolean.compare(
+                          formerLeaderShards.contains(s2), formerLeaderShards.contains(s1));
+                }
                 return result == 0 ? s1.compareTo(s2) : result;
               })
           .collect(toList()); // new list
@@ -105,9 +118,10 @@ public class CoreSorter {
     return cds;
   }
 
-  private Map<String, CountsForEachShard> computeShardsVsReplicaCounts(
-      Collection<CoreDescriptor> coreDescriptors) {
-    Map<String, CountsForEachShard> shardsVsReplicaCounts = new HashMap<>();
+  private void computeShardsVsReplicaCounts(
+      Collection<CoreDescriptor> coreDescriptors,
+      Map<String, CountsForEachShard> shardsVsReplicaCounts,
+      Set<String> formerLeaderShards) {
     String myNodeName = cc.getNodeConfig().getNodeName();
     ClusterState state = cc.getZkController().getClusterState();
     for (CoreDescriptor coreDescriptor : coreDescriptors) {
@@ -119,6 +133,9 @@ public class CoreSorter {
       for (Replica replica : getReplicas(state, coll, cloudDescriptor.getShardId())) {
         if (replica.getNodeName().equals(myNodeName)) {
           c.myReplicas++;
+          if (replica.isLeader()) {
+            formerLeaderShards.add(sliceName);
+          }
         } else {
           Set<String> liveNodes = state.getLiveNodes();
           if (liveNodes.contains(replica.getNodeName())) {
@@ -130,7 +147,6 @@ public class CoreSorter {
       }
       shardsVsReplicaCounts.put(sliceName, c);
     }
-    return shardsVsReplicaCounts;
   }
 
   static class CountsForEachShard {
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import java.io.Closeable;
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Node level coordination of the cores configured with <code>&lt;lazySearcher&gt;</code>: such
+ * cores do not open a searcher when they are loaded, but on the first request needing one.
+ *
+ * <p>This class bounds the number of searchers being opened lazily at the same time on the node, so
+ * that a burst of queries hitting many cold cores does not open (and warm) all of them at once, and
+ * periodically closes the searchers of the cores that have not been searched for longer than their
+ * <code>searcherIdleTimeSeconds</code>. A searcher counts as being opened until it is warmed and
+ * registered.
+ *
+ * @see SolrConfig#lazySearcher
+ * @see SolrConfig#searcherIdleTimeSeconds
+ */
+public class LazySearcherManager implements Closeable {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private final CoreContainer coreContainer;
+  private final int maxConcurrentOpens;
+  private final int idleCheckIntervalSeconds;
+  private final Semaphore openPermits;
+  private volatile TimeSource timeSource = TimeSource.NANO_TIME;
+  private ScheduledThreadPoolExecutor idleCheckExecutor;
+
+  LazySearcherManager(CoreContainer coreContainer) {
+    this.coreContainer = coreContainer;
+    this.maxConcurrentOpens =
+        Integer.getInteger(
+            "solr.lazySearcher.maxConcurrentOpens",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    this.idleCheckIntervalSeconds =
+        Integer.getInteger("solr.lazySearcher.idleCheckIntervalSeconds", 60);
+    this.openPermits = new Semaphore(maxConcurrentOpens, true);
+  }
+
+  /** Maximum number of searchers opened lazily at the same time on this node */
+  public int getMaxConcurrentOpens() {
+    return maxConcurrentOpens;
+  }
+
+  /** The clock the idle time of the searchers is measured with */
+  public TimeSource getTimeSource() {
+    return timeSource;
+  }
+
+  // for tests
+  void setTimeSource(TimeSource timeSource) {
+    this.timeSource = timeSource;
+  }
+
+  // for tests
+  int getQueuedOpens() {
+    return openPermits.getQueueLength();
+  }
+
+  /**
+   * Opens and registers the first searcher of a lazy core, waiting for a permit if too many
+   * searchers are already being opened lazily. The permit is held until the new searcher is warmed
+   * and registered.
+   *
+   * @see SolrCore#getSearcher(boolean, boolean, Future[], boolean)
+   */
+  RefCounted<SolrIndexSearcher> openSearcher(
+      SolrCore core,
+      boolean returnSearcher,
+      Future<Void>[] waitSearcher,
+      boolean updateHandlerReopens) {
+    try {
+      openPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SolrException(
+          SolrException.ErrorCode.SERVICE_UNAVAILABLE,
+          "Interrupted while waiting to open the searcher of " + core.getName(),
+          e);
+    }
+    try {
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      Future<Void>[] registered = new Future[1];
+      // another request may have opened it while we were waiting
+      RefCounted<SolrIndexSearcher> searcher =
+          core.getOrOpenSearcher(false, returnSearcher, registered, updateHandlerReopens);
+      if (registered[0] != null) {
+        try {
+          registered[0].get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          log.warn("Interrupted while waiting for the searcher of {}", core.getName());
+        } catch (ExecutionException e) {
+          log.error("Exception waiting for searcher", e);
+        }
+      }
+      if (waitSearcher != null) {
+        waitSearcher[0] = registered[0];
+      }
+      return searcher;
+    } finally {
+      openPermits.release();
+    }
+  }
+
+  /** Starts checking for idle searchers, the first time a core with an idle timeout is loaded */
+  synchronized void ensureIdleCheckStarted() {
+    if (idleCheckExecutor != null) return;
+    idleCheckExecutor =
+        (ScheduledThreadPoolExecutor)
+            Executors.newScheduledThreadPool(
+                1, new SolrNamedThreadFactory("lazySearcherIdleCheck"));
+    idleCheckExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    idleCheckExecutor.scheduleWithFixedDelay(
+        this::closeIdleSearchers,
+        idleCheckIntervalSeconds,
+        idleCheckIntervalSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  void closeIdleSearchers() {
+    if (coreContainer.isShutDown()) return;
+    for (SolrCore core : coreContainer.getCores()) {
+      try {
+        if (core.closeSearcherIfIdle()) {
+          log.info("Closed the searcher of core {}, idle for too long", core.getName());
+        }
+      } catch (Exception e) {
+        log.warn("Could not close the idle searcher of core {}", core.getName(), e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    if (idleCheckExecutor != null) {
+      ExecutorUtil.shutdownAndAwaitTermination(idleCheckExecutor);
+      idleCheckExecutor = null;
+    }
+  }
+}
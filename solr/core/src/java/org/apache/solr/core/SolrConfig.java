@@ -329,6 +329,8 @@ public class SolrConfig implements MapSerializable {
       }
       fieldValueCacheConfig = conf;
       useColdSearcher = get("query").get("useColdSearcher").boolVal(false);
+      lazySearcher = get("query").get("lazySearcher").boolVal(false);
+      searcherIdleTimeSeconds = get("query").get("searcherIdleTimeSeconds").intVal(-1);
       dataDir = get("dataDir").txt();
       if (dataDir != null && dataDir.length() == 0) dataDir = null;
 
@@ -692,6 +694,13 @@ public class SolrConfig implements MapSerializable {
 
   public final int maxWarmingSearchers;
   public final boolean useColdSearcher;
+  /** If true, the first searcher is opened by the first request needing it, not on core load */
+  public final boolean lazySearcher;
+  /**
+   * With {@link #lazySearcher}, the searcher is closed after this many seconds without requests,
+   * never if not positive
+   */
+  public final int searcherIdleTimeSeconds;
   public final Version luceneMatchVersion;
   protected String dataDir;
   public final int slowQueryThresholdMillis; // threshold above which a query is considered slow
@@ -807,6 +816,8 @@ public class SolrConfig implements MapSerializable {
         autoSoftCommmitMaxDocs,
         autoSoftCommmitMaxTime;
     public final long autoCommitMaxSizeBytes;
+    // bounds of the adaptive soft commit interval, -1 when the interval is fixed
+    public final int autoSoftCommitAdaptiveMinTime, autoSoftCommitAdaptiveMaxTime;
     public final boolean openSearcher; // is opening a new searcher part of hard autocommit?
     public final boolean commitWithinSoftCommit;
     public final boolean aggregateNodeLevelMetricsEnabled;
@@ -833,6 +844,8 @@ public class SolrConfig implements MapSerializable {
 
       this.autoSoftCommmitMaxDocs = autoSoftCommmitMaxDocs;
       this.autoSoftCommmitMaxTime = autoSoftCommmitMaxTime;
+      this.autoSoftCommitAdaptiveMinTime = -1;
+      this.autoSoftCommitAdaptiveMaxTime = -1;
 
       this.commitWithinSoftCommit = commitWithinSoftCommit;
       this.aggregateNodeLevelMetricsEnabled = false;
@@ -848,6 +861,9 @@ public class SolrConfig implements MapSerializable {
       this.openSearcher = autoCommit.get("openSearcher").boolVal(true);
       this.autoSoftCommmitMaxDocs = updateHandler.get("autoSoftCommit").get("maxDocs").intVal(-1);
       this.autoSoftCommmitMaxTime = updateHandler.get("autoSoftCommit").get("maxTime").intVal(-1);
+      ConfigNode adaptive = updateHandler.get("autoSoftCommit").get("adaptive");
+      this.autoSoftCommitAdaptiveMinTime = adaptive.get("minTime").intVal(-1);
+      this.autoSoftCommitAdaptiveMaxTime = adaptive.get("maxTime").intVal(-1);
       this.commitWithinSoftCommit =
           updateHandler.get("commitWithin").get("softCommit").boolVal(true);
       this.aggregateNodeLevelMetricsEnabled =
@@ -863,9 +879,17 @@ public class SolrConfig implements MapSerializable {
               "maxDocs", autoCommmitMaxDocs,
               "maxTime", autoCommmitMaxTime,
               "openSearcher", openSearcher));
-      map.put(
-          "autoSoftCommit",
-          Map.of("maxDocs", autoSoftCommmitMaxDocs, "maxTime", autoSoftCommmitMaxTime));
+      Map<String, Object> autoSoftCommit = new LinkedHashMap<>();
+      autoSoftCommit.put("maxDocs", autoSoftCommmitMaxDocs);
+      autoSoftCommit.put("maxTime", autoSoftCommmitMaxTime);
+      if (autoSoftCommitAdaptiveMaxTime > 0) {
+        autoSoftCommit.put(
+            "adaptive",
+            Map.of(
+                "minTime", autoSoftCommitAdaptiveMinTime,
+                "maxTime", autoSoftCommitAdaptiveMaxTime));
+      }
+      map.put("autoSoftCommit", autoSoftCommit);
       return map;
     }
   }
@@ -59,6 +59,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -1269,7 +1270,17 @@ public class SolrCore implements SolrInfoBean, Closeable {
     }
 
     try {
-      getSearcher(false, false, null, true);
+      if (solrConfig.lazySearcher && (prev == null || !prev.hasRegisteredSearcher())) {
+        // opened by the first request needing it, see getSearcher()
+        log.info("Not opening a searcher until needed, lazySearcher is enabled");
+        newSearcherReady = true;
+        lastSearcherAccessNs = searcherAccessTimeNs();
+        if (solrConfig.searcherIdleTimeSeconds > 0 && coreContainer != null) {
+          coreContainer.getLazySearcherManager().ensureIdleCheckStarted();
+        }
+      } else {
+        getOrOpenSearcher(false, false, null, true);
+      }
     } finally {
       newReaderCreator = null;
       if (iwRef != null) {
@@ -2069,6 +2080,8 @@ public class SolrCore implements SolrInfoBean, Closeable {
 
   private RefCounted<SolrIndexSearcher> realtimeSearcher;
   private Callable<DirectoryReader> newReaderCreator;
+  // last time getSearcher() was called on behalf of a request, see closeSearcherIfIdle()
+  private volatile long lastSearcherAccessNs = System.nanoTime();
 
   // For testing
   boolean areAllSearcherReferencesEmpty() {
@@ -2095,6 +2108,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
    */
   public RefCounted<SolrIndexSearcher> getSearcher() {
     if (searchEnabled) {
+      lastSearcherAccessNs = searcherAccessTimeNs();
       return getSearcher(false, true, null);
     }
     throw new SolrException(
@@ -2197,6 +2211,26 @@ public class SolrCore implements SolrInfoBean, Closeable {
     return f;
   }
 
+  private long searcherAccessTimeNs() {
+    return coreContainer == null
+        ? System.nanoTime()
+        : coreContainer.getLazySearcherManager().getTimeSource().getTimeNs();
+  }
+
+  // true if this lazy core has no searcher and none is being opened
+  private boolean isLazySearcherClosed() {
+    synchronized (searcherLock) {
+      return _searcher == null && onDeckSearchers == 0;
+    }
+  }
+
+  /** Returns true if a searcher is currently registered, without opening one. */
+  public boolean hasRegisteredSearcher() {
+    synchronized (searcherLock) {
+      return _searcher != null;
+    }
+  }
+
   /**
    * Returns the current registered searcher with its reference count incremented, or null if none
    * are registered.
@@ -2280,15 +2314,30 @@ public class SolrCore implements SolrInfoBean, Closeable {
    */
   public RefCounted<SolrIndexSearcher> openNewSearcher(
       boolean updateHandlerReopens, boolean realtime) {
+    return openNewSearcher(updateHandlerReopens, realtime, false);
+  }
+
+  /**
+   * Same as {@link #openNewSearcher(boolean, boolean)}, or if <code>keepReader==true</code>, opens
+   * a new main searcher over the reader of the newest main searcher, which leaves realtimeSearcher
+   * as is.
+   */
+  private RefCounted<SolrIndexSearcher> openNewSearcher(
+      boolean updateHandlerReopens, boolean realtime, boolean keepReader) {
     if (isClosed()) { // catch some errors quicker
       throw new SolrCoreState.CoreIsClosedException();
     }
 
     SolrIndexSearcher tmp;
     RefCounted<SolrIndexSearcher> newestSearcher = null;
+    boolean keepMainReader = false;
 
     openSearcherLock.lock();
     try {
+      // the deferred deletes applied from now on may not be seen by the new reader
+      long deferredDeletesGeneration =
+          updateHandler == null ? 0 : updateHandler.getDeferredDeletesGeneration();
+
       String newIndexDir = getNewIndexDir();
       String indexDirFile = null;
       String newIndexDirFile = null;
@@ -2300,7 +2349,9 @@ public class SolrCore implements SolrInfoBean, Closeable {
       }
 
       synchronized (searcherLock) {
-        newestSearcher = realtimeSearcher;
+        // without a main searcher, there is no reader to keep
+        keepMainReader = keepReader && !realtime && !_searchers.isEmpty();
+        newestSearcher = keepMainReader ? _searchers.getLast() : realtimeSearcher;
         if (newestSearcher != null) {
           newestSearcher.incref(); // the matching decref is in the finally block
         }
@@ -2317,7 +2368,9 @@ public class SolrCore implements SolrInfoBean, Closeable {
         RefCounted<IndexWriter> writer = getSolrCoreState().getIndexWriter(null);
 
         try {
-          if (writer != null) {
+          if (keepMainReader) {
+            newReader = null;
+          } else if (writer != null) {
             // if in NRT mode, open from the writer
             newReader = DirectoryReader.openIfChanged(currentReader, writer.get(), true);
           } else {
@@ -2331,15 +2384,20 @@ public class SolrCore implements SolrInfoBean, Closeable {
           }
         }
 
+        // the searcher does not hide all the documents deleted by deferred deletes by query
+        boolean deferredDeletesChanged =
+            updateHandler != null && updateHandler.hasNewDeferredDeletes(newestSearcher.get());
+
         if (newReader == null) { // the underlying index has not changed at all
 
-          if (realtime) {
+          if (realtime && !deferredDeletesChanged) {
             // if this is a request for a realtime searcher, just return the same searcher
             newestSearcher.incref();
             return newestSearcher;
 
           } else if (newestSearcher.get().isCachingEnabled()
-              && newestSearcher.get().getSchema() == getLatestSchema()) {
+              && newestSearcher.get().getSchema() == getLatestSchema()
+              && !deferredDeletesChanged) {
             // absolutely nothing has changed, can use the same searcher
             // but log a message about it to minimize confusion
 
@@ -2354,6 +2412,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
           currentReader.incRef();
           newReader = currentReader;
         }
+        deferredDeletesReaderOpened(newReader, deferredDeletesGeneration);
 
         // for now, turn off caches if this is for a realtime reader
         // (caches take a little while to instantiate)
@@ -2379,6 +2438,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
           // so that we pick up any uncommitted changes and so we don't go backwards
           // in time on a core reload
           DirectoryReader newReader = newReaderCreator.call();
+          deferredDeletesReaderOpened(newReader, deferredDeletesGeneration);
           tmp =
               new SolrIndexSearcher(
                   this,
@@ -2398,6 +2458,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
           } finally {
             writer.decref();
           }
+          deferredDeletesReaderOpened(newReader, deferredDeletesGeneration);
           tmp =
               new SolrIndexSearcher(
                   this,
@@ -2418,23 +2479,29 @@ public class SolrCore implements SolrInfoBean, Closeable {
 
       // Increment reference again for "realtimeSearcher" variable.  It should be at 2 after.
       // When it's decremented by both the caller of this method, and by realtimeSearcher being
-      // replaced, it will be closed.
-      newSearcher.incref();
+      // replaced, it will be closed. A searcher over an older reader does not replace it.
+      if (!keepMainReader) {
+        newSearcher.incref();
+      }
 
       synchronized (searcherLock) {
         // Check if the core is closed again inside the lock in case this method is racing with a
         // close. If the core is closed, clean up the new searcher and bail.
         if (isClosed()) {
           newSearcher.decref(); // once for caller since we're not returning it
-          newSearcher.decref(); // once for ourselves since it won't be "replaced"
+          if (!keepMainReader) {
+            newSearcher.decref(); // once for ourselves since it won't be "replaced"
+          }
           throw new SolrException(ErrorCode.SERVER_ERROR, "openNewSearcher called on closed core");
         }
 
-        if (realtimeSearcher != null) {
-          realtimeSearcher.decref();
+        if (!keepMainReader) {
+          if (realtimeSearcher != null) {
+            realtimeSearcher.decref();
+          }
+          realtimeSearcher = newSearcher;
         }
-        realtimeSearcher = newSearcher;
-        searcherList.add(realtimeSearcher);
+        searcherList.add(newSearcher);
       }
 
       return newSearcher;
@@ -2449,6 +2516,13 @@ public class SolrCore implements SolrInfoBean, Closeable {
     }
   }
 
+  // records the deferred deletes by query the new reader sees, before a searcher wraps it
+  private void deferredDeletesReaderOpened(DirectoryReader reader, long generation) {
+    if (updateHandler != null) {
+      updateHandler.deferredDeletesReaderOpened(reader, generation);
+    }
+  }
+
   /**
    * Get a {@link SolrIndexSearcher} or start the process of creating a new one.
    *
@@ -2499,6 +2573,57 @@ public class SolrCore implements SolrInfoBean, Closeable {
       boolean returnSearcher,
       final Future<Void>[] waitSearcher,
       boolean updateHandlerReopens) {
+    if (!forceNew && solrConfig.lazySearcher && coreContainer != null && isLazySearcherClosed()) {
+      // the first searcher of a lazy core, bounded with those of the other cores of the node
+      return coreContainer
+          .getLazySearcherManager()
+          .openSearcher(this, returnSearcher, waitSearcher, updateHandlerReopens);
+    }
+    return getOrOpenSearcher(forceNew, returnSearcher, waitSearcher, updateHandlerReopens);
+  }
+
+  /**
+   * Opens a new main searcher over the reader of the newest one and waits for it to be registered,
+   * so that searches stop seeing the documents deleted by the deferred deletes by query since.
+   * Unlike a soft commit, the updates since the newest main searcher was opened stay invisible.
+   * Does nothing if no main searcher is open.
+   *
+   * @see org.apache.solr.update.DeferredDeletes
+   */
+  public void openSearcherHidingDeferredDeletes() {
+    synchronized (searcherLock) {
+      if (_searchers.isEmpty()) return;
+    }
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Future<Void>[] registered = new Future[1];
+    getOrOpenSearcher(true, false, registered, true, true);
+    if (registered[0] != null) {
+      try {
+        registered[0].get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("Interrupted while waiting for the searcher of {}", getName());
+      } catch (ExecutionException e) {
+        log.error("Exception waiting for searcher", e);
+      }
+    }
+  }
+
+  // getSearcher(), without waiting for the permit of the LazySearcherManager
+  RefCounted<SolrIndexSearcher> getOrOpenSearcher(
+      boolean forceNew,
+      boolean returnSearcher,
+      final Future<Void>[] waitSearcher,
+      boolean updateHandlerReopens) {
+    return getOrOpenSearcher(forceNew, returnSearcher, waitSearcher, updateHandlerReopens, false);
+  }
+
+  private RefCounted<SolrIndexSearcher> getOrOpenSearcher(
+      boolean forceNew,
+      boolean returnSearcher,
+      final Future<Void>[] waitSearcher,
+      boolean updateHandlerReopens,
+      boolean keepReader) {
     // it may take some time to open an index.... we may need to make
     // sure that two threads aren't trying to open one at the same time
     // if it isn't necessary.
@@ -2573,7 +2698,7 @@ public class SolrCore implements SolrInfoBean, Closeable {
     openSearcherLock.lock();
     Timer.Context timerContext = newSearcherTimer.time();
     try {
-      searchHolder = openNewSearcher(updateHandlerReopens, false);
+      searchHolder = openNewSearcher(updateHandlerReopens, false, keepReader);
       // the searchHolder will be incremented once already (and it will eventually be assigned to
       // _searcher when registered) increment it again if we are going to return it to the caller.
       if (returnSearcher) {
@@ -2838,6 +2963,38 @@ public class SolrCore implements SolrInfoBean, Closeable {
     }
   }
 
+  /**
+   * Closes the registered searcher of a core configured with <code>lazySearcher</code> if it has
+   * not been requested for more than <code>searcherIdleTimeSeconds</code>, releasing its caches and
+   * readers until the next request opens a new one. Nothing is done while a searcher is being
+   * opened, e.g. by a commit.
+   *
+   * @return true if the searcher was closed
+   */
+  public boolean closeSearcherIfIdle() {
+    if (!solrConfig.lazySearcher || solrConfig.searcherIdleTimeSeconds <= 0 || isClosed()) {
+      return false;
+    }
+    long idleNs = searcherAccessTimeNs() - lastSearcherAccessNs;
+    if (idleNs < TimeUnit.SECONDS.toNanos(solrConfig.searcherIdleTimeSeconds)) {
+      return false;
+    }
+    if (!openSearcherLock.tryLock()) {
+      return false;
+    }
+    try {
+      synchronized (searcherLock) {
+        if (_searcher == null || onDeckSearchers > 0) {
+          return false;
+        }
+        closeSearcher();
+        return true;
+      }
+    } finally {
+      openSearcherLock.unlock();
+    }
+  }
+
   public void closeSearcher() {
     log.debug("Closing main searcher on request.");
     synchronized (searcherLock) {
@@ -114,6 +114,7 @@ import org.apache.solr.search.grouping.endresulttransformer.EndResultTransformer
 import org.apache.solr.search.grouping.endresulttransformer.GroupedEndResultTransformer;
 import org.apache.solr.search.grouping.endresulttransformer.MainEndResultTransformer;
 import org.apache.solr.search.grouping.endresulttransformer.SimpleEndResultTransformer;
+import org.apache.solr.search.neural.FusionQuery;
 import org.apache.solr.search.stats.StatsCache;
 import org.apache.solr.util.SolrPluginUtils;
 import org.apache.solr.util.SolrResponseUtil;
@@ -176,6 +177,10 @@ public class QueryComponent extends SearchComponent {
       }
 
       rb.setQuery(q);
+      if (q instanceof FusionQuery) {
+        // the rankings of the shards are fused again once merged
+        rb.addMergeStrategy(((FusionQuery) q).getMergeStrategy());
+      }
 
       String rankQueryString = rb.req.getParams().get(CommonParams.RQ);
       if (rankQueryString != null) {
@@ -1720,6 +1725,11 @@ public class QueryComponent extends SearchComponent {
       doFieldSortValues(rb, searcher);
     }
 
+    if (rb.req.getParams().getBool(ShardParams.IS_SHARD, false)
+        && rb.getQuery() instanceof FusionQuery) {
+      rsp.add(FusionQuery.RANKINGS_KEY, ((FusionQuery) rb.getQuery()).getRankings(searcher));
+    }
+
     doPrefetch(rb);
   }
 
@@ -24,6 +24,7 @@ import static org.apache.solr.search.QueryUtils.makeQueryable;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -816,6 +817,103 @@ public class RealTimeGetComponent extends SearchComponent {
     return sid;
   }
 
+  /**
+   * Looks up the latest version of many documents at once, for a caller about to get them one by
+   * one with {@link PrefetchedInputDocuments#getInputDocument}. The ids found in the update log
+   * are left to that method. The others are sorted and looked up in the realtime searcher with a
+   * single pass over the terms dictionary of each segment, and their stored fields are loaded in
+   * docid order.
+   *
+   * <p>Only for schemas without nested documents. Fields that are targets of copy-fields are
+   * excluded.
+   */
+  public static PrefetchedInputDocuments prefetchInputDocuments(
+      SolrCore core, Collection<BytesRef> ids) throws IOException {
+    final IndexSchema schema = core.getLatestSchema();
+    assert !schema.isUsableForChildDocs();
+    final UpdateLog ulog = core.getUpdateHandler().getUpdateLog();
+
+    RefCounted<SolrIndexSearcher> searcherHolder = core.getRealtimeSearcher();
+    try {
+      SolrIndexSearcher searcher = searcherHolder.get();
+      // the ids updated since this searcher was opened are in the update log
+      BytesRef[] sortedIds =
+          ids.stream()
+              .filter(id -> ulog == null || ulog.lookup(id) == null)
+              .sorted()
+              .distinct()
+              .toArray(BytesRef[]::new);
+      int[] docIds = searcher.lookupIds(sortedIds);
+
+      Map<BytesRef, SolrInputDocument> docs = CollectionUtil.newHashMap(sortedIds.length);
+      // docid in the upper 32 bits, position in sortedIds in the lower ones
+      long[] byDocId = new long[sortedIds.length];
+      int numFound = 0;
+      for (int i = 0; i < sortedIds.length; i++) {
+        if (docIds[i] < 0) {
+          docs.put(sortedIds[i], null);
+        } else {
+          byDocId[numFound++] = ((long) docIds[i] << 32) | i;
+        }
+      }
+      Arrays.sort(byDocId, 0, numFound);
+      SolrReturnFields returnFields = makeReturnFields(core, null, Resolution.DOC);
+      for (int i = 0; i < numFound; i++) {
+        int docId = (int) (byDocId[i] >>> 32);
+        SolrDocument solrDoc = fetchSolrDoc(searcher, docId, returnFields);
+        docs.put(sortedIds[(int) byDocId[i]], toSolrInputDocument(solrDoc, schema));
+      }
+      return new PrefetchedInputDocuments(searcher, docs);
+    } finally {
+      searcherHolder.decref();
+    }
+  }
+
+  /**
+   * Documents looked up by {@link #prefetchInputDocuments}, valid as long as they are not updated
+   * and the realtime searcher is not reopened.
+   */
+  public static class PrefetchedInputDocuments {
+    // only compared with the current realtime searcher, never used once its reference is released
+    private final SolrIndexSearcher searcher;
+    // a null value means the document is not in the index of the searcher
+    private final Map<BytesRef, SolrInputDocument> docs;
+
+    private PrefetchedInputDocuments(
+        SolrIndexSearcher searcher, Map<BytesRef, SolrInputDocument> docs) {
+      this.searcher = searcher;
+      this.docs = docs;
+    }
+
+    /**
+     * Same as {@link RealTimeGetComponent#getInputDocument(SolrCore, BytesRef, BytesRef,
+     * AtomicLong, Set, Resolution)} for all the fields of the document (no children), using the
+     * prefetched document when it is still the latest one. Each prefetched document is returned
+     * at most once since the caller may modify it, later calls look the document up again.
+     */
+    public SolrInputDocument getInputDocument(SolrCore core, BytesRef idBytes) throws IOException {
+      if (docs.containsKey(idBytes)) {
+        SolrInputDocument sid =
+            getInputDocumentFromTlog(core, idBytes, null, null, Resolution.DOC);
+        if (sid == DELETED) {
+          return null;
+        } else if (sid != null) {
+          return sid;
+        }
+        RefCounted<SolrIndexSearcher> searcherHolder = core.getRealtimeSearcher();
+        try {
+          if (searcherHolder.get() == searcher) {
+            return docs.remove(idBytes);
+          }
+        } finally {
+          searcherHolder.decref();
+        }
+      }
+      return RealTimeGetComponent.getInputDocument(
+          core, idBytes, idBytes, null, null, Resolution.DOC);
+    }
+  }
+
   private static boolean hasRootTerm(SolrIndexSearcher searcher, BytesRef rootIdBytes)
       throws IOException {
     final String fieldName = IndexSchema.ROOT_FIELD_NAME;
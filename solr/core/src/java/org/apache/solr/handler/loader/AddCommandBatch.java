@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.loader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.processor.UpdateRequestProcessor;
+
+/**
+ * Accumulates the documents parsed by a loader and hands them to the processor chain through
+ * {@link UpdateRequestProcessor#processAddBatch(List)}, so that the processors supporting it walk
+ * the chain once per batch instead of once per document.
+ *
+ * <p>Loaders must {@link #flush()} before processing any other command (delete, commit...) to
+ * preserve the order of the request, and when done parsing, but not after a failure. Each added
+ * command must be a new instance, since it is processed after the next ones are parsed.
+ */
+class AddCommandBatch {
+  /** Number of documents per batch, 1 processes each document as soon as it is parsed */
+  static final int BATCH_SIZE = Integer.getInteger("solr.update.addBatchSize", 100);
+
+  private final UpdateRequestProcessor processor;
+  private final List<AddUpdateCommand> cmds = new ArrayList<>();
+  private AddUpdateCommand failed;
+
+  AddCommandBatch(UpdateRequestProcessor processor) {
+    this.processor = processor;
+  }
+
+  void add(AddUpdateCommand cmd) throws IOException {
+    cmds.add(cmd);
+    if (cmds.size() >= BATCH_SIZE) {
+      flush();
+    }
+  }
+
+  void flush() throws IOException {
+    if (cmds.isEmpty()) return;
+    try {
+      processor.processAddBatch(cmds);
+    } catch (Throwable t) {
+      failed = findFailed();
+      throw t;
+    } finally {
+      cmds.clear();
+    }
+  }
+
+  private AddUpdateCommand findFailed() {
+    for (AddUpdateCommand cmd : cmds) {
+      if (cmd.failedInBatch) {
+        return cmd;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the command which made the last {@link #flush()} fail, null if it is not known, e.g.
+   * when a processor failed for the whole batch, or when the documents are processed on other
+   * threads.
+   */
+  AddUpdateCommand getFailedCommand() {
+    return failed;
+  }
+}
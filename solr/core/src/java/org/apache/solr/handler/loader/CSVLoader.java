@@ -21,6 +21,7 @@ import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.util.ContentStream;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.processor.UpdateRequestProcessor;
 
 public class CSVLoader extends ContentStreamLoader {
@@ -42,8 +43,11 @@ class SingleThreadedCSVLoader extends CSVLoaderBase {
 
   @Override
   public void addDoc(int line, String[] vals) throws IOException {
-    templateAdd.clear();
+    // a new command per document, the chain may still be processing the previous one
+    AddUpdateCommand cmd = new AddUpdateCommand(templateAdd.getReq());
+    cmd.overwrite = templateAdd.overwrite;
+    cmd.commitWithin = templateAdd.commitWithin;
     SolrInputDocument doc = new SolrInputDocument();
-    doAdd(line, vals, doc, templateAdd);
+    doAdd(line, vals, doc, cmd);
   }
 }
@@ -90,10 +90,9 @@ public class JavabinLoader extends ContentStreamLoader {
       return;
     }
     UpdateRequest update = null;
+    final AddCommandBatch batch = new AddCommandBatch(processor);
     JavaBinUpdateRequestCodec.StreamingUpdateHandler handler =
         new JavaBinUpdateRequestCodec.StreamingUpdateHandler() {
-          private AddUpdateCommand addCmd = null;
-
           @Override
           public void update(
               SolrInputDocument document,
@@ -103,9 +102,8 @@ public class JavabinLoader extends ContentStreamLoader {
             if (document == null) {
               return;
             }
-            if (addCmd == null) {
-              addCmd = getAddCommand(req, updateRequest.getParams());
-            }
+            // a new command per document, it may be processed after the next one is read
+            AddUpdateCommand addCmd = getAddCommand(req, updateRequest.getParams());
             addCmd.solrDoc = document;
             if (commitWithin != null) {
               addCmd.commitWithin = commitWithin;
@@ -120,26 +118,45 @@ public class JavabinLoader extends ContentStreamLoader {
             }
 
             try {
-              processor.processAdd(addCmd);
-              addCmd.clear();
+              batch.add(addCmd);
             } catch (IOException e) {
-              throw new SolrException(
-                  SolrException.ErrorCode.SERVER_ERROR, "ERROR adding document " + document, e);
+              throw addError(batch, e);
             }
           }
         };
     FastInputStream in = FastInputStream.wrap(stream);
     for (; ; ) {
-      if (in.peek() == -1) return;
+      if (in.peek() == -1) break;
       try {
         update = new JavaBinUpdateRequestCodec().unmarshal(in, handler);
       } catch (EOFException e) {
         break; // this is expected
       }
       if (update.getDeleteByIdMap() != null || update.getDeleteQuery() != null) {
+        // the documents of an update request are processed before its deletes
+        flush(batch);
         delete(req, update, processor);
       }
     }
+    flush(batch);
+  }
+
+  private static void flush(AddCommandBatch batch) {
+    try {
+      batch.flush();
+    } catch (IOException e) {
+      throw addError(batch, e);
+    }
+  }
+
+  private static SolrException addError(AddCommandBatch batch, IOException e) {
+    AddUpdateCommand failed = batch.getFailedCommand();
+    return new SolrException(
+        SolrException.ErrorCode.SERVER_ERROR,
+        failed == null
+            ? "ERROR adding documents"
+            : "ERROR adding document " + failed.getSolrInputDocument(),
+        e);
   }
 
   private void handleMultiStream(
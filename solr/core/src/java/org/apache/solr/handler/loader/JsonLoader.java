@@ -261,6 +261,7 @@ public class JsonLoader extends ContentStreamLoader {
       }
 
       JsonRecordReader jsonRecordReader = JsonRecordReader.getInst(split, Arrays.asList(fields));
+      AddCommandBatch batch = new AddCommandBatch(processor);
       jsonRecordReader.streamRecords(
           parser,
           new JsonRecordReader.Handler() {
@@ -283,7 +284,7 @@ public class JsonLoader extends ContentStreamLoader {
                 cmd.overwrite = overwrite;
                 cmd.solrDoc = buildDoc(copy);
                 try {
-                  processor.processAdd(cmd);
+                  batch.add(cmd);
                 } catch (IOException e) {
                   throw new SolrException(
                       SolrException.ErrorCode.BAD_REQUEST, "Error inserting document: ", e);
@@ -291,6 +292,7 @@ public class JsonLoader extends ContentStreamLoader {
               }
             }
           });
+      batch.flush();
     }
 
     private Map<String, Object> getDocMap(
@@ -540,6 +542,7 @@ public class JsonLoader extends ContentStreamLoader {
     }
 
     void handleAdds() throws IOException {
+      AddCommandBatch batch = new AddCommandBatch(processor);
       while (true) {
         AddUpdateCommand cmd = new AddUpdateCommand(req);
         cmd.commitWithin = commitWithin;
@@ -550,8 +553,9 @@ public class JsonLoader extends ContentStreamLoader {
 
         assertEvent(ev, JSONParser.OBJECT_START);
         cmd.solrDoc = parseDoc(ev);
-        processor.processAdd(cmd);
+        batch.add(cmd);
       }
+      batch.flush();
     }
 
     int assertNextEvent(int expected) throws IOException {
@@ -184,9 +184,12 @@ public class XMLLoader extends ContentStreamLoader {
           } else if ("doc".equals(currTag)) {
             if (addCmd != null) {
               log.trace("adding doc...");
-              addCmd.clear();
-              addCmd.solrDoc = readDoc(parser);
-              processor.processAdd(addCmd);
+              // a new command per document, the chain may still be processing the previous one
+              AddUpdateCommand docCmd = new AddUpdateCommand(req);
+              docCmd.overwrite = addCmd.overwrite;
+              docCmd.commitWithin = addCmd.commitWithin;
+              docCmd.solrDoc = readDoc(parser);
+              processor.processAdd(docCmd);
             } else {
               throw new SolrException(
                   SolrException.ErrorCode.BAD_REQUEST,
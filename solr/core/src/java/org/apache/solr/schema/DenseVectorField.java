@@ -22,10 +22,13 @@ import static org.apache.lucene.codecs.lucene95.Lucene95HnswVectorsFormat.DEFAUL
 
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import org.apache.lucene.codecs.KnnVectorsFormat;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.KnnByteVectorField;
 import org.apache.lucene.document.KnnFloatVectorField;
@@ -40,14 +43,20 @@ import org.apache.lucene.search.KnnByteVectorQuery;
 import org.apache.lucene.search.KnnFloatVectorQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.hnsw.HnswGraph;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.search.DocSet;
 import org.apache.solr.search.QParser;
+import org.apache.solr.search.neural.KnnRescoreQuery;
+import org.apache.solr.search.neural.PreFilteredKnnVectorQuery;
 import org.apache.solr.uninverting.UninvertingReader;
 import org.apache.solr.util.vector.ByteDenseVectorParser;
 import org.apache.solr.util.vector.DenseVectorParser;
 import org.apache.solr.util.vector.FloatDenseVectorParser;
+import org.apache.solr.util.vector.TextEmbeddingModel;
+import org.apache.solr.util.vector.TextEmbeddingModels;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,6 +80,11 @@ public class DenseVectorField extends FloatPointField {
   static final VectorEncoding DEFAULT_VECTOR_ENCODING = VectorEncoding.FLOAT32;
   static final String KNN_SIMILARITY_FUNCTION = "similarityFunction";
   static final VectorSimilarityFunction DEFAULT_SIMILARITY = VectorSimilarityFunction.EUCLIDEAN;
+  static final String VECTOR_QUANTIZATION = "vectorQuantization";
+  static final VectorQuantization DEFAULT_VECTOR_QUANTIZATION = VectorQuantization.NONE;
+  static final String QUANTIZATION_BOUND = "quantizationBound";
+  static final float DEFAULT_QUANTIZATION_BOUND = 1.0f;
+  static final String EMBEDDING_MODEL = "embeddingModel";
   private int dimension;
   private VectorSimilarityFunction similarityFunction;
   private String knnAlgorithm;
@@ -93,6 +107,28 @@ public class DenseVectorField extends FloatPointField {
    */
   private VectorEncoding vectorEncoding;
 
+  /**
+   * Quantization of the FLOAT32 vectors in the knn graph. The INT8 quantization maps each element
+   * of [-quantizationBound, quantizationBound] to a byte, and keeps the full precision vectors in
+   * binary docValues, out of the graph, to rescore the nearest neighbors.
+   */
+  private VectorQuantization vectorQuantization = DEFAULT_VECTOR_QUANTIZATION;
+
+  private float quantizationBound = DEFAULT_QUANTIZATION_BOUND;
+
+  /**
+   * The model encoding texts to the vectors of the field, configured by the {@code embeddingModel}
+   * attribute with the name of its class, and by the attributes prefixed with {@code
+   * embeddingModel.} with its arguments, or null.
+   */
+  private TextEmbeddingModel embeddingModel;
+
+  /** The quantizations of the vectors in the knn graph */
+  public enum VectorQuantization {
+    NONE,
+    INT8
+  }
+
   public DenseVectorField() {
     super();
   }
@@ -140,6 +176,57 @@ public class DenseVectorField extends FloatPointField {
             .orElse(DEFAULT_VECTOR_ENCODING);
     args.remove(VECTOR_ENCODING);
 
+    this.vectorQuantization =
+        ofNullable(args.get(VECTOR_QUANTIZATION))
+            .map(value -> VectorQuantization.valueOf(value.toUpperCase(Locale.ROOT)))
+            .orElse(DEFAULT_VECTOR_QUANTIZATION);
+    args.remove(VECTOR_QUANTIZATION);
+    if (vectorQuantization != VectorQuantization.NONE
+        && vectorEncoding != VectorEncoding.FLOAT32) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "only FLOAT32 vectors can be quantized, vectorEncoding: " + vectorEncoding);
+    }
+
+    this.quantizationBound =
+        ofNullable(args.get(QUANTIZATION_BOUND))
+            .map(Float::parseFloat)
+            .orElse(DEFAULT_QUANTIZATION_BOUND);
+    args.remove(QUANTIZATION_BOUND);
+    if (!(quantizationBound > 0)) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "the quantization bound must be positive: " + quantizationBound);
+    }
+
+    String embeddingModelClass = args.remove(EMBEDDING_MODEL);
+    Map<String, String> embeddingModelArgs = new HashMap<>();
+    for (Iterator<Map.Entry<String, String>> it = args.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, String> arg = it.next();
+      String prefix = EMBEDDING_MODEL + ".";
+      if (arg.getKey().startsWith(prefix)) {
+        embeddingModelArgs.put(arg.getKey().substring(prefix.length()), arg.getValue());
+        it.remove();
+      }
+    }
+    if (embeddingModelClass != null) {
+      if (vectorEncoding != VectorEncoding.FLOAT32) {
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR,
+            "only FLOAT32 vectors can be encoded by an embedding model, vectorEncoding: "
+                + vectorEncoding);
+      }
+      // shared by all the cores and schema versions of the node
+      this.embeddingModel =
+          TextEmbeddingModels.getModel(
+              schema.getResourceLoader(), embeddingModelClass, embeddingModelArgs);
+    } else if (!embeddingModelArgs.isEmpty()) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "the embedding model arguments are set without an embedding model: "
+              + embeddingModelArgs.keySet());
+    }
+
     this.hnswMaxConn =
         ofNullable(args.get(HNSW_MAX_CONNECTIONS)).map(Integer::parseInt).orElse(DEFAULT_MAX_CONN);
     args.remove(HNSW_MAX_CONNECTIONS);
@@ -178,6 +265,24 @@ public class DenseVectorField extends FloatPointField {
     return vectorEncoding;
   }
 
+  public VectorQuantization getVectorQuantization() {
+    return vectorQuantization;
+  }
+
+  public float getQuantizationBound() {
+    return quantizationBound;
+  }
+
+  /** Returns the model encoding texts to the vectors of the field, or null if it has none */
+  public TextEmbeddingModel getEmbeddingModel() {
+    return embeddingModel;
+  }
+
+  /** Whether the vectors of the knn graph are quantized */
+  public boolean isQuantized() {
+    return vectorQuantization != VectorQuantization.NONE;
+  }
+
   @Override
   public void checkSchemaField(final SchemaField field) throws SolrException {
     super.checkSchemaField(field);
@@ -228,6 +333,11 @@ public class DenseVectorField extends FloatPointField {
 
       if (field.indexed()) {
         fields.add(createField(field, vectorBuilder));
+        if (isQuantized()) {
+          fields.add(
+              new BinaryDocValuesField(
+                  field.getName(), encodeFullPrecisionVector(vectorBuilder.getFloatVector())));
+        }
       }
       if (field.stored()) {
         switch (vectorEncoding) {
@@ -257,6 +367,10 @@ public class DenseVectorField extends FloatPointField {
 
     if (vectorValue == null) return null;
     DenseVectorParser vectorBuilder = (DenseVectorParser) vectorValue;
+    if (isQuantized()) {
+      return new KnnByteVectorField(
+          field.getName(), quantize(vectorBuilder.getFloatVector()), denseVectorFieldType);
+    }
     switch (vectorEncoding) {
       case BYTE:
         return new KnnByteVectorField(
@@ -288,7 +402,7 @@ public class DenseVectorField extends FloatPointField {
 
           @Override
           public VectorEncoding vectorEncoding() {
-            return vectorEncoding;
+            return isQuantized() ? VectorEncoding.BYTE : vectorEncoding;
           }
 
           @Override
@@ -300,6 +414,35 @@ public class DenseVectorField extends FloatPointField {
     return vectorFieldType;
   }
 
+  /** Quantizes a vector to the bytes of the knn graph */
+  public byte[] quantize(float[] vector) {
+    final byte[] quantized = new byte[vector.length];
+    for (int i = 0; i < vector.length; i++) {
+      final float clipped = Math.max(-quantizationBound, Math.min(quantizationBound, vector[i]));
+      quantized[i] = (byte) Math.round(clipped / quantizationBound * Byte.MAX_VALUE);
+    }
+    return quantized;
+  }
+
+  /** Encodes a full precision vector to the binary docValues of a quantized field */
+  static BytesRef encodeFullPrecisionVector(float[] vector) {
+    return new BytesRef(FloatDenseVectorParser.encodeBinaryVector(vector));
+  }
+
+  /**
+   * Decodes a full precision vector from the binary docValues of a quantized field
+   *
+   * @param bytes the binary docValue of a document
+   * @param vector receives the elements of the vector
+   */
+  public static void decodeFullPrecisionVector(BytesRef bytes, float[] vector) {
+    for (int i = 0; i < vector.length; i++) {
+      vector[i] =
+          Float.intBitsToFloat(
+              (int) BitUtil.VH_LE_INT.get(bytes.bytes, bytes.offset + i * Float.BYTES));
+    }
+  }
+
   @Override
   public Object toObject(IndexableField f) {
     if (vectorEncoding.equals(VectorEncoding.BYTE)) {
@@ -323,7 +466,9 @@ public class DenseVectorField extends FloatPointField {
    * - {@link org.apache.solr.handler.loader.XMLLoader}, {@link
    * org.apache.solr.handler.loader.CSVLoader} produces an ArrayList of String - {@link
    * org.apache.solr.handler.loader.JsonLoader} produces an ArrayList of Double - {@link
-   * org.apache.solr.handler.loader.JavabinLoader} produces an ArrayList of Float
+   * org.apache.solr.handler.loader.JavabinLoader} produces an ArrayList of Float, or a byte[] of
+   * the elements in little-endian binary form - any loader can also provide a String with the
+   * base64 encoding of the binary form. See {@link DenseVectorParser#parseBinaryVector}
    */
   public DenseVectorParser getVectorBuilder(
       Object inputValue, DenseVectorParser.BuilderPhase phase) {
@@ -346,6 +491,11 @@ public class DenseVectorField extends FloatPointField {
 
   @Override
   public ValueSource getValueSource(SchemaField field, QParser parser) {
+    if (isQuantized()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Function queries are not supported for quantized vectors: " + field.getName());
+    }
 
     switch (vectorEncoding) {
       case FLOAT32:
@@ -360,10 +510,19 @@ public class DenseVectorField extends FloatPointField {
 
   public Query getKnnVectorQuery(
       String fieldName, String vectorToSearch, int topK, Query filterQuery) {
+    return getKnnVectorQuery(
+        fieldName,
+        getVectorBuilder(vectorToSearch, DenseVectorParser.BuilderPhase.QUERY),
+        topK,
+        filterQuery);
+  }
 
-    DenseVectorParser vectorBuilder =
-        getVectorBuilder(vectorToSearch, DenseVectorParser.BuilderPhase.QUERY);
-
+  private Query getKnnVectorQuery(
+      String fieldName, DenseVectorParser vectorBuilder, int topK, Query filterQuery) {
+    if (isQuantized()) {
+      return new KnnByteVectorQuery(
+          fieldName, quantize(vectorBuilder.getFloatVector()), topK, filterQuery);
+    }
     switch (vectorEncoding) {
       case FLOAT32:
         return new KnnFloatVectorQuery(
@@ -377,6 +536,160 @@ public class DenseVectorField extends FloatPointField {
     }
   }
 
+  /**
+   * Returns a query finding the k nearest neighbors of a vector among the documents of a filter.
+   *
+   * @param vectorToSearch the vector to search: its elements, as a float[], or their string form
+   *     "[f1,f2..f3]"
+   * @param filter the documents accepted as nearest neighbors, typically the cached filters of a
+   *     request
+   * @param exactSearchThreshold the greatest number of documents accepted in a segment to search
+   *     it exhaustively rather than through the knn graph
+   * @param parallelism the greatest number of threads searching the segments concurrently
+   */
+  public Query getKnnVectorQuery(
+      String fieldName,
+      Object vectorToSearch,
+      int topK,
+      DocSet filter,
+      int exactSearchThreshold,
+      int parallelism) {
+    return getKnnVectorQuery(
+        fieldName,
+        getVectorBuilder(vectorToSearch, DenseVectorParser.BuilderPhase.QUERY),
+        topK,
+        filter,
+        exactSearchThreshold,
+        parallelism);
+  }
+
+  private Query getKnnVectorQuery(
+      String fieldName,
+      DenseVectorParser vectorBuilder,
+      int topK,
+      DocSet filter,
+      int exactSearchThreshold,
+      int parallelism) {
+    if (isQuantized()) {
+      return new PreFilteredKnnVectorQuery(
+          fieldName,
+          null,
+          quantize(vectorBuilder.getFloatVector()),
+          topK,
+          filter,
+          exactSearchThreshold,
+          similarityFunction,
+          parallelism);
+    }
+    switch (vectorEncoding) {
+      case FLOAT32:
+        return new PreFilteredKnnVectorQuery(
+            fieldName,
+            vectorBuilder.getFloatVector(),
+            null,
+            topK,
+            filter,
+            exactSearchThreshold,
+            similarityFunction,
+            parallelism);
+      case BYTE:
+        return new PreFilteredKnnVectorQuery(
+            fieldName,
+            null,
+            vectorBuilder.getByteVector(),
+            topK,
+            filter,
+            exactSearchThreshold,
+            similarityFunction,
+            parallelism);
+      default:
+        throw new SolrException(
+            SolrException.ErrorCode.SERVER_ERROR,
+            "Unexpected state. Vector Encoding: " + vectorEncoding);
+    }
+  }
+
+  /**
+   * Returns a query matching the topK best of the numCandidates nearest neighbors found in the knn
+   * graph.
+   *
+   * @param vectorToSearch the vector to search: its elements, as a float[], or their string form
+   *     "[f1,f2..f3]"
+   * @param rescore whether to rescore the candidates with the full precision vectors of a quantized
+   *     field, rather than keep their approximate scores
+   */
+  public Query getKnnVectorQuery(
+      String fieldName,
+      Object vectorToSearch,
+      int topK,
+      int numCandidates,
+      boolean rescore,
+      Query filterQuery) {
+    checkRescore(fieldName, rescore);
+    DenseVectorParser vectorBuilder =
+        getVectorBuilder(vectorToSearch, DenseVectorParser.BuilderPhase.QUERY);
+    return getTopKnnVectorQuery(
+        getKnnVectorQuery(fieldName, vectorBuilder, numCandidates, filterQuery),
+        fieldName,
+        vectorBuilder,
+        topK,
+        numCandidates,
+        rescore);
+  }
+
+  /**
+   * Returns a query matching the topK best of the numCandidates nearest neighbors found among the
+   * documents of a filter.
+   *
+   * @see #getKnnVectorQuery(String, Object, int, DocSet, int, int)
+   * @see #getKnnVectorQuery(String, Object, int, int, boolean, Query)
+   */
+  public Query getKnnVectorQuery(
+      String fieldName,
+      Object vectorToSearch,
+      int topK,
+      int numCandidates,
+      boolean rescore,
+      DocSet filter,
+      int exactSearchThreshold,
+      int parallelism) {
+    checkRescore(fieldName, rescore);
+    DenseVectorParser vectorBuilder =
+        getVectorBuilder(vectorToSearch, DenseVectorParser.BuilderPhase.QUERY);
+    return getTopKnnVectorQuery(
+        getKnnVectorQuery(
+            fieldName, vectorBuilder, numCandidates, filter, exactSearchThreshold, parallelism),
+        fieldName,
+        vectorBuilder,
+        topK,
+        numCandidates,
+        rescore);
+  }
+
+  private void checkRescore(String fieldName, boolean rescore) {
+    if (rescore && !isQuantized()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "Only quantized vectors can be rescored with their full precision: " + fieldName);
+    }
+  }
+
+  private Query getTopKnnVectorQuery(
+      Query candidates,
+      String fieldName,
+      DenseVectorParser vectorBuilder,
+      int topK,
+      int numCandidates,
+      boolean rescore) {
+    if (numCandidates <= topK && !rescore) {
+      return candidates;
+    }
+    // the vector parsed for the candidates is reused
+    final float[] target = rescore ? vectorBuilder.getFloatVector() : null;
+    return new KnnRescoreQuery(
+        candidates, numCandidates, topK, fieldName, target, similarityFunction);
+  }
+
   /**
    * Not Supported. Please use the {!knn} query parser to run K nearest neighbors search queries.
    */
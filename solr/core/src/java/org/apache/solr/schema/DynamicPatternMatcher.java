@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.schema.IndexSchema.DynamicReplacement;
+
+/**
+ * Matches field names against the patterns of an array of dynamic fields or dynamic copy fields,
+ * in the time it takes to walk the name once, whatever the number of patterns.
+ *
+ * <p>The prefixes of the <code>foo*</code> patterns are compiled into a trie walked from the start
+ * of the name, and the suffixes of the <code>*foo</code> patterns into a trie walked from its end.
+ * Each node of a trie holds the positions in the array of the patterns ending there, so the first
+ * matching pattern is the one with the lowest position met along both walks, or in the names
+ * without wildcard.
+ */
+final class DynamicPatternMatcher<T extends DynamicReplacement> {
+
+  private static final int[] NONE = new int[0];
+
+  private static final class Node {
+    private char[] labels = new char[0];
+    private Node[] children = new Node[0];
+    // positions of the patterns ending at this node, in increasing order
+    private int[] positions = NONE;
+
+    Node child(char label) {
+      int i = Arrays.binarySearch(labels, label);
+      return i < 0 ? null : children[i];
+    }
+
+    Node getOrAddChild(char label) {
+      int i = Arrays.binarySearch(labels, label);
+      if (i >= 0) return children[i];
+      i = -i - 1;
+      Node child = new Node();
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, i);
+      System.arraycopy(children, 0, newChildren, 0, i);
+      newLabels[i] = label;
+      newChildren[i] = child;
+      System.arraycopy(labels, i, newLabels, i + 1, labels.length - i);
+      System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+      labels = newLabels;
+      children = newChildren;
+      return child;
+    }
+  }
+
+  private final T[] source;
+  private final T[] replacements;
+  private final Map<String, int[]> names = new HashMap<>();
+  private final Node prefixes = new Node();
+  private final Node suffixes = new Node();
+
+  /**
+   * @param replacements the dynamic fields or copy fields, by decreasing precedence
+   */
+  DynamicPatternMatcher(T[] replacements) {
+    this.source = replacements;
+    this.replacements = replacements.clone();
+    for (int i = 0; i < replacements.length; i++) {
+      String regex = replacements[i].getRegex();
+      if (regex.startsWith("*")) {
+        Node node = suffixes;
+        for (int c = regex.length() - 1; c >= 1; c--) {
+          node = node.getOrAddChild(regex.charAt(c));
+        }
+        node.positions = append(node.positions, i);
+      } else if (regex.endsWith("*")) {
+        Node node = prefixes;
+        for (int c = 0; c < regex.length() - 1; c++) {
+          node = node.getOrAddChild(regex.charAt(c));
+        }
+        node.positions = append(node.positions, i);
+      } else {
+        names.put(regex, append(names.getOrDefault(regex, NONE), i));
+      }
+    }
+  }
+
+  private static int[] append(int[] positions, int position) {
+    int[] result = Arrays.copyOf(positions, positions.length + 1);
+    result[positions.length] = position;
+    return result;
+  }
+
+  /** Whether this matcher was built from the given array */
+  boolean isFor(T[] replacements) {
+    return source == replacements;
+  }
+
+  /** Returns the first pattern matching the given name, or null */
+  T first(String name) {
+    int first = Integer.MAX_VALUE;
+    int[] positions = names.get(name);
+    if (positions != null) {
+      first = positions[0];
+    }
+    Node node = prefixes;
+    for (int c = 0; node != null; c++) {
+      if (node.positions.length > 0) {
+        first = Math.min(first, node.positions[0]);
+      }
+      node = c < name.length() ? node.child(name.charAt(c)) : null;
+    }
+    node = suffixes;
+    for (int c = name.length() - 1; node != null; c--) {
+      if (node.positions.length > 0) {
+        first = Math.min(first, node.positions[0]);
+      }
+      node = c >= 0 ? node.child(name.charAt(c)) : null;
+    }
+    return first == Integer.MAX_VALUE ? null : replacements[first];
+  }
+
+  /** Returns all the patterns matching the given name, by decreasing precedence */
+  List<T> all(String name) {
+    int[] matches = names.getOrDefault(name, NONE);
+    Node node = prefixes;
+    for (int c = 0; node != null; c++) {
+      matches = concat(matches, node.positions);
+      node = c < name.length() ? node.child(name.charAt(c)) : null;
+    }
+    node = suffixes;
+    for (int c = name.length() - 1; node != null; c--) {
+      matches = concat(matches, node.positions);
+      node = c >= 0 ? node.child(name.charAt(c)) : null;
+    }
+    if (matches.length == 0) {
+      return Collections.emptyList();
+    }
+    // the arrays of the nodes are shared, sort a copy
+    matches = matches.clone();
+    Arrays.sort(matches);
+    List<T> result = new ArrayList<>(matches.length);
+    for (int position : matches) {
+      result.add(replacements[position]);
+    }
+    return result;
+  }
+
+  private static int[] concat(int[] a, int[] b) {
+    if (b.length == 0) return a;
+    if (a.length == 0) return b;
+    int[] result = Arrays.copyOf(a, a.length + b.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return result;
+  }
+}
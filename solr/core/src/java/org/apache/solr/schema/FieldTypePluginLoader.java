@@ -24,6 +24,8 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CharFilterFactory;
 import org.apache.lucene.analysis.TokenFilterFactory;
@@ -174,17 +176,58 @@ public final class FieldTypePluginLoader extends AbstractPluginLoader<FieldType>
     return ((TokenizerChain) queryAnalyzer).getMultiTermAnalyzer();
   }
 
+  private Analyzer readAnalyzer(ConfigNode node) {
+    if (node == null) return null;
+    // the analyzer of the schema being replaced is reused when its definition did not change
+    String definition = getDefinition(node);
+    Analyzer analyzer = schema.getPreviousAnalyzer(definition);
+    if (analyzer == null) {
+      analyzer = buildAnalyzer(node);
+    }
+    schema.analyzersByDefinition.put(definition, analyzer);
+    return analyzer;
+  }
+
+  /**
+   * Returns the definition of a configuration node: its name, attributes, text and children, with
+   * properties substituted.
+   */
+  static String getDefinition(ConfigNode node) {
+    StringBuilder sb = new StringBuilder();
+    appendDefinition(node, sb);
+    return sb.toString();
+  }
+
+  private static void appendDefinition(ConfigNode node, StringBuilder sb) {
+    sb.append('<').append(node.name());
+    SortedSet<String> attributeNames = new TreeSet<>();
+    node.attributes().forEachKey(attributeNames::add);
+    for (String attributeName : attributeNames) {
+      sb.append(' ').append(attributeName).append("=\"");
+      sb.append(node.attributes().get(attributeName)).append('"');
+    }
+    sb.append('>');
+    String txt = node.txt();
+    if (txt != null) {
+      sb.append(txt.trim());
+    }
+    node.forEachChild(
+        child -> {
+          appendDefinition(child, sb);
+          return Boolean.TRUE;
+        });
+    sb.append("</").append(node.name()).append('>');
+  }
+
   //
   // <analyzer><tokenizer class="...."/><tokenizer class="...." arg="....">
   //
   //
-  private Analyzer readAnalyzer(ConfigNode node) {
+  private Analyzer buildAnalyzer(ConfigNode node) {
 
     final SolrClassLoader loader = schema.getSolrClassLoader();
 
     // parent node used to be passed in as "fieldtype"
-
-    if (node == null) return null;
     String analyzerName = DOMUtil.getAttr(node, "class", null);
 
     // check for all of these up front, so we can error if used in
@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -40,6 +41,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -142,11 +144,24 @@ public class IndexSchema {
   protected Cache<String, SchemaField> dynamicFieldCache =
       new ConcurrentLRUCache<>(10000, 8000, 9000, 100, false, false, null);
 
+  // compiled from dynamicFields and dynamicCopyFields when first used
+  private volatile DynamicPatternMatcher<DynamicField> dynamicFieldMatcher;
+  private volatile DynamicPatternMatcher<DynamicCopy> dynamicCopyMatcher;
+
   private Analyzer indexAnalyzer;
   private Analyzer queryAnalyzer;
 
   protected List<SchemaAware> schemaAware = new ArrayList<>();
 
+  /**
+   * The analyzers of the field types, by the definition they were built from, so that the schemas
+   * parsed after an update of this one can reuse them.
+   */
+  protected Map<String, Analyzer> analyzersByDefinition = new ConcurrentHashMap<>();
+
+  // the analyzers of the schema this one replaces, while reading it
+  private Map<String, Analyzer> previousAnalyzers = Collections.emptyMap();
+
   protected Map<String, List<CopyField>> copyFieldsMap = new HashMap<>();
 
   public Map<String, List<CopyField>> getCopyFieldsMap() {
@@ -179,9 +194,29 @@ public class IndexSchema {
       Version luceneVersion,
       SolrResourceLoader resourceLoader,
       Properties substitutableProperties) {
+    this(name, schemaResource, luceneVersion, resourceLoader, substitutableProperties, null);
+  }
+
+  /**
+   * Constructs a schema replacing the given one. The analyzers of the previous schema are reused
+   * by the field types whose analyzer definitions did not change, instead of being built again
+   * and loading their resources (stop words, synonyms...) once more.
+   *
+   * @param previousSchema the schema being replaced, or null
+   */
+  public IndexSchema(
+      String name,
+      ConfigSetService.ConfigResource schemaResource,
+      Version luceneVersion,
+      SolrResourceLoader resourceLoader,
+      Properties substitutableProperties,
+      IndexSchema previousSchema) {
     this(luceneVersion, resourceLoader, substitutableProperties);
 
     this.resourceName = Objects.requireNonNull(name);
+    if (previousSchema != null) {
+      previousAnalyzers = previousSchema.analyzersByDefinition;
+    }
     if (substitutableProperties != null)
       ConfigNode.SUBSTITUTES.set(substitutableProperties::getProperty);
     try {
@@ -191,6 +226,7 @@ public class IndexSchema {
       throw new RuntimeException(e);
     } finally {
       ConfigNode.SUBSTITUTES.remove();
+      previousAnalyzers = Collections.emptyMap();
     }
   }
 
@@ -672,7 +708,34 @@ public class IndexSchema {
     log.info("Loaded schema {}/{} with uniqueid field {}", name, version, uniqueKeyFieldName);
   }
 
+  /**
+   * Returns the analyzer of the schema being replaced which was built from the given definition,
+   * or null.
+   */
+  Analyzer getPreviousAnalyzer(String definition) {
+    return previousAnalyzers.get(definition);
+  }
+
+  /**
+   * Forgets the analyzers recorded by definition which no field type of this schema uses any more,
+   * once field types were replaced or deleted.
+   */
+  protected void pruneAnalyzersByDefinition() {
+    Set<Analyzer> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (FieldType fieldType : fieldTypes.values()) {
+      inUse.add(fieldType.getIndexAnalyzer());
+      inUse.add(fieldType.getQueryAnalyzer());
+      if (fieldType instanceof TextField) {
+        inUse.add(((TextField) fieldType).getMultiTermAnalyzer());
+      }
+    }
+    analyzersByDefinition.values().removeIf(analyzer -> !inUse.contains(analyzer));
+  }
+
   protected void postReadInform() {
+    // the dynamic fields may have been modified in place while loading
+    dynamicFieldMatcher = null;
+    dynamicCopyMatcher = null;
     // Run the callbacks on SchemaAware now that everything else is done
     for (SchemaAware aware : schemaAware) {
       aware.inform(this);
@@ -1328,11 +1391,27 @@ public class IndexSchema {
     return df;
   }
 
-  public String getDynamicPattern(String fieldName) {
-    for (DynamicField df : dynamicFields) {
-      if (df.matches(fieldName)) return df.getRegex();
+  /** Returns the dynamic field with the highest precedence matching the given name, or null */
+  private DynamicField getMatchingDynamicField(String fieldName) {
+    DynamicPatternMatcher<DynamicField> matcher = dynamicFieldMatcher;
+    if (matcher == null || !matcher.isFor(dynamicFields)) {
+      dynamicFieldMatcher = matcher = new DynamicPatternMatcher<>(dynamicFields);
     }
-    return null;
+    return matcher.first(fieldName);
+  }
+
+  /** Returns the dynamic copy fields whose source matches the given name */
+  private List<DynamicCopy> getMatchingDynamicCopyFields(String sourceField) {
+    DynamicPatternMatcher<DynamicCopy> matcher = dynamicCopyMatcher;
+    if (matcher == null || !matcher.isFor(dynamicCopyFields)) {
+      dynamicCopyMatcher = matcher = new DynamicPatternMatcher<>(dynamicCopyFields);
+    }
+    return matcher.all(sourceField);
+  }
+
+  public String getDynamicPattern(String fieldName) {
+    DynamicField df = getMatchingDynamicField(fieldName);
+    return df == null ? null : df.getRegex();
   }
 
   /**
@@ -1364,11 +1443,7 @@ public class IndexSchema {
       return false;
     }
 
-    for (DynamicField df : dynamicFields) {
-      if (df.matches(fieldName)) return true;
-    }
-
-    return false;
+    return getMatchingDynamicField(fieldName) != null;
   }
 
   /**
@@ -1386,11 +1461,9 @@ public class IndexSchema {
     f = dynamicFieldCache.get(fieldName);
     if (f != null) return f;
 
-    for (DynamicField df : dynamicFields) {
-      if (df.matches(fieldName)) {
-        dynamicFieldCache.put(fieldName, f = df.makeSchemaField(fieldName));
-        break;
-      }
+    DynamicField df = getMatchingDynamicField(fieldName);
+    if (df != null) {
+      dynamicFieldCache.put(fieldName, f = df.makeSchemaField(fieldName));
     }
 
     return f;
@@ -1473,17 +1546,16 @@ public class IndexSchema {
    * @see #getFieldTypeNoEx
    */
   public FieldType getDynamicFieldType(String fieldName) {
-    for (DynamicField df : dynamicFields) {
-      if (df.matches(fieldName)) return df.prototype.getType();
+    FieldType type = dynFieldType(fieldName);
+    if (type == null) {
+      throw new SolrException(ErrorCode.BAD_REQUEST, "undefined field " + fieldName);
     }
-    throw new SolrException(ErrorCode.BAD_REQUEST, "undefined field " + fieldName);
+    return type;
   }
 
   private FieldType dynFieldType(String fieldName) {
-    for (DynamicField df : dynamicFields) {
-      if (df.matches(fieldName)) return df.prototype.getType();
-    }
-    return null;
+    DynamicField df = getMatchingDynamicField(fieldName);
+    return df == null ? null : df.prototype.getType();
   }
 
   /**
@@ -1521,14 +1593,12 @@ public class IndexSchema {
   // This is useful when we need the maxSize param of each CopyField
   public List<CopyField> getCopyFieldsList(final String sourceField) {
     final List<CopyField> result = new ArrayList<>();
-    for (DynamicCopy dynamicCopy : dynamicCopyFields) {
-      if (dynamicCopy.matches(sourceField)) {
-        result.add(
-            new CopyField(
-                getField(sourceField),
-                dynamicCopy.getTargetField(sourceField),
-                dynamicCopy.maxChars));
-      }
+    for (DynamicCopy dynamicCopy : getMatchingDynamicCopyFields(sourceField)) {
+      result.add(
+          new CopyField(
+              getField(sourceField),
+              dynamicCopy.getTargetField(sourceField),
+              dynamicCopy.maxChars));
     }
     List<CopyField> fixedCopyFields = copyFieldsMap.get(sourceField);
     if (null != fixedCopyFields) {
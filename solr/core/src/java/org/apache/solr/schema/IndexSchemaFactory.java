@@ -21,6 +21,8 @@ import static org.apache.solr.schema.IndexSchema.SCHEMA;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
@@ -35,6 +37,7 @@ import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.util.ObjectCache;
 import org.apache.solr.common.util.Pair;
 import org.apache.solr.core.ConfigSetService;
+import org.apache.solr.core.CoreContainer;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrConfig;
 import org.apache.solr.core.SolrResourceLoader;
@@ -187,9 +190,49 @@ public abstract class IndexSchemaFactory implements NamedListInitializedPlugin {
         return confCache.computeIfAbsent(res.first(), k -> cfgLoader.get());
       }
     } else {
-      // it's a file system loader, no caching necessary
+      // it's a file system loader, cores created from the same configset share the same conf dir
+      return getFromFileCache(name, loader, cfgLoader);
+    }
+  }
+
+  /**
+   * Shares the parsed config files of a conf directory between the cores using it, e.g. cores
+   * created from the same configset in standalone mode. Entries are keyed by file path and are
+   * reloaded whenever the last modification time or the size of the file changes.
+   */
+  @SuppressWarnings("unchecked")
+  private static VersionedConfig getFromFileCache(
+      String name, SolrResourceLoader loader, Supplier<VersionedConfig> cfgLoader) {
+    CoreContainer cc = loader.getCoreContainer();
+    if (cc == null || cc.getConfig().getConfigSetBaseDirectory() == null) return cfgLoader.get();
+    Path confDir = loader.getConfigPath().normalize();
+    // only configsets are shared, a core with its own conf dir would keep its entry forever
+    if (!confDir.startsWith(cc.getConfig().getConfigSetBaseDirectory().normalize())) {
+      return cfgLoader.get();
+    }
+    Path file = confDir.resolve(name).normalize();
+    // resources found in the instance dir or in the classpath are not shared
+    if (!file.startsWith(confDir) || !Files.isRegularFile(file)) return cfgLoader.get();
+    String stamp;
+    try {
+      stamp = Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file);
+    } catch (IOException e) {
       return cfgLoader.get();
     }
+    Map<String, Pair<String, VersionedConfig>> fileCache =
+        (Map<String, Pair<String, VersionedConfig>>)
+            cc.getObjectCache()
+                .computeIfAbsent(
+                    IndexSchemaFactory.class.getName() + ".fileCache",
+                    k -> new ConcurrentHashMap<>());
+    return fileCache
+        .compute(
+            file.toString(),
+            (k, cached) ->
+                cached != null && cached.first().equals(stamp)
+                    ? cached
+                    : new Pair<>(stamp, cfgLoader.get()))
+        .second();
   }
 
   public static ConfigNode getParsedSchema(InputStream is, SolrResourceLoader loader, String name)
@@ -36,6 +36,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -117,12 +118,39 @@ public final class ManagedIndexSchema extends IndexSchema {
       String managedSchemaResourceName,
       int schemaZkVersion,
       Object schemaUpdateLock) {
+    this(
+        solrConfig,
+        name,
+        is,
+        isMutable,
+        managedSchemaResourceName,
+        schemaZkVersion,
+        schemaUpdateLock,
+        null);
+  }
+
+  /**
+   * Constructs a schema replacing the given one, reusing its analyzers which did not change.
+   *
+   * @see IndexSchema#IndexSchema(String, ConfigSetService.ConfigResource, Version,
+   *     SolrResourceLoader, Properties, IndexSchema)
+   */
+  ManagedIndexSchema(
+      SolrConfig solrConfig,
+      String name,
+      ConfigSetService.ConfigResource is,
+      boolean isMutable,
+      String managedSchemaResourceName,
+      int schemaZkVersion,
+      Object schemaUpdateLock,
+      ManagedIndexSchema previousSchema) {
     super(
         name,
         is,
         solrConfig.luceneMatchVersion,
         solrConfig.getResourceLoader(),
-        solrConfig.getSubstituteProperties());
+        solrConfig.getSubstituteProperties(),
+        previousSchema);
     this.isMutable = isMutable;
     this.managedSchemaResourceName = managedSchemaResourceName;
     this.schemaZkVersion = schemaZkVersion;
@@ -801,7 +829,8 @@ public final class ManagedIndexSchema extends IndexSchema {
       System.arraycopy(
           dynamicCopyFields, 0, newSchema.dynamicCopyFields, 0, dynamicCopyFields.length);
 
-      // Put the replacement dynamic field in place
+      // Put the replacement dynamic field in place, the dynamic fields of this schema are unchanged
+      newSchema.dynamicFields = dynamicFields.clone();
       SchemaField prototype =
           SchemaField.create(fieldNamePattern, replacementFieldType, replacementArgs);
       newSchema.dynamicFields[dfPos] = new DynamicField(prototype);
@@ -1138,6 +1167,7 @@ public final class ManagedIndexSchema extends IndexSchema {
       }
       newSchema.postReadInform();
       newSchema.refreshAnalyzers();
+      newSchema.pruneAnalyzersByDefinition();
     } else {
       String msg = "This ManagedIndexSchema is not mutable.";
       log.error(msg);
@@ -1291,6 +1321,7 @@ public final class ManagedIndexSchema extends IndexSchema {
 
       newSchema.postReadInform();
       newSchema.refreshAnalyzers();
+      newSchema.pruneAnalyzersByDefinition();
     } else {
       String msg = "This ManagedIndexSchema is not mutable.";
       log.error(msg);
@@ -1535,6 +1566,8 @@ public final class ManagedIndexSchema extends IndexSchema {
     newSchema.copyFieldsMap = copyFieldsMap;
     newSchema.copyFieldTargetCounts = copyFieldTargetCounts;
     newSchema.schemaAware = schemaAware;
+    // a copy, so that the analyzers the new schema stops using can be forgotten
+    newSchema.analyzersByDefinition = new ConcurrentHashMap<>(analyzersByDefinition);
 
     return newSchema;
   }
@@ -190,7 +190,8 @@ public class ZkIndexSchemaReader implements OnReconnect {
                   managedIndexSchemaFactory.isMutable(),
                   resourceName,
                   stat.getVersion(),
-                  oldSchema.getSchemaUpdateLock());
+                  oldSchema.getSchemaUpdateLock(),
+                  oldSchema);
           managedIndexSchemaFactory.setSchema(newSchema);
           long stop = System.nanoTime();
           log.info(
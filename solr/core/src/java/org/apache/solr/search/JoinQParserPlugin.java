@@ -40,6 +40,9 @@ public class JoinQParserPlugin extends QParserPlugin {
   /** Choose the internal algorithm */
   private static final String METHOD = "method";
 
+  /** The greatest number of threads scanning the "from" segments, for the segmentOrds method */
+  private static final String PARALLELISM = "parallelism";
+
   private String routerField;
 
   private Set<String> allowSolrUrls;
@@ -118,6 +121,33 @@ public class JoinQParserPlugin extends QParserPlugin {
             && (jparams.fromField != null && jparams.fromField.equals(jparams.toField));
       }
     },
+    segmentOrds {
+      @Override
+      Query makeFilter(QParser qparser, JoinQParserPlugin plugin) throws SyntaxError {
+        final JoinParams jParams = parseJoin(qparser);
+        final int parallelism = qparser.localParams.getInt(PARALLELISM, 1);
+        if (parallelism < 1) {
+          throw new SolrException(
+              SolrException.ErrorCode.BAD_REQUEST,
+              "the parallelism must be greater than or equal to 1: " + parallelism);
+        }
+        final JoinQuery q =
+            new SegmentOrdsJoinQuery(
+                jParams.fromField,
+                jParams.toField,
+                jParams.fromCore,
+                jParams.fromQuery,
+                parallelism);
+        q.fromCoreOpenTime = jParams.fromCoreOpenTime;
+        return q;
+      }
+
+      @Override
+      Query makeJoinDirectFromParams(JoinParams jParams) {
+        return new SegmentOrdsJoinQuery(
+            jParams.fromField, jParams.toField, null, jParams.fromQuery, 1);
+      }
+    },
     crossCollection {
       @Override
       Query makeFilter(QParser qparser, JoinQParserPlugin plugin) throws SyntaxError {
@@ -233,7 +263,7 @@ public class JoinQParserPlugin extends QParserPlugin {
   }
 
   private static final EnumSet<Method> JOIN_METHOD_ALLOWLIST =
-      EnumSet.of(Method.index, Method.topLevelDV, Method.dvWithScore);
+      EnumSet.of(Method.index, Method.topLevelDV, Method.dvWithScore, Method.segmentOrds);
 
   /**
    * A helper method for other plugins to create (non-scoring) JoinQueries wrapped around arbitrary
@@ -244,7 +274,7 @@ public class JoinQParserPlugin extends QParserPlugin {
    * @param fromField "left side" field name to use in the join
    * @param toField "right side" field name to use in the join
    * @param method indicates which implementation should be used to process the join. Currently only
-   *     'index', 'dvWithScore', and 'topLevelDV' are supported.
+   *     'index', 'dvWithScore', 'topLevelDV' and 'segmentOrds' are supported.
    */
   public static Query createJoinQuery(
       Query subQuery, String fromField, String toField, String method) {
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * Runs some work on each segment of an index with up to a given number of threads: the calling
+ * thread, and threads of the pool of the node, see {@link
+ * org.apache.solr.core.CoreContainer#getIndexSearcherExecutor()}. Each thread takes the next
+ * segment to work on until none is left, and since the calling thread works on segments too, the
+ * work goes on even when the threads of the pool are all busy.
+ */
+public final class ParallelLeafSearch {
+
+  /** Work on a segment of an index, given by its position in the leaves of the reader */
+  @FunctionalInterface
+  public interface LeafTask {
+    void run(int leaf) throws IOException;
+  }
+
+  private ParallelLeafSearch() {}
+
+  /**
+   * Runs the task on each of the segments of the searcher, concurrently if the parallelism is
+   * greater than 1 and the searcher belongs to a core of a loaded container.
+   *
+   * @return true if the segments were searched concurrently
+   */
+  public static boolean searchLeaves(
+      IndexSearcher searcher, int numLeaves, int parallelism, LeafTask task) throws IOException {
+    final Executor executor = getExecutor(searcher, numLeaves, parallelism);
+    if (executor == null) {
+      for (int i = 0; i < numLeaves; i++) {
+        task.run(i);
+      }
+      return false;
+    }
+    searchLeaves(numLeaves, parallelism, executor, task);
+    return true;
+  }
+
+  /**
+   * Runs the task on each of the segments with the calling thread and up to {@code parallelism -
+   * 1} tasks submitted to the executor, and throws the first failure of the task, if any.
+   */
+  public static void searchLeaves(int numLeaves, int parallelism, Executor executor, LeafTask task)
+      throws IOException {
+    final AtomicInteger nextLeaf = new AtomicInteger();
+    final CountDownLatch searchedLeaves = new CountDownLatch(numLeaves);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final Runnable searchLeaves =
+        () -> {
+          for (int i = nextLeaf.getAndIncrement();
+              i < numLeaves;
+              i = nextLeaf.getAndIncrement()) {
+            try {
+              if (failure.get() == null) {
+                task.run(i);
+              }
+            } catch (Throwable t) {
+              failure.compareAndSet(null, t);
+            } finally {
+              searchedLeaves.countDown();
+            }
+          }
+        };
+
+    final int numTasks = Math.min(parallelism, numLeaves) - 1;
+    for (int i = 0; i < numTasks; i++) {
+      try {
+        executor.execute(searchLeaves);
+      } catch (RejectedExecutionException e) {
+        // the pool is shutting down: the calling thread searches the remaining segments
+        break;
+      }
+    }
+    searchLeaves.run();
+    try {
+      searchedLeaves.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ThreadInterruptedException(e);
+    }
+    if (failure.get() != null) {
+      throw IOUtils.rethrowAlways(failure.get());
+    }
+  }
+
+  private static Executor getExecutor(IndexSearcher searcher, int numLeaves, int parallelism) {
+    if (parallelism <= 1 || numLeaves <= 1 || !(searcher instanceof SolrIndexSearcher)) {
+      return null;
+    }
+    final SolrIndexSearcher solrSearcher = (SolrIndexSearcher) searcher;
+    if (solrSearcher.getCore() == null) {
+      return null;
+    }
+    return solrSearcher.getCore().getCoreContainer().getIndexSearcherExecutor();
+  }
+}
@@ -28,8 +28,10 @@ import org.apache.solr.search.join.BlockJoinParentQParserPlugin;
 import org.apache.solr.search.join.FiltersQParserPlugin;
 import org.apache.solr.search.join.GraphQParserPlugin;
 import org.apache.solr.search.join.HashRangeQParserPlugin;
+import org.apache.solr.search.join.JoinKeyFilterQParserPlugin;
 import org.apache.solr.search.mlt.MLTContentQParserPlugin;
 import org.apache.solr.search.mlt.MLTQParserPlugin;
+import org.apache.solr.search.neural.FusionQParserPlugin;
 import org.apache.solr.search.neural.KnnQParserPlugin;
 import org.apache.solr.util.plugin.NamedListInitializedPlugin;
 
@@ -87,8 +89,10 @@ public abstract class QParserPlugin implements NamedListInitializedPlugin, SolrI
     map.put(BoolQParserPlugin.NAME, new BoolQParserPlugin());
     map.put(MinHashQParserPlugin.NAME, new MinHashQParserPlugin());
     map.put(HashRangeQParserPlugin.NAME, new HashRangeQParserPlugin());
+    map.put(JoinKeyFilterQParserPlugin.NAME, new JoinKeyFilterQParserPlugin());
     map.put(RankQParserPlugin.NAME, new RankQParserPlugin());
     map.put(KnnQParserPlugin.NAME, new KnnQParserPlugin());
+    map.put(FusionQParserPlugin.NAME, new FusionQParserPlugin());
 
     standardPlugins = Collections.unmodifiableMap(map);
   }
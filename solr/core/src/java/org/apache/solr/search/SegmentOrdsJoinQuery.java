@@ -0,0 +1,430 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.schema.SchemaField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link JoinQuery} implementation comparing the values of the "from" and "to" fields by their
+ * DocValues ordinals within each segment, rather than by their terms.
+ *
+ * <p>For each pair of a "from" segment and a "to" segment, the ordinals of the terms found in both
+ * segments are mapped once, and the mappings are kept in an optional user cache of the searcher.
+ * Their keys are the cores of the two segments, which do not change from a searcher to the next,
+ * so only the pairs involving new segments are mapped after a commit when the cache is autowarmed
+ * with a {@link NoOpRegenerator}:
+ *
+ * <pre>
+ * &lt;cache name="joinSegmentOrds"
+ *        class="solr.CaffeineCache"
+ *        size="10000"
+ *        initialSize="0"
+ *        autowarmCount="100%"
+ *        regenerator="solr.NoOpRegenerator"/&gt;
+ * </pre>
+ *
+ * <p>The ordinals of the documents matching the "from" query are collected segment by segment, by
+ * up to {@code parallelism} threads, see {@link ParallelLeafSearch}, and then translated to the
+ * ordinals of each "to" segment with the mappings.
+ */
+public class SegmentOrdsJoinQuery extends JoinQuery {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** implementation detail subject to change */
+  public static final String CACHE_NAME = "joinSegmentOrds";
+
+  private final int parallelism;
+
+  public SegmentOrdsJoinQuery(
+      String fromField, String toField, String coreName, Query subQuery, int parallelism) {
+    super(fromField, toField, coreName, subQuery);
+    this.parallelism = parallelism;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+      throws IOException {
+    if (!(searcher instanceof SolrIndexSearcher)) {
+      log.debug(
+          "Falling back to JoinQueryWeight because searcher [{}] is not the required SolrIndexSearcher",
+          searcher);
+      return super.createWeight(searcher, scoreMode, boost);
+    }
+
+    final SolrIndexSearcher solrSearcher = (SolrIndexSearcher) searcher;
+    final JoinQueryWeight weight =
+        new JoinQueryWeight(solrSearcher, ScoreMode.COMPLETE_NO_SCORES, 1.0f);
+    final SolrIndexSearcher fromSearcher = weight.fromSearcher;
+    final SolrIndexSearcher toSearcher = weight.toSearcher;
+    validateField(fromSearcher, fromField, "from");
+    validateField(toSearcher, toField, "to");
+
+    final List<LeafReaderContext> fromLeaves = fromSearcher.getTopReaderContext().leaves();
+    final List<LeafReaderContext> toLeaves = toSearcher.getTopReaderContext().leaves();
+    @SuppressWarnings("unchecked")
+    final SolrCache<Key, Mapping> cache = toSearcher.getCache(CACHE_NAME);
+
+    final DocSet fromSet = fromSearcher.getDocSet(q);
+    final FixedBitSet[] fromOrdsByLeaf = new FixedBitSet[fromLeaves.size()];
+    final Mapping[][] mappings = new Mapping[fromLeaves.size()][];
+    final ParallelLeafSearch.LeafTask scanFromLeaf =
+        i -> {
+          final LeafReaderContext fromLeaf = fromLeaves.get(i);
+          fromOrdsByLeaf[i] = collectFromOrds(fromLeaf, fromSet);
+          if (fromOrdsByLeaf[i] != null) {
+            mappings[i] = new Mapping[toLeaves.size()];
+            for (int j = 0; j < toLeaves.size(); j++) {
+              mappings[i][j] = getMapping(cache, fromLeaf.reader(), toLeaves.get(j).reader());
+            }
+          }
+        };
+    ParallelLeafSearch.searchLeaves(toSearcher, fromLeaves.size(), parallelism, scanFromLeaf);
+
+    return new ConstantScoreWeight(this, boost) {
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        final SortedSetDocValues toValues = DocValues.getSortedSet(context.reader(), toField);
+        if (toValues.getValueCount() == 0) {
+          return null;
+        }
+        final FixedBitSet toOrds =
+            joinOrds(fromOrdsByLeaf, mappings, context.ord, toValues.getValueCount());
+        if (toOrds == null) {
+          return null;
+        }
+
+        return new ConstantScoreScorer(
+            this,
+            this.score(),
+            scoreMode,
+            new TwoPhaseIterator(toValues) {
+              @Override
+              public boolean matches() throws IOException {
+                for (long ord = toValues.nextOrd();
+                    ord != SortedSetDocValues.NO_MORE_ORDS;
+                    ord = toValues.nextOrd()) {
+                  if (toOrds.get((int) ord)) {
+                    return true;
+                  }
+                }
+                return false;
+              }
+
+              @Override
+              public float matchCost() {
+                return 10.0F;
+              }
+            });
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext ctx) {
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the ordinals of the "from" values of the documents of the segment matching the "from"
+   * query, or null if there are none.
+   */
+  private FixedBitSet collectFromOrds(LeafReaderContext context, DocSet fromSet)
+      throws IOException {
+    final SortedSetDocValues fromValues = DocValues.getSortedSet(context.reader(), fromField);
+    if (fromValues.getValueCount() == 0) {
+      return null;
+    }
+    final DocIdSetIterator fromDocs = fromSet.iterator(context);
+    if (fromDocs == null) {
+      return null;
+    }
+
+    final FixedBitSet fromOrds = new FixedBitSet(Math.toIntExact(fromValues.getValueCount()));
+    boolean found = false;
+    for (int doc = fromDocs.nextDoc();
+        doc != DocIdSetIterator.NO_MORE_DOCS;
+        doc = fromDocs.nextDoc()) {
+      if (fromValues.advanceExact(doc)) {
+        for (long ord = fromValues.nextOrd();
+            ord != SortedSetDocValues.NO_MORE_ORDS;
+            ord = fromValues.nextOrd()) {
+          fromOrds.set((int) ord);
+          found = true;
+        }
+      }
+    }
+    return found ? fromOrds : null;
+  }
+
+  /**
+   * Returns the ordinals of the "to" values of a segment joined by the "from" ordinals, or null if
+   * there are none.
+   */
+  private static FixedBitSet joinOrds(
+      FixedBitSet[] fromOrdsByLeaf, Mapping[][] mappings, int toLeaf, long toValueCount) {
+    FixedBitSet toOrds = null;
+    for (int i = 0; i < fromOrdsByLeaf.length; i++) {
+      final FixedBitSet fromOrds = fromOrdsByLeaf[i];
+      if (fromOrds == null) {
+        continue;
+      }
+      final Mapping mapping = mappings[i][toLeaf];
+      if (mapping.size() == 0) {
+        continue;
+      }
+      if (toOrds == null) {
+        toOrds = new FixedBitSet(Math.toIntExact(toValueCount));
+      }
+      mapping.join(fromOrds, toOrds);
+    }
+    if (toOrds == null || toOrds.nextSetBit(0) == DocIdSetIterator.NO_MORE_DOCS) {
+      return null;
+    }
+    return toOrds;
+  }
+
+  private Mapping getMapping(
+      SolrCache<Key, Mapping> cache, LeafReader fromReader, LeafReader toReader)
+      throws IOException {
+    final Object fromSegmentKey = getSegmentKey(fromReader);
+    final Object toSegmentKey = getSegmentKey(toReader);
+    if (fromSegmentKey != null && fromSegmentKey == toSegmentKey && fromField.equals(toField)) {
+      // a self join within a segment: the ordinals are identical
+      return Mapping.identity(DocValues.getSortedSet(fromReader, fromField).getValueCount());
+    }
+    if (cache == null || fromSegmentKey == null || toSegmentKey == null) {
+      return Mapping.create(fromReader, fromField, toReader, toField);
+    }
+    return cache.computeIfAbsent(
+        new Key(fromField, toField, fromSegmentKey, toSegmentKey),
+        key -> Mapping.create(fromReader, fromField, toReader, toField));
+  }
+
+  /** Returns the key of the core of the given segment, or null if it cannot be cached */
+  private static Object getSegmentKey(LeafReader reader) {
+    final IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
+    return cacheHelper == null ? null : cacheHelper.getKey();
+  }
+
+  private static void validateField(
+      SolrIndexSearcher solrSearcher, String fieldName, String querySide) {
+    final SchemaField field = solrSearcher.getSchema().getFieldOrNull(fieldName);
+    if (field == null) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          querySide + " field '" + fieldName + "' does not exist");
+    }
+
+    if (!field.hasDocValues()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "'segmentOrds' join queries require both 'from' and 'to' fields to have docValues, but "
+              + querySide
+              + " field ["
+              + fieldName
+              + "] does not.");
+    }
+  }
+
+  // Used in a SolrCache for the key
+  static class Key implements Accountable {
+    private static final long BASE_RAM_BYTES = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+    final String fromField;
+    final String toField;
+    final WeakReference<Object> fromSegCoreKeyRef;
+    final WeakReference<Object> toSegCoreKeyRef;
+    final int hashCode; // cached because we can't necessarily compute after construction
+
+    Key(String fromField, String toField, Object fromSegCoreKey, Object toSegCoreKey) {
+      this.fromField = fromField;
+      this.toField = toField;
+      this.fromSegCoreKeyRef = new WeakReference<>(fromSegCoreKey);
+      this.toSegCoreKeyRef = new WeakReference<>(toSegCoreKey);
+      this.hashCode =
+          ((fromField.hashCode() * 31 + toField.hashCode()) * 31 + fromSegCoreKey.hashCode()) * 31
+              + toSegCoreKey.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+
+      final Key that = (Key) o;
+      if (hashCode != that.hashCode
+          || !fromField.equals(that.fromField)
+          || !toField.equals(that.toField)) {
+        return false;
+      }
+
+      // compare by referent not reference
+      final Object fromSegCoreKey = fromSegCoreKeyRef.get();
+      final Object toSegCoreKey = toSegCoreKeyRef.get();
+      if (fromSegCoreKey == null || toSegCoreKey == null) {
+        return false;
+      }
+      return fromSegCoreKey.equals(that.fromSegCoreKeyRef.get())
+          && toSegCoreKey.equals(that.toSegCoreKeyRef.get());
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES + 2 * RamUsageEstimator.shallowSizeOfInstance(WeakReference.class);
+    }
+
+    @Override
+    public String toString() {
+      return "Key{from="
+          + fromField
+          + ", to="
+          + toField
+          + ", fromSeg="
+          + fromSegCoreKeyRef.get()
+          + ", toSeg="
+          + toSegCoreKeyRef.get()
+          + '}';
+    }
+  }
+
+  /**
+   * The ordinals of the terms found in both a "from" segment and a "to" segment, as two parallel
+   * arrays sorted by term. Only the common terms are kept, so a mapping between segments sharing
+   * few terms, as is typical of high-cardinality join keys, is small.
+   */
+  static class Mapping implements Accountable {
+    private static final long BASE_RAM_BYTES =
+        RamUsageEstimator.shallowSizeOfInstance(Mapping.class);
+
+    // null for the identity mapping
+    private final int[] fromOrds;
+    private final int[] toOrds;
+    private final int size;
+
+    private Mapping(int[] fromOrds, int[] toOrds, int size) {
+      this.fromOrds = fromOrds;
+      this.toOrds = toOrds;
+      this.size = size;
+    }
+
+    static Mapping identity(long valueCount) {
+      return new Mapping(null, null, Math.toIntExact(valueCount));
+    }
+
+    /** Maps the ordinals of the terms found in both segments, by walking their terms in order */
+    static Mapping create(
+        LeafReader fromReader, String fromField, LeafReader toReader, String toField)
+        throws IOException {
+      final SortedSetDocValues fromValues = DocValues.getSortedSet(fromReader, fromField);
+      final SortedSetDocValues toValues = DocValues.getSortedSet(toReader, toField);
+      if (fromValues.getValueCount() == 0 || toValues.getValueCount() == 0) {
+        return new Mapping(new int[0], new int[0], 0);
+      }
+
+      int[] fromOrds = new int[16];
+      int[] toOrds = new int[16];
+      int size = 0;
+      final TermsEnum fromTerms = fromValues.termsEnum();
+      final TermsEnum toTerms = toValues.termsEnum();
+      BytesRef fromTerm = fromTerms.next();
+      while (fromTerm != null) {
+        final TermsEnum.SeekStatus status = toTerms.seekCeil(fromTerm);
+        if (status == TermsEnum.SeekStatus.END) {
+          break;
+        }
+        if (status == TermsEnum.SeekStatus.FOUND) {
+          if (size == fromOrds.length) {
+            fromOrds = ArrayUtil.grow(fromOrds, size + 1);
+            toOrds = ArrayUtil.growExact(toOrds, fromOrds.length);
+          }
+          fromOrds[size] = Math.toIntExact(fromTerms.ord());
+          toOrds[size] = Math.toIntExact(toTerms.ord());
+          size++;
+          fromTerm = fromTerms.next();
+        } else {
+          // skip the "from" terms lower than the next "to" term
+          fromTerm =
+              fromTerms.seekCeil(toTerms.term()) == TermsEnum.SeekStatus.END
+                  ? null
+                  : fromTerms.term();
+        }
+      }
+      return new Mapping(
+          ArrayUtil.copyOfSubArray(fromOrds, 0, size),
+          ArrayUtil.copyOfSubArray(toOrds, 0, size),
+          size);
+    }
+
+    int size() {
+      return size;
+    }
+
+    /** Sets the "to" ordinals of the given "from" ordinals */
+    void join(FixedBitSet fromOrdBits, FixedBitSet toOrdBits) {
+      if (fromOrds == null) {
+        toOrdBits.or(fromOrdBits);
+        return;
+      }
+      for (int i = 0; i < size; i++) {
+        if (fromOrdBits.get(fromOrds[i])) {
+          toOrdBits.set(toOrds[i]);
+        }
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES
+          + (fromOrds == null
+              ? 0
+              : RamUsageEstimator.sizeOf(fromOrds) + RamUsageEstimator.sizeOf(toOrds));
+    }
+  }
+}
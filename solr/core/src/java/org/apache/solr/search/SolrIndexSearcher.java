@@ -108,6 +108,7 @@ import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.facet.UnInvertedField;
+import org.apache.solr.search.neural.KnnSearchStats;
 import org.apache.solr.search.stats.StatsCache;
 import org.apache.solr.search.stats.StatsSource;
 import org.apache.solr.uninverting.UninvertingReader;
@@ -163,6 +164,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final LongAdder liveDocsNaiveCacheHitCount = new LongAdder();
   private final LongAdder liveDocsInsertsCount = new LongAdder();
   private final LongAdder liveDocsHitCount = new LongAdder();
+  private final KnnSearchStats knnSearchStats = new KnnSearchStats();
 
   // map of generic caches - not synchronized since it's read-only after the constructor.
   private final Map<String, SolrCache<?, ?>> cacheMap;
@@ -202,6 +204,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private static DirectoryReader wrapReader(SolrCore core, DirectoryReader reader)
       throws IOException {
     assert reader != null;
+    if (core.getUpdateHandler() != null) {
+      // hides the documents deleted by the deferred deletes by query the reader does not see yet
+      reader = core.getUpdateHandler().wrapDeferredDeletes(reader);
+    }
     reader = UninvertingReader.wrap(reader, core.getLatestSchema().getUninversionMapper());
     if (useExitableDirectoryReader) { // SOLR-16693 legacy; may be removed.  Probably inefficient.
       reader = ExitableDirectoryReader.wrap(reader, SolrQueryTimeoutImpl.getInstance());
@@ -620,6 +626,11 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return filterCache;
   }
 
+  /** Returns the work done by the nearest neighbors searches of this searcher */
+  public KnnSearchStats getKnnSearchStats() {
+    return knnSearchStats;
+  }
+
   //
   // Set default regenerators on filter and query caches if they don't have any
   //
@@ -872,6 +883,43 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return -1;
   }
 
+  /**
+   * lookup the docids of many unique keys at once, -1 being returned for the keys not found. The
+   * keys must be sorted, so that the terms dictionary of each segment is visited in order by a
+   * single {@link TermsEnum}.
+   *
+   * @lucene.internal
+   */
+  public int[] lookupIds(BytesRef[] sortedIds) throws IOException {
+    final String field = schema.getUniqueKeyField().getName();
+    final int[] docIds = new int[sortedIds.length];
+    Arrays.fill(docIds, -1);
+    int remaining = sortedIds.length;
+    for (int i = 0, c = leafContexts.size(); i < c && remaining > 0; i++) {
+      final LeafReaderContext leaf = leafContexts.get(i);
+      final LeafReader reader = leaf.reader();
+
+      final Terms terms = reader.terms(field);
+      if (terms == null) continue;
+
+      final Bits liveDocs = reader.getLiveDocs();
+      final TermsEnum te = terms.iterator();
+      PostingsEnum docs = null;
+      for (int j = 0; j < sortedIds.length; j++) {
+        if (docIds[j] != -1 || !te.seekExact(sortedIds[j])) continue;
+        docs = te.postings(docs, PostingsEnum.NONE);
+        for (int id = docs.nextDoc(); id != DocIdSetIterator.NO_MORE_DOCS; id = docs.nextDoc()) {
+          if (liveDocs == null || liveDocs.get(id)) {
+            docIds[j] = leaf.docBase + id;
+            remaining--;
+            break;
+          }
+        }
+      }
+    }
+    return docIds;
+  }
+
   /**
    * Compute and cache the DocSet that matches a query. The normal usage is expected to be
    * cacheDocSet(myQuery, null,false) meaning that Solr will determine if the Query warrants
@@ -2536,6 +2584,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
             });
     parentContext.gauge(
         liveDocsCacheMetrics, true, "liveDocsCache", Category.SEARCHER.toString(), scope);
+    parentContext.gauge(
+        new MetricsMap(knnSearchStats),
+        true,
+        "knnSearches",
+        Category.SEARCHER.toString(),
+        scope);
     // reader stats
     parentContext.gauge(
         rgauge(parentContext.nullNumber(), () -> reader.numDocs()),
@@ -20,6 +20,7 @@ package org.apache.solr.search.join;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Locale;
 import java.util.Set;
 import org.apache.lucene.search.Query;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -39,6 +40,7 @@ public class CrossCollectionJoinQParser extends QParser {
   public static final String TO = "to";
   public static final String ROUTED_BY_JOIN_KEY = "routed";
   public static final String TTL = "ttl";
+  public static final String KEY_FILTER = "keyFilter";
 
   public static final int TTL_DEFAULT = 60 * 60; // in seconds
 
@@ -53,7 +55,8 @@ public class CrossCollectionJoinQParser extends QParser {
               FROM,
               TO,
               ROUTED_BY_JOIN_KEY,
-              TTL));
+              TTL,
+              KEY_FILTER));
 
   private final String routerField;
   private final Set<String> allowSolrUrls;
@@ -94,6 +97,15 @@ public class CrossCollectionJoinQParser extends QParser {
     boolean routedByJoinKey = localParams.getBool(ROUTED_BY_JOIN_KEY, toField.equals(routerField));
     int ttl = localParams.getInt(TTL, TTL_DEFAULT);
 
+    String keyFilterParam = localParams.get(KEY_FILTER, "none");
+    CrossCollectionJoinQuery.KeyFilter keyFilter;
+    try {
+      keyFilter =
+          CrossCollectionJoinQuery.KeyFilter.valueOf(keyFilterParam.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new SyntaxError("Unknown " + KEY_FILTER + ": " + keyFilterParam);
+    }
+
     ModifiableSolrParams otherParams = new ModifiableSolrParams();
     for (Iterator<String> it = localParams.getParameterNamesIterator(); it.hasNext(); ) {
       String paramName = it.next();
@@ -103,6 +115,15 @@ public class CrossCollectionJoinQParser extends QParser {
     }
 
     return new CrossCollectionJoinQuery(
-        query, zkHost, solrUrl, collection, fromField, toField, routedByJoinKey, ttl, otherParams);
+        query,
+        zkHost,
+        solrUrl,
+        collection,
+        fromField,
+        toField,
+        routedByJoinKey,
+        keyFilter,
+        ttl,
+        otherParams);
   }
 }
@@ -18,6 +18,7 @@
 package org.apache.solr.search.join;
 
 import java.io.IOException;
+import java.util.Base64;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
@@ -35,7 +36,9 @@ import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.CharsRefBuilder;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.Tuple;
@@ -63,6 +66,18 @@ import org.apache.solr.search.SolrIndexSearcher;
 
 public class CrossCollectionJoinQuery extends Query {
 
+  /** Which of the join keys of the remote collection are streamed back to the local one. */
+  public enum KeyFilter {
+    /** All the keys of the documents matching the query. */
+    NONE,
+    /** Only the keys within the range of the keys of the local shard. */
+    RANGE,
+    /** Only the keys within that range which are in a bloom filter of the local keys. */
+    BLOOM
+  }
+
+  static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
   protected final String query;
   protected final String zkHost;
   protected final String solrUrl;
@@ -70,6 +85,7 @@ public class CrossCollectionJoinQuery extends Query {
   protected final String fromField;
   protected final String toField;
   protected final boolean routedByJoinKey;
+  protected final KeyFilter keyFilter;
 
   protected final long timestamp;
   protected final int ttl;
@@ -87,6 +103,30 @@ public class CrossCollectionJoinQuery extends Query {
       boolean routedByJoinKey,
       int ttl,
       SolrParams otherParams) {
+    this(
+        query,
+        zkHost,
+        solrUrl,
+        collection,
+        fromField,
+        toField,
+        routedByJoinKey,
+        KeyFilter.NONE,
+        ttl,
+        otherParams);
+  }
+
+  public CrossCollectionJoinQuery(
+      String query,
+      String zkHost,
+      String solrUrl,
+      String collection,
+      String fromField,
+      String toField,
+      boolean routedByJoinKey,
+      KeyFilter keyFilter,
+      int ttl,
+      SolrParams otherParams) {
 
     this.query = query;
     this.zkHost = zkHost;
@@ -95,6 +135,7 @@ public class CrossCollectionJoinQuery extends Query {
     this.fromField = fromField;
     this.toField = toField;
     this.routedByJoinKey = routedByJoinKey;
+    this.keyFilter = keyFilter;
 
     this.timestamp = System.nanoTime();
     this.ttl = ttl;
@@ -136,7 +177,8 @@ public class CrossCollectionJoinQuery extends Query {
 
     @Override
     public void collect(Object value) throws IOException {
-      fieldType.readableToIndexed((String) value, bytes);
+      // the remote keys may be numbers when the remote join field is numeric
+      fieldType.readableToIndexed(value.toString(), bytes);
       if (termsEnum.seekExact(bytes.get())) {
         postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
         bitSet.or(postingsEnum);
@@ -215,7 +257,61 @@ public class CrossCollectionJoinQuery extends Query {
       }
     }
 
-    private TupleStream createCloudSolrStream(SolrClientCache solrClientCache) throws IOException {
+    /**
+     * Creates the filter of the remote join keys by the range, and optionally by a bloom filter, of
+     * the local ones, or returns null if the local keys are not strings. The remote collection
+     * streams back all its keys when its join field is not a single-valued string field either.
+     */
+    private String createKeyFilterFq(FieldType fieldType, Terms terms) throws IOException {
+      if (keyFilter == KeyFilter.NONE || !JoinKeyFilterQParser.canFilterKeys(fieldType)) {
+        return null;
+      }
+
+      CharsRefBuilder readable = new CharsRefBuilder();
+      String min = fieldType.indexedToReadable(terms.getMin(), readable).toString();
+      String max = fieldType.indexedToReadable(terms.getMax(), readable).toString();
+      StringBuilder fq = new StringBuilder();
+      fq.append(
+          String.format(
+              Locale.ROOT,
+              "{!join_key_filter cache=false f=%s min=%s max=%s",
+              fromField,
+              JoinKeyFilterQParser.encodeKey(min),
+              JoinKeyFilterQParser.encodeKey(max)));
+
+      if (keyFilter == KeyFilter.BLOOM) {
+        JoinKeyBloomFilter bloomFilter =
+            JoinKeyBloomFilter.create(countKeys(), BLOOM_FALSE_POSITIVE_RATE);
+        BytesRefBuilder readableBytes = new BytesRefBuilder();
+        TermsEnum termsEnum = terms.iterator();
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+          readableBytes.copyChars(fieldType.indexedToReadable(term, readable));
+          bloomFilter.add(readableBytes.get());
+        }
+        fq.append(" bloom=")
+            .append(Base64.getUrlEncoder().withoutPadding().encodeToString(bloomFilter.encode()));
+      }
+      return fq.append('}').toString();
+    }
+
+    // an upper bound of the number of local keys, as the same key may be in several segments
+    private long countKeys() throws IOException {
+      long count = 0;
+      for (LeafReaderContext context : searcher.getTopReaderContext().leaves()) {
+        Terms leafTerms = context.reader().terms(toField);
+        if (leafTerms != null) {
+          long size = leafTerms.size();
+          if (size < 0) {
+            return searcher.maxDoc();
+          }
+          count += size;
+        }
+      }
+      return count;
+    }
+
+    private TupleStream createCloudSolrStream(SolrClientCache solrClientCache, String keyFilterFq)
+        throws IOException {
       String streamZkHost;
       if (zkHost != null) {
         streamZkHost = zkHost;
@@ -229,6 +325,9 @@ public class CrossCollectionJoinQuery extends Query {
       if (fq != null) {
         params.add(CommonParams.FQ, fq);
       }
+      if (keyFilterFq != null) {
+        params.add(CommonParams.FQ, keyFilterFq);
+      }
       params.set(CommonParams.FL, fromField);
       params.set(CommonParams.SORT, fromField + " asc");
       params.set(CommonParams.QT, "/export");
@@ -243,7 +342,7 @@ public class CrossCollectionJoinQuery extends Query {
       return uniqueStream;
     }
 
-    private TupleStream createSolrStream() {
+    private TupleStream createSolrStream(String keyFilterFq) {
       StreamExpression searchExpr =
           new StreamExpression("search")
               .withParameter(collection)
@@ -252,6 +351,9 @@ public class CrossCollectionJoinQuery extends Query {
       if (fq != null) {
         searchExpr.withParameter(new StreamExpressionNamedParameter(CommonParams.FQ, fq));
       }
+      if (keyFilterFq != null) {
+        searchExpr.withParameter(new StreamExpressionNamedParameter(CommonParams.FQ, keyFilterFq));
+      }
       searchExpr
           .withParameter(new StreamExpressionNamedParameter(CommonParams.FL, fromField))
           .withParameter(new StreamExpressionNamedParameter(CommonParams.SORT, fromField + " asc"))
@@ -277,16 +379,9 @@ public class CrossCollectionJoinQuery extends Query {
     }
 
     private DocSet getDocSet() throws IOException {
-      SolrClientCache solrClientCache = searcher.getCore().getCoreContainer().getSolrClientCache();
-      TupleStream solrStream;
-      if (zkHost != null || solrUrl == null) {
-        solrStream = createCloudSolrStream(solrClientCache);
-      } else {
-        solrStream = createSolrStream();
-      }
-
       FieldType fieldType = searcher.getSchema().getFieldType(toField);
       JoinKeyCollector collector;
+      String keyFilterFq = null;
       if (fieldType.isPointField()) {
         collector = new PointJoinKeyCollector(searcher);
       } else {
@@ -295,6 +390,15 @@ public class CrossCollectionJoinQuery extends Query {
           return DocSet.empty();
         }
         collector = new TermsJoinKeyCollector(fieldType, terms, searcher);
+        keyFilterFq = createKeyFilterFq(fieldType, terms);
+      }
+
+      SolrClientCache solrClientCache = searcher.getCore().getCoreContainer().getSolrClientCache();
+      TupleStream solrStream;
+      if (zkHost != null || solrUrl == null) {
+        solrStream = createCloudSolrStream(solrClientCache, keyFilterFq);
+      } else {
+        solrStream = createSolrStream(keyFilterFq);
       }
 
       try {
@@ -363,6 +467,7 @@ public class CrossCollectionJoinQuery extends Query {
     result = prime * result + Objects.hashCode(fromField);
     result = prime * result + Objects.hashCode(toField);
     result = prime * result + Boolean.hashCode(routedByJoinKey);
+    result = prime * result + Objects.hashCode(keyFilter);
     result = prime * result + Objects.hashCode(otherParamsString);
     // timestamp and ttl should not be included in hash code
     return result;
@@ -381,6 +486,7 @@ public class CrossCollectionJoinQuery extends Query {
         && Objects.equals(fromField, other.fromField)
         && Objects.equals(toField, other.toField)
         && routedByJoinKey == other.routedByJoinKey
+        && keyFilter == other.keyFilter
         && Objects.equals(otherParamsString, other.otherParamsString)
         && TimeUnit.SECONDS.convert(Math.abs(timestamp - other.timestamp), TimeUnit.NANOSECONDS)
             < Math.min(ttl, other.ttl);
@@ -390,11 +496,12 @@ public class CrossCollectionJoinQuery extends Query {
   public String toString(String field) {
     return String.format(
         Locale.ROOT,
-        "{!xcjf collection=%s from=%s to=%s routed=%b ttl=%d}%s",
+        "{!xcjf collection=%s from=%s to=%s routed=%b keyFilter=%s ttl=%d}%s",
         collection,
         fromField,
         toField,
         routedByJoinKey,
+        keyFilter.name().toLowerCase(Locale.ROOT),
         ttl,
         query.toString());
   }
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.common.util.Hash;
+
+/**
+ * A bloom filter of the join keys of a collection, sent along with the {@link
+ * CrossCollectionJoinQuery} to the remote collection so that the keys which cannot match any local
+ * document are not streamed back. The k bit positions of a key are derived from the two halves of
+ * its MurmurHash3_x64_128 hash.
+ *
+ * @see JoinKeyFilterQuery
+ */
+public class JoinKeyBloomFilter {
+
+  private static final double LN2 = Math.log(2);
+  private static final int MAX_HASHES = 16;
+
+  private final long[] bits;
+  private final long numBits;
+  private final int numHashes;
+
+  private JoinKeyBloomFilter(long[] bits, int numHashes) {
+    this.bits = bits;
+    this.numBits = (long) bits.length * Long.SIZE;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Creates an empty filter sized for the given number of keys.
+   *
+   * @param expectedKeys the number of keys which will be added to the filter
+   * @param falsePositiveRate the expected rate of false positives once all the keys are added
+   */
+  public static JoinKeyBloomFilter create(long expectedKeys, double falsePositiveRate) {
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException(
+          "the false positive rate must be between 0 and 1: " + falsePositiveRate);
+    }
+    long keys = Math.max(1, expectedKeys);
+    long numBits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (LN2 * LN2));
+    int numWords = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (numBits + 63) >>> 6));
+    int numHashes =
+        (int) Math.max(1, Math.min(MAX_HASHES, Math.round((double) numWords * 64 / keys * LN2)));
+    return new JoinKeyBloomFilter(new long[numWords], numHashes);
+  }
+
+  public void add(BytesRef key) {
+    Hash.LongPair hash = hash(key);
+    long combined = hash.val1;
+    for (int i = 0; i < numHashes; i++) {
+      long bit = Math.floorMod(combined, numBits);
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+      combined += hash.val2;
+    }
+  }
+
+  /** Returns false if the key was certainly not added to this filter, true if it probably was. */
+  public boolean mightContain(BytesRef key) {
+    Hash.LongPair hash = hash(key);
+    long combined = hash.val1;
+    for (int i = 0; i < numHashes; i++) {
+      long bit = Math.floorMod(combined, numBits);
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+      combined += hash.val2;
+    }
+    return true;
+  }
+
+  private static Hash.LongPair hash(BytesRef key) {
+    Hash.LongPair hash = new Hash.LongPair();
+    Hash.murmurhash3_x64_128(key.bytes, key.offset, key.length, 0, hash);
+    return hash;
+  }
+
+  /** Encodes this filter as the number of hashes followed by the bits. */
+  public byte[] encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + bits.length * Long.BYTES);
+    buffer.putInt(numHashes);
+    for (long word : bits) {
+      buffer.putLong(word);
+    }
+    return buffer.array();
+  }
+
+  /** Decodes a filter encoded by {@link #encode()}. */
+  public static JoinKeyBloomFilter decode(byte[] bytes) {
+    if (bytes.length < Integer.BYTES + Long.BYTES
+        || (bytes.length - Integer.BYTES) % Long.BYTES != 0) {
+      throw new IllegalArgumentException("invalid bloom filter of " + bytes.length + " bytes");
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    int numHashes = buffer.getInt();
+    if (numHashes < 1 || numHashes > MAX_HASHES) {
+      throw new IllegalArgumentException("invalid number of hashes: " + numHashes);
+    }
+    long[] bits = new long[buffer.remaining() / Long.BYTES];
+    for (int i = 0; i < bits.length; i++) {
+      bits[i] = buffer.getLong();
+    }
+    return new JoinKeyBloomFilter(bits, numHashes);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof JoinKeyBloomFilter
+        && numHashes == ((JoinKeyBloomFilter) other).numHashes
+        && Arrays.equals(bits, ((JoinKeyBloomFilter) other).bits);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Integer.hashCode(numHashes) + Arrays.hashCode(bits);
+  }
+}
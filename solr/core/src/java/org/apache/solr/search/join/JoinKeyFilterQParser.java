@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SyntaxError;
+
+@SuppressWarnings("WeakerAccess")
+public class JoinKeyFilterQParser extends QParser {
+
+  public static final String FIELD = "f";
+  public static final String MIN = "min";
+  public static final String MAX = "max";
+  public static final String BLOOM = "bloom";
+
+  public JoinKeyFilterQParser(
+      String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
+    super(qstr, localParams, params, req);
+  }
+
+  @Override
+  public Query parse() throws SyntaxError {
+    String field = localParams.get(FIELD);
+    if (field == null) {
+      throw new SyntaxError("the " + FIELD + " param is required");
+    }
+    SchemaField schemaField = req.getSchema().getField(field);
+    if (!canFilterKeys(schemaField.getType())
+        || schemaField.multiValued()
+        || !schemaField.hasDocValues()) {
+      // all the keys are streamed back, as with no key filter
+      return new MatchAllDocsQuery();
+    }
+
+    try {
+      String min = decodeKey(localParams.get(MIN));
+      String max = decodeKey(localParams.get(MAX));
+      String bloom = localParams.get(BLOOM);
+      JoinKeyBloomFilter bloomFilter =
+          bloom == null ? null : JoinKeyBloomFilter.decode(Base64.getUrlDecoder().decode(bloom));
+      return new JoinKeyFilterQuery(field, schemaField.getType(), min, max, bloomFilter);
+    } catch (IllegalArgumentException e) {
+      throw new SyntaxError("invalid join key filter: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Returns true if the join keys of a field of this type can be filtered by the keys of the other
+   * collection. The keys are compared in the order of their indexed form on each side, which is the
+   * order of their readable form only for string fields.
+   */
+  public static boolean canFilterKeys(FieldType fieldType) {
+    return fieldType instanceof StrField;
+  }
+
+  /** Encodes a key of the join in the form of the {@link #MIN} and {@link #MAX} params. */
+  public static String encodeKey(String key) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodeKey(String encoded) {
+    return encoded == null
+        ? null
+        : new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.search.join;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Objects;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TwoPhaseIterator;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.schema.FieldType;
+
+/**
+ * Matches the documents whose join key, in a single-valued string field with docValues, is within
+ * the range of the keys of the other collection of a {@link CrossCollectionJoinQuery} and might be
+ * one of them according to their {@link JoinKeyBloomFilter}. The join fields of both collections
+ * must be string fields, see {@link JoinKeyFilterQParser#canFilterKeys}, so that the keys are in
+ * the same order on both sides.
+ */
+public class JoinKeyFilterQuery extends Query {
+
+  protected final String field;
+  protected final FieldType fieldType;
+  protected final String min;
+  protected final String max;
+  protected final JoinKeyBloomFilter bloomFilter;
+
+  /**
+   * @param min the lowest key, inclusive, or null if unbounded
+   * @param max the highest key, inclusive, or null if unbounded
+   * @param bloomFilter the filter of the keys, or null to match any key of the range
+   */
+  public JoinKeyFilterQuery(
+      String field, FieldType fieldType, String min, String max, JoinKeyBloomFilter bloomFilter) {
+    this.field = field;
+    this.fieldType = fieldType;
+    this.min = min;
+    this.max = max;
+    this.bloomFilter = bloomFilter;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost)
+      throws IOException {
+    return new ConstantScoreWeight(this, boost) {
+
+      @Override
+      public boolean isCacheable(LeafReaderContext context) {
+        return DocValues.isCacheable(context, field);
+      }
+
+      @Override
+      public Scorer scorer(LeafReaderContext context) throws IOException {
+        SortedDocValues docValues = DocValues.getSorted(context.reader(), field);
+        FixedBitSet ords = getMatchingOrds(docValues);
+        if (ords == null) {
+          return null;
+        }
+
+        TwoPhaseIterator iterator =
+            new TwoPhaseIterator(docValues) {
+              @Override
+              public boolean matches() throws IOException {
+                return ords.get(docValues.ordValue());
+              }
+
+              @Override
+              public float matchCost() {
+                return 2;
+              }
+            };
+
+        return new ConstantScoreScorer(this, boost, scoreMode, iterator);
+      }
+
+      // the ordinals of the keys of the segment which pass the range and the bloom filter
+      private FixedBitSet getMatchingOrds(SortedDocValues docValues) throws IOException {
+        TermsEnum termsEnum = docValues.termsEnum();
+        BytesRefBuilder bound = new BytesRefBuilder();
+        if (min != null) {
+          fieldType.readableToIndexed(min, bound);
+          if (termsEnum.seekCeil(bound.get()) == TermsEnum.SeekStatus.END) {
+            return null;
+          }
+        } else if (termsEnum.next() == null) {
+          return null;
+        }
+        BytesRef upper = null;
+        if (max != null) {
+          fieldType.readableToIndexed(max, bound);
+          upper = bound.get();
+        }
+
+        FixedBitSet ords = null;
+        CharsRefBuilder readable = new CharsRefBuilder();
+        BytesRefBuilder readableBytes = new BytesRefBuilder();
+        for (BytesRef term = termsEnum.term(); term != null; term = termsEnum.next()) {
+          if (upper != null && term.compareTo(upper) > 0) {
+            break;
+          }
+          if (bloomFilter != null) {
+            readableBytes.copyChars(fieldType.indexedToReadable(term, readable));
+            if (!bloomFilter.mightContain(readableBytes.get())) {
+              continue;
+            }
+          }
+          if (ords == null) {
+            ords = new FixedBitSet(docValues.getValueCount());
+          }
+          ords.set((int) termsEnum.ord());
+        }
+        return ords;
+      }
+    };
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    visitor.visitLeaf(this);
+  }
+
+  @Override
+  public String toString(String field) {
+    return String.format(
+        Locale.ROOT,
+        "{!join_key_filter f=%s min=%s max=%s bloom=%b}",
+        this.field,
+        min,
+        max,
+        bloomFilter != null);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) && equalsTo(getClass().cast(other));
+  }
+
+  private boolean equalsTo(JoinKeyFilterQuery other) {
+    return Objects.equals(field, other.field)
+        && Objects.equals(min, other.min)
+        && Objects.equals(max, other.max)
+        && Objects.equals(bloomFilter, other.bloomFilter);
+  }
+
+  @Override
+  public int hashCode() {
+    final int prime = 31;
+    int result = classHash();
+    result = prime * result + Objects.hashCode(field);
+    result = prime * result + Objects.hashCode(min);
+    result = prime * result + Objects.hashCode(max);
+    result = prime * result + Objects.hashCode(bloomFilter);
+    return result;
+  }
+}
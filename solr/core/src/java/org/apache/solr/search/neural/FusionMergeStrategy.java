@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.handler.component.MergeStrategy;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.handler.component.ShardResponse;
+import org.apache.solr.search.ReturnFields;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.SolrResponseUtil;
+
+/**
+ * Fuses the rankings of the retrievers of a {@link FusionQuery} merged across the shards, and
+ * replaces the hits of the shards with the documents of the fused ranking, before their ids are
+ * merged by score.
+ *
+ * <p>The shards fuse the rankings of their own documents, which only tells apart the best of them:
+ * the ranks of their hits among the hits of all the shards are only known once merged. A shard only
+ * returns its best hits by its own fused scores, so each shard is given instead all its documents
+ * ranked by any retriever, scored with the global fused scores. When the results are sorted by
+ * other fields than the score, or when their stored fields are fetched along with their ids, the
+ * hits returned by the shards are only scored again, which approximates the global ranking.
+ */
+public class FusionMergeStrategy implements MergeStrategy {
+
+  private final FusionQuery fusionQuery;
+
+  public FusionMergeStrategy(FusionQuery fusionQuery) {
+    this.fusionQuery = fusionQuery;
+  }
+
+  @Override
+  public void merge(ResponseBuilder rb, ShardRequest sreq) {
+    final List<String> names = fusionQuery.getNames();
+    final List<List<Map.Entry<String, Float>>> rankings = new ArrayList<>(names.size());
+    for (int i = 0; i < names.size(); i++) {
+      rankings.add(new ArrayList<>());
+    }
+    // the documents ranked by any retriever, by shard
+    final Map<ShardResponse, Set<String>> rankedKeys = new HashMap<>();
+    for (final ShardResponse srsp : sreq.responses) {
+      if (srsp.getException() != null) {
+        continue;
+      }
+      final NamedList<?> shardRankings =
+          (NamedList<?>)
+              SolrResponseUtil.getSubsectionFromShardResponse(
+                  rb, srsp, FusionQuery.RANKINGS_KEY, true);
+      if (shardRankings == null) {
+        continue;
+      }
+      final Set<String> keys = new HashSet<>();
+      for (int i = 0; i < names.size(); i++) {
+        final NamedList<?> ranking = (NamedList<?>) shardRankings.get(names.get(i));
+        if (ranking != null) {
+          for (int j = 0; j < ranking.size(); j++) {
+            rankings
+                .get(i)
+                .add(Map.entry(ranking.getName(j), ((Number) ranking.getVal(j)).floatValue()));
+            keys.add(ranking.getName(j));
+          }
+        }
+      }
+      rankedKeys.put(srsp, keys);
+    }
+
+    // the global ranking of each retriever is the merge of its rankings by the shards
+    final Map<String, Float> fusedScores = new HashMap<>();
+    for (int i = 0; i < names.size(); i++) {
+      final List<Map.Entry<String, Float>> ranking = rankings.get(i);
+      ranking.sort(
+          Map.Entry.<String, Float>comparingByValue(Comparator.reverseOrder())
+              .thenComparing(Map.Entry.comparingByKey()));
+      final int size = Math.min(fusionQuery.getTopK(), ranking.size());
+      final List<String> keys = new ArrayList<>(size);
+      final float[] scores = new float[size];
+      for (int j = 0; j < size; j++) {
+        keys.add(ranking.get(j).getKey());
+        scores[j] = ranking.get(j).getValue();
+      }
+      fusionQuery.fuse(i, keys, scores, fusedScores);
+    }
+
+    final String uniqueKeyField = rb.req.getSchema().getUniqueKeyField().getName();
+    final boolean replaceHits = canReplaceHits(rb, uniqueKeyField);
+    for (final ShardResponse srsp : sreq.responses) {
+      if (srsp.getException() != null) {
+        continue;
+      }
+      final SolrDocumentList docs =
+          (SolrDocumentList)
+              SolrResponseUtil.getSubsectionFromShardResponse(rb, srsp, "response", true);
+      if (docs == null) {
+        continue;
+      }
+      if (replaceHits && rankedKeys.containsKey(srsp)) {
+        replaceHits(docs, rankedKeys.get(srsp), fusedScores, uniqueKeyField);
+        continue;
+      }
+      Float maxScore = null;
+      for (final SolrDocument doc : docs) {
+        if (doc.getFieldValue("score") == null) {
+          continue;
+        }
+        final Float fusedScore =
+            fusedScores.getOrDefault(doc.getFieldValue(uniqueKeyField).toString(), 0f);
+        doc.setField("score", fusedScore);
+        maxScore = maxScore == null ? fusedScore : Math.max(maxScore, fusedScore);
+      }
+      if (maxScore != null) {
+        docs.setMaxScore(maxScore);
+      }
+    }
+  }
+
+  /**
+   * Whether the hits of the shards are sorted by score and only hold their ids and scores, so that
+   * other documents of the shards can be returned in their place.
+   */
+  private static boolean canReplaceHits(ResponseBuilder rb, String uniqueKeyField) {
+    if (rb.getSortSpec().includesNonScoreOrDocField()) {
+      return false;
+    }
+    if (!rb.onePassDistributedQuery) {
+      return true;
+    }
+    final ReturnFields fields = rb.rsp.getReturnFields();
+    return fields != null
+        && fields.getRequestedFieldNames() != null
+        && !fields.hasPatternMatching()
+        && Arrays.asList(uniqueKeyField, "score").containsAll(fields.getRequestedFieldNames());
+  }
+
+  /**
+   * Replaces the hits of a shard with its documents of the global fused ranking, by decreasing
+   * fused score.
+   */
+  private static void replaceHits(
+      SolrDocumentList docs,
+      Set<String> rankedKeys,
+      Map<String, Float> fusedScores,
+      String uniqueKeyField) {
+    // keep the documents the shard returned, with the type of their unique key
+    final Map<String, SolrDocument> returned = new HashMap<>();
+    for (final SolrDocument doc : docs) {
+      returned.put(doc.getFieldValue(uniqueKeyField).toString(), doc);
+    }
+    final List<String> keys = new ArrayList<>();
+    for (final String key : rankedKeys) {
+      if (fusedScores.containsKey(key)) {
+        keys.add(key);
+      }
+    }
+    keys.sort(
+        Comparator.<String, Float>comparing(fusedScores::get, Comparator.reverseOrder())
+            .thenComparing(Comparator.naturalOrder()));
+
+    docs.clear();
+    for (final String key : keys) {
+      SolrDocument doc = returned.get(key);
+      if (doc == null) {
+        doc = new SolrDocument();
+        doc.setField(uniqueKeyField, key);
+      }
+      doc.setField("score", fusedScores.get(key));
+      docs.add(doc);
+    }
+    docs.setNumFound(keys.size());
+    docs.setMaxScore(keys.isEmpty() ? null : fusedScores.get(keys.get(0)));
+  }
+
+  @Override
+  public boolean mergesIds() {
+    return false;
+  }
+
+  @Override
+  public boolean handlesMergeFields() {
+    return false;
+  }
+
+  @Override
+  public void handleMergeFields(ResponseBuilder rb, SolrIndexSearcher searcher) {}
+
+  @Override
+  public int getCost() {
+    return 0;
+  }
+}
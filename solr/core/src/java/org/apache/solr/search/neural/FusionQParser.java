@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.StrUtils;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.search.SyntaxError;
+
+public class FusionQParser extends QParser {
+
+  // the names of the request parameters holding the queries to fuse
+  static final String QUERIES = "queries";
+
+  // the number of hits taken from each query
+  static final String TOP_K = "topK";
+  static final int DEFAULT_TOP_K = 100;
+
+  static final String METHOD = "method";
+  static final FusionQuery.Method DEFAULT_METHOD = FusionQuery.Method.RRF;
+
+  // the weights of the queries, in the order of their names
+  static final String WEIGHTS = "weights";
+
+  // the rank constant of the reciprocal rank fusion
+  static final String RRF_K = "rrfK";
+  static final int DEFAULT_RRF_K = 60;
+
+  /**
+   * Constructor for the QParser
+   *
+   * @param qstr The part of the query string specific to this parser
+   * @param localParams The set of parameters that are specific to this QParser. See
+   *     https://solr.apache.org/guide/solr/latest/query-guide/local-params.html
+   * @param params The rest of the {@link SolrParams}
+   * @param req The original {@link SolrQueryRequest}.
+   */
+  public FusionQParser(
+      String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
+    super(qstr, localParams, params, req);
+  }
+
+  @Override
+  public Query parse() throws SyntaxError {
+    List<String> names = StrUtils.splitSmart(localParams.get(QUERIES, ""), ',');
+    names.removeIf(String::isBlank);
+    if (names.isEmpty()) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "the names of the queries to fuse are missing");
+    }
+    int topK = localParams.getInt(TOP_K, DEFAULT_TOP_K);
+    FusionQuery.Method method = getMethod();
+    float[] weights = getWeights(names.size());
+    int rrfK = localParams.getInt(RRF_K, DEFAULT_RRF_K);
+
+    List<Query> retrievers = new ArrayList<>(names.size());
+    for (String name : names) {
+      String queryString = getParam(name.trim());
+      if (queryString == null) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST, "the query to fuse '" + name + "' is missing");
+      }
+      // the queries are parsed as main queries, rather than as sub queries, so that the knn
+      // queries search their nearest neighbors among the documents matching the filter queries
+      QParser parser = QParser.getParser(queryString, req);
+      if (parser instanceof FusionQParser) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST, "fusion queries can not be nested: " + name);
+      }
+      Query retriever = parser.getQuery();
+      retrievers.add(retriever == null ? new MatchNoDocsQuery() : retriever);
+    }
+
+    SolrIndexSearcher.ProcessedFilter processedFilter =
+        isFilter() ? null : KnnQParser.getProcessedFilter(req);
+    return new FusionQuery(
+        names,
+        retrievers,
+        processedFilter == null ? null : processedFilter.filter,
+        topK,
+        method,
+        weights,
+        rrfK);
+  }
+
+  private FusionQuery.Method getMethod() {
+    String method = localParams.get(METHOD);
+    if (method == null) {
+      return DEFAULT_METHOD;
+    }
+    try {
+      return FusionQuery.Method.valueOf(method.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST, "unknown fusion method: " + method, e);
+    }
+  }
+
+  private float[] getWeights(int numQueries) {
+    float[] weights = new float[numQueries];
+    String weightsParam = localParams.get(WEIGHTS);
+    if (weightsParam == null) {
+      Arrays.fill(weights, 1f);
+      return weights;
+    }
+    List<String> values = StrUtils.splitSmart(weightsParam, ',');
+    if (values.size() != numQueries) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "there must be one weight per query to fuse: " + weightsParam);
+    }
+    for (int i = 0; i < numQueries; i++) {
+      weights[i] = Float.parseFloat(values.get(i).trim());
+    }
+    return weights;
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.component.MergeStrategy;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Fuses the rankings of several retrievers, typically a lexical query and a knn query, each
+ * searched independently for its topK hits. The fused score of a document is the sum over the
+ * retrievers which ranked it of either:
+ *
+ * <ul>
+ *   <li>{@link Method#RRF}: {@code weight / (rrfK + rank)}, its reciprocal rank, with ranks from 1;
+ *   <li>{@link Method#LINEAR}: {@code weight * (score - min) / (max - min)}, its score normalized
+ *       to [0, 1] by the scores of the topK hits of the retriever.
+ * </ul>
+ *
+ * <p>In a distributed search, the shards return the ranking of each retriever along with their
+ * fused hits, and the {@link FusionMergeStrategy} fuses the rankings merged across the shards.
+ */
+public class FusionQuery extends Query {
+
+  /** The key of the rankings of the retrievers in the responses of the shards */
+  public static final String RANKINGS_KEY = "fusion_rankings";
+
+  /** How the rankings of the retrievers are fused */
+  public enum Method {
+    RRF,
+    LINEAR
+  }
+
+  private final List<String> names;
+  private final List<Query> retrievers;
+  // the filter queries of the request, applied to each retriever, or null
+  private final Query filter;
+  private final int topK;
+  private final Method method;
+  private final float[] weights;
+  private final int rrfK;
+  // the hits of the retrievers found by the last search, and the reader searched
+  private volatile RetrieverHits lastHits;
+
+  /**
+   * @param names the names of the retrievers, identifying their rankings across shards
+   * @param retrievers the queries retrieving the documents to fuse
+   * @param filter the documents the retrievers are restricted to, or null
+   * @param topK the number of hits taken from each retriever
+   * @param method how the rankings of the retrievers are fused
+   * @param weights the weights of the retrievers
+   * @param rrfK the rank constant of the {@link Method#RRF} fusion
+   */
+  public FusionQuery(
+      List<String> names,
+      List<Query> retrievers,
+      Query filter,
+      int topK,
+      Method method,
+      float[] weights,
+      int rrfK) {
+    if (names.size() != retrievers.size() || weights.length != retrievers.size()) {
+      throw new IllegalArgumentException("Each retriever must have a name and a weight");
+    }
+    this.names = List.copyOf(names);
+    this.retrievers = List.copyOf(retrievers);
+    this.filter = filter;
+    this.topK = topK;
+    this.method = Objects.requireNonNull(method);
+    this.weights = weights;
+    this.rrfK = rrfK;
+  }
+
+  public List<String> getNames() {
+    return names;
+  }
+
+  public int getTopK() {
+    return topK;
+  }
+
+  @Override
+  public Query rewrite(IndexSearcher searcher) throws IOException {
+    final TopDocs[] hits = searchRetrievers(searcher);
+    final Map<Integer, Float> fusedScores = new HashMap<>();
+    for (int i = 0; i < hits.length; i++) {
+      final List<Integer> docs = new ArrayList<>(hits[i].scoreDocs.length);
+      final float[] scores = new float[hits[i].scoreDocs.length];
+      for (int j = 0; j < scores.length; j++) {
+        docs.add(hits[i].scoreDocs[j].doc);
+        scores[j] = hits[i].scoreDocs[j].score;
+      }
+      fuse(i, docs, scores, fusedScores);
+    }
+
+    final ScoreDoc[] fusedHits = new ScoreDoc[fusedScores.size()];
+    int i = 0;
+    for (final Map.Entry<Integer, Float> entry : fusedScores.entrySet()) {
+      fusedHits[i++] = new ScoreDoc(entry.getKey(), entry.getValue());
+    }
+    return new TopDocsQuery(fusedHits, searcher.getIndexReader().getContext().id());
+  }
+
+  /** Returns the topK hits of each retriever, searched once per reader */
+  private TopDocs[] searchRetrievers(IndexSearcher searcher) throws IOException {
+    final Object contextIdentity = searcher.getIndexReader().getContext().id();
+    final RetrieverHits hits = lastHits;
+    if (hits != null && hits.contextIdentity == contextIdentity) {
+      return hits.topDocs;
+    }
+    final TopDocs[] topDocs = new TopDocs[retrievers.size()];
+    for (int i = 0; i < topDocs.length; i++) {
+      Query retriever = retrievers.get(i);
+      if (filter != null) {
+        retriever =
+            new BooleanQuery.Builder()
+                .add(retriever, BooleanClause.Occur.MUST)
+                .add(filter, BooleanClause.Occur.FILTER)
+                .build();
+      }
+      topDocs[i] = searcher.search(retriever, topK);
+    }
+    lastHits = new RetrieverHits(contextIdentity, topDocs);
+    return topDocs;
+  }
+
+  /**
+   * Adds the fused scores of the hits of a retriever to the scores fused so far.
+   *
+   * @param retriever the index of the retriever
+   * @param keys the keys of the hits, sorted by decreasing score
+   * @param scores the scores of the hits
+   * @param fusedScores the fused scores, by key
+   */
+  <K> void fuse(int retriever, List<K> keys, float[] scores, Map<K, Float> fusedScores) {
+    final float weight = weights[retriever];
+    switch (method) {
+      case RRF:
+        for (int rank = 0; rank < keys.size(); rank++) {
+          fusedScores.merge(keys.get(rank), weight / (rrfK + rank + 1), Float::sum);
+        }
+        break;
+      case LINEAR:
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (final float score : scores) {
+          min = Math.min(min, score);
+          max = Math.max(max, score);
+        }
+        for (int j = 0; j < keys.size(); j++) {
+          final float normalized = max > min ? (scores[j] - min) / (max - min) : 1;
+          fusedScores.merge(keys.get(j), weight * normalized, Float::sum);
+        }
+        break;
+    }
+  }
+
+  /**
+   * Returns the ranking of each retriever by name, as the unique keys and scores of its topK hits,
+   * for the coordinator of a distributed search to fuse the rankings of all the shards.
+   */
+  public NamedList<Object> getRankings(SolrIndexSearcher searcher) throws IOException {
+    final IndexSchema schema = searcher.getSchema();
+    final Set<String> uniqueKeyField = Set.of(schema.getUniqueKeyField().getName());
+    final TopDocs[] hits = searchRetrievers(searcher);
+    final NamedList<Object> rankings = new SimpleOrderedMap<>();
+    for (int i = 0; i < hits.length; i++) {
+      final NamedList<Float> ranking = new NamedList<>();
+      for (final ScoreDoc hit : hits[i].scoreDocs) {
+        ranking.add(schema.printableUniqueKey(searcher.doc(hit.doc, uniqueKeyField)), hit.score);
+      }
+      rankings.add(names.get(i), ranking);
+    }
+    return rankings;
+  }
+
+  public MergeStrategy getMergeStrategy() {
+    return new FusionMergeStrategy(this);
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    final QueryVisitor v = visitor.getSubVisitor(BooleanClause.Occur.SHOULD, this);
+    for (final Query retriever : retrievers) {
+      retriever.visit(v);
+    }
+  }
+
+  @Override
+  public String toString(String field) {
+    final StringBuilder sb = new StringBuilder(getClass().getSimpleName()).append('{');
+    for (int i = 0; i < retrievers.size(); i++) {
+      sb.append(names.get(i)).append('=').append(retrievers.get(i).toString(field)).append(',');
+    }
+    return sb.append("topK=")
+        .append(topK)
+        .append(",method=")
+        .append(method)
+        .append(",weights=")
+        .append(Arrays.toString(weights))
+        .append('}')
+        .toString();
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) && equalsTo(getClass().cast(other));
+  }
+
+  private boolean equalsTo(FusionQuery other) {
+    return topK == other.topK
+        && rrfK == other.rrfK
+        && method == other.method
+        && names.equals(other.names)
+        && retrievers.equals(other.retrievers)
+        && Objects.equals(filter, other.filter)
+        && Arrays.equals(weights, other.weights);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        classHash(), names, retrievers, filter, topK, method, Arrays.hashCode(weights), rrfK);
+  }
+
+  private static class RetrieverHits {
+    final Object contextIdentity;
+    final TopDocs[] topDocs;
+
+    RetrieverHits(Object contextIdentity, TopDocs[] topDocs) {
+      this.contextIdentity = contextIdentity;
+      this.topDocs = topDocs;
+    }
+  }
+}
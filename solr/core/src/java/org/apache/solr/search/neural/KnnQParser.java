@@ -17,20 +17,24 @@
 package org.apache.solr.search.neural;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import org.apache.lucene.search.Query;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.DenseVectorField;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.DocSet;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.QueryParsing;
 import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
+import org.apache.solr.util.vector.TextEmbeddingModel;
 
 public class KnnQParser extends QParser {
 
@@ -38,6 +42,23 @@ public class KnnQParser extends QParser {
   static final String TOP_K = "topK";
   static final int DEFAULT_TOP_K = 10;
 
+  // search topK * oversample nearest neighbors, and keep the topK best of them
+  static final String OVERSAMPLE = "oversample";
+  static final float DEFAULT_OVERSAMPLE = 1;
+
+  // rescore the nearest neighbors of a quantized field with their full precision vectors
+  static final String RESCORE = "rescore";
+
+  // search exhaustively the segments where the cached filters accept at most this many documents,
+  // rather than through the knn graph; defaults to the number of nearest neighbors to find
+  static final String EXACT_SEARCH_THRESHOLD = "exactSearchThreshold";
+
+  // search the segments concurrently, with up to this many threads of the vector search pool
+  static final String PARALLELISM = "parallelism";
+  static final int DEFAULT_PARALLELISM = 1;
+
+  private Query knnQuery;
+
   /**
    * Constructor for the QParser
    *
@@ -56,6 +77,7 @@ public class KnnQParser extends QParser {
     String denseVectorField = localParams.get(QueryParsing.F);
     String vectorToSearch = localParams.get(QueryParsing.V);
     int topK = localParams.getInt(TOP_K, DEFAULT_TOP_K);
+    float oversample = localParams.getFloat(OVERSAMPLE, DEFAULT_OVERSAMPLE);
 
     if (denseVectorField == null || denseVectorField.isEmpty()) {
       throw new SolrException(
@@ -75,27 +97,119 @@ public class KnnQParser extends QParser {
           "only DenseVectorField is compatible with Knn Query Parser");
     }
 
+    if (!(oversample >= 1)) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "the oversample factor must be greater than or equal to 1: " + oversample);
+    }
+
     DenseVectorField denseVectorType = (DenseVectorField) fieldType;
+    Object vector = vectorToSearch;
+    if (denseVectorType.getEmbeddingModel() != null && !vectorToSearch.trim().startsWith("[")) {
+      // a text to search, encoded by the embedding model of the field
+      vector = embed(denseVectorType.getEmbeddingModel(), vectorToSearch);
+    }
+    boolean rescore = localParams.getBool(RESCORE, denseVectorType.isQuantized());
+    int numCandidates = (int) Math.min(Integer.MAX_VALUE, Math.ceil(topK * (double) oversample));
+    int exactSearchThreshold = localParams.getInt(EXACT_SEARCH_THRESHOLD, numCandidates);
+    int parallelism = localParams.getInt(PARALLELISM, DEFAULT_PARALLELISM);
+
+    if (parallelism < 1) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "the parallelism must be greater than or equal to 1: " + parallelism);
+    }
+
+    SolrIndexSearcher.ProcessedFilter processedFilter = getProcessedFilter();
+    DocSet acceptedDocs = getAcceptedDocs(processedFilter, parallelism);
+    if (acceptedDocs != null) {
+      knnQuery =
+          denseVectorType.getKnnVectorQuery(
+              schemaField.getName(),
+              vector,
+              topK,
+              numCandidates,
+              rescore,
+              acceptedDocs,
+              exactSearchThreshold,
+              parallelism);
+    } else {
+      knnQuery =
+          denseVectorType.getKnnVectorQuery(
+              schemaField.getName(),
+              vector,
+              topK,
+              numCandidates,
+              rescore,
+              processedFilter == null ? null : processedFilter.filter);
+    }
+    return knnQuery;
+  }
+
+  private static float[] embed(TextEmbeddingModel model, String text) {
+    try {
+      return model.embed(List.of(text))[0];
+    } catch (IOException e) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+    }
+  }
 
-    return denseVectorType.getKnnVectorQuery(
-        schemaField.getName(), vectorToSearch, topK, getFilterQuery());
+  /**
+   * Returns the documents accepted as nearest neighbors when they are known beforehand, or null:
+   * the intersection of the filters when they are all cached, or all the documents when there are
+   * no filters to apply and the segments are searched in parallel.
+   */
+  private DocSet getAcceptedDocs(
+      SolrIndexSearcher.ProcessedFilter processedFilter, int parallelism) {
+    if (processedFilter != null && processedFilter.answer != null) {
+      return processedFilter.answer;
+    }
+    if (parallelism > 1 && (processedFilter == null || processedFilter.filter == null)) {
+      try {
+        return req.getSearcher().getLiveDocSet();
+      } catch (IOException e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+      }
+    }
+    return null;
   }
 
-  private Query getFilterQuery() throws SolrException, SyntaxError {
+  private SolrIndexSearcher.ProcessedFilter getProcessedFilter() throws SolrException, SyntaxError {
     boolean isSubQuery = recurseCount != 0;
-    if (!isFilter() && !isSubQuery) {
-      String[] filterQueries = req.getParams().getParams(CommonParams.FQ);
-      if (filterQueries != null && filterQueries.length != 0) {
-        try {
-          List<Query> filters = QueryUtils.parseFilterQueries(req);
-          SolrIndexSearcher.ProcessedFilter processedFilter =
-              req.getSearcher().getProcessedFilter(filters);
-          return processedFilter.filter;
-        } catch (IOException e) {
-          throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
-        }
+    return !isFilter() && !isSubQuery ? getProcessedFilter(req) : null;
+  }
+
+  /**
+   * Returns the filter queries of a request processed by its searcher, or null if it has none. The
+   * nearest neighbors retrieved by the main query of a request are searched among the documents
+   * matching its filters.
+   */
+  static SolrIndexSearcher.ProcessedFilter getProcessedFilter(SolrQueryRequest req)
+      throws SolrException, SyntaxError {
+    String[] filterQueries = req.getParams().getParams(CommonParams.FQ);
+    if (filterQueries != null && filterQueries.length != 0) {
+      try {
+        List<Query> filters = QueryUtils.parseFilterQueries(req);
+        return req.getSearcher().getProcessedFilter(filters);
+      } catch (IOException e) {
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
       }
     }
     return null;
   }
+
+  @Override
+  public void addDebugInfo(NamedList<Object> debugInfo) {
+    super.addDebugInfo(debugInfo);
+    Query query = knnQuery;
+    if (query instanceof KnnRescoreQuery) {
+      query = ((KnnRescoreQuery) query).getCandidates();
+    }
+    if (query instanceof PreFilteredKnnVectorQuery) {
+      KnnSearchStats searchStats = ((PreFilteredKnnVectorQuery) query).getLastSearchStats();
+      if (searchStats != null) {
+        debugInfo.add("knnSearch", searchStats.toMap(new LinkedHashMap<>()));
+      }
+    }
+  }
 }
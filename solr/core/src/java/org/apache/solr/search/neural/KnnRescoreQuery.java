@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.solr.schema.DenseVectorField;
+
+/**
+ * Keeps the topK best of the nearest neighbors found by a knn query, optionally after rescoring
+ * them with the full precision vectors of a quantized {@link DenseVectorField}.
+ *
+ * <p>Searching more candidates than needed makes up for the approximations of the knn graph, and
+ * of the quantization of its vectors: the candidates are rescored exactly, and only the best of
+ * them are kept.
+ */
+public class KnnRescoreQuery extends Query {
+
+  private static final Comparator<ScoreDoc> BY_SCORE_DESC =
+      Comparator.<ScoreDoc>comparingDouble(hit -> -hit.score).thenComparingInt(hit -> hit.doc);
+
+  private final Query candidates;
+  private final int numCandidates;
+  private final int topK;
+  private final String field;
+  // the full precision vector to search, or null to keep the scores of the candidates
+  private final float[] target;
+  private final VectorSimilarityFunction similarityFunction;
+
+  /**
+   * @param candidates the knn query finding the candidates
+   * @param numCandidates the number of nearest neighbors found by the candidates query
+   * @param topK the number of candidates to keep
+   * @param field the quantized field holding the full precision vectors
+   * @param target the full precision vector to search, or null not to rescore the candidates
+   * @param similarityFunction the similarity function of the field
+   */
+  public KnnRescoreQuery(
+      Query candidates,
+      int numCandidates,
+      int topK,
+      String field,
+      float[] target,
+      VectorSimilarityFunction similarityFunction) {
+    this.candidates = candidates;
+    this.numCandidates = numCandidates;
+    this.topK = topK;
+    this.field = field;
+    this.target = target;
+    this.similarityFunction = similarityFunction;
+  }
+
+  /** Returns the knn query finding the candidates */
+  public Query getCandidates() {
+    return candidates;
+  }
+
+  @Override
+  public Query rewrite(IndexSearcher searcher) throws IOException {
+    final ScoreDoc[] hits = searcher.search(candidates, numCandidates).scoreDocs;
+    if (target != null) {
+      rescore(searcher.getIndexReader(), hits);
+    }
+    Arrays.sort(hits, BY_SCORE_DESC);
+    final ScoreDoc[] topHits = Arrays.copyOf(hits, Math.min(topK, hits.length));
+    return new TopDocsQuery(topHits, searcher.getIndexReader().getContext().id());
+  }
+
+  private void rescore(IndexReader reader, ScoreDoc[] hits) throws IOException {
+    Arrays.sort(hits, Comparator.comparingInt(hit -> hit.doc));
+    final List<LeafReaderContext> leaves = reader.leaves();
+    final float[] vector = new float[target.length];
+    LeafReaderContext leaf = null;
+    BinaryDocValues vectors = null;
+    for (final ScoreDoc hit : hits) {
+      if (leaf == null || hit.doc >= leaf.docBase + leaf.reader().maxDoc()) {
+        leaf = leaves.get(ReaderUtil.subIndex(hit.doc, leaves));
+        vectors = leaf.reader().getBinaryDocValues(field);
+      }
+      // the documents without full precision vector keep their approximate score
+      if (vectors != null && vectors.advanceExact(hit.doc - leaf.docBase)) {
+        DenseVectorField.decodeFullPrecisionVector(vectors.binaryValue(), vector);
+        hit.score = similarityFunction.compare(target, vector);
+      }
+    }
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    candidates.visit(visitor.getSubVisitor(BooleanClause.Occur.MUST, this));
+  }
+
+  @Override
+  public String toString(String field) {
+    return getClass().getSimpleName()
+        + "{candidates="
+        + candidates.toString(field)
+        + ",numCandidates="
+        + numCandidates
+        + ",topK="
+        + topK
+        + ",rescore="
+        + (target != null)
+        + '}';
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) && equalsTo(getClass().cast(other));
+  }
+
+  private boolean equalsTo(KnnRescoreQuery other) {
+    return numCandidates == other.numCandidates
+        && topK == other.topK
+        && candidates.equals(other.candidates)
+        && field.equals(other.field)
+        && Arrays.equals(target, other.target)
+        && similarityFunction == other.similarityFunction;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        classHash(),
+        candidates,
+        numCandidates,
+        topK,
+        field,
+        Arrays.hashCode(target),
+        similarityFunction);
+  }
+}
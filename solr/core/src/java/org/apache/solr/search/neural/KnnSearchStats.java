@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.solr.common.MapWriter;
+
+/**
+ * The work done by the nearest neighbors searches among the documents of cached filters, or of the
+ * whole index when its segments are searched in parallel: how many segments were searched through
+ * the knn graph or exhaustively, how many vectors were visited, and how long it took. Reported by
+ * the searcher metrics, and by the debug output of the {@code knn} query parser.
+ */
+public class KnnSearchStats implements MapWriter {
+  private final LongAdder searches = new LongAdder();
+  // searches of the segments by several threads of the vector search pool
+  private final LongAdder parallelSearches = new LongAdder();
+  // segments searched through the knn graph
+  private final LongAdder graphSearches = new LongAdder();
+  // segments searched by comparing the target to the vectors of all the accepted documents, either
+  // because few documents are accepted, or because the graph search visited too many of them
+  private final LongAdder exactSearches = new LongAdder();
+  private final LongAdder visitedVectors = new LongAdder();
+  private final LongAdder elapsedNanos = new LongAdder();
+
+  void recordGraphSearch(long visited) {
+    graphSearches.increment();
+    visitedVectors.add(visited);
+  }
+
+  void recordExactSearch(long visited) {
+    exactSearches.increment();
+    visitedVectors.add(visited);
+  }
+
+  void recordParallelSearch() {
+    parallelSearches.increment();
+  }
+
+  void recordSearch(long nanos) {
+    searches.increment();
+    elapsedNanos.add(nanos);
+  }
+
+  /** Adds the work recorded by other stats to these */
+  public void add(KnnSearchStats other) {
+    searches.add(other.searches.sum());
+    parallelSearches.add(other.parallelSearches.sum());
+    graphSearches.add(other.graphSearches.sum());
+    exactSearches.add(other.exactSearches.sum());
+    visitedVectors.add(other.visitedVectors.sum());
+    elapsedNanos.add(other.elapsedNanos.sum());
+  }
+
+  @Override
+  public void writeMap(EntryWriter ew) throws IOException {
+    ew.put("searches", searches.sum());
+    ew.put("parallelSearches", parallelSearches.sum());
+    ew.put("graphSearches", graphSearches.sum());
+    ew.put("exactSearches", exactSearches.sum());
+    ew.put("visitedVectors", visitedVectors.sum());
+    ew.put("time", (double) elapsedNanos.sum() / TimeUnit.MILLISECONDS.toNanos(1));
+  }
+}
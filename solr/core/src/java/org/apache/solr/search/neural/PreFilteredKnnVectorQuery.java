@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.apache.lucene.index.ByteVectorValues;
+import org.apache.lucene.index.FloatVectorValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.HitQueue;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.search.BitDocSet;
+import org.apache.solr.search.DocIterator;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.ParallelLeafSearch;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Finds the k nearest neighbors of a vector among the documents of a {@link DocSet}, typically the
+ * intersection of the cached filters of a request.
+ *
+ * <p>The documents of the set are accepted by the search of the knn graph of each segment as they
+ * are, without copying them to a bitset of the segment. The segments where the set accepts at most
+ * {@code exactSearchThreshold} documents are searched exhaustively, by comparing the vectors of all
+ * these documents. The others are searched through the graph, until it visits as many vectors as
+ * the set accepts documents, where an exhaustive search is cheaper: the search goes on with it.
+ *
+ * <p>With a parallelism greater than 1, the segments are searched concurrently by up to as many
+ * threads, see {@link ParallelLeafSearch}.
+ */
+public class PreFilteredKnnVectorQuery extends Query {
+
+  private static final TopDocs NO_RESULTS =
+      new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+
+  private final String field;
+  // the vector to search, one of float or byte elements depending on the encoding of the field
+  private final float[] floatTarget;
+  private final byte[] byteTarget;
+  private final int k;
+  private final DocSet filter;
+  private final int exactSearchThreshold;
+  private final VectorSimilarityFunction similarityFunction;
+  private final int parallelism;
+  // the work done by the last rewrite of this query, for the debug output
+  private volatile KnnSearchStats lastSearchStats;
+
+  /**
+   * @param field the dense vector field to search
+   * @param floatTarget the vector to search, if the field has float vectors, or null
+   * @param byteTarget the vector to search, if the field has byte vectors, or null
+   * @param k the number of nearest neighbors to find
+   * @param filter the documents accepted as nearest neighbors, without deleted documents
+   * @param exactSearchThreshold the greatest number of documents accepted in a segment to search
+   *     it exhaustively rather than through the knn graph
+   * @param similarityFunction the similarity function of the field
+   * @param parallelism the greatest number of threads searching the segments concurrently
+   */
+  public PreFilteredKnnVectorQuery(
+      String field,
+      float[] floatTarget,
+      byte[] byteTarget,
+      int k,
+      DocSet filter,
+      int exactSearchThreshold,
+      VectorSimilarityFunction similarityFunction,
+      int parallelism) {
+    if ((floatTarget == null) == (byteTarget == null)) {
+      throw new IllegalArgumentException("Exactly one of the float or byte targets must be given");
+    }
+    this.field = Objects.requireNonNull(field);
+    this.floatTarget = floatTarget;
+    this.byteTarget = byteTarget;
+    this.k = k;
+    this.filter = Objects.requireNonNull(filter);
+    this.exactSearchThreshold = exactSearchThreshold;
+    this.similarityFunction = similarityFunction;
+    this.parallelism = parallelism;
+  }
+
+  /** Returns the work done by the last search of the nearest neighbors, or null if none yet */
+  public KnnSearchStats getLastSearchStats() {
+    return lastSearchStats;
+  }
+
+  @Override
+  public Query rewrite(IndexSearcher searcher) throws IOException {
+    final long startNanos = System.nanoTime();
+    final KnnSearchStats stats = new KnnSearchStats();
+    final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+    final TopDocs[] perLeafResults = new TopDocs[leaves.size()];
+    final Bits acceptedDocs = filter.getBits();
+    final int[] leafCounts = countPerLeaf(filter, leaves);
+    if (ParallelLeafSearch.searchLeaves(
+        searcher,
+        leaves.size(),
+        parallelism,
+        i -> perLeafResults[i] = searchLeaf(leaves.get(i), leafCounts[i], acceptedDocs, stats))) {
+      stats.recordParallelSearch();
+    }
+    final TopDocs topK = TopDocs.merge(k, perLeafResults);
+    stats.recordSearch(System.nanoTime() - startNanos);
+
+    lastSearchStats = stats;
+    if (searcher instanceof SolrIndexSearcher) {
+      ((SolrIndexSearcher) searcher).getKnnSearchStats().add(stats);
+    }
+    return new TopDocsQuery(topK.scoreDocs, searcher.getIndexReader().getContext().id());
+  }
+
+  /**
+   * Returns the number of documents of the filter in each segment, counted at once for all of them
+   * rather than by iterating the documents of each segment.
+   */
+  static int[] countPerLeaf(DocSet filter, List<LeafReaderContext> leaves) {
+    final int[] counts = new int[leaves.size()];
+    if (filter instanceof BitDocSet) {
+      final FixedBitSet bits = ((BitDocSet) filter).getBits();
+      for (int i = 0; i < counts.length; i++) {
+        final LeafReaderContext leaf = leaves.get(i);
+        final int end = Math.min(leaf.docBase + leaf.reader().maxDoc(), bits.length());
+        counts[i] = cardinality(bits, leaf.docBase, end);
+      }
+    } else if (!leaves.isEmpty()) {
+      // the documents are iterated in increasing order, so are the segments they are in
+      int leaf = 0;
+      int leafEnd = leaves.get(0).reader().maxDoc();
+      for (final DocIterator docs = filter.iterator(); docs.hasNext(); ) {
+        final int doc = docs.nextDoc();
+        while (doc >= leafEnd && leaf < counts.length - 1) {
+          leaf++;
+          leafEnd = leaves.get(leaf).docBase + leaves.get(leaf).reader().maxDoc();
+        }
+        counts[leaf]++;
+      }
+    }
+    return counts;
+  }
+
+  /** Returns the number of bits set from {@code from}, inclusive, to {@code to}, exclusive */
+  private static int cardinality(FixedBitSet bits, int from, int to) {
+    if (from >= to) {
+      return 0;
+    }
+    final long[] words = bits.getBits();
+    final int startWord = from >> 6;
+    final int endWord = (to - 1) >> 6;
+    // the shifts are modulo 64, as in FixedBitSet.set(int, int)
+    final long startMask = -1L << from;
+    final long endMask = -1L >>> -to;
+    if (startWord == endWord) {
+      return Long.bitCount(words[startWord] & startMask & endMask);
+    }
+    int count = Long.bitCount(words[startWord] & startMask);
+    for (int i = startWord + 1; i < endWord; i++) {
+      count += Long.bitCount(words[i]);
+    }
+    return count + Long.bitCount(words[endWord] & endMask);
+  }
+
+  /** Returns the nearest neighbors in a segment, with their ids in the whole index */
+  private TopDocs searchLeaf(
+      LeafReaderContext context, int cardinality, Bits acceptedDocs, KnnSearchStats stats)
+      throws IOException {
+    final TopDocs results = searchLeafDocs(context, cardinality, acceptedDocs, stats);
+    for (final ScoreDoc scoreDoc : results.scoreDocs) {
+      scoreDoc.doc += context.docBase;
+    }
+    return results;
+  }
+
+  private TopDocs searchLeafDocs(
+      LeafReaderContext context, int cardinality, Bits acceptedDocs, KnnSearchStats stats)
+      throws IOException {
+    if (cardinality == 0) {
+      return NO_RESULTS;
+    }
+
+    if (cardinality > exactSearchThreshold) {
+      final LeafReader reader = context.reader();
+      final Bits leafAcceptedDocs = new LeafBits(acceptedDocs, context.docBase, reader.maxDoc());
+      final TopDocs results =
+          floatTarget != null
+              ? reader.searchNearestVectors(field, floatTarget, k, leafAcceptedDocs, cardinality)
+              : reader.searchNearestVectors(field, byteTarget, k, leafAcceptedDocs, cardinality);
+      if (results == null) {
+        return NO_RESULTS;
+      }
+      stats.recordGraphSearch(results.totalHits.value);
+      if (results.totalHits.relation == TotalHits.Relation.EQUAL_TO) {
+        return results;
+      }
+      // the graph search visited as many vectors as an exhaustive search would
+    }
+    return exactSearch(context, stats);
+  }
+
+  private TopDocs exactSearch(LeafReaderContext context, KnnSearchStats stats) throws IOException {
+    final DocIdSetIterator filterIterator = filter.iterator(context);
+    final FloatVectorValues floatVectors =
+        floatTarget != null ? context.reader().getFloatVectorValues(field) : null;
+    final ByteVectorValues byteVectors =
+        byteTarget != null ? context.reader().getByteVectorValues(field) : null;
+    final DocIdSetIterator vectors = floatVectors != null ? floatVectors : byteVectors;
+    if (filterIterator == null || vectors == null) {
+      return NO_RESULTS;
+    }
+
+    final HitQueue queue = new HitQueue(k, true);
+    ScoreDoc top = queue.top();
+    int visited = 0;
+    for (int doc = filterIterator.nextDoc();
+        doc != DocIdSetIterator.NO_MORE_DOCS;
+        doc = filterIterator.nextDoc()) {
+      if (vectors.docID() < doc) {
+        vectors.advance(doc);
+      }
+      if (vectors.docID() != doc) {
+        continue;
+      }
+      visited++;
+      final float score =
+          floatVectors != null
+              ? similarityFunction.compare(floatTarget, floatVectors.vectorValue())
+              : similarityFunction.compare(byteTarget, byteVectors.vectorValue());
+      if (score > top.score) {
+        top.score = score;
+        top.doc = doc;
+        top = queue.updateTop();
+      }
+    }
+    stats.recordExactSearch(visited);
+
+    // the queue was pre-populated with sentinel hits, the least ones, left when few vectors match
+    for (int i = visited; i < k; i++) {
+      queue.pop();
+    }
+    final ScoreDoc[] topDocs = new ScoreDoc[queue.size()];
+    for (int i = topDocs.length - 1; i >= 0; i--) {
+      topDocs[i] = queue.pop();
+    }
+    return new TopDocs(new TotalHits(visited, TotalHits.Relation.EQUAL_TO), topDocs);
+  }
+
+  /** The bits of the documents of a segment, read from the bits of the whole index */
+  private static class LeafBits implements Bits {
+    private final Bits bits;
+    private final int docBase;
+    private final int length;
+
+    LeafBits(Bits bits, int docBase, int length) {
+      this.bits = bits;
+      this.docBase = docBase;
+      this.length = length;
+    }
+
+    @Override
+    public boolean get(int index) {
+      return bits.get(docBase + index);
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    visitor.visitLeaf(this);
+  }
+
+  @Override
+  public String toString(String field) {
+    return getClass().getSimpleName()
+        + "{field="
+        + this.field
+        + ",k="
+        + k
+        + ",filter="
+        + filter.size()
+        + " docs,parallelism="
+        + parallelism
+        + "}";
+  }
+
+  // the parallelism does not change the nearest neighbors found, so it is left out of the equality
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other) && equalsTo(getClass().cast(other));
+  }
+
+  private boolean equalsTo(PreFilteredKnnVectorQuery other) {
+    return k == other.k
+        && exactSearchThreshold == other.exactSearchThreshold
+        && field.equals(other.field)
+        && Arrays.equals(floatTarget, other.floatTarget)
+        && Arrays.equals(byteTarget, other.byteTarget)
+        && filter.equals(other.filter)
+        && similarityFunction == other.similarityFunction;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        classHash(),
+        field,
+        Arrays.hashCode(floatTarget),
+        Arrays.hashCode(byteTarget),
+        k,
+        filter,
+        exactSearchThreshold,
+        similarityFunction);
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+
+/**
+ * Matches the given documents of a reader, with the given scores. The nearest neighbors queries
+ * search their hits when rewritten, and rewrite to this query.
+ */
+class TopDocsQuery extends Query {
+  // sorted by doc
+  private final ScoreDoc[] hits;
+  private final Object contextIdentity;
+
+  /**
+   * @param hits the hits of the documents to match, with their global docids; sorted in place
+   * @param contextIdentity the identity of the context of the reader the hits were searched in
+   */
+  TopDocsQuery(ScoreDoc[] hits, Object contextIdentity) {
+    Arrays.sort(hits, Comparator.comparingInt(hit -> hit.doc));
+    this.hits = hits;
+    this.contextIdentity = contextIdentity;
+  }
+
+  /** Returns the position of the first hit of a document greater than or equal to doc */
+  private int lowerBound(int doc) {
+    int low = 0;
+    int high = hits.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (hits[mid].doc < doc) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  @Override
+  public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+    if (searcher.getIndexReader().getContext().id() != contextIdentity) {
+      throw new IllegalStateException("This query was rewritten by another reader");
+    }
+    return new Weight(this) {
+      @Override
+      public Explanation explain(LeafReaderContext context, int doc) {
+        final int i = lowerBound(context.docBase + doc);
+        if (i < hits.length && hits[i].doc == context.docBase + doc) {
+          return Explanation.match(hits[i].score * boost, "within top " + hits.length);
+        }
+        return Explanation.noMatch("not in top " + hits.length);
+      }
+
+      @Override
+      public Scorer scorer(LeafReaderContext context) {
+        final int start = lowerBound(context.docBase);
+        final int end = lowerBound(context.docBase + context.reader().maxDoc());
+        if (start == end) {
+          return null;
+        }
+        return new TopDocsScorer(this, context.docBase, start, end, boost);
+      }
+
+      @Override
+      public boolean isCacheable(LeafReaderContext ctx) {
+        return false;
+      }
+    };
+  }
+
+  private class TopDocsScorer extends Scorer {
+    private final int docBase;
+    private final int start;
+    private final int end;
+    private final float boost;
+    private int upto = -1;
+
+    TopDocsScorer(Weight weight, int docBase, int start, int end, float boost) {
+      super(weight);
+      this.docBase = docBase;
+      this.start = start;
+      this.end = end;
+      this.boost = boost;
+    }
+
+    @Override
+    public int docID() {
+      if (upto < start) return -1;
+      if (upto >= end) return DocIdSetIterator.NO_MORE_DOCS;
+      return hits[upto].doc - docBase;
+    }
+
+    @Override
+    public float score() {
+      return hits[upto].score * boost;
+    }
+
+    @Override
+    public float getMaxScore(int upTo) {
+      float maxScore = 0;
+      for (int i = start; i < end; i++) {
+        maxScore = Math.max(maxScore, hits[i].score);
+      }
+      return maxScore * boost;
+    }
+
+    @Override
+    public DocIdSetIterator iterator() {
+      return new DocIdSetIterator() {
+        @Override
+        public int docID() {
+          return TopDocsScorer.this.docID();
+        }
+
+        @Override
+        public int nextDoc() {
+          upto = upto < start ? start : upto + 1;
+          return docID();
+        }
+
+        @Override
+        public int advance(int target) {
+          upto = Math.max(upto < start ? start : upto, lowerBound(docBase + target));
+          return docID();
+        }
+
+        @Override
+        public long cost() {
+          return end - start;
+        }
+      };
+    }
+  }
+
+  @Override
+  public void visit(QueryVisitor visitor) {
+    visitor.visitLeaf(this);
+  }
+
+  @Override
+  public String toString(String field) {
+    return getClass().getSimpleName() + "{hits=" + hits.length + '}';
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return sameClassAs(other)
+        && contextIdentity == ((TopDocsQuery) other).contextIdentity
+        && Arrays.equals(hits, ((TopDocsQuery) other).hits);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * classHash() + Arrays.hashCode(hits);
+  }
+}
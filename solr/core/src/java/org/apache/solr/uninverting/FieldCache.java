@@ -378,7 +378,7 @@ public interface FieldCache {
     private final Accountable value;
 
     public CacheEntry(
-        IndexReader.CacheKey readerKey,
+        Object readerKey,
         String fieldName,
         Class<?> cacheType,
         Object custom,
@@ -18,16 +18,23 @@ package org.apache.solr.uninverting;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.lucene90.Lucene90SegmentInfoFormat;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
@@ -36,11 +43,15 @@ import org.apache.lucene.index.PointValues;
 import org.apache.lucene.index.PointValues.IntersectVisitor;
 import org.apache.lucene.index.PointValues.Relation;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.Bits;
@@ -48,6 +59,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.PagedBytes;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.packed.GrowableWriter;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
@@ -56,12 +68,27 @@ import org.apache.lucene.util.packed.PackedLongValues;
  * Expert: The default cache implementation, storing all values in memory. A WeakHashMap is used for
  * storage.
  *
+ * <p>Values are cached per segment core. Segments that are byte-identical (same segment id and
+ * same segment info checksum) share their cached values even when opened by different readers,
+ * e.g. by several replicas of a shard hosted on the same node, or by cores restored from the same
+ * backup. Such values are dropped once every sharing core is closed.
+ *
  * @lucene.internal
  */
 public class FieldCacheImpl implements FieldCache {
 
   private Map<Class<?>, Cache> caches;
 
+  /** Whether identical segments opened by different readers share their cached values */
+  static final boolean SHARE_IDENTICAL_SEGMENTS =
+      Boolean.parseBoolean(System.getProperty("solr.fieldCache.shareIdenticalSegments", "true"));
+
+  // guarded by itself. Every segment core seen so far, mapped to the key of the segment files it
+  // shares with other cores, or to null if its values are cached under its own core key
+  private final Map<IndexReader.CacheKey, SharedSegmentKey> coreToShared = new WeakHashMap<>();
+  // guarded by coreToShared. The cores alive for each shared segment
+  private final Map<SharedSegmentKey, Set<IndexReader.CacheKey>> sharedToCores = new HashMap<>();
+
   FieldCacheImpl() {
     init();
   }
@@ -83,8 +110,24 @@ public class FieldCacheImpl implements FieldCache {
 
   @Override
   public synchronized void purgeByCacheKey(IndexReader.CacheKey coreCacheKey) {
+    Object readerKey = coreCacheKey;
+    synchronized (coreToShared) {
+      SharedSegmentKey shared = coreToShared.remove(coreCacheKey);
+      if (shared != null) {
+        Set<IndexReader.CacheKey> cores = sharedToCores.get(shared);
+        if (cores != null) {
+          cores.remove(coreCacheKey);
+          if (!cores.isEmpty()) {
+            // still used by another core
+            return;
+          }
+          sharedToCores.remove(shared);
+        }
+        readerKey = shared;
+      }
+    }
     for (Cache c : caches.values()) {
-      c.purgeByCacheKey(coreCacheKey);
+      c.purgeByReaderKey(readerKey);
     }
   }
 
@@ -95,9 +138,9 @@ public class FieldCacheImpl implements FieldCache {
       final Cache cache = cacheEntry.getValue();
       final Class<?> cacheType = cacheEntry.getKey();
       synchronized (cache.readerCache) {
-        for (final Map.Entry<IndexReader.CacheKey, Map<CacheKey, Accountable>> readerCacheEntry :
+        for (final Map.Entry<Object, Map<CacheKey, Accountable>> readerCacheEntry :
             cache.readerCache.entrySet()) {
-          final IndexReader.CacheKey readerKey = readerCacheEntry.getKey();
+          final Object readerKey = readerCacheEntry.getKey();
           if (readerKey == null) continue;
           final Map<CacheKey, Accountable> innerCache = readerCacheEntry.getValue();
           for (final Map.Entry<CacheKey, Accountable> mapEntry : innerCache.entrySet()) {
@@ -115,12 +158,101 @@ public class FieldCacheImpl implements FieldCache {
   // per-segment fieldcaches don't purge until the shared core closes.
   final IndexReader.ClosedListener purgeCore = FieldCacheImpl.this::purgeByCacheKey;
 
-  private void initReader(LeafReader reader) {
+  /**
+   * Returns the key under which the values of the given reader are cached: the key shared by the
+   * cores of identical segments if possible, the core key of the reader otherwise. Registers the
+   * listener purging the values when the core is closed the first time a core is seen.
+   */
+  Object getReaderKey(LeafReader reader) {
     IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
     if (cacheHelper == null) {
       throw new IllegalStateException("Cannot cache on " + reader);
     }
+    final IndexReader.CacheKey coreKey = cacheHelper.getKey();
+    synchronized (coreToShared) {
+      if (coreToShared.containsKey(coreKey)) {
+        SharedSegmentKey shared = coreToShared.get(coreKey);
+        return shared == null ? coreKey : shared;
+      }
+    }
+
+    // reads the segment info footer, done once per core and outside of the lock
+    SharedSegmentKey shared = SHARE_IDENTICAL_SEGMENTS ? SharedSegmentKey.of(reader) : null;
+    synchronized (coreToShared) {
+      if (coreToShared.containsKey(coreKey)) {
+        // another thread beat us to it
+        SharedSegmentKey existing = coreToShared.get(coreKey);
+        return existing == null ? coreKey : existing;
+      }
+      coreToShared.put(coreKey, shared);
+      if (shared != null) {
+        sharedToCores.computeIfAbsent(shared, k -> new HashSet<>()).add(coreKey);
+      }
+    }
     cacheHelper.addClosedListener(purgeCore);
+    return shared == null ? coreKey : shared;
+  }
+
+  /**
+   * Identifies the files of a segment: two segment cores with the same key read the same postings
+   * and points, and can therefore share their uninverted values.
+   */
+  static final class SharedSegmentKey {
+    private final String name;
+    private final byte[] id;
+    private final long checksum;
+    private final int maxDoc;
+
+    private SharedSegmentKey(String name, byte[] id, long checksum, int maxDoc) {
+      this.name = name;
+      this.id = id;
+      this.checksum = checksum;
+      this.maxDoc = maxDoc;
+    }
+
+    /**
+     * Returns the key of the segment read by this reader, or null if the reader does not read a
+     * segment as is.
+     */
+    static SharedSegmentKey of(LeafReader reader) {
+      LeafReader unwrapped = FilterLeafReader.unwrap(reader);
+      // a filter reader with its own core cache helper may alter the content of the segment
+      if (!(unwrapped instanceof SegmentReader)
+          || unwrapped.getCoreCacheHelper() != reader.getCoreCacheHelper()) {
+        return null;
+      }
+      SegmentInfo info = ((SegmentReader) unwrapped).getSegmentInfo().info;
+      String siFile =
+          IndexFileNames.segmentFileName(info.name, "", Lucene90SegmentInfoFormat.SI_EXTENSION);
+      try (IndexInput in = info.dir.openInput(siFile, IOContext.READONCE)) {
+        return new SharedSegmentKey(
+            info.name, info.getId(), CodecUtil.retrieveChecksum(in), info.maxDoc());
+      } catch (IOException | RuntimeException e) {
+        // e.g. a codec not writing checksums, cache under the core key
+        return null;
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof SharedSegmentKey)) return false;
+      SharedSegmentKey other = (SharedSegmentKey) o;
+      return checksum == other.checksum
+          && maxDoc == other.maxDoc
+          && name.equals(other.name)
+          && Arrays.equals(id, other.id);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(id) ^ Long.hashCode(checksum);
+    }
+
+    @Override
+    public String toString() {
+      return name + "(" + StringHelper.idToString(id) + ")";
+    }
   }
 
   /** Expert: Internal cache. */
@@ -132,14 +264,15 @@ public class FieldCacheImpl implements FieldCache {
 
     final FieldCacheImpl wrapper;
 
-    final Map<IndexReader.CacheKey, Map<CacheKey, Accountable>> readerCache = new WeakHashMap<>();
+    // keyed by core cache key, or by SharedSegmentKey
+    final Map<Object, Map<CacheKey, Accountable>> readerCache = new WeakHashMap<>();
 
     protected abstract Accountable createValue(LeafReader reader, CacheKey key) throws IOException;
 
     /** Remove this reader from the cache, if present. */
-    public void purgeByCacheKey(IndexReader.CacheKey coreCacheKey) {
+    public void purgeByReaderKey(Object readerKey) {
       synchronized (readerCache) {
-        readerCache.remove(coreCacheKey);
+        readerCache.remove(readerKey);
       }
     }
 
@@ -148,18 +281,13 @@ public class FieldCacheImpl implements FieldCache {
      * doesn't change it.
      */
     public void put(LeafReader reader, CacheKey key, Accountable value) {
-      IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
-      if (cacheHelper == null) {
-        throw new IllegalStateException("Cannot cache on " + reader);
-      }
-      final IndexReader.CacheKey readerKey = cacheHelper.getKey();
+      final Object readerKey = wrapper.getReaderKey(reader);
       synchronized (readerCache) {
         Map<CacheKey, Accountable> innerCache = readerCache.get(readerKey);
         if (innerCache == null) {
           // First time this reader is using FieldCache
           innerCache = new HashMap<>();
           readerCache.put(readerKey, innerCache);
-          wrapper.initReader(reader);
         }
         if (innerCache.get(key) == null) {
           innerCache.put(key, value);
@@ -173,19 +301,13 @@ public class FieldCacheImpl implements FieldCache {
     public Object get(LeafReader reader, CacheKey key) throws IOException {
       Map<CacheKey, Accountable> innerCache;
       Accountable value;
-      IndexReader.CacheHelper cacheHelper = reader.getCoreCacheHelper();
-      if (cacheHelper == null) {
-        reader.getCoreCacheHelper();
-        throw new IllegalStateException("Cannot cache on " + reader);
-      }
-      final IndexReader.CacheKey readerKey = cacheHelper.getKey();
+      final Object readerKey = wrapper.getReaderKey(reader);
       synchronized (readerCache) {
         innerCache = readerCache.get(readerKey);
         if (innerCache == null) {
           // First time this reader is using FieldCache
           innerCache = new HashMap<>();
           readerCache.put(readerKey, innerCache);
-          wrapper.initReader(reader);
           value = null;
         } else {
           value = innerCache.get(key);
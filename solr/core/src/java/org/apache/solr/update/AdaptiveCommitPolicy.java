@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Chooses the interval between the auto soft commits of a {@link CommitTracker}.
+ *
+ * <p>The configured <code>maxTime</code> is the target time for an update to become visible, that
+ * is the commit interval plus the time to open and warm the new searcher. After each auto commit,
+ * the policy updates moving averages of this open time and of the update throughput, then:
+ *
+ * <ul>
+ *   <li>shrinks the interval by the open time, so that updates are visible within the target;
+ *   <li>stretches it when searchers take long to open relative to the target, so that a searcher
+ *       is warm and serves queries for a while before the next one is opened, instead of warming
+ *       searchers piling up.
+ * </ul>
+ *
+ * The interval always stays within the configured bounds.
+ */
+class AdaptiveCommitPolicy {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  // weight of the latest commit in the moving averages
+  private static final double ALPHA = 0.3;
+  // minimum interval between commits, as a multiple of the time to open a searcher
+  private static final double OPEN_TIME_HEADROOM = 2.0;
+
+  private final long targetMs;
+  private final long minMs;
+  private final long maxMs;
+
+  private final LongAdder docsSinceCommit = new LongAdder();
+  private long lastCommitNs = System.nanoTime();
+  private boolean observed;
+  private volatile double avgOpenMs;
+  private volatile double avgDocsPerSecond;
+  private volatile long intervalMs;
+
+  /**
+   * @param targetMs target time for an update to become visible
+   * @param minMs lower bound of the commit interval
+   * @param maxMs upper bound of the commit interval
+   */
+  AdaptiveCommitPolicy(long targetMs, long minMs, long maxMs) {
+    this.targetMs = targetMs;
+    this.minMs = Math.max(1, minMs);
+    this.maxMs = Math.max(this.minMs, maxMs);
+    this.intervalMs = clamp(targetMs);
+  }
+
+  void addedDocument() {
+    docsSinceCommit.increment();
+  }
+
+  /**
+   * Records an auto commit which opened its searcher between the given times, and computes the
+   * next interval.
+   */
+  synchronized void commitDone(long startNs, long endNs) {
+    double openMs = (endNs - startNs) / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    double elapsedSeconds = (endNs - lastCommitNs) / (double) TimeUnit.SECONDS.toNanos(1);
+    long docs = docsSinceCommit.sumThenReset();
+    double docsPerSecond = elapsedSeconds > 0 ? docs / elapsedSeconds : 0;
+    lastCommitNs = endNs;
+    if (observed) {
+      avgOpenMs = ALPHA * openMs + (1 - ALPHA) * avgOpenMs;
+      avgDocsPerSecond = ALPHA * docsPerSecond + (1 - ALPHA) * avgDocsPerSecond;
+    } else {
+      avgOpenMs = openMs;
+      avgDocsPerSecond = docsPerSecond;
+      observed = true;
+    }
+
+    long interval = clamp(Math.max(targetMs - avgOpenMs, OPEN_TIME_HEADROOM * avgOpenMs));
+    if (interval != intervalMs && log.isDebugEnabled()) {
+      log.debug(
+          "Soft commit interval {}ms -> {}ms (open time {}ms, {} docs/s)",
+          intervalMs,
+          interval,
+          Math.round(avgOpenMs),
+          Math.round(avgDocsPerSecond));
+    }
+    intervalMs = interval;
+  }
+
+  private long clamp(double interval) {
+    return Math.min(maxMs, Math.max(minMs, Math.round(interval)));
+  }
+
+  /** The interval to schedule the next auto commit with, in ms */
+  long getIntervalMs() {
+    return intervalMs;
+  }
+
+  /** Moving average of the time to open and warm the searcher of an auto commit, in ms */
+  double getAvgOpenMs() {
+    return avgOpenMs;
+  }
+
+  /** Moving average of the number of documents added per second between auto commits */
+  double getAvgDocsPerSecond() {
+    return avgDocsPerSecond;
+  }
+
+  @Override
+  public String toString() {
+    return "adaptive interval between " + minMs + "ms and " + maxMs + "ms";
+  }
+}
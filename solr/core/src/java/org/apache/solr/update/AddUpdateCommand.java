@@ -57,6 +57,13 @@ public class AddUpdateCommand extends UpdateCommand {
 
   public boolean isLastDocInBatch = false;
 
+  /**
+   * Set on the command which failed when its batch was processed, see {@link
+   * org.apache.solr.update.processor.UpdateRequestProcessor#processAddBatch}. The commands
+   * preceding it in the batch were processed.
+   */
+  public boolean failedInBatch = false;
+
   private BytesRef indexedId;
   private String indexedIdStr;
   private String selfOrNestedDocIdStr;
@@ -78,6 +85,7 @@ public class AddUpdateCommand extends UpdateCommand {
     selfOrNestedDocIdStr = null;
     updateTerm = null;
     isLastDocInBatch = false;
+    failedInBatch = false;
     version = 0;
     prevVersion = -1;
   }
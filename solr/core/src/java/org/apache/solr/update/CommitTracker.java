@@ -75,6 +75,9 @@ public final class CommitTracker implements Runnable {
 
   private String name;
 
+  // adjusts the interval of the time triggered commits, or null
+  private AdaptiveCommitPolicy adaptivePolicy;
+
   public CommitTracker(
       String name,
       SolrCore core,
@@ -101,6 +104,28 @@ public final class CommitTracker implements Runnable {
     return openSearcher;
   }
 
+  /**
+   * Lets the interval of the time triggered commits vary between the given bounds, depending on
+   * how long opening searchers takes, with the configured time as the target for updates to
+   * become visible.
+   *
+   * @see AdaptiveCommitPolicy
+   */
+  void setAdaptiveTimeBounds(long minTime, long maxTime) {
+    adaptivePolicy =
+        timeUpperBound > 0 ? new AdaptiveCommitPolicy(timeUpperBound, minTime, maxTime) : null;
+    log.info("{} AutoCommit: {}", name, this);
+  }
+
+  AdaptiveCommitPolicy getAdaptivePolicy() {
+    return adaptivePolicy;
+  }
+
+  /** The delay of time triggered commits, in ms, or a value &lt;= 0 if disabled */
+  public long getCommitInterval() {
+    return adaptivePolicy != null ? adaptivePolicy.getIntervalMs() : timeUpperBound;
+  }
+
   public synchronized void close() {
     if (pending != null) {
       pending.cancel(false);
@@ -126,7 +151,7 @@ public final class CommitTracker implements Runnable {
   }
 
   private void _scheduleCommitWithinIfNeeded(long commitWithin) {
-    long ctime = (commitWithin > 0) ? commitWithin : timeUpperBound;
+    long ctime = (commitWithin > 0) ? commitWithin : getCommitInterval();
 
     if (ctime > 0) {
       _scheduleCommitWithin(ctime);
@@ -183,6 +208,10 @@ public final class CommitTracker implements Runnable {
    *     size triggered commit
    */
   public void addedDocument(int commitWithin, LongSupplier currentTlogSize) {
+    if (adaptivePolicy != null) {
+      adaptivePolicy.addedDocument();
+    }
+
     // maxDocs-triggered autoCommit
     _scheduleMaxDocsTriggeredCommitIfNeeded();
 
@@ -277,7 +306,11 @@ public final class CommitTracker implements Runnable {
       // to check the commit count before we had incremented it.)
       autoCommitCount.incrementAndGet();
 
+      long startNs = System.nanoTime();
       core.getUpdateHandler().commit(command);
+      if (adaptivePolicy != null) {
+        adaptivePolicy.commitDone(startNs, System.nanoTime());
+      }
     } catch (Exception e) {
       log.error("auto commit error...", e);
     } finally {
@@ -295,6 +328,7 @@ public final class CommitTracker implements Runnable {
   public String toString() {
     if (timeUpperBound > 0 || docsUpperBound > 0 || tLogFileSizeUpperBound > 0) {
       return (timeUpperBound > 0 ? ("if uncommitted for " + timeUpperBound + "ms; ") : "")
+          + (adaptivePolicy != null ? ("with an " + adaptivePolicy + "; ") : "")
           + (docsUpperBound > 0 ? ("if " + docsUpperBound + " uncommitted docs; ") : "")
           + (tLogFileSizeUpperBound > 0
               ? String.format(
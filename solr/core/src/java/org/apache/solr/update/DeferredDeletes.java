@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterDirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Delete-by-query commands whose execution is deferred to the next commit.
+ *
+ * <p>Each deferred delete is recorded as a tombstone: its query, restricted to the documents older
+ * than the version of the delete, so that later updates are never affected no matter when the
+ * tombstone is applied. The next commit applies the pending tombstones to the {@link IndexWriter}.
+ * Until then, the readers of the searchers are wrapped so that the documents matched by the
+ * tombstones their reader does not see are not live any more (see {@link #wrap}): searches, facets
+ * and lookups by id all skip them, and updates never wait for the tombstones to be applied.
+ *
+ * <p>Each application of the tombstones starts a new generation. A reader sees the tombstones
+ * applied up to the generation current when it started to open, as recorded by {@link
+ * #readerOpened}; the readers opened otherwise are assumed to see none.
+ *
+ * @see UpdateHandler#wrapDeferredDeletes(DirectoryReader)
+ */
+public class DeferredDeletes {
+
+  private static class Tombstone {
+    final Query query;
+    // the number of tombstones added before it, this one included
+    final long seq;
+    // the generation it was applied in, 0 until applied to the IndexWriter
+    long appliedGeneration;
+
+    Tombstone(Query query, long seq) {
+      this.query = query;
+      this.seq = seq;
+    }
+  }
+
+  private final List<Tombstone> tombstones = new ArrayList<>();
+  private long added;
+  private int pending;
+  private long generation;
+  // the generation of the deletes each reader sees, until the reader is garbage collected
+  private final Map<IndexReader.CacheKey, Long> readerGenerations = new WeakHashMap<>();
+
+  /**
+   * @param query the query of a delete, restricted to the documents older than the delete
+   */
+  public synchronized void add(Query query) {
+    tombstones.add(new Tombstone(query, ++added));
+    pending++;
+  }
+
+  /** Number of tombstones which are not applied to the index writer yet */
+  public synchronized int getPendingCount() {
+    return pending;
+  }
+
+  /** Number of tombstones which are not visible to the registered searcher yet */
+  public synchronized int size() {
+    return tombstones.size();
+  }
+
+  /**
+   * Applies the pending tombstones to the given writer. The caller must make sure that no update
+   * older than these tombstones is still being written.
+   *
+   * @return the number of applied tombstones
+   */
+  synchronized int apply(IndexWriter writer, IndexSchema schema) throws IOException {
+    if (pending == 0) return 0;
+    for (Tombstone tombstone : tombstones) {
+      if (tombstone.appliedGeneration == 0) {
+        writer.deleteDocuments(new DeleteByQueryWrapper(tombstone.query, schema));
+      }
+    }
+    // readers starting to open from now on see the deletes
+    generation++;
+    for (Tombstone tombstone : tombstones) {
+      if (tombstone.appliedGeneration == 0) {
+        tombstone.appliedGeneration = generation;
+      }
+    }
+    int applied = pending;
+    pending = 0;
+    return applied;
+  }
+
+  /**
+   * Returns the current generation, to be passed to {@link #readerOpened} once a reader opened
+   * after this call is open.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Records that the given reader sees the tombstones applied up to the given generation. A reader
+   * reused by several searchers keeps the generation it was first recorded with.
+   */
+  public synchronized void readerOpened(DirectoryReader reader, long generation) {
+    IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+    if (cacheHelper != null) {
+      readerGenerations.putIfAbsent(cacheHelper.getKey(), generation);
+    }
+  }
+
+  // the generation of the tombstones the searcher sees
+  private long getGeneration(SolrIndexSearcher searcher) {
+    return getGeneration(searcher.getRawReader());
+  }
+
+  private long getGeneration(DirectoryReader reader) {
+    IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+    if (cacheHelper == null) return 0;
+    Long readerGeneration = readerGenerations.get(cacheHelper.getKey());
+    return readerGeneration == null ? 0 : readerGeneration;
+  }
+
+  private static boolean isVisible(Tombstone tombstone, long generation) {
+    return tombstone.appliedGeneration != 0 && tombstone.appliedGeneration <= generation;
+  }
+
+  /** Forgets the tombstones the given searcher sees */
+  synchronized void prune(SolrIndexSearcher searcher) {
+    long searcherGeneration = getGeneration(searcher);
+    tombstones.removeIf(t -> isVisible(t, searcherGeneration));
+  }
+
+  /** Forgets all the tombstones, when the index writer is rolled back or emptied */
+  synchronized void clear() {
+    tombstones.clear();
+    pending = 0;
+  }
+
+  /**
+   * Wraps the given reader so that the documents deleted by the tombstones it does not see are not
+   * live, or returns it as is if it sees them all.
+   */
+  public DirectoryReader wrap(DirectoryReader reader, IndexSchema schema) throws IOException {
+    List<Query> hidden = new ArrayList<>();
+    long seen;
+    synchronized (this) {
+      long readerGeneration = getGeneration(reader);
+      for (Tombstone tombstone : tombstones) {
+        if (!isVisible(tombstone, readerGeneration)) {
+          hidden.add(tombstone.query);
+        }
+      }
+      seen = added;
+    }
+    if (hidden.isEmpty()) return reader;
+    return new DeferredDeletesReader(reader, hidden, schema, seen);
+  }
+
+  /**
+   * Whether a tombstone the given searcher does not see was added after its reader was wrapped, in
+   * which case a new searcher is needed to hide the documents it deletes.
+   */
+  public synchronized boolean hasNewTombstones(SolrIndexSearcher searcher) {
+    if (tombstones.isEmpty()) return false;
+    long seen = 0;
+    for (IndexReader reader = searcher.getIndexReader();
+        reader instanceof FilterDirectoryReader;
+        reader = ((FilterDirectoryReader) reader).getDelegate()) {
+      if (reader instanceof DeferredDeletesReader) {
+        seen = ((DeferredDeletesReader) reader).seen;
+        break;
+      }
+    }
+    long searcherGeneration = getGeneration(searcher);
+    for (Tombstone tombstone : tombstones) {
+      if (tombstone.seq > seen && !isVisible(tombstone, searcherGeneration)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** A reader whose leaves hide the documents matched by some tombstones. */
+  private static class DeferredDeletesReader extends FilterDirectoryReader {
+    private final List<Query> hidden;
+    private final IndexSchema schema;
+    // the number of tombstones added when it was wrapped
+    final long seen;
+
+    DeferredDeletesReader(DirectoryReader in, List<Query> hidden, IndexSchema schema, long seen)
+        throws IOException {
+      super(
+          in,
+          new SubReaderWrapper() {
+            @Override
+            public LeafReader wrap(LeafReader reader) {
+              try {
+                FixedBitSet deleted = getDeletedDocs(reader, hidden, schema);
+                return deleted == null ? reader : new DeferredDeletesLeafReader(reader, deleted);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            }
+          });
+      this.hidden = hidden;
+      this.schema = schema;
+      this.seen = seen;
+    }
+
+    @Override
+    protected DirectoryReader doWrapDirectoryReader(DirectoryReader in) throws IOException {
+      return new DeferredDeletesReader(in, hidden, schema, seen);
+    }
+
+    // the deletes only change the live docs of some leaves, which are not cached at this level
+    @Override
+    public CacheHelper getReaderCacheHelper() {
+      return in.getReaderCacheHelper();
+    }
+  }
+
+  /** A leaf whose deleted documents include those matched by some tombstones. */
+  private static class DeferredDeletesLeafReader extends FilterLeafReader {
+    private final FixedBitSet liveDocs;
+    private final int numDocs;
+
+    DeferredDeletesLeafReader(LeafReader in, FixedBitSet deleted) {
+      super(in);
+      liveDocs = new FixedBitSet(in.maxDoc());
+      Bits inLiveDocs = in.getLiveDocs();
+      if (inLiveDocs == null) {
+        liveDocs.set(0, in.maxDoc());
+      } else {
+        for (int doc = 0; doc < in.maxDoc(); doc++) {
+          if (inLiveDocs.get(doc)) {
+            liveDocs.set(doc);
+          }
+        }
+      }
+      liveDocs.andNot(deleted);
+      numDocs = liveDocs.cardinality();
+    }
+
+    @Override
+    public Bits getLiveDocs() {
+      return liveDocs;
+    }
+
+    @Override
+    public int numDocs() {
+      return numDocs;
+    }
+
+    @Override
+    public CacheHelper getCoreCacheHelper() {
+      return in.getCoreCacheHelper();
+    }
+
+    // the live docs differ from those of the wrapped leaf
+    @Override
+    public CacheHelper getReaderCacheHelper() {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the live documents of the given leaf matched by the given tombstones, or null if there
+   * is none. The tombstones are run as the {@link IndexWriter} would apply them.
+   */
+  private static FixedBitSet getDeletedDocs(
+      LeafReader reader, List<Query> tombstones, IndexSchema schema) throws IOException {
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(null);
+    Bits liveDocs = reader.getLiveDocs();
+    FixedBitSet deleted = null;
+    for (Query tombstone : tombstones) {
+      Query query = searcher.rewrite(new DeleteByQueryWrapper(tombstone, schema));
+      Weight weight = searcher.createWeight(query, ScoreMode.COMPLETE_NO_SCORES, 1);
+      Scorer scorer = weight.scorer(reader.getContext());
+      if (scorer == null) continue;
+      DocIdSetIterator docs = scorer.iterator();
+      for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+        if (liveDocs == null || liveDocs.get(doc)) {
+          if (deleted == null) {
+            deleted = new FixedBitSet(reader.maxDoc());
+          }
+          deleted.set(doc);
+        }
+      }
+    }
+    return deleted;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "DeferredDeletes{tombstones=" + tombstones.size() + ",pending=" + pending + '}';
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.solr.update;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.CharsRefBuilder;
+import org.apache.solr.common.params.UpdateParams;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
@@ -43,6 +44,18 @@ public class DeleteUpdateCommand extends UpdateCommand {
     return query == null;
   }
 
+  /**
+   * Whether this delete-by-query may be applied to the index by the next commit rather than right
+   * away.
+   *
+   * @see UpdateParams#DEFER_DELETE_BY_QUERY
+   */
+  public boolean isDeferred() {
+    return query != null
+        && req != null
+        && req.getParams().getBool(UpdateParams.DEFER_DELETE_BY_QUERY, false);
+  }
+
   public void clear() {
     id = null;
     query = null;
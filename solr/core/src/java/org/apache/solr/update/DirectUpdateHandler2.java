@@ -81,6 +81,10 @@ public class DirectUpdateHandler2 extends UpdateHandler
 
   private static final int NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER = -1;
 
+  // beyond this many tombstones not visible to searches yet, deletes by query are applied right
+  // away so that the search filter stays small
+  private static final int MAX_DEFERRED_DELETES = 64;
+
   protected final SolrCoreState solrCoreState;
 
   // stats
@@ -106,6 +110,8 @@ public class DirectUpdateHandler2 extends UpdateHandler
 
   protected boolean commitWithinSoftCommit;
 
+  protected final DeferredDeletes deferredDeletes;
+
   /**
    * package access for testing
    *
@@ -147,8 +153,14 @@ public class DirectUpdateHandler2 extends UpdateHandler
             NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER,
             true,
             true);
+    if (updateHandlerInfo.autoSoftCommitAdaptiveMaxTime > 0) {
+      softCommitTracker.setAdaptiveTimeBounds(
+          updateHandlerInfo.autoSoftCommitAdaptiveMinTime,
+          updateHandlerInfo.autoSoftCommitAdaptiveMaxTime);
+    }
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
+    deferredDeletes = new DeferredDeletes();
 
     ZkController zkController = core.getCoreContainer().getZkController();
     if (zkController != null
@@ -187,8 +199,18 @@ public class DirectUpdateHandler2 extends UpdateHandler
             NO_FILE_SIZE_UPPER_BOUND_PLACEHOLDER,
             updateHandlerInfo.openSearcher,
             true);
+    if (updateHandlerInfo.autoSoftCommitAdaptiveMaxTime > 0) {
+      softCommitTracker.setAdaptiveTimeBounds(
+          updateHandlerInfo.autoSoftCommitAdaptiveMinTime,
+          updateHandlerInfo.autoSoftCommitAdaptiveMaxTime);
+    }
 
     commitWithinSoftCommit = updateHandlerInfo.commitWithinSoftCommit;
+    // the deferred deletes are logged in the update log, keep them along with it
+    deferredDeletes =
+        updateHandler instanceof DirectUpdateHandler2
+            ? ((DirectUpdateHandler2) updateHandler).deferredDeletes
+            : new DeferredDeletes();
 
     UpdateLog existingLog = updateHandler.getUpdateLog();
     if (this.ulog != null && this.ulog == existingLog) {
@@ -259,6 +281,27 @@ public class DirectUpdateHandler2 extends UpdateHandler
           getCategory().toString(),
           scope);
     }
+    AdaptiveCommitPolicy adaptivePolicy = softCommitTracker.getAdaptivePolicy();
+    if (adaptivePolicy != null) {
+      solrMetricsContext.gauge(
+          () -> adaptivePolicy.getIntervalMs(),
+          true,
+          "softAutoCommitInterval",
+          getCategory().toString(),
+          scope);
+      solrMetricsContext.gauge(
+          () -> adaptivePolicy.getAvgOpenMs(),
+          true,
+          "softAutoCommitOpenTime",
+          getCategory().toString(),
+          scope);
+      solrMetricsContext.gauge(
+          () -> adaptivePolicy.getAvgDocsPerSecond(),
+          true,
+          "softAutoCommitDocsPerSecond",
+          getCategory().toString(),
+          scope);
+    }
     optimizeCommands = solrMetricsContext.meter("optimizes", getCategory().toString(), scope);
     rollbackCommands = solrMetricsContext.meter("rollbacks", getCategory().toString(), scope);
     splitCommands = solrMetricsContext.meter("splits", getCategory().toString(), scope);
@@ -277,6 +320,12 @@ public class DirectUpdateHandler2 extends UpdateHandler
         "deletesByQuery",
         getCategory().toString(),
         scope);
+    solrMetricsContext.gauge(
+        () -> deferredDeletes.size(),
+        true,
+        "deferredDeletesByQuery",
+        getCategory().toString(),
+        scope);
     solrMetricsContext.gauge(
         () -> numErrors.longValue(), true, "errors", getCategory().toString(), scope);
 
@@ -295,6 +344,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
     RefCounted<IndexWriter> iw = solrCoreState.getIndexWriter(core);
     try {
       iw.get().deleteAll();
+      deferredDeletes.clear();
     } finally {
       iw.decref();
     }
@@ -303,6 +353,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
   protected void rollbackWriter() throws IOException {
     numDocsPending.reset();
     solrCoreState.rollbackIndexWriter(core);
+    deferredDeletes.clear();
   }
 
   @Override
@@ -486,7 +537,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
       commitTracker.scheduleMaxSizeTriggeredCommitIfNeeded(this::getCurrentTLogSize);
 
       if (softCommitTracker.getTimeUpperBound() > 0) {
-        softCommitTracker.scheduleCommitWithin(softCommitTracker.getTimeUpperBound());
+        softCommitTracker.scheduleCommitWithin(softCommitTracker.getCommitInterval());
       }
     }
   }
@@ -585,33 +636,54 @@ public class DirectUpdateHandler2 extends UpdateHandler
         }
       }
 
-      //
-      // synchronized to prevent deleteByQuery from running during the "open new searcher"
-      // part of a commit.  DBQ needs to signal that a fresh reader will be needed for
-      // a realtime view of the index.  When a new searcher is opened after a DBQ, that
-      // flag can be cleared.  If those thing happen concurrently, it's not thread safe.
-      // Also, ulog.deleteByQuery clears caches and is thus not safe to be called between
-      // preSoftCommit/postSoftCommit and thus we use the updateLock to prevent this (just
-      // as we use around ulog.preCommit... also see comments in ulog.postSoftCommit)
-      //
-      synchronized (solrCoreState.getUpdateLock()) {
+      VersionInfo blockedVersions = null;
+      if (!delAll && canDefer(cmd)) {
+        q = getDeferredQuery(cmd, q);
+        if (deferDeleteByQuery(cmd, q)) {
+          // searches stop seeing the deleted documents, without the updates since the last commit
+          core.openSearcherHidingDeferredDeletes();
+          madeIt = true;
+          updateDeleteTrackers(cmd);
+          return;
+        }
+        // too many deletes are deferred already: apply this one right away, blocking updates as
+        // for a regular delete by query
+        blockedVersions = ulog.getVersionInfo();
+        blockedVersions.blockUpdates();
+      }
 
-        // We are reopening a searcher before applying the deletes to overcome LUCENE-7344.
-        // Once LUCENE-7344 is resolved, we can consider removing this.
-        if (ulog != null) ulog.openRealtimeSearcher();
+      try {
+        //
+        // synchronized to prevent deleteByQuery from running during the "open new searcher"
+        // part of a commit.  DBQ needs to signal that a fresh reader will be needed for
+        // a realtime view of the index.  When a new searcher is opened after a DBQ, that
+        // flag can be cleared.  If those thing happen concurrently, it's not thread safe.
+        // Also, ulog.deleteByQuery clears caches and is thus not safe to be called between
+        // preSoftCommit/postSoftCommit and thus we use the updateLock to prevent this (just
+        // as we use around ulog.preCommit... also see comments in ulog.postSoftCommit)
+        //
+        synchronized (solrCoreState.getUpdateLock()) {
 
-        if (delAll) {
-          deleteAll();
-        } else {
-          RefCounted<IndexWriter> iw = solrCoreState.getIndexWriter(core);
-          try {
-            iw.get().deleteDocuments(new DeleteByQueryWrapper(q, core.getLatestSchema()));
-          } finally {
-            iw.decref();
+          // We are reopening a searcher before applying the deletes to overcome LUCENE-7344.
+          // Once LUCENE-7344 is resolved, we can consider removing this.
+          if (ulog != null) ulog.openRealtimeSearcher();
+
+          if (delAll) {
+            deleteAll();
+          } else {
+            RefCounted<IndexWriter> iw = solrCoreState.getIndexWriter(core);
+            try {
+              iw.get().deleteDocuments(new DeleteByQueryWrapper(q, core.getLatestSchema()));
+            } finally {
+              iw.decref();
+            }
           }
-        }
 
-        if (ulog != null) ulog.deleteByQuery(cmd); // this needs to be protected by the update lock
+          // this needs to be protected by the update lock
+          if (ulog != null) ulog.deleteByQuery(cmd);
+        }
+      } finally {
+        if (blockedVersions != null) blockedVersions.unblockUpdates();
       }
 
       madeIt = true;
@@ -626,6 +698,109 @@ public class DirectUpdateHandler2 extends UpdateHandler
     }
   }
 
+  private boolean canDefer(DeleteUpdateCommand cmd) {
+    return cmd.isDeferred()
+        && cmd.getVersion() != 0
+        && (cmd.getFlags() & (UpdateCommand.REPLAY | UpdateCommand.PEER_SYNC)) == 0
+        && ulog != null
+        && ulog.getVersionInfo() != null
+        && ulog.getVersionInfo().getVersionField() != null;
+  }
+
+  /** Restricts the query of a delete to the documents older than the delete */
+  private Query getDeferredQuery(DeleteUpdateCommand cmd, Query q) {
+    SchemaField versionField = ulog.getVersionInfo().getVersionField();
+    String version = Long.toString(Math.abs(cmd.getVersion()));
+    Query olderVersions =
+        versionField.getType().getRangeQuery(null, versionField, null, version, true, false);
+    return new BooleanQuery.Builder()
+        .add(q, Occur.MUST)
+        .add(olderVersions, Occur.FILTER)
+        .build();
+  }
+
+  /**
+   * Records the tombstone of the delete, to be applied by the next commit, and logs the delete. The
+   * realtime searcher reopened by the update log hides the deleted documents from lookups by id.
+   *
+   * @return false if too many deletes are deferred already
+   */
+  private boolean deferDeleteByQuery(DeleteUpdateCommand cmd, Query tombstone) {
+    VersionInfo vinfo = ulog.getVersionInfo();
+    // commits apply the tombstones while updates are blocked, see applyDeferredDeletes
+    vinfo.lockForUpdate();
+    try {
+      synchronized (solrCoreState.getUpdateLock()) {
+        if (deferredDeletes.size() >= MAX_DEFERRED_DELETES) {
+          pruneDeferredDeletes();
+          if (deferredDeletes.size() >= MAX_DEFERRED_DELETES) {
+            return false;
+          }
+        }
+        deferredDeletes.add(tombstone);
+        ulog.deferDeleteByQuery(cmd);
+        return true;
+      }
+    } finally {
+      vinfo.unlockForUpdate();
+    }
+  }
+
+  /**
+   * Applies the pending deferred deletes to the writer. Updates are blocked meanwhile, so that no
+   * update older than the deletes is still being written.
+   */
+  private void applyDeferredDeletes(IndexWriter writer) throws IOException {
+    if (deferredDeletes.getPendingCount() == 0) return;
+    VersionInfo vinfo = ulog.getVersionInfo();
+    vinfo.blockUpdates();
+    try {
+      synchronized (solrCoreState.getUpdateLock()) {
+        applyDeferredDeletesLocked(writer);
+      }
+    } finally {
+      vinfo.unblockUpdates();
+    }
+  }
+
+  private void applyDeferredDeletesLocked(IndexWriter writer) throws IOException {
+    pruneDeferredDeletes();
+    int applied = deferredDeletes.apply(writer, core.getLatestSchema());
+    log.debug("Applied {} deferred deletes by query", applied);
+  }
+
+  /** Forgets the tombstones of the deletes the registered searcher sees */
+  private void pruneDeferredDeletes() {
+    RefCounted<SolrIndexSearcher> searcher = core.getRegisteredSearcher();
+    if (searcher != null) {
+      try {
+        deferredDeletes.prune(searcher.get());
+      } finally {
+        searcher.decref();
+      }
+    }
+  }
+
+  @Override
+  public DirectoryReader wrapDeferredDeletes(DirectoryReader reader) throws IOException {
+    return deferredDeletes.wrap(reader, core.getLatestSchema());
+  }
+
+  @Override
+  public boolean hasNewDeferredDeletes(SolrIndexSearcher searcher) {
+    return deferredDeletes.hasNewTombstones(searcher);
+  }
+
+  @Override
+  public long getDeferredDeletesGeneration() {
+    return deferredDeletes.getGeneration();
+  }
+
+  @Override
+  public void deferredDeletesReaderOpened(DirectoryReader reader, long generation) {
+    deferredDeletes.readerOpened(reader, generation);
+  }
+
   @Override
   public int mergeIndexes(MergeIndexesCommand cmd) throws IOException {
     TestInjection.injectDirectUpdateLatch();
@@ -658,7 +833,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
     if (rc == 1 && commitTracker.getTimeUpperBound() > 0) {
       commitTracker.scheduleCommitWithin(commitTracker.getTimeUpperBound());
     } else if (rc == 1 && softCommitTracker.getTimeUpperBound() > 0) {
-      softCommitTracker.scheduleCommitWithin(softCommitTracker.getTimeUpperBound());
+      softCommitTracker.scheduleCommitWithin(softCommitTracker.getCommitInterval());
     }
 
     return rc;
@@ -740,11 +915,7 @@ public class DirectUpdateHandler2 extends UpdateHandler
         }
 
         if (!cmd.softCommit) {
-          synchronized (solrCoreState.getUpdateLock()) {
-            // sync is currently needed to prevent preCommit from being called between preSoft and
-            // postSoft... see postSoft comments.
-            if (ulog != null) ulog.preCommit(cmd);
-          }
+          preCommit(cmd, writer);
 
           // SolrCore.verbose("writer.commit() start writer=",writer);
 
@@ -758,6 +929,8 @@ public class DirectUpdateHandler2 extends UpdateHandler
           // SolrCore.verbose("writer.commit() end");
           numDocsPending.reset();
           callPostCommitCallbacks();
+        } else {
+          applyDeferredDeletes(writer);
         }
       } finally {
         iw.decref();
@@ -828,6 +1001,30 @@ public class DirectUpdateHandler2 extends UpdateHandler
     }
   }
 
+  private void preCommit(CommitUpdateCommand cmd, IndexWriter writer) throws IOException {
+    synchronized (solrCoreState.getUpdateLock()) {
+      if (deferredDeletes.getPendingCount() == 0) {
+        // sync is currently needed to prevent preCommit from being called between preSoft and
+        // postSoft... see postSoft comments.
+        if (ulog != null) ulog.preCommit(cmd);
+        return;
+      }
+    }
+    // The deferred deletes are logged in the current tlog, which this commit marks as committed:
+    // apply them all before starting a new tlog. Blocking updates prevents deferring more deletes
+    // in the meantime (see applyDeferredDeletes).
+    VersionInfo vinfo = ulog.getVersionInfo();
+    vinfo.blockUpdates();
+    try {
+      synchronized (solrCoreState.getUpdateLock()) {
+        applyDeferredDeletesLocked(writer);
+        ulog.preCommit(cmd);
+      }
+    } finally {
+      vinfo.unblockUpdates();
+    }
+  }
+
   /**
    * Determines whether the commit command should effectively trigger a commit on the index writer.
    * This method is called with the commit lock and is the last step before effectively calling
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.util.circuitbreaker.CPUCircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ConcurrentMergeScheduler} which backs off while the node serves queries, and catches up
+ * when it is quiet.
+ *
+ * <p>Every <code>loadCheckIntervalMs</code>, the node is considered busy when any of these signals
+ * reaches its threshold:
+ *
+ * <ul>
+ *   <li>the system CPU usage seen by the {@link CPUCircuitBreaker}, in percent (<code>
+ *       busyCpuPercent</code>, 75 by default);
+ *   <li>the number of search requests being executed by the core (<code>busyInFlightQueries</code>,
+ *       the number of processors by default);
+ *   <li>the rate of search requests of the core over the last minute, per second (<code>
+ *       busyQueryRate</code>, disabled by default).
+ * </ul>
+ *
+ * While busy, at most <code>busyMaxThreadCount</code> merges run (1 by default), the others being
+ * paused, and the merge I/O rate is throttled. When quiet, the configured <code>maxThreadCount
+ * </code> applies and merges run without I/O throttling to catch up. A threshold &lt;= 0 disables
+ * the signal.
+ *
+ * <p>The checks of all the cores run on the {@link
+ * org.apache.solr.core.CoreContainer#getMergeLoadChecker() single load checking thread} of the
+ * node, and stop when the index writer closes its scheduler.
+ */
+public class LoadAwareMergeScheduler extends ConcurrentMergeScheduler {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final String QUERY_PREFIX = SolrInfoBean.Category.QUERY + ".";
+
+  private double busyCpuPercent = 75;
+  private int busyInFlightQueries = Runtime.getRuntime().availableProcessors();
+  private double busyQueryRate = -1;
+  private int busyMaxThreadCount = 1;
+  private long loadCheckIntervalMs = 1000;
+
+  private SolrCore core;
+  private ScheduledFuture<?> loadCheck;
+  private boolean busy;
+  // the configured max thread count, while busy
+  private int quietMaxThreadCount;
+
+  public void setBusyCpuPercent(double busyCpuPercent) {
+    this.busyCpuPercent = busyCpuPercent;
+  }
+
+  public void setBusyInFlightQueries(int busyInFlightQueries) {
+    this.busyInFlightQueries = busyInFlightQueries;
+  }
+
+  public void setBusyQueryRate(double busyQueryRate) {
+    this.busyQueryRate = busyQueryRate;
+  }
+
+  public void setBusyMaxThreadCount(int busyMaxThreadCount) {
+    this.busyMaxThreadCount = Math.max(1, busyMaxThreadCount);
+  }
+
+  public void setLoadCheckIntervalMs(long loadCheckIntervalMs) {
+    this.loadCheckIntervalMs = loadCheckIntervalMs;
+  }
+
+  /**
+   * Starts following the load of the node and of the given core, and registers the metrics of the
+   * scheduler.
+   */
+  public synchronized void init(SolrCore core, SolrMetricsContext solrMetricsContext) {
+    this.core = core;
+    // quiet until the first check
+    disableAutoIOThrottle();
+    ScheduledExecutorService loadChecker = core.getCoreContainer().getMergeLoadChecker();
+    if (loadCheck == null && loadChecker != null) {
+      try {
+        loadCheck =
+            loadChecker.scheduleWithFixedDelay(
+                this::checkLoad, loadCheckIntervalMs, loadCheckIntervalMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        log.debug("Not checking the load of core {}, the node is shutting down", core.getName());
+      }
+    }
+    String category = SolrInfoBean.Category.INDEX.toString();
+    solrMetricsContext.gauge(() -> isBusy() ? 1 : 0, true, "busy", category, "merge", "scheduler");
+    solrMetricsContext.gauge(
+        () -> mergeThreadCount(), true, "threads", category, "merge", "scheduler");
+    solrMetricsContext.gauge(
+        () -> getMergeBacklog(), true, "backlog", category, "merge", "scheduler");
+    solrMetricsContext.gauge(
+        () -> getMaxThreadCount(), true, "maxThreads", category, "merge", "scheduler");
+    solrMetricsContext.gauge(
+        () -> getIORateLimitMBPerSec(), true, "ioRateMBPerSec", category, "merge", "scheduler");
+  }
+
+  public synchronized boolean isBusy() {
+    return busy;
+  }
+
+  synchronized boolean isCheckingLoad() {
+    return loadCheck != null && !loadCheck.isCancelled();
+  }
+
+  /** Number of merges registered with this scheduler that are paused, waiting for a thread */
+  public synchronized int getMergeBacklog() {
+    return Math.max(0, mergeThreadCount() - getMaxThreadCount());
+  }
+
+  private void checkLoad() {
+    try {
+      setBusy(isNodeBusy());
+    } catch (Exception e) {
+      log.warn("Could not check the load of core {}", core.getName(), e);
+    }
+  }
+
+  boolean isNodeBusy() {
+    if (busyCpuPercent > 0
+        && CPUCircuitBreaker.calculateLiveCPUUsage(core.getCoreContainer()) >= busyCpuPercent) {
+      return true;
+    }
+    if (busyInFlightQueries <= 0 && busyQueryRate <= 0) {
+      return false;
+    }
+    // every search handler counts its requests when they start, and times them when they end
+    MetricRegistry registry = core.getSolrMetricsContext().getMetricRegistry();
+    long started = 0;
+    long ended = 0;
+    double rate = 0;
+    for (Map.Entry<String, Counter> entry : registry.getCounters().entrySet()) {
+      if (isSearchMetric(entry.getKey(), ".requests")) {
+        started += entry.getValue().getCount();
+      }
+    }
+    for (Map.Entry<String, Timer> entry : registry.getTimers().entrySet()) {
+      if (isSearchMetric(entry.getKey(), ".requestTimes")) {
+        ended += entry.getValue().getCount();
+        rate += entry.getValue().getOneMinuteRate();
+      }
+    }
+    return (busyInFlightQueries > 0 && started - ended >= busyInFlightQueries)
+        || (busyQueryRate > 0 && rate >= busyQueryRate);
+  }
+
+  private static boolean isSearchMetric(String name, String suffix) {
+    return name.startsWith(QUERY_PREFIX) && name.endsWith(suffix);
+  }
+
+  synchronized void setBusy(boolean busy) {
+    if (busy == this.busy) return;
+    int maxThreadCount = getMaxThreadCount();
+    if (maxThreadCount == AUTO_DETECT_MERGES_AND_THREADS) {
+      // the defaults depend on the directory, wait for the first merge to set them
+      return;
+    }
+    if (busy) {
+      quietMaxThreadCount = maxThreadCount;
+      setMaxMergesAndThreads(getMaxMergeCount(), Math.min(busyMaxThreadCount, maxThreadCount));
+      enableAutoIOThrottle();
+    } else {
+      setMaxMergesAndThreads(getMaxMergeCount(), quietMaxThreadCount);
+      disableAutoIOThrottle();
+    }
+    this.busy = busy;
+    if (log.isDebugEnabled()) {
+      log.debug(
+          "Core {} is {}, running up to {} merges",
+          core.getName(),
+          busy ? "busy" : "quiet",
+          getMaxThreadCount());
+    }
+    // pause or resume the running merges
+    updateMergeThreads();
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (loadCheck != null) {
+        loadCheck.cancel(false);
+        loadCheck = null;
+      }
+    }
+    super.close();
+  }
+}
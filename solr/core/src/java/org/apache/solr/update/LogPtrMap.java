@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.update.UpdateLog.LogPtr;
+
+/**
+ * Maps the indexed ids of the recent updates to their {@link LogPtr}, as {@link UpdateLog} needs
+ * for real-time get and versioning.
+ *
+ * <p>The ids are copied into the blocks of a shared byte arena and hashed by a {@link
+ * BytesRefHash}, while the positions and versions are kept in primitive arrays indexed by the
+ * ordinal of the id. An entry costs a few dozen bytes instead of the BytesRef, LogPtr and HashMap
+ * node of a regular map. There is no removal, entries are only overwritten or all cleared.
+ *
+ * <p>Not thread safe, {@link UpdateLog} synchronizes the accesses.
+ */
+public class LogPtrMap implements Accountable {
+  private static final int INITIAL_CAPACITY = 16;
+  // the length of an id must fit, with its length prefix, in a block of the arena
+  private static final int MAX_ID_LENGTH = ByteBlockPool.BYTE_BLOCK_SIZE - 2;
+
+  private final Counter bytesUsed = Counter.newCounter();
+  private final BytesRefHash ids =
+      new BytesRefHash(
+          new ByteBlockPool(new ByteBlockPool.DirectTrackingAllocator(bytesUsed)),
+          INITIAL_CAPACITY,
+          new BytesRefHash.DirectBytesStartArray(INITIAL_CAPACITY, bytesUsed));
+  private long[] pointers = new long[INITIAL_CAPACITY];
+  private long[] versions = new long[INITIAL_CAPACITY];
+  private long[] previousPointers = new long[INITIAL_CAPACITY];
+  // ids too long for the arena, which can't be indexed terms anyway
+  private Map<BytesRef, LogPtr> oversized;
+  private long oversizedBytes;
+
+  /** Returns the latest entry put for this id, or null if none */
+  public LogPtr get(BytesRef id) {
+    if (id.length > MAX_ID_LENGTH) {
+      return oversized == null ? null : oversized.get(id);
+    }
+    int ord = ids.find(id);
+    return ord < 0 ? null : new LogPtr(pointers[ord], versions[ord], previousPointers[ord]);
+  }
+
+  /** Records the entry of an id, replacing the previous one. The bytes of the id are copied. */
+  public void put(BytesRef id, LogPtr ptr) {
+    if (id.length > MAX_ID_LENGTH) {
+      if (oversized == null) {
+        oversized = new HashMap<>();
+      }
+      if (oversized.put(BytesRef.deepCopyOf(id), ptr) == null) {
+        oversizedBytes += id.length;
+      }
+      return;
+    }
+    int ord = ids.add(id);
+    if (ord < 0) {
+      ord = -ord - 1;
+    } else if (ord >= pointers.length) {
+      int newLength = ArrayUtil.oversize(ord + 1, Long.BYTES);
+      pointers = ArrayUtil.growExact(pointers, newLength);
+      versions = ArrayUtil.growExact(versions, newLength);
+      previousPointers = ArrayUtil.growExact(previousPointers, newLength);
+    }
+    pointers[ord] = ptr.pointer;
+    versions[ord] = ptr.version;
+    previousPointers[ord] = ptr.previousPointer;
+  }
+
+  public int size() {
+    return ids.size() + (oversized == null ? 0 : oversized.size());
+  }
+
+  public void clear() {
+    ids.clear();
+    pointers = new long[INITIAL_CAPACITY];
+    versions = new long[INITIAL_CAPACITY];
+    previousPointers = new long[INITIAL_CAPACITY];
+    oversized = null;
+    oversizedBytes = 0;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return bytesUsed.get() + 3 * RamUsageEstimator.sizeOf(pointers) + oversizedBytes;
+  }
+
+  @Override
+  public String toString() {
+    return "LogPtrMap(size=" + size() + ")";
+  }
+}
@@ -208,8 +208,10 @@ public class SolrCmdDistributor implements Closeable {
       LeaderRequestReplicationTracker leaderTracker)
       throws IOException {
 
-    if (!cmd.isDeleteById()) {
-      blockAndDoRetries(); // For DBQ, flush all writes before submitting
+    if (!cmd.isDeleteById() && !cmd.isDeferred()) {
+      // For DBQ, flush all writes before submitting. A deferred DBQ only deletes the documents
+      // older than itself, and replicas apply it to the updates reordered before it.
+      blockAndDoRetries();
     }
 
     for (Node node : nodes) {
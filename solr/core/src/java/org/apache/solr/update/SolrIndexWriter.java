@@ -156,6 +156,9 @@ public class SolrIndexWriter extends IndexWriter {
     this.directory = directory;
     numOpens.incrementAndGet();
     solrMetricsContext = core.getSolrMetricsContext().getChildContext(this);
+    if (getConfig().getMergeScheduler() instanceof LoadAwareMergeScheduler) {
+      ((LoadAwareMergeScheduler) getConfig().getMergeScheduler()).init(core, solrMetricsContext);
+    }
     if (config.metricsInfo != null && config.metricsInfo.initArgs != null) {
       Object v = config.metricsInfo.initArgs.get("majorMergeDocs");
       if (v != null) {
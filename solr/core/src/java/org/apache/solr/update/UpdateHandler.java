@@ -21,6 +21,7 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.solr.core.DirectoryFactory;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
@@ -29,6 +30,7 @@ import org.apache.solr.core.SolrInfoBean;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.util.plugin.SolrCoreAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -173,6 +175,38 @@ public abstract class UpdateHandler implements SolrInfoBean {
 
   public abstract UpdateLog getUpdateLog();
 
+  /**
+   * Wraps the reader of a new searcher so that the documents deleted by deferred delete-by-query
+   * commands the reader does not see yet are not live, or returns it as is.
+   *
+   * @see DeferredDeletes
+   */
+  public DirectoryReader wrapDeferredDeletes(DirectoryReader reader) throws IOException {
+    return reader;
+  }
+
+  /**
+   * Whether a delete-by-query was deferred since the given searcher was opened, in which case a
+   * new searcher over the same reader hides more documents.
+   */
+  public boolean hasNewDeferredDeletes(SolrIndexSearcher searcher) {
+    return false;
+  }
+
+  /**
+   * Returns the generation of the deferred deletes by query applied to the index writer so far. A
+   * reader opened after this call sees them, see {@link #deferredDeletesReaderOpened}.
+   */
+  public long getDeferredDeletesGeneration() {
+    return 0;
+  }
+
+  /**
+   * Records that a reader opened after {@link #getDeferredDeletesGeneration()} returned the given
+   * generation sees the deferred deletes applied up to it.
+   */
+  public void deferredDeletesReaderOpened(DirectoryReader reader, long generation) {}
+
   /**
    * NOTE: this function is not thread safe. However, it is safe to call within the <code>
    * inform( SolrCore core )</code> function for <code>SolrCoreAware</code> classes. Outside <code>
@@ -206,9 +206,9 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected Deque<TransactionLog> newestLogsOnStartup = new ArrayDeque<>();
   protected int numOldRecords; // number of records in the recent logs
 
-  protected Map<BytesRef, LogPtr> map = new HashMap<>();
-  protected Map<BytesRef, LogPtr> prevMap; // used while committing/reopening is happening
-  protected Map<BytesRef, LogPtr> prevMap2; // used while committing/reopening is happening
+  protected LogPtrMap map = new LogPtrMap();
+  protected LogPtrMap prevMap; // used while committing/reopening is happening
+  protected LogPtrMap prevMap2; // used while committing/reopening is happening
   // the transaction log used to look up entries found in prevMap
   protected TransactionLog prevMapLog;
   // the transaction log used to look up entries found in prevMap2
@@ -504,6 +504,22 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     replayOpsMeter = solrMetricsContext.meter("ops", scope, "replay");
     copyOverOldUpdatesMeter = solrMetricsContext.meter("ops", scope, "copyOverOldUpdates");
     solrMetricsContext.gauge(() -> state.getValue(), true, "state", scope);
+    solrMetricsContext.gauge(
+        () -> getRecentUpdatesRamBytesUsed(), true, "bytes", scope, "recentUpdates");
+  }
+
+  /**
+   * Memory used to track the updates not yet visible in the realtime searcher. Read without
+   * locking, so only an estimate.
+   */
+  public long getRecentUpdatesRamBytesUsed() {
+    LogPtrMap map = this.map;
+    LogPtrMap prevMap = this.prevMap;
+    LogPtrMap prevMap2 = this.prevMap2;
+    long bytes = map == null ? 0 : map.ramBytesUsed();
+    if (prevMap != null) bytes += prevMap.ramBytesUsed();
+    if (prevMap2 != null) bytes += prevMap2.ramBytesUsed();
+    return bytes;
   }
 
   @Override
@@ -654,7 +670,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     // note: sync required to ensure maps aren't changed out form under us
     if (cmd.isInPlaceUpdate()) {
       BytesRef indexedId = cmd.getIndexedId();
-      for (Map<BytesRef, LogPtr> currentMap : Arrays.asList(map, prevMap, prevMap2)) {
+      for (LogPtrMap currentMap : Arrays.asList(map, prevMap, prevMap2)) {
         if (currentMap != null) {
           LogPtr prevEntry = currentMap.get(indexedId);
           if (null != prevEntry) {
@@ -727,6 +743,26 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     }
   }
 
+  /**
+   * Logs a delete-by-query which is applied to the index by the next commit. As for {@link
+   * #deleteByQuery(DeleteUpdateCommand)}, the id caches are purged and a realtime searcher is
+   * opened: no document is deleted yet, but the new searcher hides those matched by the recorded
+   * tombstone.
+   *
+   * @see DeferredDeletes
+   */
+  public void deferDeleteByQuery(DeleteUpdateCommand cmd) {
+    synchronized (this) {
+      if (!updateFromOldTlogs(cmd)) {
+        ensureLog();
+        tlog.writeDeleteByQuery(cmd);
+      }
+      openRealtimeSearcher();
+      // updates reordered before the delete still need to be deleted when they arrive
+      trackDeleteByQuery(cmd.getQuery(), cmd.getVersion());
+    }
+  }
+
   /**
    * Opens a new realtime searcher and clears the id caches. This may also be called when we updates
    * are being buffered (from PeerSync/IndexFingerprint)
@@ -825,7 +861,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     prevMap = map;
     prevMapLog = tlog;
 
-    map = new HashMap<>();
+    map = new LogPtrMap();
   }
 
   private void clearOldMaps() {
@@ -904,7 +940,7 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       // any added documents will make it into this commit or not.
       // But we do know that any updates already added will definitely
       // show up in the latest reader after the commit succeeds.
-      map = new HashMap<>();
+      map = new LogPtrMap();
 
       if (debug) {
         log.debug(
@@ -27,9 +27,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
@@ -66,6 +70,12 @@ import org.slf4j.LoggerFactory;
  * that were new when this processor started its work were subsequently added by a different update
  * request, possibly on a different node).
  *
+ * <p>The new fields of all the documents of a request are added at once, along with the new fields
+ * of concurrent requests, so that each addition to the managed schema (and the schema reload on
+ * every replica it triggers) serves as many requests as possible. The optional "coalesceWindowMs"
+ * <code>&lt;int&gt;</code> (0 by default) makes the first request with new fields wait that many
+ * milliseconds for the new fields of other requests.
+ *
  * <p>This processor takes as configuration a sequence of zero or more "typeMapping"-s from one or
  * more "valueClass"-s, specified as either an <code>&lt;arr&gt;</code> of <code>&lt;str&gt;</code>,
  * or multiple <code>&lt;str&gt;</code> with the same name, to an existing schema "fieldType".
@@ -130,12 +140,17 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
   private static final String DEST_PARAM = "dest";
   private static final String MAX_CHARS_PARAM = "maxChars";
   private static final String IS_DEFAULT_PARAM = "default";
+  private static final String COALESCE_WINDOW_MS_PARAM = "coalesceWindowMs";
 
   private List<TypeMapping> typeMappings = Collections.emptyList();
   private SelectorParams inclusions = new SelectorParams();
   private Collection<SelectorParams> exclusions = new ArrayList<>();
   private SolrResourceLoader solrResourceLoader = null;
   private String defaultFieldType;
+  private long coalesceWindowMs = 0;
+  private final FieldAdditions fieldAdditions = new FieldAdditions();
+  // the number of schema changes persisted by this factory
+  private final AtomicInteger schemaChanges = new AtomicInteger();
 
   @Override
   public UpdateRequestProcessor getInstance(
@@ -161,6 +176,14 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
       }
       defaultFieldType = defaultFieldTypeParam.toString();
     }
+    Object coalesceWindowMsParam = args.remove(COALESCE_WINDOW_MS_PARAM);
+    if (null != coalesceWindowMsParam) {
+      if (!(coalesceWindowMsParam instanceof Number)) {
+        throw new SolrException(
+            SERVER_ERROR, "Init param '" + COALESCE_WINDOW_MS_PARAM + "' must be an <int>");
+      }
+      coalesceWindowMs = ((Number) coalesceWindowMsParam).longValue();
+    }
 
     typeMappings = parseTypeMappings(args);
     if (null == defaultFieldType && typeMappings.stream().noneMatch(TypeMapping::isDefault)) {
@@ -183,6 +206,11 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
     }
   }
 
+  /** The number of schema changes persisted to add fields, for tests */
+  int getSchemaChanges() {
+    return schemaChanges.get();
+  }
+
   private static List<TypeMapping> parseTypeMappings(NamedList<?> args) {
     List<TypeMapping> typeMappings = new ArrayList<>();
     List<?> typeMappingsParams = args.getAll(TYPE_MAPPING_PARAM);
@@ -413,6 +441,176 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
     }
   }
 
+  /** Fields and copyFields to add to the schema, on behalf of one or more requests */
+  private static class FieldAdditionsBatch {
+    // new field name -> field type name
+    final Map<String, String> fields = new LinkedHashMap<>();
+    final Map<String, Map<Integer, List<CopyFieldDef>>> copyFields = new HashMap<>();
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    int requests;
+
+    void merge(
+        Map<String, String> newFields,
+        Map<String, Map<Integer, List<CopyFieldDef>>> newCopyFields) {
+      for (Map.Entry<String, String> field : newFields.entrySet()) {
+        // the first request adding a field chooses its type
+        if (fields.putIfAbsent(field.getKey(), field.getValue()) == null
+            && newCopyFields.containsKey(field.getKey())) {
+          copyFields.put(field.getKey(), newCopyFields.get(field.getKey()));
+        }
+      }
+      requests++;
+    }
+  }
+
+  /**
+   * Coalesces the field additions of concurrent requests into a single schema change, so that the
+   * managed schema is persisted, and reloaded by the other replicas, once for all of them.
+   *
+   * <p>The first request to add fields collects the additions of the requests arriving while it
+   * waits for the coalescing window to elapse and for the schema update lock. It then adds the
+   * fields which are still unknown to the latest schema, while the other requests wait for it.
+   */
+  private class FieldAdditions {
+    // the batch new additions join, guarded by this
+    private FieldAdditionsBatch collecting;
+
+    /**
+     * Adds the given fields and copyFields to the schema, if they are still unknown to it. Fields
+     * of the same name may have been added by another request meanwhile, possibly with another
+     * type: callers must check their documents against the latest schema again.
+     *
+     * @param coalesce whether to coalesce the additions with those of concurrent requests
+     * @return false if the additions were coalesced and failed, in which case they may be retried
+     *     without coalescing, since another request may be at fault
+     */
+    boolean add(
+        SolrCore core,
+        Map<String, String> newFields,
+        Map<String, Map<Integer, List<CopyFieldDef>>> newCopyFields,
+        boolean coalesce) {
+      FieldAdditionsBatch batch;
+      boolean leader;
+      if (coalesce) {
+        synchronized (this) {
+          leader = collecting == null;
+          if (leader) {
+            collecting = new FieldAdditionsBatch();
+          }
+          batch = collecting;
+          batch.merge(newFields, newCopyFields);
+        }
+      } else {
+        batch = new FieldAdditionsBatch();
+        batch.merge(newFields, newCopyFields);
+        leader = true;
+      }
+
+      if (leader) {
+        try {
+          if (coalesce && coalesceWindowMs > 0) {
+            Thread.sleep(coalesceWindowMs);
+          }
+          synchronized (core.getLatestSchema().getSchemaUpdateLock()) {
+            close(batch);
+            apply(core, batch);
+          }
+          batch.done.complete(null);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          close(batch);
+          batch.done.completeExceptionally(
+              new SolrException(SERVER_ERROR, "Interrupted while adding fields", e));
+        } catch (Throwable t) {
+          close(batch);
+          batch.done.completeExceptionally(t);
+        }
+      }
+
+      try {
+        batch.done.get();
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SolrException(SERVER_ERROR, "Interrupted while adding fields", e);
+      } catch (ExecutionException e) {
+        synchronized (this) {
+          if (batch.requests > 1) {
+            log.warn("Failed to add the fields of {} requests - retrying", batch.requests);
+            return false;
+          }
+        }
+        if (e.getCause() instanceof SolrException) {
+          throw (SolrException) e.getCause();
+        }
+        throw new SolrException(SERVER_ERROR, "Failed to add fields and/or copyFields.", e);
+      }
+    }
+
+    /** Stops new additions from joining the given batch */
+    private synchronized void close(FieldAdditionsBatch batch) {
+      if (collecting == batch) {
+        collecting = null;
+      }
+    }
+
+    /** Called while holding the schema update lock, to ensure the schema is the latest */
+    private void apply(SolrCore core, FieldAdditionsBatch batch) {
+      IndexSchema oldSchema = core.getLatestSchema();
+      List<SchemaField> newFields = new ArrayList<>();
+      Map<String, Map<Integer, List<CopyFieldDef>>> newCopyFields = new HashMap<>();
+      for (Map.Entry<String, String> field : batch.fields.entrySet()) {
+        String fieldName = field.getKey();
+        if (null != oldSchema.getFieldTypeNoEx(fieldName)) {
+          continue; // added by another request
+        }
+        newFields.add(oldSchema.newField(fieldName, field.getValue(), Collections.emptyMap()));
+        if (batch.copyFields.containsKey(fieldName)) {
+          newCopyFields.put(fieldName, batch.copyFields.get(fieldName));
+        }
+      }
+      if (newFields.isEmpty()) {
+        log.debug("All the fields to add are already in the schema.");
+        return;
+      }
+      try {
+        IndexSchema newSchema = oldSchema.addFields(newFields, Collections.emptyMap(), false);
+        // Add copyFields
+        for (Map.Entry<String, Map<Integer, List<CopyFieldDef>>> entry :
+            newCopyFields.entrySet()) {
+          String srcField = entry.getKey();
+          for (Integer maxChars : entry.getValue().keySet()) {
+            newSchema =
+                newSchema.addCopyFields(
+                    srcField,
+                    entry.getValue().get(maxChars).stream()
+                        .map(f -> f.getDest(srcField))
+                        .collect(Collectors.toList()),
+                    maxChars);
+          }
+        }
+        if (null != newSchema) {
+          ((ManagedIndexSchema) newSchema).persistManagedSchema(false);
+          core.setLatestSchema(newSchema);
+          schemaChanges.incrementAndGet();
+          if (log.isDebugEnabled()) {
+            log.debug(
+                "Successfully added {} field(s) and copyField(s) of {} request(s) to the schema.",
+                newFields.size(),
+                batch.requests);
+          }
+        } else {
+          throw new SolrException(
+              SolrException.ErrorCode.SERVER_ERROR, "Failed to add fields and/or copyFields.");
+        }
+      } catch (ManagedIndexSchema.FieldExistsException e) {
+        log.error("At least one field to be added already exists in the schema - retrying.");
+      } catch (ManagedIndexSchema.SchemaChangedInZkException e) {
+        log.debug("Schema changed while processing request - retrying.");
+      }
+    }
+  }
+
   private class AddSchemaFieldsUpdateProcessor extends UpdateRequestProcessor {
     public AddSchemaFieldsUpdateProcessor(UpdateRequestProcessor next) {
       super(next);
@@ -420,25 +618,43 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
 
     @Override
     public void processAdd(AddUpdateCommand cmd) throws IOException {
-      if (!cmd.getReq().getSchema().isMutable()) {
+      addUnknownFields(Collections.singletonList(cmd));
+      super.processAdd(cmd);
+    }
+
+    @Override
+    public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+      // one schema change for the whole batch
+      addUnknownFields(cmds);
+      if (next != null) next.processAddBatch(cmds);
+    }
+
+    /** Adds the unknown fields of the given documents, all from the same request, to the schema */
+    private void addUnknownFields(List<AddUpdateCommand> cmds) throws IOException {
+      if (cmds.isEmpty()) return;
+      final SolrQueryRequest req = cmds.get(0).getReq();
+      if (!req.getSchema().isMutable()) {
         final String message = "This IndexSchema is not mutable.";
         throw new SolrException(BAD_REQUEST, message);
       }
-      final SolrInputDocument doc = cmd.getSolrInputDocument();
-      final SolrCore core = cmd.getReq().getCore();
-      // use the cmd's schema rather than the latest, because the schema
-      // can be updated during processing.  Using the cmd's schema guarantees
-      // this will be detected and the cmd's schema updated.
-      IndexSchema oldSchema = cmd.getReq().getSchema();
+      final SolrCore core = req.getCore();
+      // use the request's schema rather than the latest, because the schema
+      // can be updated during processing.  Using the request's schema guarantees
+      // this will be detected and the request's schema updated.
+      IndexSchema oldSchema = req.getSchema();
+      boolean coalesce = true;
       for (; ; ) {
-        List<SchemaField> newFields = new ArrayList<>();
+        // new field name -> field type name
+        Map<String, String> newFields = new LinkedHashMap<>();
         // Group copyField defs per field and then per maxChar, to adapt to IndexSchema API
         Map<String, Map<Integer, List<CopyFieldDef>>> newCopyFields = new HashMap<>();
         // build a selector each time through the loop b/c the schema we are
         // processing may have changed
         FieldNameSelector selector = buildSelector(oldSchema);
         Map<String, List<SolrInputField>> unknownFields = new HashMap<>();
-        getUnknownFields(selector, doc, unknownFields);
+        for (AddUpdateCommand cmd : cmds) {
+          getUnknownFields(selector, cmd.getSolrInputDocument(), unknownFields);
+        }
         for (final Map.Entry<String, List<SolrInputField>> entry : unknownFields.entrySet()) {
           String fieldName = entry.getKey();
           String fieldTypeName = defaultFieldType;
@@ -452,7 +668,7 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
                       .collect(Collectors.groupingBy(CopyFieldDef::getMaxChars)));
             }
           }
-          newFields.add(oldSchema.newField(fieldName, fieldTypeName, Collections.emptyMap()));
+          newFields.put(fieldName, fieldTypeName);
         }
         if (newFields.isEmpty() && newCopyFields.isEmpty()) {
           // nothing to do - no fields will be added - exit from the retry loop
@@ -466,11 +682,11 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
           StringBuilder builder = new StringBuilder();
           builder.append("\nFields to be added to the schema: [");
           boolean isFirst = true;
-          for (SchemaField field : newFields) {
+          for (Map.Entry<String, String> field : newFields.entrySet()) {
             builder.append(isFirst ? "" : ",");
             isFirst = false;
-            builder.append(field.getName());
-            builder.append("{type=").append(field.getType().getTypeName()).append("}");
+            builder.append(field.getKey());
+            builder.append("{type=").append(field.getValue()).append("}");
           }
           builder.append("]");
           builder.append("\nCopyFields to be added to the schema: [");
@@ -492,47 +708,13 @@ public class AddSchemaFieldsUpdateProcessorFactory extends UpdateRequestProcesso
           builder.append("]");
           log.debug("{}", builder);
         }
-        // Need to hold the lock during the entire attempt to ensure that
-        // the schema on the request is the latest
-        synchronized (oldSchema.getSchemaUpdateLock()) {
-          try {
-            IndexSchema newSchema = oldSchema.addFields(newFields, Collections.emptyMap(), false);
-            // Add copyFields
-            for (Map.Entry<String, Map<Integer, List<CopyFieldDef>>> entry :
-                newCopyFields.entrySet()) {
-              String srcField = entry.getKey();
-              for (Integer maxChars : entry.getValue().keySet()) {
-                newSchema =
-                    newSchema.addCopyFields(
-                        srcField,
-                        entry.getValue().get(maxChars).stream()
-                            .map(f -> f.getDest(srcField))
-                            .collect(Collectors.toList()),
-                        maxChars);
-              }
-            }
-            if (null != newSchema) {
-              ((ManagedIndexSchema) newSchema).persistManagedSchema(false);
-              core.setLatestSchema(newSchema);
-              cmd.getReq().updateSchemaToLatest();
-              log.debug("Successfully added field(s) and copyField(s) to the schema.");
-              break; // success - exit from the retry loop
-            } else {
-              throw new SolrException(
-                  SolrException.ErrorCode.SERVER_ERROR, "Failed to add fields and/or copyFields.");
-            }
-          } catch (ManagedIndexSchema.FieldExistsException e) {
-            log.error("At least one field to be added already exists in the schema - retrying.");
-            oldSchema = core.getLatestSchema();
-            cmd.getReq().updateSchemaToLatest();
-          } catch (ManagedIndexSchema.SchemaChangedInZkException e) {
-            log.debug("Schema changed while processing request - retrying.");
-            oldSchema = core.getLatestSchema();
-            cmd.getReq().updateSchemaToLatest();
-          }
-        }
+        // The additions are applied along with those of concurrent requests. Either way, check
+        // again against the latest schema: the fields may have been added by another request, or
+        // the schema may have changed in ZooKeeper meanwhile.
+        coalesce = fieldAdditions.add(core, newFields, newCopyFields, coalesce);
+        oldSchema = core.getLatestSchema();
+        req.updateSchemaToLatest();
       }
-      super.processAdd(cmd);
     }
 
     /** Recursively find unknown fields in the given doc and its child documents, if any. */
@@ -22,6 +22,7 @@ import static org.apache.solr.update.processor.DistributingUpdateProcessorFactor
 import com.google.common.annotations.VisibleForTesting;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -137,6 +138,8 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
   private NamedList<Object> deleteResponse = null;
   private NamedList<Object> deleteByQueryResponse = null;
   private CharsRefBuilder scratch;
+  // current version of the documents updated by the batch being processed, if any
+  private RealTimeGetComponent.PrefetchedInputDocuments prefetchedDocs;
 
   private final SchemaField idField;
 
@@ -196,6 +199,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         UpdateParams.OPTIMIZE,
         UpdateParams.MAX_OPTIMIZE_SEGMENTS,
         UpdateParams.REQUIRE_PARTIAL_DOC_UPDATES_INPLACE,
+        UpdateParams.DEFER_DELETE_BY_QUERY,
         ShardParams._ROUTE_,
         CommonParams.FAIL_ON_VERSION_CONFLICTS);
 
@@ -261,6 +265,44 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
   }
 
+  @Override
+  public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+    prefetchedDocs = prefetchOldDocuments(cmds);
+    try {
+      processEachAdd(cmds);
+    } finally {
+      prefetchedDocs = null;
+    }
+  }
+
+  /**
+   * Looks up at once the current version of the documents to be modified by the full (not in-place)
+   * atomic updates of a batch, which are then applied one by one by {@link #processAdd}.
+   *
+   * @return null if there is nothing worth looking up in advance
+   */
+  protected RealTimeGetComponent.PrefetchedInputDocuments prefetchOldDocuments(
+      List<AddUpdateCommand> cmds) throws IOException {
+    if (vinfo == null || idField == null || req.getSchema().isUsableForChildDocs()) {
+      return null;
+    }
+    List<BytesRef> ids = new ArrayList<>();
+    for (AddUpdateCommand cmd : cmds) {
+      try {
+        if (AtomicUpdateDocumentMerger.isAtomicUpdate(cmd)
+            && AtomicUpdateDocumentMerger.computeInPlaceUpdatableFields(cmd).isEmpty()) {
+          ids.add(cmd.getIndexedId());
+        }
+      } catch (SolrException e) {
+        // reported when the document is processed
+      }
+    }
+    if (ids.size() < 2) {
+      return null;
+    }
+    return RealTimeGetComponent.prefetchInputDocuments(req.getCore(), ids);
+  }
+
   protected void doDistribAdd(AddUpdateCommand cmd) throws IOException {
     // no-op for derived classes to implement
   }
@@ -774,14 +816,16 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     // full (non-inplace) atomic update
 
     final SolrInputDocument oldRootDocWithChildren =
-        RealTimeGetComponent.getInputDocument(
-            req.getCore(),
-            rootIdBytes,
-            rootIdBytes,
-            null,
-            null,
-            RealTimeGetComponent.Resolution
-                .ROOT_WITH_CHILDREN); // when no children, just fetches the doc
+        prefetchedDocs != null
+            ? prefetchedDocs.getInputDocument(req.getCore(), rootIdBytes)
+            : RealTimeGetComponent.getInputDocument(
+                req.getCore(),
+                rootIdBytes,
+                rootIdBytes,
+                null,
+                null,
+                RealTimeGetComponent.Resolution
+                    .ROOT_WITH_CHILDREN); // when no children, just fetches the doc
 
     SolrInputDocument sdoc = cmd.getSolrInputDocument();
     SolrInputDocument mergedDoc;
@@ -957,6 +1001,13 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     boolean leaderLogic =
         leaderLogicWithVersionIntegrityCheck(isReplayOrPeersync, isLeader, versionOnUpdate);
 
+    if (cmd.isDeferred() && !isReplayOrPeersync) {
+      // the delete is only recorded, and will not delete the updates newer than itself: there is
+      // no need to wait for the concurrent updates
+      doLocalDeleteByQuery(cmd, versionOnUpdate, isReplayOrPeersync, leaderLogic);
+      return;
+    }
+
     vinfo.blockUpdates();
     try {
 
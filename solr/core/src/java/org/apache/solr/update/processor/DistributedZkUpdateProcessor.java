@@ -60,6 +60,7 @@ import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.CollectionUtil;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.core.CoreContainer;
+import org.apache.solr.handler.component.RealTimeGetComponent;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.update.AddUpdateCommand;
@@ -273,6 +274,13 @@ public class DistributedZkUpdateProcessor extends DistributedUpdateProcessor {
     super.processAdd(cmd);
   }
 
+  @Override
+  protected RealTimeGetComponent.PrefetchedInputDocuments prefetchOldDocuments(
+      List<AddUpdateCommand> cmds) throws IOException {
+    // only the leader looks documents up, the others forward the atomic updates to it
+    return cloudDesc.isLeader() ? super.prefetchOldDocuments(cmds) : null;
+  }
+
   @Override
   protected void doDistribAdd(AddUpdateCommand cmd) throws IOException {
 
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 import org.apache.solr.common.SolrException;
@@ -75,6 +76,36 @@ public abstract class FieldMutatingUpdateProcessor extends UpdateRequestProcesso
    */
   @Override
   public void processAdd(AddUpdateCommand cmd) throws IOException {
+    mutateFields(cmd);
+    super.processAdd(cmd);
+  }
+
+  /**
+   * Mutates the fields of each document before forwarding the whole batch down the chain, unless a
+   * subclass customizes {@link #processAdd(AddUpdateCommand)}.
+   */
+  @Override
+  public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+    if (processAddDeclaringClass() != FieldMutatingUpdateProcessor.class) {
+      super.processAddBatch(cmds);
+      return;
+    }
+    int mutated = 0;
+    try {
+      for (AddUpdateCommand cmd : cmds) {
+        mutateFields(cmd);
+        mutated++;
+      }
+    } catch (RuntimeException e) {
+      cmds.get(mutated).failedInBatch = true;
+      // the documents preceding the failing one are indexed, as with processAdd
+      if (mutated > 0 && next != null) next.processAddBatch(cmds.subList(0, mutated));
+      throw e;
+    }
+    if (next != null) next.processAddBatch(cmds);
+  }
+
+  private void mutateFields(AddUpdateCommand cmd) {
     final SolrInputDocument doc = cmd.getSolrInputDocument();
 
     // make a copy we can iterate over while mutating the doc
@@ -108,7 +139,6 @@ public abstract class FieldMutatingUpdateProcessor extends UpdateRequestProcesso
         doc.put(dest.getName(), dest);
       }
     }
-    super.processAdd(cmd);
   }
 
   /** Interface for identifying which fields should be mutated */
@@ -110,6 +110,39 @@ public class LogUpdateProcessorFactory extends UpdateRequestProcessorFactory
       // call delegate first so we can log things like the version that get set later
       if (next != null) next.processAdd(cmd);
 
+      logAdd(cmd);
+    }
+
+    @Override
+    public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+      if (logDebug) {
+        for (AddUpdateCommand cmd : cmds) {
+          log.debug("PRE_UPDATE {} {}", cmd, req);
+        }
+      }
+
+      try {
+        if (next != null) next.processAddBatch(cmds);
+      } catch (Throwable t) {
+        // the documents preceding the failing one were added, as with processAdd
+        for (AddUpdateCommand cmd : cmds) {
+          if (cmd.failedInBatch) {
+            for (AddUpdateCommand added : cmds) {
+              if (added == cmd) break;
+              logAdd(added);
+            }
+            break;
+          }
+        }
+        throw t;
+      }
+
+      for (AddUpdateCommand cmd : cmds) {
+        logAdd(cmd);
+      }
+    }
+
+    private void logAdd(AddUpdateCommand cmd) {
       // Add a list of added id's to the response
       if (adds == null) {
         adds = new ArrayList<>();
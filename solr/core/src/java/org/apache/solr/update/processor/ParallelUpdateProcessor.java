@@ -0,0 +1,499 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.DelegatingSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.CommitUpdateCommand;
+import org.apache.solr.update.DeleteUpdateCommand;
+import org.apache.solr.update.MergeIndexesCommand;
+import org.apache.solr.update.RollbackUpdateCommand;
+import org.apache.solr.update.processor.UpdateRequestProcessorChain.LazyUpdateProcessorFactoryHolder.LazyUpdateRequestProcessorFactory;
+import org.apache.solr.util.RefCounted;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Processes the documents added by a single update request on several threads, while the request
+ * thread keeps parsing the request body.
+ *
+ * <p>Enabled with the {@value #PARALLELISM_PARAM} request parameter (or handler default). The
+ * documents are partitioned by uniqueKey, and each partition is handled in order by its own worker
+ * thread running its own instance of the update processor chain, so updates to a given document are
+ * applied in request order. The chain of a worker sees the parameters, NOW, user and logging
+ * context of the request, but has its own request context and searcher. Documents without a
+ * uniqueKey value (e.g. assigned later by a processor) all go to the same partition. Any other
+ * command (delete, commit...) waits for the documents preceding it to be processed, and is then
+ * handled by the chain of the request thread.
+ *
+ * <p>The first error is returned to the client, and no document is processed after it: neither the
+ * next documents of the request, nor the documents queued to the workers. Only the documents other
+ * workers are processing at the time of the error may still be indexed. Requests
+ * using a {@link TolerantUpdateProcessorFactory}, and requests forwarded by another node, are
+ * always processed sequentially. The total number of worker threads of a node is bounded by the
+ * <code>solr.update.maxParallelWorkers</code> system property, a request gets fewer workers (or
+ * none) when they are all busy.
+ */
+public class ParallelUpdateProcessor extends UpdateRequestProcessor {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  /** Request parameter setting the number of threads processing the added documents */
+  public static final String PARALLELISM_PARAM = "update.parallelism";
+
+  /** Number of documents handed to a worker at once */
+  static final int CHUNK_SIZE = 100;
+
+  /** Number of chunks queued per worker before the request thread waits */
+  private static final int QUEUE_SIZE = 4;
+
+  private static final List<AddUpdateCommand> END = Collections.emptyList();
+
+  static final Semaphore WORKER_PERMITS =
+      new Semaphore(
+          Integer.getInteger(
+              "solr.update.maxParallelWorkers", Runtime.getRuntime().availableProcessors()));
+
+  private final UpdateRequestProcessorChain chain;
+  private final SolrQueryRequest req;
+  private final SolrQueryResponse rsp;
+  private final String uniqueKeyField;
+  private final int numWorkers;
+  // the context of the request thread, set on the workers
+  private final SolrRequestInfo requestInfo;
+  private final Map<String, String> mdcContext;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  // set when the request ends before finish(), so that the workers skip the remaining documents
+  private volatile boolean aborted;
+  // workers for the documents added since the last other command, null if none
+  private Worker[] workers;
+  private boolean permitsReleased;
+
+  /**
+   * Returns a processor handling the documents added by this request on several threads if the
+   * request asks for it and it can be done safely, the given processor otherwise.
+   *
+   * @param chain the chain of the request
+   * @param processor the processor created from the chain for the request thread
+   */
+  public static UpdateRequestProcessor wrapIfRequested(
+      UpdateRequestProcessorChain chain,
+      SolrQueryRequest req,
+      SolrQueryResponse rsp,
+      UpdateRequestProcessor processor) {
+    SolrParams params = req.getParams();
+    int parallelism = params.getInt(PARALLELISM_PARAM, 1);
+    if (parallelism <= 1
+        || params.get(DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM) != null
+        || hasTolerantProcessor(chain)) {
+      return processor;
+    }
+    int acquired = 0;
+    while (acquired < parallelism && WORKER_PERMITS.tryAcquire()) {
+      acquired++;
+    }
+    if (acquired < 2) {
+      WORKER_PERMITS.release(acquired);
+      log.debug("No worker available, processing the request sequentially");
+      return processor;
+    }
+    return new ParallelUpdateProcessor(chain, req, rsp, processor, acquired);
+  }
+
+  private static boolean hasTolerantProcessor(UpdateRequestProcessorChain chain) {
+    for (UpdateRequestProcessorFactory factory : chain.getProcessors()) {
+      if (factory instanceof LazyUpdateRequestProcessorFactory) {
+        factory = ((LazyUpdateRequestProcessorFactory) factory).getDelegate();
+      }
+      if (factory instanceof TolerantUpdateProcessorFactory) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ParallelUpdateProcessor(
+      UpdateRequestProcessorChain chain,
+      SolrQueryRequest req,
+      SolrQueryResponse rsp,
+      UpdateRequestProcessor next,
+      int numWorkers) {
+    super(next);
+    this.chain = chain;
+    this.req = req;
+    this.rsp = rsp;
+    SchemaField uniqueKey = req.getSchema().getUniqueKeyField();
+    this.uniqueKeyField = uniqueKey == null ? null : uniqueKey.getName();
+    this.numWorkers = numWorkers;
+    this.requestInfo = SolrRequestInfo.getRequestInfo();
+    this.mdcContext = MDC.getCopyOfContextMap();
+  }
+
+  @Override
+  public void processAdd(AddUpdateCommand cmd) throws IOException {
+    throwIfFailed();
+    if (workers == null) {
+      startWorkers();
+    }
+    workers[partition(cmd)].add(cmd);
+    throwIfFailed();
+  }
+
+  @Override
+  public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+    // the documents are processed later by the workers, an error is not caused by the current one
+    for (AddUpdateCommand cmd : cmds) {
+      processAdd(cmd);
+    }
+  }
+
+  private void startWorkers() {
+    workers = new Worker[numWorkers];
+    for (int i = 0; i < numWorkers; i++) {
+      workers[i] = new Worker();
+    }
+    for (int i = 0; i < numWorkers; i++) {
+      try {
+        req.getCoreContainer().runAsync(workers[i]);
+      } catch (RejectedExecutionException e) {
+        // the workers which could not start are done, the others end when closing
+        for (int j = i; j < numWorkers; j++) {
+          workers[j].cancel();
+        }
+        aborted = true;
+        throw new SolrException(
+            SolrException.ErrorCode.SERVICE_UNAVAILABLE, "Could not start the update workers", e);
+      }
+    }
+  }
+
+  private int partition(AddUpdateCommand cmd) {
+    Object id =
+        uniqueKeyField == null ? null : cmd.getSolrInputDocument().getFieldValue(uniqueKeyField);
+    return id == null ? 0 : Math.floorMod(id.toString().hashCode(), numWorkers);
+  }
+
+  @Override
+  public void processDelete(DeleteUpdateCommand cmd) throws IOException {
+    awaitWorkers();
+    super.processDelete(cmd);
+  }
+
+  @Override
+  public void processMergeIndexes(MergeIndexesCommand cmd) throws IOException {
+    awaitWorkers();
+    super.processMergeIndexes(cmd);
+  }
+
+  @Override
+  public void processCommit(CommitUpdateCommand cmd) throws IOException {
+    awaitWorkers();
+    super.processCommit(cmd);
+  }
+
+  @Override
+  public void processRollback(RollbackUpdateCommand cmd) throws IOException {
+    awaitWorkers();
+    super.processRollback(cmd);
+  }
+
+  @Override
+  public void finish() throws IOException {
+    try {
+      awaitWorkers();
+    } finally {
+      super.finish();
+    }
+  }
+
+  @Override
+  protected void doClose() {
+    if (workers != null) {
+      // the request failed before finish(): the workers skip their remaining documents, and are
+      // waited for since they use the request and its core
+      aborted = true;
+      boolean interrupted = false;
+      for (Worker worker : workers) {
+        worker.chunk.clear();
+        while (true) {
+          try {
+            worker.end();
+            worker.done.await();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+      }
+      workers = null;
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (!permitsReleased) {
+      permitsReleased = true;
+      WORKER_PERMITS.release(numWorkers);
+    }
+  }
+
+  /**
+   * Waits for the workers to process the documents added so far and to finish their chain, so
+   * that the next command sees them.
+   */
+  private void awaitWorkers() throws IOException {
+    if (workers != null) {
+      try {
+        for (Worker worker : workers) {
+          worker.end();
+        }
+        for (Worker worker : workers) {
+          worker.done.await();
+        }
+      } catch (InterruptedException e) {
+        // the workers still running are waited for when closing
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(null, e);
+        throwIfFailed();
+      }
+      for (Worker worker : workers) {
+        mergeResponse(worker.rsp);
+      }
+      workers = null;
+    }
+    throwIfFailed();
+  }
+
+  private void mergeResponse(SolrQueryResponse workerRsp) {
+    if (workerRsp.getException() != null) {
+      failure.compareAndSet(null, workerRsp.getException());
+    }
+    NamedList<Object> header = rsp.getResponseHeader();
+    if (header != null) {
+      for (Map.Entry<String, Object> entry : workerRsp.getResponseHeader()) {
+        Object current = header.get(entry.getKey());
+        if (current == null) {
+          header.add(entry.getKey(), entry.getValue());
+        } else if (UpdateRequest.REPFACT.equals(entry.getKey())
+            && ((Number) entry.getValue()).intValue() < ((Number) current).intValue()) {
+          // the replication factor achieved by the whole request
+          header.remove(entry.getKey());
+          header.add(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    for (Map.Entry<String, Object> entry : workerRsp.getValues()) {
+      if (!"responseHeader".equals(entry.getKey())) {
+        rsp.add(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private void throwIfFailed() throws IOException {
+    Throwable t = failure.get();
+    if (t == null) return;
+    if (t instanceof IOException) throw (IOException) t;
+    if (t instanceof RuntimeException) throw (RuntimeException) t;
+    if (t instanceof Error) throw (Error) t;
+    throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, t);
+  }
+
+  /**
+   * The request as seen by the chain of a worker: the chains of the request thread and of the other
+   * workers use the request at the same time, so its mutable state is not shared.
+   */
+  private static class WorkerRequest extends DelegatingSolrQueryRequest {
+    private final Map<Object, Object> context;
+    private final Principal userPrincipal;
+    private SolrParams params;
+    private RefCounted<SolrIndexSearcher> searcherHolder;
+
+    WorkerRequest(SolrQueryRequest req, SolrRequestInfo requestInfo) {
+      super(req);
+      this.context = new HashMap<>(req.getContext());
+      this.params = req.getParams();
+      this.userPrincipal =
+          requestInfo == null ? req.getUserPrincipal() : requestInfo.getUserPrincipal();
+    }
+
+    @Override
+    public SolrParams getParams() {
+      return params;
+    }
+
+    @Override
+    public void setParams(SolrParams params) {
+      this.params = params;
+    }
+
+    @Override
+    public Map<Object, Object> getContext() {
+      return context;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+      return userPrincipal;
+    }
+
+    @Override
+    public SolrIndexSearcher getSearcher() {
+      if (searcherHolder == null) {
+        searcherHolder = getCore().getSearcher();
+      }
+      return searcherHolder.get();
+    }
+
+    @Override
+    public void close() {
+      // the request itself is closed by the request thread
+      if (searcherHolder != null) {
+        searcherHolder.decref();
+        searcherHolder = null;
+      }
+    }
+  }
+
+  /** Processes the documents of a partition with its own instance of the chain. */
+  private class Worker implements Runnable {
+    final WorkerRequest req = new WorkerRequest(ParallelUpdateProcessor.this.req, requestInfo);
+    final SolrQueryResponse rsp = new SolrQueryResponse();
+    final UpdateRequestProcessor processor;
+    final BlockingQueue<List<AddUpdateCommand>> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    final CountDownLatch done = new CountDownLatch(1);
+    // only used by the request thread
+    List<AddUpdateCommand> chunk = new ArrayList<>(CHUNK_SIZE);
+
+    Worker() {
+      rsp.addResponseHeader(new SimpleOrderedMap<>());
+      processor = chain.createProcessor(req, rsp);
+    }
+
+    void add(AddUpdateCommand cmd) throws IOException {
+      chunk.add(cmd);
+      if (chunk.size() >= CHUNK_SIZE) {
+        try {
+          put(chunk);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, e);
+        }
+        chunk = new ArrayList<>(CHUNK_SIZE);
+      }
+    }
+
+    void end() throws InterruptedException {
+      if (!chunk.isEmpty()) {
+        put(chunk);
+        chunk = new ArrayList<>(CHUNK_SIZE);
+      }
+      put(END);
+    }
+
+    /** Queues the documents, unless this worker is done, which only happens after an error. */
+    private void put(List<AddUpdateCommand> cmds) throws InterruptedException {
+      while (!queue.offer(cmds, 100, TimeUnit.MILLISECONDS)) {
+        if (done.getCount() == 0) {
+          return;
+        }
+      }
+    }
+
+    /** Ends a worker which was never run. */
+    void cancel() {
+      try {
+        processor.close();
+      } catch (IOException e) {
+        log.warn("Error closing update processor", e);
+      }
+      req.close();
+      done.countDown();
+    }
+
+    @Override
+    public void run() {
+      Map<String, String> previousMdcContext = MDC.getCopyOfContextMap();
+      if (mdcContext != null) {
+        MDC.setContextMap(mdcContext);
+      }
+      SolrRequestInfo workerRequestInfo = new SolrRequestInfo(req, rsp);
+      if (requestInfo != null) {
+        workerRequestInfo.setAction(requestInfo.getAction());
+        workerRequestInfo.setUseServerToken(requestInfo.useServerToken());
+      }
+      SolrRequestInfo.setRequestInfo(workerRequestInfo);
+      try {
+        for (List<AddUpdateCommand> cmds = queue.take(); cmds != END; cmds = queue.take()) {
+          for (AddUpdateCommand cmd : cmds) {
+            // after a failure, the remaining documents are skipped
+            if (failure.get() != null || aborted) {
+              break;
+            }
+            try {
+              processor.processAdd(cmd);
+            } catch (Throwable t) {
+              failure.compareAndSet(null, t);
+            }
+          }
+        }
+        if (failure.get() == null && !aborted) {
+          processor.finish();
+        }
+      } catch (Throwable t) {
+        failure.compareAndSet(null, t);
+      } finally {
+        try {
+          processor.close();
+        } catch (IOException e) {
+          log.warn("Error closing update processor", e);
+        }
+        req.close();
+        SolrRequestInfo.clearRequestInfo();
+        if (previousMdcContext == null) {
+          MDC.clear();
+        } else {
+          MDC.setContextMap(previousMdcContext);
+        }
+        done.countDown();
+      }
+    }
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import static org.apache.solr.common.SolrException.ErrorCode.SERVER_ERROR;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.DenseVectorField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.util.vector.FloatDenseVectorParser;
+import org.apache.solr.util.vector.TextEmbeddingModel;
+
+/**
+ * Encodes the text of a field of the documents to the vector of a {@link DenseVectorField}, with
+ * the embedding model of the type of that field. The documents of a batch, see {@link
+ * UpdateRequestProcessor#processAddBatch(List)}, are encoded by a single call to the model.
+ *
+ * <p>The documents which already have a vector, or have no text to encode, or update their text
+ * atomically, are left as they are. The values of a multivalued text field are joined with a space.
+ * The vectors are set in binary form, so that they are neither formatted nor parsed as decimal
+ * numbers down the chain, nor when forwarded to the other replicas.
+ *
+ * <pre class="prettyprint">
+ * &lt;processor class="solr.TextEmbeddingUpdateProcessorFactory"&gt;
+ *   &lt;str name="inputField"&gt;text&lt;/str&gt;
+ *   &lt;str name="outputField"&gt;vector&lt;/str&gt;
+ * &lt;/processor&gt;
+ * </pre>
+ *
+ * @see TextEmbeddingModel
+ */
+public class TextEmbeddingUpdateProcessorFactory extends UpdateRequestProcessorFactory {
+  public static final String INPUT_FIELD_PARAM = "inputField";
+  public static final String OUTPUT_FIELD_PARAM = "outputField";
+
+  private String inputField;
+  private String outputField;
+
+  @Override
+  public void init(NamedList<?> args) {
+    final SolrParams params = args.toSolrParams();
+    inputField = params.required().get(INPUT_FIELD_PARAM);
+    args.remove(INPUT_FIELD_PARAM);
+    outputField = params.required().get(OUTPUT_FIELD_PARAM);
+    args.remove(OUTPUT_FIELD_PARAM);
+
+    if (args.size() > 0) {
+      throw new SolrException(SERVER_ERROR, "Unexpected init param(s): '" + args.getName(0) + "'");
+    }
+  }
+
+  @Override
+  public UpdateRequestProcessor getInstance(
+      SolrQueryRequest req, SolrQueryResponse rsp, UpdateRequestProcessor next) {
+    final SchemaField field = req.getSchema().getField(outputField);
+    if (!(field.getType() instanceof DenseVectorField)
+        || ((DenseVectorField) field.getType()).getEmbeddingModel() == null) {
+      throw new SolrException(
+          SERVER_ERROR,
+          "the output field must be a DenseVectorField with an embedding model: " + outputField);
+    }
+    final TextEmbeddingModel model = ((DenseVectorField) field.getType()).getEmbeddingModel();
+
+    return new UpdateRequestProcessor(next) {
+
+      @Override
+      public void processAdd(AddUpdateCommand cmd) throws IOException {
+        embed(List.of(cmd));
+        super.processAdd(cmd);
+      }
+
+      @Override
+      public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+        embed(cmds);
+        if (next != null) next.processAddBatch(cmds);
+      }
+
+      private void embed(List<AddUpdateCommand> cmds) throws IOException {
+        final List<SolrInputDocument> docs = new ArrayList<>(cmds.size());
+        final List<String> texts = new ArrayList<>(cmds.size());
+        for (final AddUpdateCommand cmd : cmds) {
+          final SolrInputDocument doc = cmd.getSolrInputDocument();
+          final String text = getText(doc);
+          if (text != null && doc.getFieldValue(outputField) == null) {
+            docs.add(doc);
+            texts.add(text);
+          }
+        }
+        if (texts.isEmpty()) {
+          return;
+        }
+
+        final float[][] vectors = model.embed(texts);
+        if (vectors.length != texts.size()) {
+          throw new SolrException(
+              SERVER_ERROR,
+              "the embedding model returned "
+                  + vectors.length
+                  + " vectors for "
+                  + texts.size()
+                  + " texts");
+        }
+        for (int i = 0; i < vectors.length; i++) {
+          docs.get(i).setField(outputField, FloatDenseVectorParser.encodeBinaryVector(vectors[i]));
+        }
+      }
+
+      private String getText(SolrInputDocument doc) {
+        final Collection<Object> values = doc.getFieldValues(inputField);
+        if (values == null || values.isEmpty()) {
+          return null;
+        }
+        for (final Object value : values) {
+          if (value instanceof Map) {
+            // an atomic update of the text: the complete text is not known here
+            return null;
+          }
+        }
+        if (values.size() == 1) {
+          return values.iterator().next().toString();
+        }
+        final StringBuilder text = new StringBuilder();
+        for (final Object value : values) {
+          if (text.length() > 0) {
+            text.append(' ');
+          }
+          text.append(value);
+        }
+        return text.toString();
+      }
+    };
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.solr.update.processor;
 import java.io.Closeable;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.List;
 import net.jcip.annotations.NotThreadSafe;
 import org.apache.solr.update.AddUpdateCommand;
 import org.apache.solr.update.CommitUpdateCommand;
@@ -44,6 +45,18 @@ import org.slf4j.LoggerFactory;
 public abstract class UpdateRequestProcessor implements Closeable {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  private static final ClassValue<Class<?>> PROCESS_ADD_DECLARING_CLASS =
+      new ClassValue<>() {
+        @Override
+        protected Class<?> computeValue(Class<?> type) {
+          try {
+            return type.getMethod("processAdd", AddUpdateCommand.class).getDeclaringClass();
+          } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      };
+
   protected final UpdateRequestProcessor next;
 
   public UpdateRequestProcessor(UpdateRequestProcessor next) {
@@ -54,6 +67,48 @@ public abstract class UpdateRequestProcessor implements Closeable {
     if (next != null) next.processAdd(cmd);
   }
 
+  /**
+   * Processes several documents added by the same request, in order. Loaders call this method
+   * instead of {@link #processAdd(AddUpdateCommand)} for each document, so that processors working
+   * on batches of documents only walk the chain once per batch.
+   *
+   * <p>By default, a processor which does not override {@link #processAdd(AddUpdateCommand)} hands
+   * the whole batch to the next processor, while any other processor gets {@link
+   * #processAdd(AddUpdateCommand)} called for each command, and the rest of the chain therefore
+   * sees the documents one at a time. Processors overriding this method must keep that behavior
+   * equivalent to calling {@link #processAdd(AddUpdateCommand)} for each command, and set {@link
+   * AddUpdateCommand#failedInBatch} on the command which fails, if any.
+   *
+   * @param cmds the commands, each with its own document. The list must not be kept after the call
+   */
+  public void processAddBatch(List<AddUpdateCommand> cmds) throws IOException {
+    if (processAddDeclaringClass() == UpdateRequestProcessor.class) {
+      if (next != null) next.processAddBatch(cmds);
+    } else {
+      processEachAdd(cmds);
+    }
+  }
+
+  /**
+   * Calls {@link #processAdd(AddUpdateCommand)} for each command in order, flagging the one which
+   * fails with {@link AddUpdateCommand#failedInBatch}.
+   */
+  protected final void processEachAdd(List<AddUpdateCommand> cmds) throws IOException {
+    for (AddUpdateCommand cmd : cmds) {
+      try {
+        processAdd(cmd);
+      } catch (Throwable t) {
+        cmd.failedInBatch = true;
+        throw t;
+      }
+    }
+  }
+
+  /** Returns the class of this processor's hierarchy which implements processAdd */
+  final Class<?> processAddDeclaringClass() {
+    return PROCESS_ADD_DECLARING_CLASS.get(getClass());
+  }
+
   public void processDelete(DeleteUpdateCommand cmd) throws IOException {
     if (next != null) next.processDelete(cmd);
   }
@@ -109,9 +109,17 @@ public class CPUCircuitBreaker extends CircuitBreaker implements SolrCoreAware {
    * @return Percent CPU usage of -1 if value could not be obtained.
    */
   protected double calculateLiveCPUUsage() {
+    return calculateLiveCPUUsage(cc);
+  }
+
+  /**
+   * Calculate the CPU usage for the system in percentage, as seen by this circuit breaker.
+   *
+   * @return Percent CPU usage of -1 if value could not be obtained.
+   */
+  public static double calculateLiveCPUUsage(CoreContainer cc) {
     // TODO: Use Codahale Meter to calculate the value
-    Metric metric =
-        this.cc.getMetricManager().registry("solr.jvm").getMetrics().get("os.systemCpuLoad");
+    Metric metric = cc.getMetricManager().registry("solr.jvm").getMetrics().get("os.systemCpuLoad");
 
     if (metric == null) {
       return -1.0;
@@ -16,6 +16,8 @@
  */
 package org.apache.solr.util.vector;
 
+import java.nio.ByteBuffer;
+
 public class ByteDenseVectorParser extends DenseVectorParser {
   private byte[] byteVector;
   private int curPosition;
@@ -46,6 +48,17 @@ public class ByteDenseVectorParser extends DenseVectorParser {
     byteVector[curPosition++] = Byte.parseByte(element);
   }
 
+  @Override
+  protected int binaryElementSize() {
+    return Byte.BYTES;
+  }
+
+  @Override
+  protected void addBinaryElements(ByteBuffer elements) {
+    elements.get(byteVector);
+    curPosition = byteVector.length;
+  }
+
   @Override
   protected String errorMessage() {
     return "The expected format is:'[b1,b2..b3]' where each element b is a byte (-128 to 127)";
@@ -16,6 +16,9 @@
  */
 package org.apache.solr.util.vector;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
 import java.util.List;
 import org.apache.solr.common.SolrException;
 
@@ -51,6 +54,29 @@ public abstract class DenseVectorParser {
   }
 
   protected void parseIndexVector() {
+    if (inputValue instanceof byte[]) {
+      parseBinaryVector(ByteBuffer.wrap((byte[]) inputValue));
+      return;
+    }
+    if (inputValue instanceof ByteBuffer) {
+      parseBinaryVector((ByteBuffer) inputValue);
+      return;
+    }
+    if (inputValue instanceof CharSequence) {
+      // the base64 encoding of a binary vector, any other string is not a vector
+      byte[] bytes = null;
+      try {
+        bytes = Base64.getDecoder().decode(inputValue.toString());
+      } catch (IllegalArgumentException e) {
+        // not base64
+      }
+      if (bytes == null || bytes.length != dimension * binaryElementSize()) {
+        throw new SolrException(
+            SolrException.ErrorCode.BAD_REQUEST, "incorrect vector format. " + errorMessage());
+      }
+      parseBinaryVector(ByteBuffer.wrap(bytes));
+      return;
+    }
     if (!(inputValue instanceof List)) {
       throw new SolrException(
           SolrException.ErrorCode.BAD_REQUEST, "incorrect vector format. " + errorMessage());
@@ -78,6 +104,15 @@ public abstract class DenseVectorParser {
   }
 
   protected void parseQueryVector() {
+    if (inputValue instanceof float[]) {
+      // a vector computed rather than sent, such as the embedding of a text to search
+      float[] elements = (float[]) inputValue;
+      checkVectorDimension(elements.length);
+      for (float element : elements) {
+        addNumberElement(element);
+      }
+      return;
+    }
 
     String value = inputValue.toString();
     if (!value.startsWith("[") || !value.endsWith("]")) {
@@ -99,6 +134,25 @@ public abstract class DenseVectorParser {
     }
   }
 
+  /**
+   * Parses a vector from its binary form: its elements in little-endian order, 4 bytes per element
+   * for float vectors, 1 byte per element for byte vectors. The elements are read as they are,
+   * without any decimal parsing; a String value is the base64 encoding of the binary form.
+   */
+  protected void parseBinaryVector(ByteBuffer bytes) {
+    final ByteBuffer elements = bytes.slice().order(ByteOrder.LITTLE_ENDIAN);
+    if (elements.remaining() % binaryElementSize() != 0) {
+      throw new SolrException(
+          SolrException.ErrorCode.BAD_REQUEST,
+          "incorrect binary vector size: "
+              + elements.remaining()
+              + " bytes, while each element takes "
+              + binaryElementSize());
+    }
+    checkVectorDimension(elements.remaining() / binaryElementSize());
+    addBinaryElements(elements);
+  }
+
   protected void checkVectorDimension(int inputVectorDimension) {
     if (inputVectorDimension != dimension) {
       throw new SolrException(
@@ -115,5 +169,11 @@ public abstract class DenseVectorParser {
 
   protected abstract void addStringElement(String element);
 
+  /** The number of bytes of each element of a vector in binary form */
+  protected abstract int binaryElementSize();
+
+  /** Reads all the elements of a vector in binary form, in little-endian order */
+  protected abstract void addBinaryElements(ByteBuffer elements);
+
   protected abstract String errorMessage();
 }
@@ -16,6 +16,9 @@
  */
 package org.apache.solr.util.vector;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 public class FloatDenseVectorParser extends DenseVectorParser {
   private float[] vector;
   private int curPosition;
@@ -46,6 +49,27 @@ public class FloatDenseVectorParser extends DenseVectorParser {
     vector[curPosition++] = Float.parseFloat(element);
   }
 
+  @Override
+  protected int binaryElementSize() {
+    return Float.BYTES;
+  }
+
+  @Override
+  protected void addBinaryElements(ByteBuffer elements) {
+    elements.asFloatBuffer().get(vector);
+    curPosition = vector.length;
+  }
+
+  /**
+   * Encodes a vector in binary form, as parsed by {@link #parseBinaryVector(ByteBuffer)}: its
+   * elements in little-endian order.
+   */
+  public static byte[] encodeBinaryVector(float[] vector) {
+    final byte[] bytes = new byte[vector.length * Float.BYTES];
+    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().put(vector);
+    return bytes;
+  }
+
   @Override
   protected String errorMessage() {
     return "The expected format is:'[f1,f2..f3]' where each element f is a float";
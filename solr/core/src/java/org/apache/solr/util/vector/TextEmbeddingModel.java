@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A model encoding texts to dense vectors inside the JVM, typically a runtime for a sentence
+ * embedding model running on the CPU. It is configured on a {@link
+ * org.apache.solr.schema.DenseVectorField} type, to encode the texts indexed by {@link
+ * org.apache.solr.update.processor.TextEmbeddingUpdateProcessorFactory} and the texts searched by
+ * the {@code knn} query parser in the vectors of the fields of the type.
+ *
+ * <p>Implementations must be thread safe: a single instance, loaded by {@link TextEmbeddingModels},
+ * encodes the texts of all the requests of all the cores of the node configured with the same class
+ * and arguments. It is closed when the node shuts down.
+ */
+public interface TextEmbeddingModel extends Closeable {
+
+  /**
+   * Initializes the model.
+   *
+   * @param args the attributes of the field type prefixed with {@code embeddingModel.}, without
+   *     their prefix
+   */
+  default void init(Map<String, String> args) {}
+
+  /**
+   * Encodes texts to vectors, all at once so that the model can run them through its layers as a
+   * batch.
+   *
+   * @param texts the texts to encode
+   * @return the vectors of the texts, in the same order, each with the dimension of the field type
+   */
+  float[][] embed(List<String> texts) throws IOException;
+
+  /** Releases the resources of the model, such as the sessions of its runtime. */
+  @Override
+  default void close() throws IOException {}
+}
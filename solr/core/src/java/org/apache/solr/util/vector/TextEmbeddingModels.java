@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util.vector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.lucene.util.IOUtils;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.SolrResourceLoader;
+
+/**
+ * The {@link TextEmbeddingModel}s of a node, shared by the schemas of all its cores. A model is
+ * loaded once per class and arguments, whatever the number of cores and schema versions using it,
+ * and closed when the {@link CoreContainer} shuts down.
+ */
+public class TextEmbeddingModels implements Closeable {
+
+  private static final String OBJECT_CACHE_KEY = TextEmbeddingModels.class.getName();
+
+  private final Map<Key, TextEmbeddingModel> models = new ConcurrentHashMap<>();
+
+  /**
+   * Returns the model of the given class and arguments, loaded by the node of the given loader if
+   * it was not yet. Without a node, as when a schema is parsed on its own, a new model is returned
+   * which is not shared.
+   */
+  public static TextEmbeddingModel getModel(
+      SolrResourceLoader loader, String className, Map<String, String> args) {
+    Class<? extends TextEmbeddingModel> clazz =
+        loader.findClass(className, TextEmbeddingModel.class);
+    CoreContainer coreContainer = loader.getCoreContainer();
+    if (coreContainer == null) {
+      return newModel(clazz, args);
+    }
+    TextEmbeddingModels models =
+        coreContainer
+            .getObjectCache()
+            .computeIfAbsent(
+                OBJECT_CACHE_KEY, TextEmbeddingModels.class, k -> new TextEmbeddingModels());
+    return models.get(clazz, args);
+  }
+
+  /** Returns the model of the given class and arguments, loading it if it was not yet */
+  public TextEmbeddingModel get(
+      Class<? extends TextEmbeddingModel> clazz, Map<String, String> args) {
+    return models.computeIfAbsent(new Key(clazz, Map.copyOf(args)), k -> newModel(clazz, args));
+  }
+
+  private static TextEmbeddingModel newModel(
+      Class<? extends TextEmbeddingModel> clazz, Map<String, String> args) {
+    TextEmbeddingModel model;
+    try {
+      model = clazz.getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new SolrException(
+          SolrException.ErrorCode.SERVER_ERROR,
+          "Error instantiating the embedding model " + clazz.getName(),
+          e);
+    }
+    try {
+      model.init(args);
+    } catch (RuntimeException e) {
+      IOUtils.closeWhileHandlingException(model);
+      throw e;
+    }
+    return model;
+  }
+
+  /** Number of models loaded */
+  public int size() {
+    return models.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      IOUtils.close(models.values());
+    } finally {
+      models.clear();
+    }
+  }
+
+  private static class Key {
+    final Class<? extends TextEmbeddingModel> clazz;
+    final Map<String, String> args;
+
+    Key(Class<? extends TextEmbeddingModel> clazz, Map<String, String> args) {
+      this.clazz = clazz;
+      this.args = args;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return other instanceof Key
+          && clazz == ((Key) other).clazz
+          && args.equals(((Key) other).args);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(clazz, args);
+    }
+  }
+}
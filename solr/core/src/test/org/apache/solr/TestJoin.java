@@ -29,6 +29,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.SegmentOrdsJoinQuery;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -279,6 +280,91 @@ public class TestJoin extends SolrTestCaseJ4 {
         });
   }
 
+  /*
+   * Exercises behavior specific to method=segmentOrds join queries
+   */
+  @Test
+  public void testSegmentOrdsJoin() throws Exception {
+    clearIndex();
+    indexEmployeeDocs();
+    // a second segment, with employees of the departments of both segments
+    assertU(add(doc("id", "6", "name", "paul", "title", "MTS", DEPT_FIELD, "Legal")));
+    assertU(add(doc("id", "7", "name", "lisa", "title", "MTS", DEPT_FIELD, "Marketing")));
+    assertU(add(doc("id", "14", DEPT_ID_FIELD, "Legal", "text", "These guys read contracts")));
+    assertU(commit());
+    ModifiableSolrParams p = params("sort", "id asc");
+
+    assertJQ(
+        req(
+            p,
+            "q",
+            "{!join from=dept_ss_dv to=dept_id_indexed_sdv method=segmentOrds parallelism=2}title:MTS",
+            "fl",
+            "id"),
+        "/response=={'numFound':5,'start':0,'numFoundExact':true,'docs':[{'id':'10'},{'id':'11'},{'id':'12'},{'id':'13'},{'id':'14'}]}");
+
+    // self join
+    assertJQ(
+        req(
+            p,
+            "q",
+            "{!join from=dept_ss_dv to=dept_ss_dv method=segmentOrds}name:lisa",
+            "fl",
+            "id"),
+        "/response=={'numFound':2,'start':0,'numFoundExact':true,'docs':[{'id':'2'},{'id':'7'}]}");
+
+    final int cachedMappings =
+        h.getCore()
+            .withSearcher(
+                searcher -> searcher.getCache(SegmentOrdsJoinQuery.CACHE_NAME).size());
+    assertTrue(cachedMappings > 0);
+
+    // the mappings of the unchanged segments are carried over to the next searcher
+    assertU(add(doc("id", "15", DEPT_ID_FIELD, "Finance", "text", "These guys count")));
+    assertU(commit());
+    assertEquals(
+        cachedMappings,
+        (int)
+            h.getCore()
+                .withSearcher(
+                    searcher -> searcher.getCache(SegmentOrdsJoinQuery.CACHE_NAME).size()));
+    assertJQ(
+        req(
+            p,
+            "q",
+            "{!join from=dept_ss_dv to=dept_id_indexed_sdv method=segmentOrds}name:paul",
+            "fl",
+            "id"),
+        "/response=={'numFound':1,'start':0,'numFoundExact':true,'docs':[{'id':'14'}]}");
+
+    // "to" field missing docValues
+    expectThrows(
+        SolrException.class,
+        () -> {
+          h.query(
+              req(
+                  p,
+                  "q",
+                  "{!join from=dept_ss_dv to=nodocvalues_s method=segmentOrds}*:*",
+                  "fl",
+                  "id"));
+        });
+
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () -> {
+              h.query(
+                  req(
+                      p,
+                      "q",
+                      "{!join from=dept_ss_dv to=dept_id_indexed_sdv method=segmentOrds parallelism=0}*:*",
+                      "fl",
+                      "id"));
+            });
+    assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, e.code());
+  }
+
   @Test
   public void testIndexJoin() throws Exception {
     indexEmployeeDocs();
@@ -474,7 +560,7 @@ public class TestJoin extends SolrTestCaseJ4 {
             : " ";
     final String allProvidedParams = baseJoinParams + " " + optionalParamsJoined;
 
-    final int joinMethod = random().nextInt(4);
+    final int joinMethod = random().nextInt(5);
     switch (joinMethod) {
       case 0: // No explicit method specified
         return "{!join " + allProvidedParams + " }";
@@ -482,6 +568,8 @@ public class TestJoin extends SolrTestCaseJ4 {
         return "{!join " + allProvidedParams + " method=index}";
       case 2: // method=score
         return "{!join " + allProvidedParams + " method=dvWithScore score=none}";
+      case 3: // method=segmentOrds
+        return "{!join " + allProvidedParams + " method=segmentOrds}";
       default: // method=toplevel
         return "{!join " + allProvidedParams + " method=topLevelDV}";
     }
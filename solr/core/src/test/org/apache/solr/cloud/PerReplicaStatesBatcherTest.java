@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.PerReplicaStates;
+import org.apache.solr.common.cloud.PerReplicaStatesOps;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.SolrZkClient;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+/** Counts the ZooKeeper multi operations of the state changes of the cores of a node. */
+public class PerReplicaStatesBatcherTest extends SolrTestCaseJ4 {
+
+  private static final int NUM_CORES = 8;
+
+  private static ZkTestServer zkServer;
+
+  private CountingZkClient zkClient;
+  private DocCollection collection;
+
+  @BeforeClass
+  public static void startZkServer() throws Exception {
+    Path zkDir = createTempDir("zkData");
+    zkServer = new ZkTestServer(zkDir);
+    zkServer.run();
+  }
+
+  @AfterClass
+  public static void stopZkServer() throws Exception {
+    if (zkServer != null) {
+      zkServer.shutdown();
+      zkServer = null;
+    }
+  }
+
+  @Before
+  public void createCollection() throws Exception {
+    zkClient = new CountingZkClient(zkServer.getZkAddress());
+    String name = "collection_" + getTestName();
+    collection =
+        DocCollection.create(name, new HashMap<>(), new HashMap<>(), DocRouter.DEFAULT, 0, null);
+    zkClient.makePath(collection.getZNode(), true);
+    for (int i = 0; i < NUM_CORES; i++) {
+      zkClient.create(
+          collection.getZNode() + "/" + replica(i) + ":0:D", null, CreateMode.PERSISTENT, true);
+    }
+  }
+
+  @After
+  public void closeZkClient() {
+    if (zkClient != null) {
+      zkClient.close();
+    }
+  }
+
+  /**
+   * All the cores of the node publish their state while the state of the first one is written,
+   * like on node start or stop: their changes are written in a single multi operation.
+   */
+  public void testConcurrentPublishesAreWrittenAtOnce() throws Exception {
+    PerReplicaStatesBatcher batcher = new PerReplicaStatesBatcher(zkClient);
+    zkClient.blockNextMulti();
+
+    List<Thread> publishers = new ArrayList<>();
+    publishers.add(publish(batcher, 0, Replica.State.ACTIVE));
+    assertTrue(zkClient.multiStarted.await(30, TimeUnit.SECONDS));
+    for (int i = 1; i < NUM_CORES; i++) {
+      publishers.add(publish(batcher, i, Replica.State.ACTIVE));
+    }
+    awaitWaiting(publishers.subList(1, NUM_CORES));
+    zkClient.releaseMulti.countDown();
+    for (Thread publisher : publishers) {
+      publisher.join(TimeUnit.SECONDS.toMillis(30));
+      assertFalse(publisher.isAlive());
+    }
+
+    // the first change on its own, then all the changes enqueued while it was written
+    assertEquals(2, zkClient.multis.get());
+    assertStates(Replica.State.ACTIVE);
+
+    // the cores are unloaded when the node stops: the same again
+    zkClient.multis.set(0);
+    zkClient.blockNextMulti();
+    publishers.clear();
+    publishers.add(publish(batcher, 0, Replica.State.DOWN));
+    assertTrue(zkClient.multiStarted.await(30, TimeUnit.SECONDS));
+    for (int i = 1; i < NUM_CORES; i++) {
+      publishers.add(publish(batcher, i, Replica.State.DOWN));
+    }
+    awaitWaiting(publishers.subList(1, NUM_CORES));
+    zkClient.releaseMulti.countDown();
+    for (Thread publisher : publishers) {
+      publisher.join(TimeUnit.SECONDS.toMillis(30));
+      assertFalse(publisher.isAlive());
+    }
+    assertEquals(2, zkClient.multis.get());
+    assertStates(Replica.State.DOWN);
+  }
+
+  /** When the batch cannot be written, each change is written on its own. */
+  public void testFallsBackToOneWritePerChangeWhenTheBatchFails() throws Exception {
+    PerReplicaStatesBatcher batcher = new PerReplicaStatesBatcher(zkClient);
+    zkClient.blockNextMulti();
+    // a change of the state of a single replica is an ADD and a DELETE
+    zkClient.maxOps = 2;
+
+    List<Thread> publishers = new ArrayList<>();
+    publishers.add(publish(batcher, 0, Replica.State.ACTIVE));
+    assertTrue(zkClient.multiStarted.await(30, TimeUnit.SECONDS));
+    for (int i = 1; i < NUM_CORES; i++) {
+      publishers.add(publish(batcher, i, Replica.State.ACTIVE));
+    }
+    awaitWaiting(publishers.subList(1, NUM_CORES));
+    zkClient.releaseMulti.countDown();
+    for (Thread publisher : publishers) {
+      publisher.join(TimeUnit.SECONDS.toMillis(30));
+      assertFalse(publisher.isAlive());
+    }
+
+    // the first change, the failed batch, then one write per change of the batch
+    assertEquals(1, zkClient.failedMultis.get());
+    assertEquals(1 + 1 + (NUM_CORES - 1), zkClient.multis.get());
+    assertStates(Replica.State.ACTIVE);
+  }
+
+  private Thread publish(PerReplicaStatesBatcher batcher, int core, Replica.State state) {
+    Thread publisher =
+        new Thread(
+            () -> {
+              try {
+                batcher.flipState(collection, replica(core), state);
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            },
+            "publisher-" + core);
+    publisher.start();
+    return publisher;
+  }
+
+  // waits for the publishers to wait for the write of the changes of the collection in progress
+  private static void awaitWaiting(List<Thread> publishers) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    for (Thread publisher : publishers) {
+      while (publisher.getState() != Thread.State.WAITING) {
+        assertTrue("publisher did not wait: " + publisher, System.nanoTime() < deadline);
+        Thread.sleep(10);
+      }
+    }
+  }
+
+  private void assertStates(Replica.State expected) throws Exception {
+    PerReplicaStates states = PerReplicaStatesOps.fetch(collection.getZNode(), zkClient, null);
+    for (int i = 0; i < NUM_CORES; i++) {
+      assertEquals(replica(i), expected, states.get(replica(i)).state);
+    }
+  }
+
+  private static String replica(int core) {
+    return "core_node" + core;
+  }
+
+  private static class CountingZkClient extends SolrZkClient {
+    final AtomicInteger multis = new AtomicInteger();
+    final AtomicInteger failedMultis = new AtomicInteger();
+    volatile int maxOps = Integer.MAX_VALUE;
+    volatile CountDownLatch multiStarted = new CountDownLatch(0);
+    volatile CountDownLatch releaseMulti = new CountDownLatch(0);
+    private volatile boolean blockNext;
+
+    CountingZkClient(String zkAddress) {
+      super(
+          new SolrZkClient.Builder()
+              .withUrl(zkAddress)
+              .withTimeout(AbstractZkTestCase.TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    void blockNextMulti() {
+      multiStarted = new CountDownLatch(1);
+      releaseMulti = new CountDownLatch(1);
+      blockNext = true;
+    }
+
+    @Override
+    public List<OpResult> multi(Iterable<Op> ops, boolean retryOnConnLoss)
+        throws InterruptedException, KeeperException {
+      multis.incrementAndGet();
+      if (blockNext) {
+        blockNext = false;
+        multiStarted.countDown();
+        assertTrue(releaseMulti.await(30, TimeUnit.SECONDS));
+      }
+      int numOps = 0;
+      for (Op ignored : ops) {
+        numOps++;
+      }
+      if (numOps > maxOps) {
+        failedMultis.incrementAndGet();
+        throw KeeperException.create(KeeperException.Code.SYSTEMERROR);
+      }
+      return super.multi(ops, retryOnConnLoss);
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.cloud.overseer;
+
+import com.codahale.metrics.Timer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.util.IOUtils;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.cloud.Overseer;
+import org.apache.solr.cloud.OverseerTest;
+import org.apache.solr.cloud.Stats;
+import org.apache.solr.cloud.ZkController;
+import org.apache.solr.cloud.ZkTestServer;
+import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.SolrZkClient;
+import org.apache.solr.common.cloud.ZkNodeProps;
+import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CollectionParams.CollectionAction;
+import org.apache.solr.common.util.ZLibCompressor;
+import org.apache.solr.handler.admin.ConfigSetsHandler;
+
+public class CollectionShardedStateUpdaterTest extends SolrTestCaseJ4 {
+
+  public void testIsCollectionScoped() {
+    assertTrue(
+        CollectionShardedStateUpdater.isCollectionScoped(
+            new ZkNodeProps(
+                Overseer.QUEUE_OPERATION,
+                OverseerAction.STATE.toLower(),
+                ZkStateReader.COLLECTION_PROP,
+                "c1")));
+    assertTrue(
+        CollectionShardedStateUpdater.isCollectionScoped(
+            new ZkNodeProps(
+                Overseer.QUEUE_OPERATION,
+                CollectionAction.ADDREPLICA.toLower(),
+                ZkStateReader.COLLECTION_PROP,
+                "c1")));
+    // no collection
+    assertFalse(
+        CollectionShardedStateUpdater.isCollectionScoped(
+            new ZkNodeProps(Overseer.QUEUE_OPERATION, OverseerAction.STATE.toLower())));
+    // spans several collections
+    assertFalse(
+        CollectionShardedStateUpdater.isCollectionScoped(
+            new ZkNodeProps(
+                Overseer.QUEUE_OPERATION,
+                OverseerAction.DOWNNODE.toLower(),
+                ZkStateReader.NODE_NAME_PROP,
+                "node1")));
+    // reads or modifies the list of collections
+    assertFalse(
+        CollectionShardedStateUpdater.isCollectionScoped(
+            new ZkNodeProps(
+                Overseer.QUEUE_OPERATION,
+                CollectionAction.CREATE.toLower(),
+                ZkStateReader.COLLECTION_PROP,
+                "c1")));
+  }
+
+  public void testPerCollectionOrdering() throws Exception {
+    Path zkDir = createTempDir("testPerCollectionOrdering");
+    ZkTestServer server = new ZkTestServer(zkDir);
+    SolrZkClient zkClient = null;
+    CollectionShardedStateUpdater updater = null;
+    try {
+      server.run();
+      zkClient =
+          new SolrZkClient.Builder()
+              .withUrl(server.getZkAddress())
+              .withTimeout(OverseerTest.DEFAULT_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS)
+              .build();
+      ZkController.createClusterZkNodes(zkClient);
+
+      try (ZkStateReader reader = new ZkStateReader(zkClient)) {
+        reader.createClusterStateWatchersAndUpdate();
+
+        final int numCollections = 5;
+        final int numMessages = 20;
+        ZkStateWriter writer = new ZkStateWriter(reader, new Stats(), -1, new ZLibCompressor());
+        ClusterState clusterState = reader.getClusterState();
+        for (int i = 0; i < numCollections; i++) {
+          String name = "c" + i;
+          zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/" + name, true);
+          Map<String, Object> props = new HashMap<>();
+          props.put(ZkStateReader.CONFIGNAME_PROP, ConfigSetsHandler.DEFAULT_CONFIGSET_NAME);
+          clusterState =
+              writer.enqueueUpdate(
+                  clusterState,
+                  Collections.singletonList(
+                      new ZkWriteCommand(
+                          name,
+                          DocCollection.create(
+                              name, new HashMap<>(), props, DocRouter.DEFAULT, 0, null))),
+                  null);
+        }
+        clusterState = writer.writePendingUpdates();
+
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        updater =
+            new CollectionShardedStateUpdater(
+                3,
+                (state, message) -> {
+                  String name = message.getStr(ZkStateReader.COLLECTION_PROP);
+                  int seq = message.getInt("seq", -1);
+                  seen.computeIfAbsent(name, k -> Collections.synchronizedList(new ArrayList<>()))
+                      .add(seq);
+                  DocCollection coll = state.getCollection(name);
+                  Map<String, Object> props = new HashMap<>(coll.getProperties());
+                  props.put("seq", seq);
+                  return Collections.singletonList(
+                      new ZkWriteCommand(
+                          name,
+                          DocCollection.create(
+                              name,
+                              coll.getSlicesMap(),
+                              props,
+                              coll.getRouter(),
+                              coll.getZNodeVersion(),
+                              null)));
+                },
+                () -> new ZkStateWriter(reader, new Stats(), -1, new ZLibCompressor()),
+                new Timer());
+
+        List<ZkNodeProps> messages = new ArrayList<>();
+        for (int seq = 0; seq < numMessages; seq++) {
+          for (int i = 0; i < numCollections; i++) {
+            messages.add(
+                new ZkNodeProps(
+                    Overseer.QUEUE_OPERATION,
+                    OverseerAction.STATE.toLower(),
+                    ZkStateReader.COLLECTION_PROP,
+                    "c" + i,
+                    "seq",
+                    Integer.toString(seq)));
+          }
+        }
+        clusterState = updater.apply(clusterState, messages);
+        assertEquals(0, updater.getInFlightCount());
+
+        reader.forciblyRefreshAllClusterStateSlow();
+        for (int i = 0; i < numCollections; i++) {
+          String name = "c" + i;
+          List<Integer> order = seen.get(name);
+          assertEquals(numMessages, order.size());
+          for (int seq = 0; seq < numMessages; seq++) {
+            assertEquals("messages of " + name + " out of order", seq, (int) order.get(seq));
+          }
+          assertEquals(
+              numMessages - 1,
+              ((Number) clusterState.getCollection(name).get("seq")).intValue());
+          assertEquals(
+              clusterState.getCollection(name).getZNodeVersion(),
+              reader.getClusterState().getCollection(name).getZNodeVersion());
+        }
+      }
+    } finally {
+      IOUtils.close(updater, zkClient);
+      server.shutdown();
+    }
+  }
+}
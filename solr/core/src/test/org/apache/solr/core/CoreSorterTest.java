@@ -201,6 +201,56 @@ public class CoreSorterTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testFormerLeaderFirst() {
+    assumeWorkingMockito();
+
+    String thisNode = "192.168.0.1:8983_";
+    String otherNode = "192.168.0.2:8983_";
+    Map<String, Slice> sliceMap = new HashMap<>();
+    List<CoreDescriptor> myDescs = new ArrayList<>();
+    for (String slice : List.of("s1", "s2", "s3")) {
+      List<Replica> replicas = new ArrayList<>();
+      // same counts for all shards, only the former leader differs
+      Replica mine =
+          addNewReplica(
+              replicas, "col1", slice, Collections.singletonList(thisNode), slice.equals("s2"));
+      addNewReplica(replicas, "col1", slice, Collections.singletonList(otherNode), false);
+      myDescs.add(newCoreDescriptor(mine));
+      Map<String, Replica> replicaMap =
+          replicas.stream().collect(Collectors.toMap(Replica::getName, Function.identity()));
+      sliceMap.put(slice, new Slice(slice, replicaMap, Collections.emptyMap(), "col1"));
+    }
+    @SuppressWarnings({"unchecked"})
+    DocCollection col =
+        new DocCollection(
+            "col1",
+            sliceMap,
+            Collections.singletonMap(
+                ZkStateReader.CONFIGNAME_PROP, ConfigSetsHandler.DEFAULT_CONFIGSET_NAME),
+            DocRouter.DEFAULT);
+
+    CoreContainer mockCC = mock(CoreContainer.class);
+    when(mockCC.isZooKeeperAware()).thenReturn(true);
+    ZkController mockZKC = mock(ZkController.class);
+    when(mockCC.getZkController()).thenReturn(mockZKC);
+    ClusterState mockClusterState = mock(ClusterState.class);
+    when(mockZKC.getClusterState()).thenReturn(mockClusterState);
+    when(mockClusterState.getLiveNodes()).thenReturn(new HashSet<>(List.of(thisNode, otherNode)));
+    when(mockClusterState.getCollectionOrNull("col1")).thenReturn(col);
+    NodeConfig mockNodeConfig = mock(NodeConfig.class);
+    when(mockNodeConfig.getNodeName()).thenReturn(thisNode);
+    when(mockCC.getNodeConfig()).thenReturn(mockNodeConfig);
+
+    Collections.shuffle(myDescs, random());
+    List<CoreDescriptor> resultDescs = new CoreSorter(mockCC).sort(myDescs);
+    assertEquals(
+        List.of("s2", "s1", "s3"),
+        resultDescs.stream()
+            .map(cd -> cd.getCloudDescriptor().getShardId())
+            .collect(Collectors.toList()));
+  }
+
   private CoreDescriptor newCoreDescriptor(Replica r) {
     Map<String, String> props =
         Map.of(
@@ -212,6 +262,15 @@ public class CoreSorterTest extends SolrTestCaseJ4 {
 
   protected Replica addNewReplica(
       List<Replica> replicaList, String collection, String slice, List<String> possibleNodes) {
+    return addNewReplica(replicaList, collection, slice, possibleNodes, false);
+  }
+
+  protected Replica addNewReplica(
+      List<Replica> replicaList,
+      String collection,
+      String slice,
+      List<String> possibleNodes,
+      boolean leader) {
     String replica = "r" + replicaList.size();
     String node =
         possibleNodes.get(random().nextInt(possibleNodes.size())); // place on a random node
@@ -224,7 +283,9 @@ public class CoreSorterTest extends SolrTestCaseJ4 {
                 ZkStateReader.NODE_NAME_PROP,
                 node,
                 ZkStateReader.BASE_URL_PROP,
-                Utils.getBaseUrlForNodeName(node, "http")),
+                Utils.getBaseUrlForNodeName(node, "http"),
+                ZkStateReader.LEADER_PROP,
+                Boolean.toString(leader)),
             collection,
             slice);
     replicaList.add(r);
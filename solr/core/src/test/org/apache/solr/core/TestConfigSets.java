@@ -28,8 +28,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.io.file.PathUtils;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.schema.IndexSchemaFactory;
 import org.hamcrest.MatcherAssert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -90,6 +92,28 @@ public class TestConfigSets extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testConfigSetFilesParsedOnce() {
+    CoreContainer container = null;
+    LongAdder schemaMisses = new LongAdder();
+    LongAdder configMisses = new LongAdder();
+    IndexSchemaFactory.CACHE_MISS_LISTENER =
+        s -> {
+          if ("schema.xml".equals(s)) schemaMisses.increment();
+          if ("solrconfig.xml".equals(s)) configMisses.increment();
+        };
+    try {
+      container = setupContainer(TEST_PATH().resolve("configsets").toString());
+      container.create("core1", Map.of("configSet", "configset-2"));
+      container.create("core2", Map.of("configSet", "configset-2"));
+      assertEquals(1, schemaMisses.longValue());
+      assertEquals(1, configMisses.longValue());
+    } finally {
+      IndexSchemaFactory.CACHE_MISS_LISTENER = null;
+      if (container != null) container.shutdown();
+    }
+  }
+
   @Test
   public void testNonExistentConfigSetThrowsException() {
     final CoreContainer container = setupContainer(getFile("solr/configsets").getAbsolutePath());
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.TimeSource;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+public class TestLazySearcher extends SolrTestCaseJ4 {
+
+  private static final int MAX_CONCURRENT_OPENS = 2;
+  private static final int NUM_CORES = 6;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("solr.lazySearcher.maxConcurrentOpens", "" + MAX_CONCURRENT_OPENS);
+    initCore("solrconfig-lazysearcher.xml", "schema.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    System.clearProperty("solr.lazySearcher.maxConcurrentOpens");
+  }
+
+  public void testOpenOnDemandAndCloseWhenIdle() throws Exception {
+    SolrCore core = h.getCore();
+    LazySearcherManager manager = h.getCoreContainer().getLazySearcherManager();
+    ManualTimeSource clock = new ManualTimeSource();
+    manager.setTimeSource(clock);
+    try {
+      assertTrue(core.getSolrConfig().lazySearcher);
+      assertEquals(1, core.getSolrConfig().searcherIdleTimeSeconds);
+      assertFalse("no searcher should be opened on load", core.hasRegisteredSearcher());
+
+      assertQ(req("q", "*:*"), "//result[@numFound='0']");
+      assertTrue(core.hasRegisteredSearcher());
+      assertFalse("searcher was just used", core.closeSearcherIfIdle());
+
+      assertU(adoc("id", "1"));
+      assertU(commit());
+
+      clock.advance(TimeUnit.MILLISECONDS.toNanos(500));
+      manager.closeIdleSearchers();
+      assertTrue("searcher was used half a second ago", core.hasRegisteredSearcher());
+
+      clock.advance(TimeUnit.MILLISECONDS.toNanos(600));
+      manager.closeIdleSearchers();
+      assertFalse(core.hasRegisteredSearcher());
+
+      // the next request opens a new searcher over the committed index
+      assertQ(req("q", "*:*"), "//result[@numFound='1']");
+      assertTrue(core.hasRegisteredSearcher());
+    } finally {
+      manager.setTimeSource(TimeSource.NANO_TIME);
+    }
+  }
+
+  /** A burst of requests to cold cores only opens and warms a few of their searchers at once. */
+  public void testBoundsConcurrentOpens() throws Exception {
+    CoreContainer cores = h.getCoreContainer();
+    LazySearcherManager manager = cores.getLazySearcherManager();
+    assertEquals(MAX_CONCURRENT_OPENS, manager.getMaxConcurrentOpens());
+
+    CoreDescriptor cd = h.getCore().getCoreDescriptor();
+    List<String> names = new ArrayList<>();
+    ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool("testLazySearcher");
+    try {
+      for (int i = 0; i < NUM_CORES; i++) {
+        String name = "lazy" + i;
+        cores.create(
+            name,
+            cd.getInstanceDir(),
+            Map.of(
+                "config", "solrconfig-lazysearcher.xml",
+                "schema", "schema.xml",
+                "dataDir", createTempDir().toString()),
+            false);
+        names.add(name);
+      }
+
+      CountingFirstSearcherListener.warming.set(0);
+      CountingFirstSearcherListener.maxWarming.set(0);
+      CountingFirstSearcherListener.release = new CountDownLatch(1);
+      List<Future<?>> searches = new ArrayList<>();
+      for (String name : names) {
+        searches.add(
+            executor.submit(
+                () -> {
+                  try (SolrCore core = cores.getCore(name)) {
+                    return core.withSearcher(
+                        searcher -> searcher.search(new MatchAllDocsQuery(), 1));
+                  }
+                }));
+      }
+
+      // the first searchers are warmed while the others wait for a permit
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+      while (CountingFirstSearcherListener.warming.get() < MAX_CONCURRENT_OPENS
+          || manager.getQueuedOpens() < NUM_CORES - MAX_CONCURRENT_OPENS) {
+        assertTrue("searchers were not opened", System.nanoTime() < deadline);
+        Thread.sleep(10);
+      }
+      assertEquals(MAX_CONCURRENT_OPENS, CountingFirstSearcherListener.warming.get());
+
+      CountingFirstSearcherListener.release.countDown();
+      for (Future<?> search : searches) {
+        search.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(MAX_CONCURRENT_OPENS, CountingFirstSearcherListener.maxWarming.get());
+      for (String name : names) {
+        try (SolrCore core = cores.getCore(name)) {
+          assertTrue(name, core.hasRegisteredSearcher());
+        }
+      }
+    } finally {
+      CountingFirstSearcherListener.release.countDown();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+      for (String name : names) {
+        cores.unload(name);
+      }
+    }
+  }
+
+  /** Counts the first searchers being warmed at the same time, until the test releases them */
+  public static class CountingFirstSearcherListener implements SolrEventListener {
+    static final AtomicInteger warming = new AtomicInteger();
+    static final AtomicInteger maxWarming = new AtomicInteger();
+    static volatile CountDownLatch release = new CountDownLatch(0);
+
+    @Override
+    public void postCommit() {}
+
+    @Override
+    public void postSoftCommit() {}
+
+    @Override
+    public void newSearcher(SolrIndexSearcher newSearcher, SolrIndexSearcher currentSearcher) {
+      maxWarming.accumulateAndGet(warming.incrementAndGet(), Math::max);
+      try {
+        release.await(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        warming.decrementAndGet();
+      }
+    }
+  }
+
+  private static class ManualTimeSource extends TimeSource {
+    private final AtomicLong timeNs = new AtomicLong(System.nanoTime());
+
+    void advance(long ns) {
+      timeNs.addAndGet(ns);
+    }
+
+    @Override
+    public long getTimeNs() {
+      return timeNs.get();
+    }
+
+    @Override
+    public long getEpochTimeNs() {
+      return getTimeNs();
+    }
+
+    @Override
+    public long[] getTimeAndEpochNs() {
+      long time = getTimeNs();
+      return new long[] {time, time};
+    }
+
+    @Override
+    public void sleep(long ms) {
+      advance(TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
+    @Override
+    public long convertDelay(TimeUnit fromUnit, long value, TimeUnit toUnit) {
+      return toUnit.convert(value, fromUnit);
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package org.apache.solr.handler.loader;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -24,6 +25,7 @@ import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.request.JavaBinUpdateRequestCodec;
 import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.util.ContentStreamBase;
 import org.apache.solr.request.SolrQueryRequest;
@@ -95,6 +97,46 @@ public class JavabinLoaderTest extends SolrTestCaseJ4 {
     assertTrue(mockUpdateProcessor.addCommands.get(batch.size() - 1).isLastDocInBatch);
   }
 
+  public void testErrorNamesFailingDocument() throws Exception {
+    UpdateRequest updateRequest = new UpdateRequest();
+    for (int d = 0; d < 4; d++) {
+      updateRequest.add(new SolrInputDocument("id", String.valueOf(d)));
+    }
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    (new JavaBinUpdateRequestCodec()).marshal(updateRequest, os);
+
+    List<String> processed = new ArrayList<>();
+    BufferingRequestProcessor mockUpdateProcessor =
+        new BufferingRequestProcessor(null) {
+          @Override
+          public void processAdd(AddUpdateCommand cmd) throws IOException {
+            String id = (String) cmd.getSolrInputDocument().getFieldValue("id");
+            if ("2".equals(id)) {
+              throw new IOException("failing " + id);
+            }
+            processed.add(id);
+          }
+        };
+
+    SolrQueryRequest req = req();
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () ->
+                new JavabinLoader()
+                    .load(
+                        req,
+                        new SolrQueryResponse(),
+                        new ContentStreamBase.ByteArrayStream(os.toByteArray(), "test"),
+                        mockUpdateProcessor));
+    req.close();
+
+    assertTrue(e.getMessage(), e.getMessage().contains("ERROR adding document"));
+    assertTrue(e.getMessage(), e.getMessage().contains("id=2"));
+    // the documents following the failing one are not processed
+    assertEquals(List.of("0", "1"), processed);
+  }
+
   @Test
   public void javabinLoader_denseVector_shouldIndexCorrectly() throws Exception {
     SolrInputDocument doc1 = new SolrInputDocument();
@@ -20,6 +20,7 @@ import static org.hamcrest.core.Is.is;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 import org.apache.lucene.index.VectorEncoding;
@@ -28,6 +29,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.core.AbstractBadConfigTestBase;
 import org.apache.solr.util.vector.DenseVectorParser;
+import org.apache.solr.util.vector.FloatDenseVectorParser;
 import org.hamcrest.MatcherAssert;
 import org.junit.Before;
 import org.junit.Test;
@@ -67,6 +69,14 @@ public class DenseVectorFieldTest extends AbstractBadConfigTestBase {
         "No enum constant org.apache.lucene.index.VectorSimilarityFunction.NOT_EXISTENT");
   }
 
+  @Test
+  public void fieldTypeDefinition_quantizedByteEncoding_shouldThrowException() throws Exception {
+    assertConfigs(
+        "solrconfig-basic.xml",
+        "bad-schema-densevector-quantization.xml",
+        "only FLOAT32 vectors can be quantized, vectorEncoding: BYTE");
+  }
+
   @Test
   public void fieldDefinition_docValues_shouldThrowException() throws Exception {
     assertConfigs(
@@ -410,6 +420,49 @@ public class DenseVectorFieldTest extends AbstractBadConfigTestBase {
         is(expected));
   }
 
+  /**
+   * The inputValue is the binary form of the vector: {@link
+   * org.apache.solr.handler.loader.JavabinLoader} produces a byte[]
+   */
+  @Test
+  public void parseVector_BinaryVector_shouldParseFloatArray() {
+    float[] expected = new float[] {5.5f, 7.7f, 9.8f};
+    MatcherAssert.assertThat(
+        toTestFloatEncoding
+            .getVectorBuilder(
+                FloatDenseVectorParser.encodeBinaryVector(expected),
+                DenseVectorParser.BuilderPhase.INDEX)
+            .getFloatVector(),
+        is(expected));
+  }
+
+  /** The query vector is computed by the server, such as the embedding of a text to search */
+  @Test
+  public void parseVector_FloatArrayQueryVector_shouldParseFloatArray() {
+    float[] expected = new float[] {5.5f, 7.7f, 9.8f};
+    MatcherAssert.assertThat(
+        toTestFloatEncoding
+            .getVectorBuilder(expected.clone(), DenseVectorParser.BuilderPhase.QUERY)
+            .getFloatVector(),
+        is(expected));
+  }
+
+  /**
+   * The inputValue is the binary form of the vector: {@link
+   * org.apache.solr.handler.loader.JsonLoader}, {@link org.apache.solr.handler.loader.XMLLoader}
+   * produce a base64 String
+   */
+  @Test
+  public void parseVector_Base64Vector_shouldParseByteArray() {
+    byte[] expected = new byte[] {5, -7, 9};
+    MatcherAssert.assertThat(
+        toTestByteEncoding
+            .getVectorBuilder(
+                Base64.getEncoder().encodeToString(expected), DenseVectorParser.BuilderPhase.INDEX)
+            .getByteVector(),
+        is(expected));
+  }
+
   @Test
   public void indexing_notAVectorValue_shouldThrowException() throws Exception {
     try {
@@ -517,6 +570,28 @@ public class DenseVectorFieldTest extends AbstractBadConfigTestBase {
     }
   }
 
+  @Test
+  public void query_vectorQuantized_storedField_shouldBeReturnedInFullPrecision()
+      throws Exception {
+    try {
+      initCore("solrconfig-basic.xml", "schema-densevector.xml");
+
+      SolrInputDocument doc1 = new SolrInputDocument();
+      doc1.addField("id", "0");
+      doc1.addField("vector_quantized", Arrays.asList(1.1f, 2.1f, 3.1f, 4.1f));
+
+      assertU(adoc(doc1));
+      assertU(commit());
+
+      assertJQ(
+          req("q", "id:0", "fl", "vector_quantized"),
+          "/response/docs/[0]=={'vector_quantized':[1.1,2.1,3.1,4.1]}");
+
+    } finally {
+      deleteCore();
+    }
+  }
+
   /** Not Supported */
   @Test
   public void query_rangeSearch_shouldThrowException() throws Exception {
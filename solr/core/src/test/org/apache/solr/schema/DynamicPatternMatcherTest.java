@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.schema.IndexSchema.DynamicField;
+
+public class DynamicPatternMatcherTest extends SolrTestCase {
+
+  private static DynamicField[] dynamicFields(String... patterns) {
+    FieldType type = new StrField();
+    DynamicField[] dynamicFields = new DynamicField[patterns.length];
+    for (int i = 0; i < patterns.length; i++) {
+      dynamicFields[i] = new DynamicField(SchemaField.create(patterns[i], type, 0, null));
+    }
+    // by decreasing precedence, like the dynamic fields of a schema
+    Arrays.sort(dynamicFields);
+    return dynamicFields;
+  }
+
+  private static DynamicField firstByScan(DynamicField[] dynamicFields, String name) {
+    for (DynamicField df : dynamicFields) {
+      if (df.matches(name)) return df;
+    }
+    return null;
+  }
+
+  private static List<DynamicField> allByScan(DynamicField[] dynamicFields, String name) {
+    List<DynamicField> result = new ArrayList<>();
+    for (DynamicField df : dynamicFields) {
+      if (df.matches(name)) result.add(df);
+    }
+    return result;
+  }
+
+  public void testPrecedence() {
+    DynamicField[] dynamicFields = dynamicFields("*_s", "*_txt_s", "attr_*", "attr_txt_*", "*");
+    DynamicPatternMatcher<DynamicField> matcher = new DynamicPatternMatcher<>(dynamicFields);
+
+    assertEquals("*_txt_s", matcher.first("foo_txt_s").getRegex());
+    assertEquals("attr_txt_*", matcher.first("attr_txt_s").getRegex());
+    assertEquals("attr_*", matcher.first("attr_s").getRegex());
+    assertEquals("attr_*", matcher.first("attr_").getRegex());
+    assertEquals("*_s", matcher.first("_s").getRegex());
+    assertEquals("*", matcher.first("foo").getRegex());
+    assertEquals("*", matcher.first("").getRegex());
+    assertEquals(allByScan(dynamicFields, "attr_txt_s"), matcher.all("attr_txt_s"));
+
+    matcher = new DynamicPatternMatcher<>(dynamicFields("*_i", "i_*"));
+    assertNull(matcher.first("foo"));
+    assertNull(matcher.first("_i_"));
+    assertTrue(matcher.all("foo").isEmpty());
+    assertEquals(2, matcher.all("i_i").size());
+  }
+
+  public void testMatchesLikeLinearScan() {
+    String[] fixed = {"a", "ab", "abc", "b", "ba", "_", "a_b", "ab_"};
+    List<String> patterns = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      String pattern = fixed[random().nextInt(fixed.length)];
+      switch (random().nextInt(3)) {
+        case 0:
+          patterns.add("*" + pattern);
+          break;
+        case 1:
+          patterns.add(pattern + "*");
+          break;
+        default:
+          patterns.add(pattern);
+      }
+    }
+    DynamicField[] dynamicFields = dynamicFields(patterns.toArray(new String[0]));
+    DynamicPatternMatcher<DynamicField> matcher = new DynamicPatternMatcher<>(dynamicFields);
+    assertTrue(matcher.isFor(dynamicFields));
+
+    for (int i = 0; i < 1000; i++) {
+      StringBuilder name = new StringBuilder();
+      int length = random().nextInt(6);
+      for (int c = 0; c < length; c++) {
+        name.append("ab_".charAt(random().nextInt(3)));
+      }
+      String fieldName = name.toString();
+      assertSame(fieldName, firstByScan(dynamicFields, fieldName), matcher.first(fieldName));
+      assertEquals(fieldName, allByScan(dynamicFields, fieldName), matcher.all(fieldName));
+    }
+  }
+}
@@ -16,6 +16,9 @@
  */
 package org.apache.solr.schema;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -130,4 +133,52 @@ public class IndexSchemaTest extends SolrTestCaseJ4 {
     ts1.close();
     ts2.close();
   }
+
+  @Test
+  public void testReuseAnalyzersOfPreviousSchema() throws Exception {
+    SolrCore core = h.getCore();
+    IndexSchema schema = core.getLatestSchema();
+    String xml;
+    try (InputStream is = core.getResourceLoader().openResource(schema.getResourceName())) {
+      xml = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+    }
+    IndexSchema updated = parseSchema(xml, schema);
+    assertSame(
+        schema.getFieldType("text").getIndexAnalyzer(),
+        updated.getFieldType("text").getIndexAnalyzer());
+    assertNotSame(
+        schema.getFieldType("text").getIndexAnalyzer(),
+        parseSchema(xml, null).getFieldType("text").getIndexAnalyzer());
+
+    // a changed analyzer definition is built again
+    int start = xml.indexOf("<fieldType name=\"text\" class=\"solr.TextField\">");
+    int stemmer = xml.indexOf("solr.PorterStemFilterFactory", start);
+    String changed =
+        xml.substring(0, stemmer)
+            + "solr.KStemFilterFactory"
+            + xml.substring(stemmer + "solr.PorterStemFilterFactory".length());
+    IndexSchema changedSchema = parseSchema(changed, updated);
+    assertNotSame(
+        updated.getFieldType("text").getIndexAnalyzer(),
+        changedSchema.getFieldType("text").getIndexAnalyzer());
+    assertSame(
+        updated.getFieldType("text_payload_tv").getIndexAnalyzer(),
+        changedSchema.getFieldType("text_payload_tv").getIndexAnalyzer());
+  }
+
+  private static IndexSchema parseSchema(String xml, IndexSchema previousSchema) {
+    SolrCore core = h.getCore();
+    String name = core.getLatestSchema().getResourceName();
+    return new IndexSchema(
+        name,
+        () ->
+            IndexSchemaFactory.getParsedSchema(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)),
+                core.getResourceLoader(),
+                name),
+        core.getSolrConfig().luceneMatchVersion,
+        core.getResourceLoader(),
+        core.getSolrConfig().getSubstituteProperties(),
+        previousSchema);
+  }
 }
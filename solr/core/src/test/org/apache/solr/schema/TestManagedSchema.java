@@ -26,6 +26,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Pattern;
 import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.Analyzer;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CoreAdminParams;
 import org.apache.solr.common.util.NamedList;
@@ -541,4 +542,32 @@ public class TestManagedSchema extends AbstractBadConfigTestBase {
 
     h.reload();
   }
+
+  public void testReplaceFieldTypeForgetsItsAnalyzers() throws Exception {
+    deleteCore();
+    File managedSchemaFile = new File(tmpConfDir, "managed-schema.xml");
+    // Delete managed-schema.xml, so it won't block parsing a new schema
+    Files.delete(managedSchemaFile.toPath());
+    System.setProperty("managed.schema.mutable", "true");
+    initCore(
+        "solrconfig-managed-schema.xml",
+        "schema-one-field-no-dynamic-field.xml",
+        tmpSolrHome.getPath());
+
+    IndexSchema oldSchema = h.getCore().getLatestSchema();
+    Analyzer oldAnalyzer = oldSchema.getFieldType("text").getIndexAnalyzer();
+    assertTrue(oldSchema.analyzersByDefinition.containsValue(oldAnalyzer));
+
+    Map<String, Object> args = new HashMap<>();
+    args.put("name", "text");
+    args.put("class", "solr.TextField");
+    args.put("analyzer", Map.of("tokenizer", Map.of("class", "solr.WhitespaceTokenizerFactory")));
+    IndexSchema newSchema = oldSchema.replaceFieldType("text", "solr.TextField", args);
+    Analyzer newAnalyzer = newSchema.getFieldType("text").getIndexAnalyzer();
+    assertTrue(newSchema.analyzersByDefinition.containsValue(newAnalyzer));
+    assertFalse(newSchema.analyzersByDefinition.containsValue(oldAnalyzer));
+    // the replaced schema still reuses its own analyzers only
+    assertTrue(oldSchema.analyzersByDefinition.containsValue(oldAnalyzer));
+    assertFalse(oldSchema.analyzersByDefinition.containsValue(newAnalyzer));
+  }
 }
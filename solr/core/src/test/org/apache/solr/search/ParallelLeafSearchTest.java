@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+
+public class ParallelLeafSearchTest extends SolrTestCase {
+
+  public void testSearchesEachLeafOnce() throws Exception {
+    final int numLeaves = 50;
+    final AtomicIntegerArray searches = new AtomicIntegerArray(numLeaves);
+    final ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            2, new SolrNamedThreadFactory(getClass().getSimpleName()));
+    try {
+      ParallelLeafSearch.searchLeaves(numLeaves, 4, executor, searches::incrementAndGet);
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+    for (int i = 0; i < numLeaves; i++) {
+      assertEquals("searches of leaf " + i, 1, searches.get(i));
+    }
+  }
+
+  public void testCallingThreadSearchesWhenThePoolRejects() throws Exception {
+    final int numLeaves = 5;
+    final AtomicIntegerArray searches = new AtomicIntegerArray(numLeaves);
+    final Thread caller = Thread.currentThread();
+    ParallelLeafSearch.searchLeaves(
+        numLeaves,
+        4,
+        task -> {
+          throw new RejectedExecutionException();
+        },
+        i -> {
+          assertSame(caller, Thread.currentThread());
+          searches.incrementAndGet(i);
+        });
+    for (int i = 0; i < numLeaves; i++) {
+      assertEquals("searches of leaf " + i, 1, searches.get(i));
+    }
+  }
+
+  public void testThrowsTheFailureOfALeaf() throws Exception {
+    final ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            2, new SolrNamedThreadFactory(getClass().getSimpleName()));
+    try {
+      IOException e =
+          expectThrows(
+              IOException.class,
+              () ->
+                  ParallelLeafSearch.searchLeaves(
+                      10,
+                      3,
+                      executor,
+                      i -> {
+                        if (i == 7) {
+                          throw new IOException("leaf " + i);
+                        }
+                      }));
+      assertEquals("leaf 7", e.getMessage());
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+}
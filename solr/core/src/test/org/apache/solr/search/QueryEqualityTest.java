@@ -1359,6 +1359,20 @@ public class QueryEqualityTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testQueryFusion() throws Exception {
+    SolrQueryRequest req = req("df", "text", "lexical", "foo_s:bar", "other", "text:baz");
+    try {
+      assertQueryEquals(
+          "fusion",
+          req,
+          "{!fusion queries=lexical,other}",
+          "{!fusion queries=lexical,other method=rrf topK=100 rrfK=60}",
+          "{!fusion queries='lexical, other' weights=1,1}");
+    } finally {
+      req.close();
+    }
+  }
+
   /**
    * NOTE: defType is not only used to pick the parser, but also to record the parser being tested
    * for coverage sanity checking
@@ -1570,6 +1584,13 @@ public class QueryEqualityTest extends SolrTestCaseJ4 {
         "{!hash_range l='107347968' u='214695935' f='x_id'}");
   }
 
+  public void testJoinKeyFilterQuery() throws Exception {
+    assertQueryEquals(
+        "join_key_filter",
+        "{!join_key_filter f=foo_s_dvo min=YQ max=eg}",
+        "{!join_key_filter max='eg' min='YQ' f='foo_s_dvo'}");
+  }
+
   // Override req to add df param
   public static SolrQueryRequest req(String... q) {
     return SolrTestCaseJ4.req(q, "df", "text");
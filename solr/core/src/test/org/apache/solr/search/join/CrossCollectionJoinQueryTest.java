@@ -86,6 +86,7 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
               "id", buildId(productId, String.valueOf(productId), routeByKey),
               "product_id_i", String.valueOf(productId),
               "product_id_l", String.valueOf(productId),
+              "product_id_ti", String.valueOf(productId),
               "product_id_s", String.valueOf(productId),
               "size_s", size));
 
@@ -97,6 +98,7 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
                 "id", buildId(productId, partId, routeByKey),
                 "product_id_i", String.valueOf(productId),
                 "product_id_l", String.valueOf(productId),
+                "product_id_ti", String.valueOf(productId),
                 "product_id_s", String.valueOf(productId)));
       }
     }
@@ -200,6 +202,23 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
               client.getClusterStateProvider().getQuorumHosts()),
           true);
 
+      // Only the remote keys which might be in the local collection are streamed back
+      testCcJoinQuery(
+          "{!join method=crossCollection fromIndex=products from=product_id_s to=product_id_s keyFilter=range}size_s:M",
+          true);
+      testCcJoinQuery(
+          "{!join method=crossCollection fromIndex=products from=product_id_s to=product_id_s keyFilter=bloom}size_s:M",
+          true);
+      testCcJoinQuery(
+          String.format(
+              Locale.ROOT,
+              "{!join method=crossCollection solrUrl=\"%s\" fromIndex=products from=product_id_s to=product_id_s keyFilter=bloom}size_s:M",
+              getSolrUrl()),
+          true);
+      testCcJoinQuery(
+          "{!join method=crossCollection fromIndex=products from=product_id_i to=product_id_i keyFilter=bloom}size_s:M",
+          true);
+
       // Test the ability to set other parameters on crossCollection join and have them passed
       // through
       assertResultCount(
@@ -246,6 +265,27 @@ public class CrossCollectionJoinQueryTest extends SolrCloudTestCase {
     testCcJoinQuery(
         "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_s to=product_id_s routed=true}size_s:M",
         false);
+    // Filtering the remote keys by the local ones doesn't change the results.
+    testCcJoinQuery(
+        "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_s to=product_id_s keyFilter=bloom}size_s:M",
+        true);
+    testCcJoinQuery(
+        "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_s to=product_id_s keyFilter=range}size_s:M",
+        true);
+    // The keys are only filtered when both join fields are strings: with a numeric field on either
+    // side, whose keys are not in the same order, all the remote keys are streamed back.
+    testCcJoinQuery(
+        "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_ti to=product_id_s keyFilter=range}size_s:M",
+        true);
+    testCcJoinQuery(
+        "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_ti to=product_id_s keyFilter=bloom}size_s:M",
+        true);
+    testCcJoinQuery(
+        "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_i to=product_id_s keyFilter=bloom}size_s:M",
+        true);
+    testCcJoinQuery(
+        "{!join_nonrouted method=crossCollection fromIndex=products from=product_id_s to=product_id_ti keyFilter=bloom}size_s:M",
+        true);
   }
 
   @Test
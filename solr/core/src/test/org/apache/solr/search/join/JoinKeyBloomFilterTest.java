@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.join;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class JoinKeyBloomFilterTest extends SolrTestCase {
+
+  @Test
+  public void testAddedKeysAreContained() {
+    int numKeys = atLeast(1000);
+    JoinKeyBloomFilter filter = JoinKeyBloomFilter.create(numKeys, 0.01);
+    for (int i = 0; i < numKeys; i++) {
+      filter.add(new BytesRef("key" + i));
+    }
+    for (int i = 0; i < numKeys; i++) {
+      assertTrue(filter.mightContain(new BytesRef("key" + i)));
+    }
+
+    int falsePositives = 0;
+    for (int i = numKeys; i < 2 * numKeys; i++) {
+      if (filter.mightContain(new BytesRef("key" + i))) {
+        falsePositives++;
+      }
+    }
+    assertTrue("false positives: " + falsePositives, falsePositives < numKeys * 0.05);
+  }
+
+  @Test
+  public void testEncodeDecode() {
+    JoinKeyBloomFilter filter = JoinKeyBloomFilter.create(100, 0.01);
+    for (int i = 0; i < 100; i++) {
+      filter.add(new BytesRef(String.valueOf(random().nextInt())));
+    }
+
+    JoinKeyBloomFilter decoded = JoinKeyBloomFilter.decode(filter.encode());
+    assertEquals(filter, decoded);
+    assertEquals(filter.hashCode(), decoded.hashCode());
+  }
+
+  @Test
+  public void testInvalidEncoding() {
+    expectThrows(IllegalArgumentException.class, () -> JoinKeyBloomFilter.decode(new byte[5]));
+    expectThrows(IllegalArgumentException.class, () -> JoinKeyBloomFilter.decode(new byte[12]));
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import org.apache.solr.BaseDistributedSearchTestCase;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Test for the global fusion of the rankings of the shards
+ *
+ * @see FusionMergeStrategy
+ */
+public class FusionMergeStrategyTest extends BaseDistributedSearchTestCase {
+  // the first query ranks the documents 2, 4, 1, 3, 5, 6
+  static final String FIRST_QUERY = "id:2^=6 id:4^=5 id:1^=4 id:3^=3 id:5^=2 id:6^=1";
+  // the second query ranks the documents 3, 6, 4, 5, 2, 1
+  static final String SECOND_QUERY = "id:3^=6 id:6^=5 id:4^=4 id:5^=3 id:2^=2 id:1^=1";
+
+  public FusionMergeStrategyTest() {
+    stress = 0;
+  }
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema15.xml");
+  }
+
+  @Test
+  @ShardsFixed(num = 2)
+  public void test() throws Exception {
+    del("*:*");
+
+    index_specific(0, "id", "1");
+    index_specific(0, "id", "2");
+    index_specific(0, "id", "3");
+    index_specific(1, "id", "4");
+    index_specific(1, "id", "5");
+    index_specific(1, "id", "6");
+    commit();
+
+    handle.put("timestamp", SKIPVAL);
+    handle.put("maxScore", SKIPVAL);
+    handle.put("_version_", SKIP);
+
+    // The fused ranking is 3, 2, 4, 6, 1, 5, while the first shard alone ranks 2 before 3: the
+    // best hit of the first shard by its own fused scores is not the best one overall. The ids are
+    // fetched in a single pass, and the other fields in a second one.
+    for (String fl : new String[] {"id,score", "*,score"}) {
+      for (int rows = 1; rows <= 6; rows++) {
+        query(
+            "q",
+            "{!fusion queries=first,second rrfK=1}",
+            "first",
+            FIRST_QUERY,
+            "second",
+            SECOND_QUERY,
+            "fl",
+            fl,
+            "rows",
+            Integer.toString(rows));
+      }
+    }
+
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add("q", "{!fusion queries=first,second rrfK=1}");
+    params.add("first", FIRST_QUERY);
+    params.add("second", SECOND_QUERY);
+    params.add("fl", "id");
+    params.add("rows", "3");
+    setDistributedParams(params);
+    QueryResponse rsp = queryServer(params);
+    SolrDocumentList docs = rsp.getResults();
+    assertEquals(6, docs.getNumFound());
+    assertEquals(3, docs.size());
+    assertEquals("3", docs.get(0).getFieldValue("id"));
+    assertEquals("2", docs.get(1).getFieldValue("id"));
+    assertEquals("4", docs.get(2).getFieldValue("id"));
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search.neural;
+
+import java.util.Arrays;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FusionQParserTest extends SolrTestCaseJ4 {
+  // the lexical query ranks the documents 9, 2, 5, 1 by decreasing boost
+  static final String LEXICAL_QUERY = "id:9^4 id:2^3 id:5^2 id:1";
+  // the knn query ranks the documents 1, 4, 2 by decreasing similarity
+  static final String KNN_QUERY = "{!knn f=vector topK=3}[1.0, 2.0, 3.0, 4.0]";
+
+  @Before
+  public void prepareIndex() throws Exception {
+    /* vectorDimension="4" similarityFunction="cosine" */
+    initCore("solrconfig_codec.xml", "schema-densevector.xml");
+
+    assertU(adoc(doc(1, 1f, 2f, 3f, 4f))); // cosine distance vector1= 1.0
+    assertU(adoc(doc(2, 1.5f, 2.5f, 3.5f, 4.5f))); // cosine distance vector1= 0.998
+    assertU(adoc(doc(3, 7.5f, 15.5f, 17.5f, 22.5f))); // cosine distance vector1= 0.992
+    assertU(adoc(doc(4, 1.4f, 2.4f, 3.4f, 4.4f))); // cosine distance vector1= 0.999
+    assertU(adoc(doc(5, 30f, 22f, 35f, 20f))); // cosine distance vector1= 0.862
+    assertU(adoc(doc(9, 200f, 50f, 100f, 25f))); // cosine distance vector1= 0.554
+    assertU(commit());
+  }
+
+  private static SolrInputDocument doc(int id, Float... vector) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField("id", id);
+    doc.addField("vector", Arrays.asList(vector));
+    return doc;
+  }
+
+  @After
+  public void cleanUp() {
+    clearIndex();
+    deleteCore();
+  }
+
+  @Test
+  public void rrf_shouldRankByReciprocalRanks() {
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,vector}",
+            "lexical",
+            LEXICAL_QUERY,
+            "vector",
+            KNN_QUERY,
+            "fl",
+            "id"),
+        "//result[@numFound='5']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='9']",
+        "//result/doc[4]/str[@name='id'][.='4']",
+        "//result/doc[5]/str[@name='id'][.='5']");
+  }
+
+  @Test
+  public void linear_shouldRankByWeightedNormalizedScores() {
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,vector method=linear weights=2,1}",
+            "lexical",
+            LEXICAL_QUERY,
+            "vector",
+            KNN_QUERY,
+            "fl",
+            "id"),
+        "//result[@numFound='5']",
+        "//result/doc[1]/str[@name='id'][.='9']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='1']",
+        "//result/doc[4]/str[@name='id'][.='5']",
+        "//result/doc[5]/str[@name='id'][.='4']");
+  }
+
+  @Test
+  public void topK_shouldLimitTheHitsOfEachQuery() {
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,vector topK=1}",
+            "lexical",
+            LEXICAL_QUERY,
+            "vector",
+            KNN_QUERY,
+            "fl",
+            "id"),
+        "//result[@numFound='2']");
+  }
+
+  @Test
+  public void filterQuery_shouldFilterTheHitsOfEachQuery() {
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,vector}",
+            "lexical",
+            LEXICAL_QUERY,
+            "vector",
+            KNN_QUERY,
+            "fq",
+            "-id:5",
+            "fl",
+            "id"),
+        "//result[@numFound='4']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='9']",
+        "//result/doc[4]/str[@name='id'][.='4']");
+  }
+
+  @Test
+  public void missingQueries_shouldThrowException() {
+    assertQEx(
+        "missing queries should throw Exception",
+        "the names of the queries to fuse are missing",
+        req(CommonParams.Q, "{!fusion}", "fl", "id"),
+        SolrException.ErrorCode.BAD_REQUEST);
+
+    assertQEx(
+        "missing query should throw Exception",
+        "the query to fuse 'vector' is missing",
+        req(CommonParams.Q, "{!fusion queries=lexical,vector}", "lexical", LEXICAL_QUERY),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
+  @Test
+  public void incorrectParams_shouldThrowException() {
+    assertQEx(
+        "unknown method should throw Exception",
+        "unknown fusion method: max",
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,vector method=max}",
+            "lexical",
+            LEXICAL_QUERY,
+            "vector",
+            KNN_QUERY),
+        SolrException.ErrorCode.BAD_REQUEST);
+
+    assertQEx(
+        "missing weight should throw Exception",
+        "there must be one weight per query to fuse: 2",
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,vector weights=2}",
+            "lexical",
+            LEXICAL_QUERY,
+            "vector",
+            KNN_QUERY),
+        SolrException.ErrorCode.BAD_REQUEST);
+
+    assertQEx(
+        "nested fusion should throw Exception",
+        "fusion queries can not be nested: nested",
+        req(
+            CommonParams.Q,
+            "{!fusion queries=lexical,nested}",
+            "lexical",
+            LEXICAL_QUERY,
+            "nested",
+            "{!fusion queries=lexical}"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+}
@@ -21,11 +21,19 @@ import static org.apache.solr.search.neural.KnnQParser.DEFAULT_TOP_K;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.search.BitDocSet;
+import org.apache.solr.search.DocSet;
+import org.apache.solr.search.SortedIntDocSet;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -35,6 +43,7 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
   String vectorField = "vector";
   String vectorField2 = "vector2";
   String vectorFieldByteEncoding = "vector_byte_encoding";
+  String vectorFieldQuantized = "vector_quantized";
 
   @Before
   public void prepareIndex() throws Exception {
@@ -95,6 +104,10 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
         .addField(
             vectorField2, Arrays.asList(1.5f, 2.5f, 3.5f, 4.5f)); // cosine distance vector2= 0.998
 
+    for (int i = 0; i < 10; i++) {
+      docs.get(i).addField(vectorFieldQuantized, docs.get(i).getFieldValues(vectorField));
+    }
+
     docs.get(0).addField(vectorFieldByteEncoding, Arrays.asList(1, 2, 3, 4));
     docs.get(1).addField(vectorFieldByteEncoding, Arrays.asList(2, 2, 1, 4));
     docs.get(2).addField(vectorFieldByteEncoding, Arrays.asList(1, 2, 1, 2));
@@ -351,6 +364,60 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
         SolrException.ErrorCode.BAD_REQUEST);
   }
 
+  @Test
+  public void quantizedVectorField_shouldRescoreOversampledNearestNeighbors() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    // the vectors quantized to 1/127 of the bound of 200 can hardly be told apart, the full
+    // precision vectors rank the candidates as the non quantized field does
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector_quantized topK=5 oversample=2}" + vectorToSearch),
+        "//result[@numFound='5']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='4']",
+        "//result/doc[3]/str[@name='id'][.='2']",
+        "//result/doc[4]/str[@name='id'][.='10']",
+        "//result/doc[5]/str[@name='id'][.='3']");
+
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector_quantized topK=3 rescore=false}" + vectorToSearch),
+        "//result[@numFound='3']");
+  }
+
+  @Test
+  public void incorrectOversample_shouldThrowException() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQEx(
+        "Oversample lower than 1 should throw Exception",
+        "the oversample factor must be greater than or equal to 1: 0.5",
+        req(CommonParams.Q, "{!knn f=vector oversample=0.5}" + vectorToSearch, "fl", "id"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
+  @Test
+  public void rescoreNotQuantizedVectorField_shouldThrowException() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQEx(
+        "Rescoring vectors which are not quantized should throw Exception",
+        "Only quantized vectors can be rescored with their full precision: vector",
+        req(CommonParams.Q, "{!knn f=vector rescore=true}" + vectorToSearch, "fl", "id"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
+  @Test
+  public void oversampledNearestNeighbors_shouldReturnOnlyTopKResults() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector topK=3 oversample=3}" + vectorToSearch, "fl", "id"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='4']",
+        "//result/doc[3]/str[@name='id'][.='2']");
+  }
+
   @Test
   public void missingVectorToSearch_shouldThrowException() {
     assertQEx(
@@ -499,6 +566,92 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
         "//result/doc[4]/str[@name='id'][.='9']");
   }
 
+  @Test
+  public void knnQueryWithCachedFq_shouldSearchExhaustivelyFewAcceptedDocuments() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=3 exactSearchThreshold=100}" + vectorToSearch,
+            "fq",
+            "id:(1 2 3 5 6 7 8 9 10 11)",
+            "fl",
+            "id",
+            CommonParams.DEBUG_QUERY,
+            "true"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='10']",
+        "//lst[@name='debug']/lst[@name='knnSearch']/long[@name='searches'][.='1']",
+        "//lst[@name='debug']/lst[@name='knnSearch']/long[@name='graphSearches'][.='0']",
+        // the filter accepts 9 documents with a vector
+        "//lst[@name='debug']/lst[@name='knnSearch']/long[@name='visitedVectors'][.='9']");
+
+    Map<String, Object> searcherStats =
+        h.getCore().withSearcher(searcher -> searcher.getKnnSearchStats().toMap(new HashMap<>()));
+    assertTrue(((Number) searcherStats.get("searches")).longValue() > 0);
+  }
+
+  @Test
+  public void knnQueryWithCachedFq_shouldSearchTheGraphOfManyAcceptedDocuments() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=3 exactSearchThreshold=0}" + vectorToSearch,
+            "fq",
+            "-id:4",
+            "fl",
+            "id",
+            CommonParams.DEBUG_QUERY,
+            "true"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='2']",
+        "//result/doc[3]/str[@name='id'][.='10']",
+        "//lst[@name='debug']/lst[@name='knnSearch']/long[@name='graphSearches'][. > 0]");
+  }
+
+  @Test
+  public void parallelism_shouldSearchTheSegmentsConcurrently() {
+    // a second segment
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(IDField, 14);
+    doc.addField(vectorField, Arrays.asList(1.2f, 2.1f, 3.2f, 4.1f));
+    assertU(adoc(doc));
+    assertU(commit());
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQ(
+        req(
+            CommonParams.Q,
+            "{!knn f=vector topK=3 parallelism=4}" + vectorToSearch,
+            "fl",
+            "id",
+            CommonParams.DEBUG_QUERY,
+            "true"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='1']",
+        "//result/doc[2]/str[@name='id'][.='14']",
+        "//result/doc[3]/str[@name='id'][.='4']",
+        "//lst[@name='debug']/lst[@name='knnSearch']/long[@name='searches'][.='1']",
+        "//lst[@name='debug']/lst[@name='knnSearch']/long[@name='parallelSearches'][.='1']");
+  }
+
+  @Test
+  public void incorrectParallelism_shouldThrowException() {
+    String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
+
+    assertQEx(
+        "parallelism lower than 1 should throw Exception",
+        "the parallelism must be greater than or equal to 1: 0",
+        req(CommonParams.Q, "{!knn f=vector parallelism=0}" + vectorToSearch, "fl", "id"),
+        SolrException.ErrorCode.BAD_REQUEST);
+  }
+
   @Test
   public void knnQueryWithCostlyFq_shouldPerformKnnSearchWithPostFilter() {
     String vectorToSearch = "[1.0, 2.0, 3.0, 4.0]";
@@ -574,4 +727,42 @@ public class KnnQParserTest extends SolrTestCaseJ4 {
         "//result/doc[3]/str[@name='id'][.='3']",
         "//result/doc[4]/str[@name='id'][.='9']");
   }
+
+  @Test
+  public void countPerLeaf_shouldCountTheFilterDocumentsOfEachSegment() throws Exception {
+    // more segments, some of them over several words of the bits
+    for (int segment = 0; segment < 2; segment++) {
+      for (int i = 0; i < 100; i++) {
+        assertU(adoc(IDField, Integer.toString(100 + segment * 100 + i)));
+      }
+      assertU(commit());
+    }
+
+    h.getCore()
+        .withSearcher(
+            searcher -> {
+              List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+              int maxDoc = searcher.maxDoc();
+              FixedBitSet bits = new FixedBitSet(maxDoc);
+              int[] docs = new int[(maxDoc + 2) / 3];
+              for (int doc = 0, i = 0; doc < maxDoc; doc += 3, i++) {
+                bits.set(doc);
+                docs[i] = doc;
+              }
+              DocSet bitDocSet = new BitDocSet(bits);
+              int[] expected = new int[leaves.size()];
+              for (int i = 0; i < leaves.size(); i++) {
+                DocIdSetIterator iterator = bitDocSet.iterator(leaves.get(i));
+                while (iterator != null && iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                  expected[i]++;
+                }
+              }
+              assertArrayEquals(
+                  expected, PreFilteredKnnVectorQuery.countPerLeaf(bitDocSet, leaves));
+              assertArrayEquals(
+                  expected,
+                  PreFilteredKnnVectorQuery.countPerLeaf(new SortedIntDocSet(docs), leaves));
+              return null;
+            });
+  }
 }
@@ -20,17 +20,24 @@ import static java.util.Collections.singletonMap;
 
 import java.lang.invoke.MethodHandles;
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.http.client.HttpClient;
+import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.CloudLegacySolrClient;
 import org.apache.solr.client.solrj.request.CollectionAdminRequest;
 import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
 import org.apache.solr.cloud.SolrCloudAuthTestCase;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.Utils;
 import org.apache.solr.embedded.JettySolrRunner;
+import org.apache.solr.update.processor.DistributingUpdateProcessorFactory;
+import org.apache.solr.update.processor.ParallelUpdateProcessor;
 import org.junit.After;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -112,6 +119,48 @@ public class PKIAuthenticationIntegrationTest extends SolrCloudAuthTestCase {
     assertPkiAuthMetricsMinimums(2, 2, 0, 0, 0, 0);
   }
 
+  @Test
+  public void testPkiAuthOfUpdatesForwardedByParallelWorkers() throws Exception {
+    UpdateRequest update = new UpdateRequest();
+    for (int id = 0; id < 500; id++) {
+      update.add(sdoc("id", Integer.toString(id)));
+    }
+    update.setParam(ParallelUpdateProcessor.PARALLELISM_PARAM, "4");
+    update.setParam("__user", "solr");
+    update.setParam("__pwd", "SolrRocks");
+
+    final AtomicInteger forwarded = new AtomicInteger();
+    final List<String> otherPrincipals = Collections.synchronizedList(new ArrayList<>());
+    MockAuthorizationPlugin.predicate =
+        context -> {
+          if ("/update".equals(context.getResource())
+              && context.getParams().get(DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM)
+                  != null) {
+            Principal principal = context.getUserPrincipal();
+            if (principal != null && principal.getName().equals("solr")) {
+              forwarded.incrementAndGet();
+            } else {
+              otherPrincipals.add(String.valueOf(principal));
+            }
+          }
+        };
+    MockAuthenticationPlugin.predicate =
+        servletRequest -> {
+          String s = ((HttpServletRequest) servletRequest).getQueryString();
+          if (s != null && s.contains("__user=solr") && s.contains("__pwd=SolrRocks")) {
+            servletRequest.setAttribute(Principal.class.getName(), "solr");
+          }
+          return true;
+        };
+
+    // sent to a single node, which forwards the documents of the other shard from its workers
+    try (SolrClient client = cluster.getJettySolrRunner(0).newClient()) {
+      update.process(client, COLLECTION);
+    }
+    assertTrue("no update was forwarded by the user solr", forwarded.get() > 0);
+    assertEquals("updates forwarded as another user", List.of(), otherPrincipals);
+  }
+
   @After
   public void distribTearDown() {
     MockAuthenticationPlugin.predicate = null;
@@ -51,6 +51,7 @@ import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.tests.analysis.MockAnalyzer;
 import org.apache.lucene.tests.index.RandomIndexWriter;
 import org.apache.lucene.tests.util.TestUtil;
@@ -579,6 +580,53 @@ public class TestFieldCache extends SolrTestCase {
     dir.close();
   }
 
+  public void testIdenticalSegmentsShareValues() throws Exception {
+    Directory dir1 = newDirectory();
+    IndexWriterConfig iwc =
+        newIndexWriterConfig(new MockAnalyzer(random())).setCodec(TestUtil.getDefaultCodec());
+    try (IndexWriter iw = new IndexWriter(dir1, iwc)) {
+      for (int i = 0; i < 10; i++) {
+        Document doc = new Document();
+        doc.add(new IntPoint("int", i));
+        iw.addDocument(doc);
+      }
+      iw.forceMerge(1);
+    }
+    // e.g. a replica that fetched the index of its leader
+    Directory dir2 = newDirectory();
+    for (String file : dir1.listAll()) {
+      dir2.copyFrom(dir1, file, file, IOContext.DEFAULT);
+    }
+    DirectoryReader ir1 = DirectoryReader.open(dir1);
+    DirectoryReader ir2 = DirectoryReader.open(dir2);
+    LeafReader ar1 = getOnlyLeafReader(ir1);
+    LeafReader ar2 = getOnlyLeafReader(ir2);
+    assertNotSame(ar1.getCoreCacheHelper().getKey(), ar2.getCoreCacheHelper().getKey());
+
+    final FieldCache cache = FieldCache.DEFAULT;
+    cache.purgeAllCaches();
+    cache.getNumerics(ar1, "int", FieldCache.INT_POINT_PARSER);
+    int numEntries = cache.getCacheEntries().length;
+    assertTrue(numEntries > 0);
+    cache.getNumerics(ar2, "int", FieldCache.INT_POINT_PARSER);
+    assertEquals(numEntries, cache.getCacheEntries().length);
+
+    // the values are kept as long as one of the readers is open
+    ir1.close();
+    assertEquals(numEntries, cache.getCacheEntries().length);
+    NumericDocValues ints = cache.getNumerics(ar2, "int", FieldCache.INT_POINT_PARSER);
+    long sum = 0;
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i, ints.nextDoc());
+      sum += ints.longValue();
+    }
+    assertEquals(45, sum);
+    ir2.close();
+    assertEquals(0, cache.getCacheEntries().length);
+    dir1.close();
+    dir2.close();
+  }
+
   public void testNonexistentFields() throws Exception {
     Directory dir = newDirectory();
     RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
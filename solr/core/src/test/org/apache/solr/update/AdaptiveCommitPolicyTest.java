@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.solr.SolrTestCase;
+
+public class AdaptiveCommitPolicyTest extends SolrTestCase {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /** Records commits opening their searcher in the given time, every second */
+  private static void commits(AdaptiveCommitPolicy policy, int count, long openMs) {
+    long now = System.nanoTime();
+    for (int i = 0; i < count; i++) {
+      now += 1000 * MS;
+      policy.commitDone(now - openMs * MS, now);
+    }
+  }
+
+  public void testStartsWithTarget() {
+    assertEquals(5000, new AdaptiveCommitPolicy(5000, 1000, 60000).getIntervalMs());
+    assertEquals(2000, new AdaptiveCommitPolicy(5000, 1000, 2000).getIntervalMs());
+  }
+
+  public void testShrinksByOpenTime() {
+    AdaptiveCommitPolicy policy = new AdaptiveCommitPolicy(5000, 1000, 60000);
+    commits(policy, 20, 1000);
+    assertEquals(1000, policy.getAvgOpenMs(), 1);
+    assertEquals(4000, policy.getIntervalMs(), 10);
+  }
+
+  public void testStretchesWhenOpeningIsSlow() {
+    AdaptiveCommitPolicy policy = new AdaptiveCommitPolicy(5000, 1000, 60000);
+    commits(policy, 20, 4000);
+    assertEquals(8000, policy.getIntervalMs(), 10);
+
+    // back to the target once searchers open quickly again
+    commits(policy, 30, 10);
+    assertEquals(4990, policy.getIntervalMs(), 10);
+  }
+
+  public void testStaysWithinBounds() {
+    AdaptiveCommitPolicy policy = new AdaptiveCommitPolicy(5000, 1000, 6000);
+    commits(policy, 20, 10000);
+    assertEquals(6000, policy.getIntervalMs());
+
+    policy = new AdaptiveCommitPolicy(5000, 3000, 6000);
+    commits(policy, 20, 4000);
+    assertEquals(6000, policy.getIntervalMs());
+    commits(policy, 20, 2500);
+    assertEquals(5000, policy.getIntervalMs(), 10);
+  }
+
+  public void testDocsPerSecond() {
+    AdaptiveCommitPolicy policy = new AdaptiveCommitPolicy(5000, 1000, 60000);
+    for (int i = 0; i < 50; i++) {
+      policy.addedDocument();
+    }
+    long now = System.nanoTime();
+    policy.commitDone(now, now + 500 * MS);
+    assertTrue(policy.getAvgDocsPerSecond() > 0);
+  }
+}
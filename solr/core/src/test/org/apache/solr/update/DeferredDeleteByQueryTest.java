@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.RefCounted;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+public class DeferredDeleteByQueryTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema15.xml");
+  }
+
+  @Before
+  public void before() throws Exception {
+    clearIndex();
+    assertU(commit());
+  }
+
+  private static void deferredDelete(String q) throws Exception {
+    updateJ(jsonDelQ(q), params(UpdateParams.DEFER_DELETE_BY_QUERY, "true"));
+  }
+
+  // whether the registered searcher hides documents its index reader did not delete yet
+  private static boolean hidesDeferredDeletes() {
+    RefCounted<SolrIndexSearcher> searcher = h.getCore().getSearcher();
+    try {
+      SolrIndexSearcher s = searcher.get();
+      return s.getIndexReader().numDocs() != s.getRawReader().numDocs();
+    } finally {
+      searcher.decref();
+    }
+  }
+
+  public void testFilteredUntilCommit() throws Exception {
+    for (int i = 0; i < 6; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 2 == 0 ? "a" : "b"));
+    }
+    assertU(commit());
+
+    deferredDelete("cat_s:a");
+    assertTrue(hidesDeferredDeletes());
+    // the documents are still in the index, but no longer live for the searcher
+    assertEquals(6, h.getCore().withSearcher(s -> s.getRawReader().numDocs()).intValue());
+    assertEquals(3, h.getCore().withSearcher(s -> s.getIndexReader().numDocs()).intValue());
+    assertJQ(req("q", "*:*"), "/response/numFound==3");
+    assertJQ(req("q", "cat_s:a"), "/response/numFound==0");
+    assertJQ(req("q", "*:*", "fq", "cat_s:b"), "/response/numFound==3");
+    // not only the main query: doc sets and facets do not see them either
+    assertEquals(
+        0,
+        h.getCore()
+            .withSearcher(s -> s.getDocSet(new TermQuery(new Term("cat_s", "a"))).size())
+            .intValue());
+    assertEquals(
+        3,
+        h.getCore().withSearcher(s -> s.getDocSet(new MatchAllDocsQuery()).size()).intValue());
+    assertJQ(
+        req("q", "*:*", "rows", "0", "json.facet", "{cats:{type:terms,field:cat_s}}"),
+        "/facets/cats/buckets==[{'val':'b','count':3}]");
+
+    assertU(commit());
+    assertFalse(hidesDeferredDeletes());
+    assertEquals(3, h.getCore().withSearcher(s -> s.getRawReader().numDocs()).intValue());
+    assertJQ(req("q", "*:*"), "/response/numFound==3");
+    assertJQ(req("q", "cat_s:a"), "/response/numFound==0");
+  }
+
+  public void testLaterUpdatesAreKept() throws Exception {
+    assertU(adoc("id", "1", "cat_s", "a"));
+    assertU(adoc("id", "2", "cat_s", "a"));
+    assertU(commit());
+
+    deferredDelete("cat_s:a");
+    // updates after the delete are not affected, even if they are not searchable yet
+    assertU(adoc("id", "1", "cat_s", "a"));
+    assertU(adoc("id", "3", "cat_s", "a"));
+
+    assertU(commit("softCommit", "true"));
+    assertJQ(
+        req("q", "cat_s:a", "fl", "id", "sort", "id asc"),
+        "/response/docs==[{'id':'1'},{'id':'3'}]");
+
+    assertU(commit());
+    assertJQ(
+        req("q", "cat_s:a", "fl", "id", "sort", "id asc"),
+        "/response/docs==[{'id':'1'},{'id':'3'}]");
+  }
+
+  public void testUncommittedDocuments() throws Exception {
+    deferredDelete("cat_s:a");
+    assertU(adoc("id", "1", "cat_s", "a"));
+    deferredDelete("cat_s:a");
+    assertU(adoc("id", "2", "cat_s", "a"));
+    assertU(commit());
+    assertJQ(req("q", "cat_s:a", "fl", "id"), "/response/docs==[{'id':'2'}]");
+  }
+
+  public void testRealTimeGet() throws Exception {
+    assertU(adoc("id", "1", "cat_s", "a"));
+    assertU(commit());
+    // not searchable yet, only in the update log
+    assertU(adoc("id", "2", "cat_s", "a"));
+    assertU(adoc("id", "3", "cat_s", "b"));
+
+    deferredDelete("cat_s:a");
+    assertJQ(req("qt", "/get", "id", "1"), "=={'doc':null}");
+    assertJQ(req("qt", "/get", "id", "2"), "=={'doc':null}");
+    assertJQ(req("qt", "/get", "id", "3", "fl", "id"), "=={'doc':{'id':'3'}}");
+    // the documents only in the update log stay invisible to searches until the next commit
+    assertJQ(req("q", "*:*"), "/response/numFound==0");
+    assertU(commit());
+    assertJQ(req("q", "*:*", "fl", "id"), "/response/docs==[{'id':'3'}]");
+  }
+
+  public void testAtomicUpdateDoesNotRestoreDeletedDocument() throws Exception {
+    assertU(adoc("id", "1", "cat_s", "a", "count_i", "1"));
+    assertU(adoc("id", "2", "cat_s", "b", "count_i", "1"));
+    assertU(commit());
+
+    deferredDelete("cat_s:a");
+    updateJ(
+        "[{'id':'1','count_i':{'inc':1}},{'id':'2','count_i':{'inc':1}}]",
+        params("commit", "true"));
+    // the deleted document is created again from the update alone
+    assertJQ(
+        req("q", "*:*", "fl", "id,cat_s,count_i", "sort", "id asc"),
+        "/response/docs==[{'id':'1','count_i':1},{'id':'2','cat_s':['b'],'count_i':2}]");
+  }
+
+  public void testUpdatesAreNotBlocked() throws Exception {
+    assertU(adoc("id", "1", "cat_s", "a", "count_i", "1"));
+    assertU(adoc("id", "2", "cat_s", "b", "count_i", "1"));
+    assertU(commit());
+
+    // an update in flight on another thread, which anything blocking the updates would wait for
+    VersionInfo vinfo = h.getCore().getUpdateHandler().getUpdateLog().getVersionInfo();
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread inFlight =
+        new Thread(
+            () -> {
+              vinfo.lockForUpdate();
+              try {
+                locked.countDown();
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              } finally {
+                vinfo.unlockForUpdate();
+              }
+            },
+            "inFlightUpdate");
+    inFlight.start();
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareSingleThreadExecutor(new SolrNamedThreadFactory("updates"));
+    try {
+      assertTrue(locked.await(30, TimeUnit.SECONDS));
+      Future<?> updates =
+          executor.submit(
+              () -> {
+                deferredDelete("cat_s:a");
+                updateJ("[{'id':'2','count_i':{'inc':1}}]", params());
+                assertU(adoc("id", "3", "cat_s", "a"));
+                assertJQ(req("qt", "/get", "id", "1"), "=={'doc':null}");
+                assertJQ(
+                    req("qt", "/get", "id", "2", "fl", "id,count_i"),
+                    "=={'doc':{'id':'2','count_i':2}}");
+                assertJQ(req("q", "*:*", "fl", "id"), "/response/docs==[{'id':'2'}]");
+                return null;
+              });
+      // fails with a TimeoutException if they wait for the update in flight
+      updates.get(30, TimeUnit.SECONDS);
+    } finally {
+      release.countDown();
+      inFlight.join();
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+
+    assertU(commit());
+    assertJQ(
+        req("q", "*:*", "fl", "id,count_i", "sort", "id asc"),
+        "/response/docs==[{'id':'2','count_i':2},{'id':'3'}]");
+  }
+}
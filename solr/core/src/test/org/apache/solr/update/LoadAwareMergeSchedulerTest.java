@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MergeScheduler;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.util.RefCounted;
+import org.junit.BeforeClass;
+
+public class LoadAwareMergeSchedulerTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig-loadawaremergescheduler.xml", "schema.xml");
+  }
+
+  private LoadAwareMergeScheduler getScheduler() throws Exception {
+    RefCounted<IndexWriter> iw = h.getCore().getSolrCoreState().getIndexWriter(h.getCore());
+    try {
+      MergeScheduler scheduler = iw.get().getConfig().getMergeScheduler();
+      assertTrue(
+          "not a LoadAwareMergeScheduler: " + scheduler,
+          scheduler instanceof LoadAwareMergeScheduler);
+      return (LoadAwareMergeScheduler) scheduler;
+    } finally {
+      iw.decref();
+    }
+  }
+
+  public void testBacksOffWhenBusy() throws Exception {
+    LoadAwareMergeScheduler scheduler = getScheduler();
+    // all the signals are disabled, the node is never busy
+    assertFalse(scheduler.isNodeBusy());
+    assertFalse(scheduler.isBusy());
+    assertEquals(6, scheduler.getMaxMergeCount());
+    assertEquals(4, scheduler.getMaxThreadCount());
+    assertFalse(scheduler.getAutoIOThrottle());
+
+    scheduler.setBusy(true);
+    assertTrue(scheduler.isBusy());
+    assertEquals(6, scheduler.getMaxMergeCount());
+    assertEquals(2, scheduler.getMaxThreadCount());
+    assertTrue(scheduler.getAutoIOThrottle());
+
+    scheduler.setBusy(false);
+    assertFalse(scheduler.isBusy());
+    assertEquals(4, scheduler.getMaxThreadCount());
+    assertFalse(scheduler.getAutoIOThrottle());
+  }
+
+  public void testIndexing() throws Exception {
+    for (int i = 0; i < 50; i++) {
+      assertU(adoc("id", Integer.toString(i)));
+      if (i % 10 == 9) {
+        assertU(commit());
+      }
+    }
+    getScheduler().setBusy(true);
+    assertU(optimize());
+    getScheduler().setBusy(false);
+    assertQ(req("q", "*:*"), "//result[@numFound='50']");
+  }
+
+  public void testLoadCheckIsSharedAndStopsWithTheWriter() throws Exception {
+    ScheduledThreadPoolExecutor loadChecker =
+        (ScheduledThreadPoolExecutor) h.getCoreContainer().getMergeLoadChecker();
+    LoadAwareMergeScheduler scheduler = getScheduler();
+    assertTrue(scheduler.isCheckingLoad());
+
+    // the new writer has its own scheduler, the check of the previous one is cancelled
+    h.getCore().getSolrCoreState().newIndexWriter(h.getCore(), false);
+    LoadAwareMergeScheduler newScheduler = getScheduler();
+    assertNotSame(scheduler, newScheduler);
+    assertFalse(scheduler.isCheckingLoad());
+    assertTrue(newScheduler.isCheckingLoad());
+    assertTrue(loadChecker.getQueue().size() <= 1);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.update.UpdateLog.LogPtr;
+
+public class LogPtrMapTest extends SolrTestCase {
+
+  public void testSameLookupsAsHashMap() {
+    LogPtrMap map = new LogPtrMap();
+    Map<BytesRef, LogPtr> expected = new HashMap<>();
+    int numIds = atLeast(1000);
+    for (int i = 0; i < numIds * 3; i++) {
+      BytesRef id = new BytesRef("id" + random().nextInt(numIds));
+      LogPtr ptr = new LogPtr(random().nextLong(), random().nextLong(), random().nextLong());
+      map.put(id, ptr);
+      expected.put(id, ptr);
+    }
+    assertEquals(expected.size(), map.size());
+    for (int i = 0; i < numIds; i++) {
+      BytesRef id = new BytesRef("id" + i);
+      assertSameEntry(expected.get(id), map.get(id));
+    }
+    assertTrue(map.ramBytesUsed() > 0);
+
+    map.clear();
+    assertEquals(0, map.size());
+    assertNull(map.get(new BytesRef("id0")));
+  }
+
+  public void testKeysAreCopied() {
+    LogPtrMap map = new LogPtrMap();
+    BytesRef id = new BytesRef("abc");
+    map.put(id, new LogPtr(1, 2));
+    id.bytes[0] = 'x';
+    assertSameEntry(new LogPtr(1, 2), map.get(new BytesRef("abc")));
+    assertNull(map.get(id));
+  }
+
+  public void testOversizedIds() {
+    LogPtrMap map = new LogPtrMap();
+    BytesRef id = new BytesRef(new byte[ByteBlockPool.BYTE_BLOCK_SIZE]);
+    map.put(id, new LogPtr(1, 2, 3));
+    map.put(new BytesRef("small"), new LogPtr(4, 5));
+    assertEquals(2, map.size());
+    assertSameEntry(new LogPtr(1, 2, 3), map.get(BytesRef.deepCopyOf(id)));
+    assertSameEntry(new LogPtr(4, 5), map.get(new BytesRef("small")));
+  }
+
+  private static void assertSameEntry(LogPtr expected, LogPtr actual) {
+    assertEquals(expected.pointer, actual.pointer);
+    assertEquals(expected.version, actual.version);
+    assertEquals(expected.previousPointer, actual.previousPointer);
+  }
+}
@@ -17,17 +17,32 @@
 package org.apache.solr.update.processor;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import org.apache.commons.io.FileUtils;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.ExecutorUtil;
+import org.apache.solr.common.util.SolrNamedThreadFactory;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
 import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.update.AddUpdateCommand;
 import org.junit.After;
 import org.junit.Before;
 
@@ -341,6 +356,93 @@ public class AddSchemaFieldsUpdateProcessorFactoryTest extends UpdateProcessorTe
         "//lst[@name='mynewfield_str']/int[@name='This is a '][.='1']");
   }
 
+  public void testBatchOfDocuments() throws Exception {
+    IndexSchema schema = h.getCore().getLatestSchema();
+    assertNull(schema.getFieldOrNull("batchfield1"));
+    assertNull(schema.getFieldOrNull("batchfield2"));
+    assertNull(schema.getFieldOrNull("batchfield3"));
+    processAddBatch(
+        "add-fields",
+        doc(f("id", "1"), f("batchfield1", 1.5f)),
+        doc(f("id", "2"), f("batchfield2", true)),
+        // the values of all the documents of the batch decide the type of a field
+        doc(f("id", "3"), f("batchfield1", 3.5f), f("batchfield3", 3L)),
+        doc(f("id", "4"), f("batchfield3", 4.5d)));
+    schema = h.getCore().getLatestSchema();
+    assertEquals("pfloats", schema.getFieldType("batchfield1").getTypeName());
+    assertEquals("boolean", schema.getFieldType("batchfield2").getTypeName());
+    assertEquals("pdoubles", schema.getFieldType("batchfield3").getTypeName());
+    assertU(commit());
+    assertQ(req("q", "*:*"), "//result[@numFound='4']");
+  }
+
+  public void testConcurrentRequests() throws Exception {
+    final int numThreads = 8;
+    AddSchemaFieldsUpdateProcessorFactory factory = null;
+    for (UpdateRequestProcessorFactory urpFactory :
+        h.getCore().getUpdateProcessingChain("add-fields-coalesced").getProcessors()) {
+      if (urpFactory instanceof AddSchemaFieldsUpdateProcessorFactory) {
+        factory = (AddSchemaFieldsUpdateProcessorFactory) urpFactory;
+      }
+    }
+    assertNotNull(factory);
+    assertEquals(0, factory.getSchemaChanges());
+
+    CyclicBarrier start = new CyclicBarrier(numThreads);
+    List<Callable<SolrInputDocument>> requests = new ArrayList<>();
+    for (int i = 0; i < numThreads; i++) {
+      final String id = Integer.toString(i);
+      requests.add(
+          () -> {
+            start.await();
+            return processAdd(
+                "add-fields-coalesced",
+                doc(f("id", id), f("sharedfield", 42L), f("ownfield" + id, "value " + id)));
+          });
+    }
+    ExecutorService executor =
+        ExecutorUtil.newMDCAwareFixedThreadPool(
+            numThreads, new SolrNamedThreadFactory("testConcurrentRequests"));
+    try {
+      for (Future<SolrInputDocument> future : executor.invokeAll(requests)) {
+        assertNotNull(future.get());
+      }
+    } finally {
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+    IndexSchema schema = h.getCore().getLatestSchema();
+    assertEquals("plongs", schema.getFieldType("sharedfield").getTypeName());
+    for (int i = 0; i < numThreads; i++) {
+      assertEquals("text", schema.getFieldType("ownfield" + i).getTypeName());
+    }
+    // every request adds a field of its own: without coalescing, each would change the schema
+    int schemaChanges = factory.getSchemaChanges();
+    assertTrue("schema changes: " + schemaChanges, schemaChanges >= 1);
+    assertTrue("schema changes: " + schemaChanges, schemaChanges < numThreads);
+    assertU(commit());
+    assertQ(req("q", "sharedfield:42"), "//result[@numFound='" + numThreads + "']");
+  }
+
+  private void processAddBatch(String chain, SolrInputDocument... docs) throws IOException {
+    SolrCore core = h.getCore();
+    UpdateRequestProcessorChain pc = core.getUpdateProcessingChain(chain);
+    SolrQueryResponse rsp = new SolrQueryResponse();
+    SolrQueryRequest req = new LocalSolrQueryRequest(core, new ModifiableSolrParams());
+    try {
+      SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
+      List<AddUpdateCommand> cmds = new ArrayList<>();
+      for (SolrInputDocument doc : docs) {
+        AddUpdateCommand cmd = new AddUpdateCommand(req);
+        cmd.solrDoc = doc;
+        cmds.add(cmd);
+      }
+      pc.createProcessor(req, rsp).processAddBatch(cmds);
+    } finally {
+      SolrRequestInfo.clearRequestInfo();
+      req.close();
+    }
+  }
+
   @After
   public void deleteCoreAndTempSolrHomeDirectory() {
     deleteCore();
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.util.List;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.RealTimeGetComponent;
+import org.apache.solr.handler.component.RealTimeGetComponent.PrefetchedInputDocuments;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+public class AtomicUpdateBatchTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // no _root_ field, so that the documents of a batch are looked up at once
+    initCore("solrconfig-tlog.xml", "schema-minimal-atomic-stress.xml");
+  }
+
+  @Before
+  public void clearIndex() {
+    assertU(delQ("*:*"));
+    assertU(commit());
+  }
+
+  public void testPrefetchedDocumentsAreTheLatest() throws Exception {
+    for (int id = 1; id <= 5; id++) {
+      assertU(adoc("id", Integer.toString(id), "long_stored_idx", Integer.toString(id)));
+    }
+    assertU(commit());
+    assertU(delI("2"));
+    assertU(adoc("id", "3", "long_stored_idx", "30"));
+
+    SolrCore core = h.getCore();
+    PrefetchedInputDocuments docs =
+        RealTimeGetComponent.prefetchInputDocuments(
+            core, List.of(id("5"), id("4"), id("3"), id("2"), id("1"), id("9"), id("1")));
+    // updated after the prefetch
+    assertU(adoc("id", "4", "long_stored_idx", "40"));
+
+    assertEquals(1L, longValue(docs.getInputDocument(core, id("1"))));
+    assertNull(docs.getInputDocument(core, id("2")));
+    assertEquals(30L, longValue(docs.getInputDocument(core, id("3"))));
+    assertEquals(40L, longValue(docs.getInputDocument(core, id("4"))));
+    assertNull(docs.getInputDocument(core, id("9")));
+    // documents are looked up again once returned, or once the realtime searcher is reopened
+    assertEquals(1L, longValue(docs.getInputDocument(core, id("1"))));
+    assertU(commit("softCommit", "true"));
+    assertEquals(5L, longValue(docs.getInputDocument(core, id("5"))));
+  }
+
+  public void testBatchOfAtomicUpdates() throws Exception {
+    assertU(adoc("id", "1", "long_stored_idx", "1"));
+    assertU(adoc("id", "2", "long_stored_idx", "2"));
+    assertU(commit());
+    assertU(adoc("id", "2", "long_stored_idx", "20"));
+
+    updateJ(
+        json(
+            "["
+                + "{'id':'1','long_stored_idx':{'inc':1}},"
+                + "{'id':'2','long_stored_idx':{'inc':1}},"
+                + "{'id':'1','long_stored_idx':{'inc':1}},"
+                + "{'id':'3','long_stored_idx':{'set':3}}"
+                + "]"),
+        null);
+    assertU(commit());
+
+    assertQ(req("q", "*:*"), "//result[@numFound='3']");
+    assertQ(req("q", "id:1"), "//long[@name='long_stored_idx'][.='3']");
+    assertQ(req("q", "id:2"), "//long[@name='long_stored_idx'][.='21']");
+    assertQ(req("q", "id:3"), "//long[@name='long_stored_idx'][.='3']");
+  }
+
+  private static BytesRef id(String id) {
+    return new BytesRef(id);
+  }
+
+  private static long longValue(SolrInputDocument doc) {
+    return ((Number) doc.getFieldValue("long_stored_idx")).longValue();
+  }
+}
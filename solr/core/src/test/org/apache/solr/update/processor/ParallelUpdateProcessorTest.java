@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.UpdateParams;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+public class ParallelUpdateProcessorTest extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema.xml");
+  }
+
+  @Before
+  public void clearIndex() {
+    assertU(delQ("*:*"));
+    assertU(commit());
+  }
+
+  public void testUpdatesOfADocumentAppliedInOrder() throws Exception {
+    final int numIds = 50;
+    final int numUpdatesPerId = 20;
+    StringBuilder json = new StringBuilder("[");
+    for (int update = 0; update < numUpdatesPerId; update++) {
+      for (int id = 0; id < numIds; id++) {
+        if (json.length() > 1) json.append(',');
+        json.append("{\"id\":\"").append(id).append("\",\"val_i\":").append(update).append('}');
+      }
+    }
+    json.append(']');
+    updateJ(json.toString(), params(ParallelUpdateProcessor.PARALLELISM_PARAM, "4"));
+    assertU(commit());
+
+    assertQ(req("q", "*:*"), "//result[@numFound='" + numIds + "']");
+    // every document has the value of its last update
+    assertQ(req("q", "val_i:" + (numUpdatesPerId - 1)), "//result[@numFound='" + numIds + "']");
+  }
+
+  public void testWorkersUseTheNowOfTheRequest() throws Exception {
+    long now = Instant.parse("2020-02-02T02:02:02Z").toEpochMilli();
+    StringBuilder json = new StringBuilder("[");
+    for (int id = 0; id < 500; id++) {
+      if (json.length() > 1) json.append(',');
+      json.append("{\"id\":\"").append(id).append("\"}");
+    }
+    json.append(']');
+    updateJ(
+        json.toString(),
+        params(
+            ParallelUpdateProcessor.PARALLELISM_PARAM,
+            "4",
+            UpdateParams.UPDATE_CHAIN,
+            "timestamp",
+            CommonParams.NOW,
+            Long.toString(now)));
+    assertU(commit());
+
+    assertQ(req("q", "timestamp_dt:\"2020-02-02T02:02:02Z\""), "//result[@numFound='500']");
+  }
+
+  public void testDeleteWaitsForPrecedingAdds() throws Exception {
+    StringBuilder json = new StringBuilder("{");
+    for (int id = 0; id < 300; id++) {
+      json.append("\"add\":{\"doc\":{\"id\":\"").append(id).append("\"}},");
+    }
+    json.append("\"delete\":{\"query\":\"*:*\"},");
+    json.append("\"add\":{\"doc\":{\"id\":\"last\"}}}");
+    updateJ(json.toString(), params(ParallelUpdateProcessor.PARALLELISM_PARAM, "4"));
+    assertU(commit());
+
+    assertQ(req("q", "*:*"), "//result[@numFound='1']", "//str[@name='id'][.='last']");
+  }
+
+  public void testNoDocumentIsProcessedAfterAnError() throws Exception {
+    // ids of the same partition, whatever the number of workers up to 4, so that the documents are
+    // processed in request order
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; ids.size() < 300; i++) {
+      if (Math.floorMod(Integer.toString(i).hashCode(), 12) == 0) {
+        ids.add(Integer.toString(i));
+      }
+    }
+    StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < ids.size(); i++) {
+      if (i > 0) json.append(',');
+      String val = i == 150 ? "\"not a number\"" : Integer.toString(i);
+      json.append("{\"id\":\"").append(ids.get(i)).append("\",\"val_i\":").append(val).append('}');
+    }
+    json.append(']');
+    SolrException e =
+        expectThrows(
+            SolrException.class,
+            () -> updateJ(json.toString(), params(ParallelUpdateProcessor.PARALLELISM_PARAM, "4")));
+    assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, e.code());
+    assertU(commit());
+
+    // exactly the documents preceding the failing one are indexed
+    assertQ(req("q", "*:*"), "//result[@numFound='150']");
+    assertQ(req("q", "id:" + ids.get(149)), "//result[@numFound='1']");
+    assertQ(req("q", "id:" + ids.get(150)), "//result[@numFound='0']");
+    assertQ(req("q", "id:" + ids.get(151)), "//result[@numFound='0']");
+  }
+
+  public void testWorkersAreDoneWhenTheRequestFails() throws Exception {
+    int permits = ParallelUpdateProcessor.WORKER_PERMITS.availablePermits();
+    StringBuilder json = new StringBuilder("[");
+    for (int id = 0; id < 500; id++) {
+      json.append("{\"id\":\"").append(id).append("\"},");
+    }
+    // the request fails while parsing, before the end of the processing
+    json.append("{\"id\":");
+    expectThrows(
+        Exception.class,
+        () -> updateJ(json.toString(), params(ParallelUpdateProcessor.PARALLELISM_PARAM, "4")));
+
+    // the permits are released once the workers are done
+    assertEquals(permits, ParallelUpdateProcessor.WORKER_PERMITS.availablePermits());
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import static org.apache.solr.update.processor.FieldMutatingUpdateProcessor.SELECT_ALL_FIELDS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.apache.solr.SolrTestCase;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.update.AddUpdateCommand;
+
+public class ProcessAddBatchTest extends SolrTestCase {
+
+  /** Records how the documents reach the end of the chain */
+  private static class RecordingProcessor extends UpdateRequestProcessor {
+    final List<Integer> batchSizes = new ArrayList<>();
+    final List<String> ids = new ArrayList<>();
+
+    RecordingProcessor() {
+      super(null);
+    }
+
+    @Override
+    public void processAdd(AddUpdateCommand cmd) {
+      batchSizes.add(1);
+      ids.add((String) cmd.getSolrInputDocument().getFieldValue("id"));
+    }
+
+    @Override
+    public void processAddBatch(List<AddUpdateCommand> cmds) {
+      batchSizes.add(cmds.size());
+      for (AddUpdateCommand cmd : cmds) {
+        ids.add((String) cmd.getSolrInputDocument().getFieldValue("id"));
+      }
+    }
+  }
+
+  private static List<AddUpdateCommand> commands(String... ids) {
+    List<AddUpdateCommand> cmds = new ArrayList<>();
+    for (String id : ids) {
+      AddUpdateCommand cmd = new AddUpdateCommand(null);
+      cmd.solrDoc = new SolrInputDocument("id", id);
+      cmds.add(cmd);
+    }
+    return cmds;
+  }
+
+  public void testPassThroughProcessorForwardsBatch() throws IOException {
+    RecordingProcessor tail = new RecordingProcessor();
+    UpdateRequestProcessor chain = new UpdateRequestProcessor(tail) {};
+    chain.processAddBatch(commands("a", "b", "c"));
+    assertEquals(List.of(3), tail.batchSizes);
+    assertEquals(List.of("a", "b", "c"), tail.ids);
+  }
+
+  public void testPerDocumentProcessorFallsBack() throws IOException {
+    RecordingProcessor tail = new RecordingProcessor();
+    UpdateRequestProcessor chain =
+        new UpdateRequestProcessor(tail) {
+          @Override
+          public void processAdd(AddUpdateCommand cmd) throws IOException {
+            super.processAdd(cmd);
+          }
+        };
+    chain.processAddBatch(commands("a", "b", "c"));
+    assertEquals(List.of(1, 1, 1), tail.batchSizes);
+    assertEquals(List.of("a", "b", "c"), tail.ids);
+  }
+
+  public void testFailingCommandIsFlagged() {
+    RecordingProcessor tail = new RecordingProcessor();
+    UpdateRequestProcessor chain =
+        new UpdateRequestProcessor(tail) {
+          @Override
+          public void processAdd(AddUpdateCommand cmd) throws IOException {
+            if ("fail".equals(cmd.getSolrInputDocument().getFieldValue("id"))) {
+              throw new IOException("failing");
+            }
+            super.processAdd(cmd);
+          }
+        };
+    List<AddUpdateCommand> cmds = commands("a", "fail", "c");
+    expectThrows(IOException.class, () -> chain.processAddBatch(cmds));
+    assertEquals(List.of("a"), tail.ids);
+    assertFalse(cmds.get(0).failedInBatch);
+    assertTrue(cmds.get(1).failedInBatch);
+    assertFalse(cmds.get(2).failedInBatch);
+  }
+
+  public void testLogProcessorCountsTheAddsPrecedingAFailure() {
+    UpdateRequestProcessor tail =
+        new UpdateRequestProcessor(new RecordingProcessor()) {
+          @Override
+          public void processAdd(AddUpdateCommand cmd) throws IOException {
+            if ("fail".equals(cmd.getSolrInputDocument().getFieldValue("id"))) {
+              throw new IOException("failing");
+            }
+            super.processAdd(cmd);
+          }
+        };
+    LogUpdateProcessorFactory.LogUpdateProcessor chain =
+        new LogUpdateProcessorFactory.LogUpdateProcessor(
+            null, null, new LogUpdateProcessorFactory(), tail);
+    expectThrows(IOException.class, () -> chain.processAddBatch(commands("a", "b", "fail", "d")));
+    assertEquals(2, chain.numAdds);
+  }
+
+  public void testFieldMutatingProcessorForwardsBatch() throws IOException {
+    RecordingProcessor tail = new RecordingProcessor();
+    UpdateRequestProcessor chain =
+        new FieldValueMutatingUpdateProcessor(SELECT_ALL_FIELDS, tail) {
+          @Override
+          protected Object mutateValue(Object src) {
+            if ("fail".equals(src)) {
+              throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "bad value");
+            }
+            return src.toString().toUpperCase(Locale.ROOT);
+          }
+        };
+    chain.processAddBatch(commands("a", "b", "c"));
+    assertEquals(List.of(3), tail.batchSizes);
+    assertEquals(List.of("A", "B", "C"), tail.ids);
+
+    // the documents preceding a failing one still reach the rest of the chain
+    tail.batchSizes.clear();
+    tail.ids.clear();
+    List<AddUpdateCommand> cmds = commands("d", "e", "fail", "g");
+    expectThrows(SolrException.class, () -> chain.processAddBatch(cmds));
+    assertEquals(List.of(2), tail.batchSizes);
+    assertEquals(List.of("D", "E"), tail.ids);
+    assertTrue(cmds.get(2).failedInBatch);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.update.processor;
+
+import java.util.Base64;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.schema.DenseVectorField;
+import org.apache.solr.util.vector.FloatDenseVectorParser;
+import org.apache.solr.util.vector.LetterCountTextEmbeddingModel;
+import org.apache.solr.util.vector.TextEmbeddingModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TextEmbeddingUpdateProcessorFactoryTest extends SolrTestCaseJ4 {
+
+  @Before
+  public void prepareCore() throws Exception {
+    initCore("solrconfig_codec.xml", "schema-densevector.xml");
+  }
+
+  @After
+  public void cleanUp() {
+    clearIndex();
+    deleteCore();
+  }
+
+  private static TextEmbeddingModel getEmbeddingModel() {
+    return ((DenseVectorField) h.getCore().getLatestSchema().getFieldType("vector_embedded"))
+        .getEmbeddingModel();
+  }
+
+  @Test
+  public void model_shouldBeSharedBySchemaVersions() throws Exception {
+    int closed = LetterCountTextEmbeddingModel.closed.get();
+    TextEmbeddingModel model = getEmbeddingModel();
+    h.reload();
+    assertSame(model, getEmbeddingModel());
+    assertEquals(closed, LetterCountTextEmbeddingModel.closed.get());
+  }
+
+  @Test
+  public void batchOfDocuments_shouldBeEncodedAtOnce() throws Exception {
+    int batches = LetterCountTextEmbeddingModel.batches.get();
+    updateJ(
+        json(
+            "["
+                + "{'id':'1', 'string_field':'a bed of cabbage'},"
+                + "{'id':'2', 'string_field':'hill'},"
+                + "{'id':'3', 'string_field':'sun story'},"
+                + "{'id':'4'}"
+                + "]"),
+        params("update.chain", "embedding"));
+    assertU(commit());
+    assertEquals(batches + 1, LetterCountTextEmbeddingModel.batches.get());
+
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector_embedded topK=3}[0.0, 0.0, 0.0, 1.0]", "fl", "id"),
+        "//result[@numFound='3']",
+        "//result/doc[1]/str[@name='id'][.='3']");
+  }
+
+  @Test
+  public void textToSearch_shouldBeEncodedByTheModel() throws Exception {
+    updateJ(
+        json(
+            "["
+                + "{'id':'1', 'string_field':'a bed of cabbage'},"
+                + "{'id':'2', 'string_field':'hill'},"
+                + "{'id':'3', 'string_field':'sun story'}"
+                + "]"),
+        params("update.chain", "embedding"));
+    assertU(commit());
+
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector_embedded topK=1}kill", "fl", "id"),
+        "//result[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='2']");
+
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector_embedded topK=1}face", "fl", "id"),
+        "//result[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='1']");
+  }
+
+  @Test
+  public void documentWithVector_shouldKeepItsVector() throws Exception {
+    String vector =
+        Base64.getEncoder()
+            .encodeToString(
+                FloatDenseVectorParser.encodeBinaryVector(new float[] {1f, 0f, 0f, 0f}));
+    updateJ(
+        json(
+            "["
+                + "{'id':'1', 'string_field':'sun story', 'vector_embedded':'"
+                + vector
+                + "'},"
+                + "{'id':'2', 'string_field':'sun story'}"
+                + "]"),
+        params("update.chain", "embedding"));
+    assertU(commit());
+
+    assertQ(
+        req(CommonParams.Q, "{!knn f=vector_embedded topK=1}[1.0, 0.0, 0.0, 0.0]", "fl", "id"),
+        "//result[@numFound='1']",
+        "//result/doc[1]/str[@name='id'][.='1']");
+  }
+}
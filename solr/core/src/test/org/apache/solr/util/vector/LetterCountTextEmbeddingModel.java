@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util.vector;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A test embedding model encoding a text to 4 dimensions, counting its letters from a to f, g to l,
+ * m to r and s to z, plus a smoothing constant. Records how many batches of texts it encoded, and
+ * how many instances were closed.
+ */
+public class LetterCountTextEmbeddingModel implements TextEmbeddingModel {
+  public static final AtomicInteger batches = new AtomicInteger();
+  public static final AtomicInteger closed = new AtomicInteger();
+
+  private float smoothing;
+
+  @Override
+  public void init(Map<String, String> args) {
+    smoothing = Float.parseFloat(args.getOrDefault("smoothing", "0"));
+  }
+
+  @Override
+  public float[][] embed(List<String> texts) {
+    batches.incrementAndGet();
+    float[][] vectors = new float[texts.size()][];
+    for (int i = 0; i < vectors.length; i++) {
+      float[] vector = new float[] {smoothing, smoothing, smoothing, smoothing};
+      for (char c : texts.get(i).toLowerCase(Locale.ROOT).toCharArray()) {
+        if (c >= 'a' && c <= 'z') {
+          vector[c <= 'f' ? 0 : c <= 'l' ? 1 : c <= 'r' ? 2 : 3]++;
+        }
+      }
+      vectors[i] = vector;
+    }
+    return vectors;
+  }
+
+  @Override
+  public void close() {
+    closed.incrementAndGet();
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.util.vector;
+
+import java.util.Map;
+import org.apache.solr.SolrTestCase;
+import org.junit.Test;
+
+public class TextEmbeddingModelsTest extends SolrTestCase {
+
+  @Test
+  public void sameClassAndArguments_shouldShareTheModel() throws Exception {
+    int closed = LetterCountTextEmbeddingModel.closed.get();
+    TextEmbeddingModels models = new TextEmbeddingModels();
+    TextEmbeddingModel model =
+        models.get(LetterCountTextEmbeddingModel.class, Map.of("smoothing", "0.1"));
+    assertSame(model, models.get(LetterCountTextEmbeddingModel.class, Map.of("smoothing", "0.1")));
+    assertNotSame(
+        model, models.get(LetterCountTextEmbeddingModel.class, Map.of("smoothing", "0.2")));
+    assertEquals(2, models.size());
+
+    models.close();
+    assertEquals(closed + 2, LetterCountTextEmbeddingModel.closed.get());
+    assertEquals(0, models.size());
+  }
+}
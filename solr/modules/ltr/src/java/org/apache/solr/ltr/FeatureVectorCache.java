@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.ltr;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.solr.ltr.feature.Feature;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Values of the features of documents, kept across requests in an optional user cache of the
+ * searcher, so that paging through results or refining filters does not extract the features of
+ * the same documents again, whether for reranking them or for logging their features.
+ *
+ * <p>The values are keyed by feature store, external feature information, main query, segment and
+ * docid within the segment. The segments which do not change from a searcher to the next keep their
+ * keys, so the cache should be autowarmed with a {@link org.apache.solr.search.NoOpRegenerator}:
+ *
+ * <pre>
+ * &lt;cache name="ltrFeatureVectorCache"
+ *        class="solr.CaffeineCache"
+ *        size="100000"
+ *        initialSize="0"
+ *        autowarmCount="100%"
+ *        regenerator="solr.NoOpRegenerator"/&gt;
+ * </pre>
+ *
+ * <p>The values of features computed from index-wide statistics, such as the score of a query,
+ * drift slightly as the index changes, and the carried over values are not recomputed.
+ */
+public class FeatureVectorCache {
+
+  /** implementation detail subject to change */
+  public static final String CACHE_NAME = "ltrFeatureVectorCache";
+
+  private final SolrCache<Key, FeatureVector> cache;
+  private final Inputs inputs;
+
+  private FeatureVectorCache(SolrCache<Key, FeatureVector> cache, Inputs inputs) {
+    this.cache = cache;
+    this.inputs = inputs;
+  }
+
+  /**
+   * Returns the cache of the feature values computed by the given query, or null if the searcher
+   * has no such cache.
+   */
+  static FeatureVectorCache getInstance(IndexSearcher searcher, LTRScoringQuery scoringQuery) {
+    if (!(searcher instanceof SolrIndexSearcher)) {
+      return null;
+    }
+    @SuppressWarnings("unchecked")
+    final SolrCache<Key, FeatureVector> cache =
+        ((SolrIndexSearcher) searcher).getCache(CACHE_NAME);
+    if (cache == null || scoringQuery.getScoringModel() == null) {
+      return null;
+    }
+    return new FeatureVectorCache(
+        cache,
+        new Inputs(
+            scoringQuery.getScoringModel().getFeatureStoreName(),
+            scoringQuery.getExternalFeatureInfo(),
+            scoringQuery.getOriginalQuery()));
+  }
+
+  /** Returns the key of the core of the given segment, or null if it cannot be cached */
+  static Object getSegmentKey(LeafReaderContext context) {
+    final IndexReader.CacheHelper cacheHelper = context.reader().getCoreCacheHelper();
+    return cacheHelper == null ? null : cacheHelper.getKey();
+  }
+
+  /**
+   * Copies the cached values of the given features of a document to their features info.
+   *
+   * @return false if some of the features are not cached for this document
+   */
+  boolean get(
+      Object segmentKey,
+      int doc,
+      Feature.FeatureWeight[] featureWeights,
+      LTRScoringQuery.FeatureInfo[] featuresInfo) {
+    final FeatureVector featureVector = cache.get(new Key(inputs, segmentKey, doc));
+    if (featureVector == null || !featureVector.hasAll(featureWeights)) {
+      return false;
+    }
+    for (final Feature.FeatureWeight featureWeight : featureWeights) {
+      final int featureId = featureWeight.getIndex();
+      featuresInfo[featureId].setValue(featureVector.values[featureId]);
+      featuresInfo[featureId].setUsed(featureVector.used.get(featureId));
+    }
+    return true;
+  }
+
+  /** Caches the values of the given features of a document, as found in their features info */
+  void put(
+      Object segmentKey,
+      int doc,
+      Feature.FeatureWeight[] featureWeights,
+      LTRScoringQuery.FeatureInfo[] featuresInfo) {
+    final FeatureVector featureVector = new FeatureVector(featuresInfo.length);
+    for (final Feature.FeatureWeight featureWeight : featureWeights) {
+      final int featureId = featureWeight.getIndex();
+      featureVector.values[featureId] = featuresInfo[featureId].getValue();
+      featureVector.extracted.set(featureId);
+      if (featuresInfo[featureId].isUsed()) {
+        featureVector.used.set(featureId);
+      }
+    }
+    cache.put(new Key(inputs, segmentKey, doc), featureVector);
+  }
+
+  /** What the values of the features depend on, besides the document */
+  private static class Inputs {
+    final String featureStoreName;
+    // the values of the external feature information are arrays, compared by content
+    final Map<String, List<String>> efi = new TreeMap<>();
+    final Query originalQuery;
+    final int hashCode;
+
+    Inputs(String featureStoreName, Map<String, String[]> efi, Query originalQuery) {
+      this.featureStoreName = featureStoreName;
+      if (efi != null) {
+        for (final Map.Entry<String, String[]> entry : efi.entrySet()) {
+          this.efi.put(entry.getKey(), Arrays.asList(entry.getValue()));
+        }
+      }
+      this.originalQuery = originalQuery;
+      this.hashCode = Objects.hash(featureStoreName, this.efi, originalQuery);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Inputs)) return false;
+      final Inputs that = (Inputs) o;
+      return hashCode == that.hashCode
+          && Objects.equals(featureStoreName, that.featureStoreName)
+          && efi.equals(that.efi)
+          && Objects.equals(originalQuery, that.originalQuery);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  // Used in a SolrCache for the key
+  private static class Key implements Accountable {
+    private static final long BASE_RAM_BYTES = RamUsageEstimator.shallowSizeOfInstance(Key.class);
+
+    final Inputs inputs;
+    final WeakReference<Object> segCoreKeyRef;
+    final int docId;
+    final int hashCode; // cached because we can't necessarily compute after construction
+
+    Key(Inputs inputs, Object segCoreKey, int docId) {
+      this.inputs = inputs;
+      this.segCoreKeyRef = new WeakReference<>(segCoreKey);
+      this.docId = docId;
+      this.hashCode = (inputs.hashCode() * 31 + segCoreKey.hashCode()) * 31 + docId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (!(o instanceof Key)) return false;
+
+      final Key that = (Key) o;
+
+      if (docId != that.docId || !inputs.equals(that.inputs)) return false;
+
+      // compare by referent not reference
+      final Object segCoreKey = segCoreKeyRef.get();
+      if (segCoreKey == null) {
+        return false;
+      }
+      return segCoreKey.equals(that.segCoreKeyRef.get());
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      // the inputs are shared by the keys of the documents of a request
+      return BASE_RAM_BYTES + RamUsageEstimator.shallowSizeOfInstance(WeakReference.class);
+    }
+
+    @Override
+    public String toString() {
+      return "Key{store="
+          + inputs.featureStoreName
+          + ", seg="
+          + segCoreKeyRef.get()
+          + ", docId="
+          + docId
+          + '}';
+    }
+  }
+
+  /** Values of the features of a document, indexed by feature id */
+  private static class FeatureVector implements Accountable {
+    private static final long BASE_RAM_BYTES =
+        RamUsageEstimator.shallowSizeOfInstance(FeatureVector.class);
+
+    final float[] values;
+    // the features whose values were extracted, among all the features of the store
+    final FixedBitSet extracted;
+    // the features which matched the document, the others have their default value
+    final FixedBitSet used;
+
+    FeatureVector(int numFeatures) {
+      values = new float[numFeatures];
+      extracted = new FixedBitSet(numFeatures);
+      used = new FixedBitSet(numFeatures);
+    }
+
+    boolean hasAll(Feature.FeatureWeight[] featureWeights) {
+      for (final Feature.FeatureWeight featureWeight : featureWeights) {
+        final int featureId = featureWeight.getIndex();
+        if (featureId >= values.length || !extracted.get(featureId)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return BASE_RAM_BYTES
+          + RamUsageEstimator.sizeOf(values)
+          + extracted.ramBytesUsed()
+          + used.ramBytesUsed();
+    }
+  }
+}
@@ -231,7 +231,10 @@ public class LTRScoringQuery extends Query implements Accountable {
         modelFeaturesWeights[j++] = fw;
       }
     }
-    return new ModelWeight(modelFeaturesWeights, extractedFeatureWeights, allFeatures.size());
+    final ModelWeight modelWeight =
+        new ModelWeight(modelFeaturesWeights, extractedFeatureWeights, allFeatures.size());
+    modelWeight.featureVectorCache = FeatureVectorCache.getInstance(searcher, this);
+    return modelWeight;
   }
 
   private void createWeights(
@@ -381,6 +384,9 @@ public class LTRScoringQuery extends Query implements Accountable {
      */
     private final FeatureInfo[] featuresInfo;
 
+    // values of the features kept across requests, or null
+    private FeatureVectorCache featureVectorCache;
+
     /*
      * @param modelFeatureWeights
      *     - should be the same size as the number of features used by the model
@@ -436,6 +442,15 @@ public class LTRScoringQuery extends Query implements Accountable {
      * features that will be used for scoring. Then calculate and return the model's score.
      */
     private float makeNormalizedFeaturesAndScore() {
+      makeNormalizedFeatures();
+      return ltrScoringModel.score(modelFeatureValuesNormalized);
+    }
+
+    /**
+     * Goes through all the stored feature values, and calculates the normalized values for all the
+     * features that will be used for scoring.
+     */
+    private void makeNormalizedFeatures() {
       int pos = 0;
       for (final Feature.FeatureWeight feature : modelFeatureWeights) {
         final int featureId = feature.getIndex();
@@ -449,7 +464,6 @@ public class LTRScoringQuery extends Query implements Accountable {
         pos++;
       }
       ltrScoringModel.normalizeFeaturesInPlace(modelFeatureValuesNormalized);
-      return ltrScoringModel.score(modelFeatureValuesNormalized);
     }
 
     @Override
@@ -500,7 +514,8 @@ public class LTRScoringQuery extends Query implements Accountable {
       // score on the model for every document, since 0 features matching could
       // return a
       // non 0 score for a given model.
-      ModelScorer mscorer = new ModelScorer(this, featureScorers);
+      ModelScorer mscorer =
+          new ModelScorer(this, featureScorers, FeatureVectorCache.getSegmentKey(context));
       return mscorer;
     }
 
@@ -511,14 +526,24 @@ public class LTRScoringQuery extends Query implements Accountable {
 
     public class ModelScorer extends Scorer {
       private final DocInfo docInfo;
-      private final Scorer featureTraversalScorer;
+      private final FeatureTraversalScorer featureTraversalScorer;
+      // the key of the segment in the feature vector cache, or null
+      private final Object segmentKey;
 
       public DocInfo getDocInfo() {
         return docInfo;
       }
 
       public ModelScorer(Weight weight, List<Feature.FeatureWeight.FeatureScorer> featureScorers) {
+        this(weight, featureScorers, null);
+      }
+
+      private ModelScorer(
+          Weight weight,
+          List<Feature.FeatureWeight.FeatureScorer> featureScorers,
+          Object segmentKey) {
         super(weight);
+        this.segmentKey = segmentKey;
         docInfo = new DocInfo();
         for (final Feature.FeatureWeight.FeatureScorer subScorer : featureScorers) {
           subScorer.setDocInfo(docInfo);
@@ -546,6 +571,26 @@ public class LTRScoringQuery extends Query implements Accountable {
         return featureTraversalScorer.score();
       }
 
+      /**
+       * Computes the normalized values of the features of the current document, without scoring
+       * it, so that the model can score it later along with other documents.
+       *
+       * @param modelFeatureValuesNormalized Receives the normalized values of the features used by
+       *     the model
+       * @see LTRScoringModel#score(float[][], int, float[])
+       */
+      public void extractNormalizedFeatures(float[] modelFeatureValuesNormalized)
+          throws IOException {
+        featureTraversalScorer.loadFeatures();
+        makeNormalizedFeatures();
+        System.arraycopy(
+            ModelWeight.this.modelFeatureValuesNormalized,
+            0,
+            modelFeatureValuesNormalized,
+            0,
+            modelFeatureValuesNormalized.length);
+      }
+
       @Override
       public float getMaxScore(int upTo) throws IOException {
         return Float.POSITIVE_INFINITY;
@@ -556,11 +601,41 @@ public class LTRScoringQuery extends Query implements Accountable {
         return featureTraversalScorer.iterator();
       }
 
-      private class SparseModelScorer extends Scorer {
+      private abstract class FeatureTraversalScorer extends Scorer {
+        int targetDoc = -1; // The doc we were most recently told to go to
+
+        FeatureTraversalScorer(Weight weight) {
+          super(weight);
+        }
+
+        /** Stores the values of the features of the current document */
+        abstract void extractFeatures() throws IOException;
+
+        /**
+         * Stores the values of the features of the current document, taking them from the feature
+         * vector cache when it has them.
+         */
+        void loadFeatures() throws IOException {
+          if (featureVectorCache == null || segmentKey == null) {
+            extractFeatures();
+          } else if (!featureVectorCache.get(
+              segmentKey, targetDoc, extractedFeatureWeights, featuresInfo)) {
+            extractFeatures();
+            featureVectorCache.put(segmentKey, targetDoc, extractedFeatureWeights, featuresInfo);
+          }
+        }
+
+        @Override
+        public float score() throws IOException {
+          loadFeatures();
+          return makeNormalizedFeaturesAndScore();
+        }
+      }
+
+      private class SparseModelScorer extends FeatureTraversalScorer {
         private final DisiPriorityQueue subScorers;
         private final ScoringQuerySparseIterator itr;
 
-        private int targetDoc = -1;
         private int activeDoc = -1;
 
         private SparseModelScorer(
@@ -584,7 +659,7 @@ public class LTRScoringQuery extends Query implements Accountable {
         }
 
         @Override
-        public float score() throws IOException {
+        void extractFeatures() throws IOException {
           final DisiWrapper topList = subScorers.topList();
           // If target doc we wanted to advance to match the actual doc
           // the underlying features advanced to, perform the feature
@@ -601,7 +676,6 @@ public class LTRScoringQuery extends Query implements Accountable {
               featuresInfo[featureId].setUsed(true);
             }
           }
-          return makeNormalizedFeaturesAndScore();
         }
 
         @Override
@@ -655,9 +729,8 @@ public class LTRScoringQuery extends Query implements Accountable {
         }
       }
 
-      private class DenseModelScorer extends Scorer {
+      private class DenseModelScorer extends FeatureTraversalScorer {
         private int activeDoc = -1; // The doc that our scorer's are actually at
-        private int targetDoc = -1; // The doc we were most recently told to go to
         private int freq = -1;
         private final List<Feature.FeatureWeight.FeatureScorer> featureScorers;
 
@@ -673,7 +746,7 @@ public class LTRScoringQuery extends Query implements Accountable {
         }
 
         @Override
-        public float score() throws IOException {
+        void extractFeatures() throws IOException {
           reset();
           freq = 0;
           if (targetDoc == activeDoc) {
@@ -687,7 +760,6 @@ public class LTRScoringQuery extends Query implements Accountable {
               }
             }
           }
-          return makeNormalizedFeaturesAndScore();
         }
 
         @Override
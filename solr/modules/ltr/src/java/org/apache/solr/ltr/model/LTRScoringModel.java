@@ -254,6 +254,20 @@ public abstract class LTRScoringModel implements Accountable {
    */
   public abstract float score(float[] modelFeatureValuesNormalized);
 
+  /**
+   * Calculates the scores of a block of documents. Models which score several documents faster
+   * than one at a time override this method.
+   *
+   * @param modelFeatureValuesNormalized Normalized feature values of each document
+   * @param count Number of documents to score, the first ones of the block
+   * @param scores Receives the final score of each document
+   */
+  public void score(float[][] modelFeatureValuesNormalized, int count, float[] scores) {
+    for (int i = 0; i < count; i++) {
+      scores[i] = score(modelFeatureValuesNormalized[i]);
+    }
+  }
+
   /**
    * Similar to the score() function, except it returns an explanation of how the features were used
    * to calculate the score.
@@ -18,6 +18,7 @@ package org.apache.solr.ltr.model;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
@@ -25,6 +26,8 @@ import java.util.Map;
 import java.util.Objects;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.Explanation;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.ltr.feature.Feature;
 import org.apache.solr.ltr.feature.FeatureException;
 import org.apache.solr.ltr.norm.Normalizer;
@@ -116,6 +119,19 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
 
   private boolean isNullSameAsZero = true;
 
+  // The trees compiled into flat arrays when the model is validated. The nodes of each tree are
+  // stored in depth-first order, so the left child of a split directly follows it. A leaf holds
+  // its value multiplied by the weight of its tree, and so does a split on a feature which does
+  // not exist, since it ends the evaluation of its tree.
+  private static final int LEAF = -1;
+  private int[] treeRoots;
+  // the index of the feature of a split, LEAF for a leaf
+  private int[] nodeFeatures;
+  private float[] nodeThresholds;
+  private int[] nodeRightChildren;
+  private boolean[] nodeMissingLeft;
+  private float[] nodeValues;
+
   private RegressionTree createRegressionTree(Map<String, Object> map) {
     final RegressionTree rt = new RegressionTree();
     if (map != null) {
@@ -294,6 +310,61 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
     for (RegressionTree tree : trees) {
       tree.validate();
     }
+    compileTrees();
+  }
+
+  private void compileTrees() {
+    treeRoots = new int[trees.size()];
+    int[] splitFeatures = new int[0];
+    float[] thresholds = new float[0];
+    int[] rightChildren = new int[0];
+    boolean[] missingLeft = new boolean[0];
+    float[] values = new float[0];
+    int numNodes = 0;
+
+    Deque<RegressionTreeNode> stack = new ArrayDeque<>();
+    // for each node of the stack, the split whose right child it is, or -1
+    Deque<Integer> rightOf = new ArrayDeque<>();
+    for (int t = 0; t < trees.size(); t++) {
+      final RegressionTree tree = trees.get(t);
+      treeRoots[t] = numNodes;
+      stack.push(tree.root);
+      rightOf.push(-1);
+      while (!stack.isEmpty()) {
+        final RegressionTreeNode node = stack.pop();
+        final int parent = rightOf.pop();
+        final int index = numNodes++;
+        if (index == splitFeatures.length) {
+          splitFeatures = ArrayUtil.grow(splitFeatures);
+          thresholds = ArrayUtil.growExact(thresholds, splitFeatures.length);
+          rightChildren = ArrayUtil.growExact(rightChildren, splitFeatures.length);
+          missingLeft = Arrays.copyOf(missingLeft, splitFeatures.length);
+          values = ArrayUtil.growExact(values, splitFeatures.length);
+        }
+        if (parent >= 0) {
+          rightChildren[parent] = index;
+        }
+        if (node.isLeaf() || node.featureIndex < 0) {
+          splitFeatures[index] = LEAF;
+          values[index] = tree.weight.floatValue() * (node.isLeaf() ? node.value : 0f);
+        } else {
+          splitFeatures[index] = node.featureIndex;
+          thresholds[index] = node.threshold;
+          missingLeft[index] = Objects.equals(node.missing, "left");
+          // the left child is popped first, right after its parent
+          stack.push(node.right);
+          rightOf.push(index);
+          stack.push(node.left);
+          rightOf.push(-1);
+        }
+      }
+    }
+
+    nodeFeatures = ArrayUtil.copyOfSubArray(splitFeatures, 0, numNodes);
+    nodeThresholds = ArrayUtil.copyOfSubArray(thresholds, 0, numNodes);
+    nodeRightChildren = ArrayUtil.copyOfSubArray(rightChildren, 0, numNodes);
+    nodeMissingLeft = Arrays.copyOf(missingLeft, numNodes);
+    nodeValues = ArrayUtil.copyOfSubArray(values, 0, numNodes);
   }
 
   @Override
@@ -324,12 +395,80 @@ public class MultipleAdditiveTreesModel extends LTRScoringModel {
   @Override
   public float score(float[] modelFeatureValuesNormalized) {
     float score = 0;
-    for (final RegressionTree t : trees) {
-      score += t.score(modelFeatureValuesNormalized);
+    if (modelFeatureValuesNormalized.length < features.size()) {
+      // some features are missing from the vector, walk the trees
+      for (final RegressionTree t : trees) {
+        score += t.score(modelFeatureValuesNormalized);
+      }
+      return score;
+    }
+    for (final int root : treeRoots) {
+      score += nodeValues[findLeaf(modelFeatureValuesNormalized, root)];
     }
     return score;
   }
 
+  /**
+   * Scores the documents tree by tree rather than document by document, so that the nodes of a
+   * tree stay in the CPU caches while the whole block goes through it.
+   */
+  @Override
+  public void score(float[][] modelFeatureValuesNormalized, int count, float[] scores) {
+    for (int d = 0; d < count; d++) {
+      if (modelFeatureValuesNormalized[d].length < features.size()) {
+        super.score(modelFeatureValuesNormalized, count, scores);
+        return;
+      }
+    }
+    Arrays.fill(scores, 0, count, 0f);
+    for (final int root : treeRoots) {
+      for (int d = 0; d < count; d++) {
+        scores[d] += nodeValues[findLeaf(modelFeatureValuesNormalized[d], root)];
+      }
+    }
+  }
+
+  /** Returns the leaf of the compiled tree rooted at the given node reached by a document */
+  private int findLeaf(float[] featureVector, int node) {
+    int featureIndex;
+    if (isNullSameAsZero) {
+      while ((featureIndex = nodeFeatures[node]) != LEAF) {
+        if (featureVector[featureIndex] <= nodeThresholds[node]) {
+          node++;
+        } else {
+          node = nodeRightChildren[node];
+        }
+      }
+    } else {
+      while ((featureIndex = nodeFeatures[node]) != LEAF) {
+        final float value = featureVector[featureIndex];
+        if (value <= nodeThresholds[node]) {
+          node++;
+        } else if (value > nodeThresholds[node] || !nodeMissingLeft[node]) {
+          node = nodeRightChildren[node];
+        } else {
+          // NaN, missing value going left
+          node++;
+        }
+      }
+    }
+    return node;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    if (treeRoots == null) {
+      return super.ramBytesUsed();
+    }
+    return super.ramBytesUsed()
+        + RamUsageEstimator.sizeOf(treeRoots)
+        + RamUsageEstimator.sizeOf(nodeFeatures)
+        + RamUsageEstimator.sizeOf(nodeThresholds)
+        + RamUsageEstimator.sizeOf(nodeRightChildren)
+        + RamUsageEstimator.sizeOf(nodeMissingLeft)
+        + RamUsageEstimator.sizeOf(nodeValues);
+  }
+
   private static float scoreNode(float[] featureVector, RegressionTreeNode regressionTreeNode) {
     while (true) {
       if (regressionTreeNode.isLeaf()) {
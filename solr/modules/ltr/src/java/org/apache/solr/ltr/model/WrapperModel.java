@@ -148,6 +148,11 @@ public abstract class WrapperModel extends AdapterModel {
     return model.score(modelFeatureValuesNormalized);
   }
 
+  @Override
+  public void score(float[][] modelFeatureValuesNormalized, int count, float[] scores) {
+    model.score(modelFeatureValuesNormalized, count, scores);
+  }
+
   @Override
   public Explanation explain(
       LeafReaderContext context, int doc, float finalScore, List<Explanation> featureExplanations) {
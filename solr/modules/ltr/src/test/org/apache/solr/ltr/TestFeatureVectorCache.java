@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.ltr;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.ltr.feature.SolrFeature;
+import org.apache.solr.ltr.feature.ValueFeature;
+import org.apache.solr.ltr.model.LinearModel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFeatureVectorCache extends TestRerankBase {
+
+  @Before
+  public void before() throws Exception {
+    // solrconfig-multiseg.xml configures the feature vector cache, and writes each document to its
+    // own segment
+    setuptest("solrconfig-multiseg.xml", "schema.xml");
+    for (int i = 1; i <= 8; i++) {
+      assertU(adoc("id", Integer.toString(i), "title", "a1", "popularity", Integer.toString(i)));
+    }
+    assertU(commit());
+
+    loadFeature("pop", SolrFeature.class.getName(), "{\"q\":\"{!func}pow(popularity,2)\"}");
+    loadFeature("boost", ValueFeature.class.getName(), "{\"value\":\"${boost}\"}");
+    loadModel(
+        "pop-model",
+        LinearModel.class.getName(),
+        new String[] {"pop", "boost"},
+        "{\"weights\":{\"pop\":1.0,\"boost\":1.0}}");
+  }
+
+  @After
+  public void after() throws Exception {
+    aftertest();
+  }
+
+  private static int cachedFeatureVectors() throws Exception {
+    try (SolrCore core = solrClientTestRule.getCoreContainer().getCore(DEFAULT_TEST_CORENAME)) {
+      return core.withSearcher(searcher -> searcher.getCache(FeatureVectorCache.CACHE_NAME).size());
+    }
+  }
+
+  @Test
+  public void testFeatureVectorsAreReusedAcrossRequests() throws Exception {
+    final SolrQuery query = new SolrQuery();
+    query.setQuery("title:a1");
+    query.add("fl", "id,score");
+    query.add("rows", "4");
+    query.add("rq", "{!ltr model=pop-model reRankDocs=10 efi.boost=1}");
+
+    assertJQ(
+        "/query" + query.toQueryString(),
+        "/response/docs/[0]/id=='8'",
+        "/response/docs/[0]/score==65.0");
+    assertEquals(8, cachedFeatureVectors());
+
+    // the next page, and the logging of the features, reuse the cached values
+    query.set("start", "4");
+    query.set("fl", "id,score,fv:[features]");
+    assertJQ(
+        "/query" + query.toQueryString(),
+        "/response/docs/[0]/id=='4'",
+        "/response/docs/[0]/score==17.0",
+        "/response/docs/[0]/fv=='pop=16.0,boost=1.0'");
+    assertEquals(8, cachedFeatureVectors());
+
+    // other external feature information gives other values
+    query.set("rq", "{!ltr model=pop-model reRankDocs=10 efi.boost=2}");
+    assertJQ(
+        "/query" + query.toQueryString(),
+        "/response/docs/[0]/id=='4'",
+        "/response/docs/[0]/score==18.0",
+        "/response/docs/[0]/fv=='pop=16.0,boost=2.0'");
+    assertEquals(16, cachedFeatureVectors());
+
+    // the values of the documents of the segments left unchanged by a commit are still cached
+    assertU(adoc("id", "9", "title", "a1", "popularity", "9"));
+    assertU(commit());
+    assertEquals(16, cachedFeatureVectors());
+
+    query.set("start", "0");
+    assertJQ(
+        "/query" + query.toQueryString(),
+        "/response/docs/[0]/id=='9'",
+        "/response/docs/[0]/score==83.0",
+        "/response/docs/[1]/id=='8'",
+        "/response/docs/[1]/score==66.0");
+    assertEquals(17, cachedFeatureVectors());
+  }
+}
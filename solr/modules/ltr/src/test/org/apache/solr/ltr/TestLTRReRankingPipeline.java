@@ -228,6 +228,52 @@ public class TestLTRReRankingPipeline extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testRescoreMoreHitsThanABlock() throws IOException {
+    assertU(delQ("*:*"));
+    final int numDocs = LTRRescorer.SCORING_BLOCK_SIZE * 2 + 10;
+    for (int i = 0; i < numDocs; i++) {
+      assertU(adoc("id", Integer.toString(i), "field", "wizard", "finalScoreFloat", i + ".0"));
+      if (i % 100 == 99) {
+        // spread the hits over several segments
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    try (SolrQueryRequest solrQueryRequest =
+        new LocalSolrQueryRequest(h.getCore(), new ModifiableSolrParams())) {
+      final SolrIndexSearcher searcher = solrQueryRequest.getSearcher();
+      TopDocs hits = searcher.search(new TermQuery(new Term("field", "wizard")), numDocs);
+      assertEquals(numDocs, hits.scoreDocs.length);
+
+      final List<Feature> features = makeFieldValueFeatures(new int[] {0, 1}, "finalScoreFloat");
+      final List<Normalizer> norms =
+          new ArrayList<Normalizer>(
+              Collections.nCopies(features.size(), IdentityNormalizer.INSTANCE));
+      final LTRScoringModel ltrScoringModel =
+          TestLinearModel.createLinearModel(
+              "test",
+              features,
+              norms,
+              "test",
+              features,
+              TestLinearModel.makeFeatureWeights(features));
+
+      final LTRScoringQuery scoringQuery = new LTRScoringQuery(ltrScoringModel);
+      scoringQuery.setRequest(solrQueryRequest);
+      final int topN = 50;
+      hits = new LTRRescorer(scoringQuery).rescore(searcher, hits, topN);
+
+      assertEquals(topN, hits.scoreDocs.length);
+      for (int i = 0; i < topN; i++) {
+        final int id = numDocs - 1 - i;
+        assertEquals(id, Integer.parseInt(searcher.doc(hits.scoreDocs[i].doc).get("id")));
+        assertEquals(id * features.size() * 0.1, hits.scoreDocs[i].score, 0.0001);
+      }
+    }
+  }
+
   @Test
   public void testDocParam() throws Exception {
     try (SolrQueryRequest solrQueryRequest =
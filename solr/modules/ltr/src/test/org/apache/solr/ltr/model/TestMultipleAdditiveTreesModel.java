@@ -18,8 +18,17 @@ package org.apache.solr.ltr.model;
 
 import static org.hamcrest.core.StringContains.containsString;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.ltr.TestRerankBase;
+import org.apache.solr.ltr.feature.Feature;
+import org.apache.solr.ltr.feature.ValueFeature;
+import org.apache.solr.ltr.norm.IdentityNormalizer;
+import org.apache.solr.ltr.norm.Normalizer;
 import org.hamcrest.MatcherAssert;
 import org.junit.After;
 import org.junit.Before;
@@ -357,4 +366,82 @@ public class TestMultipleAdditiveTreesModel extends TestRerankBase {
     MatcherAssert.assertThat(qryResult, containsString(" Go Right "));
     MatcherAssert.assertThat(qryResult, containsString(" Go Left "));
   }
+
+  @Test
+  public void testCompiledTreesScoreLikeTheTrees() throws Exception {
+    final List<Feature> features = new ArrayList<>();
+    final List<Normalizer> norms = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      features.add(new ValueFeature("f" + i, Collections.emptyMap()));
+      norms.add(IdentityNormalizer.INSTANCE);
+    }
+    final List<Object> trees = new ArrayList<>();
+    for (int t = 0; t < 20; t++) {
+      final Map<String, Object> tree = new HashMap<>();
+      tree.put("weight", Float.toString(random().nextFloat() * 2 - 1));
+      tree.put("root", randomTreeNode(5));
+      trees.add(tree);
+    }
+    final float[][] featureVectors = new float[50][features.size()];
+    for (float[] featureVector : featureVectors) {
+      for (int i = 0; i < featureVector.length; i++) {
+        featureVector[i] = random().nextInt(10) == 0 ? Float.NaN : random().nextFloat();
+      }
+    }
+
+    for (boolean nullSameAsZero : new boolean[] {true, false}) {
+      final MultipleAdditiveTreesModel model =
+          new MultipleAdditiveTreesModel(
+              "model", features, norms, "store", features, Map.of("trees", trees));
+      model.setTrees(trees);
+      model.setIsNullSameAsZero(nullSameAsZero);
+      model.validate();
+
+      final float[] expected = new float[featureVectors.length];
+      for (int d = 0; d < featureVectors.length; d++) {
+        for (Object tree : trees) {
+          final Map<?, ?> treeMap = (Map<?, ?>) tree;
+          expected[d] +=
+              Float.parseFloat((String) treeMap.get("weight"))
+                  * walkTree((Map<?, ?>) treeMap.get("root"), featureVectors[d], nullSameAsZero);
+        }
+        assertEquals(expected[d], model.score(featureVectors[d]), 0f);
+      }
+      final float[] scores = new float[featureVectors.length];
+      model.score(featureVectors, featureVectors.length, scores);
+      assertArrayEquals(expected, scores, 0f);
+    }
+  }
+
+  private static Map<String, Object> randomTreeNode(int depth) {
+    final Map<String, Object> node = new HashMap<>();
+    if (depth == 0 || random().nextInt(4) == 0) {
+      node.put("value", Float.toString(random().nextFloat() * 100 - 50));
+      return node;
+    }
+    node.put("feature", random().nextInt(10) == 0 ? "unknown" : "f" + random().nextInt(3));
+    node.put("threshold", Float.toString(random().nextFloat()));
+    if (random().nextBoolean()) {
+      node.put("missing", random().nextBoolean() ? "left" : "right");
+    }
+    node.put("left", randomTreeNode(depth - 1));
+    node.put("right", randomTreeNode(depth - 1));
+    return node;
+  }
+
+  private static float walkTree(Map<?, ?> node, float[] featureVector, boolean nullSameAsZero) {
+    while (node.containsKey("feature")) {
+      final String feature = (String) node.get("feature");
+      if ("unknown".equals(feature)) {
+        return 0f;
+      }
+      final float value = featureVector[Integer.parseInt(feature.substring(1))];
+      final float threshold = Float.parseFloat((String) node.get("threshold")) + 1E-6f;
+      final boolean left =
+          value <= threshold
+              || (!nullSameAsZero && Float.isNaN(value) && "left".equals(node.get("missing")));
+      node = (Map<?, ?>) node.get(left ? "left" : "right");
+    }
+    return Float.parseFloat((String) node.get("value"));
+  }
 }
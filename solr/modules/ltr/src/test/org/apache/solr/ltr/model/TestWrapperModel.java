@@ -255,6 +255,12 @@ public class TestWrapperModel extends TestRerankBase {
     ++methodCount;
     Mockito.verify(wrappedModel, Mockito.times(1)).score(null);
 
+    // score of a block : delegate
+    Mockito.reset(wrappedModel);
+    wrapperModel.score(null, 0, null);
+    ++methodCount;
+    Mockito.verify(wrappedModel, Mockito.times(1)).score(null, 0, null);
+
     // normalizeFeaturesInPlace : delegate
     Mockito.reset(wrappedModel);
     wrapperModel.normalizeFeaturesInPlace(null);
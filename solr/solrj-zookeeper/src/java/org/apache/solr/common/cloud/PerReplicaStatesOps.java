@@ -23,6 +23,7 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
@@ -161,26 +162,40 @@ public class PerReplicaStatesOps {
    */
   public static PerReplicaStatesOps flipState(
       String replica, Replica.State newState, PerReplicaStates rs) {
+    return flipStates(Collections.singletonMap(replica, newState), rs);
+  }
+
+  /**
+   * Change the state of several replicas of a collection at once, so that all the changes are
+   * persisted in a single ZooKeeper multi operation
+   *
+   * @param newStates the new state of each replica, keyed by replica name
+   */
+  public static PerReplicaStatesOps flipStates(
+      Map<String, Replica.State> newStates, PerReplicaStates rs) {
     return new PerReplicaStatesOps(
             prs -> {
-              List<PerReplicaStates.Operation> operations = new ArrayList<>(2);
-              PerReplicaStates.State existing = prs.get(replica);
-              if (existing == null) {
-                operations.add(
-                    new PerReplicaStates.Operation(
-                        PerReplicaStates.Operation.Type.ADD,
-                        new PerReplicaStates.State(replica, newState, Boolean.FALSE, 0)));
-              } else {
-                operations.add(
-                    new PerReplicaStates.Operation(
-                        PerReplicaStates.Operation.Type.ADD,
-                        new PerReplicaStates.State(
-                            replica, newState, existing.isLeader, existing.version + 1)));
-                addDeleteStaleNodes(operations, existing);
+              List<PerReplicaStates.Operation> operations = new ArrayList<>(2 * newStates.size());
+              for (Map.Entry<String, Replica.State> e : newStates.entrySet()) {
+                String replica = e.getKey();
+                Replica.State newState = e.getValue();
+                PerReplicaStates.State existing = prs.get(replica);
+                if (existing == null) {
+                  operations.add(
+                      new PerReplicaStates.Operation(
+                          PerReplicaStates.Operation.Type.ADD,
+                          new PerReplicaStates.State(replica, newState, Boolean.FALSE, 0)));
+                } else {
+                  operations.add(
+                      new PerReplicaStates.Operation(
+                          PerReplicaStates.Operation.Type.ADD,
+                          new PerReplicaStates.State(
+                              replica, newState, existing.isLeader, existing.version + 1)));
+                  addDeleteStaleNodes(operations, existing);
+                }
               }
               if (log.isDebugEnabled()) {
-                log.debug(
-                    "flipState on {}, {} -> {}, ops :{}", prs.path, replica, newState, operations);
+                log.debug("flipStates on {}, {}, ops :{}", prs.path, newStates, operations);
               }
               return operations;
             })
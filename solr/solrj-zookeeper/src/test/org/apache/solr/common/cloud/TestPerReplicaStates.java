@@ -17,7 +17,9 @@
 
 package org.apache.solr.common.cloud;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.solr.cloud.SolrCloudTestCase;
 import org.apache.solr.common.cloud.Replica.State;
@@ -137,5 +139,20 @@ public class TestPerReplicaStates extends SolrCloudTestCase {
     ops.persist(root, cluster.getZkClient());
     rs = PerReplicaStatesOps.fetch(root, zkStateReader.getZkClient(), null);
     assertTrue(rs.get("R3").isLeader);
+
+    Map<String, State> newStates = new LinkedHashMap<>();
+    newStates.put("R1", State.ACTIVE);
+    newStates.put("R3", State.DOWN);
+    newStates.put("R6", State.RECOVERING);
+    ops = PerReplicaStatesOps.flipStates(newStates, rs);
+    // one ADD + one DELETE for each existing replica, one ADD for the new one
+    assertEquals(5, ops.ops.size());
+    ops.persist(root, cluster.getZkClient());
+    rs = PerReplicaStatesOps.fetch(root, zkStateReader.getZkClient(), null);
+    assertEquals(State.ACTIVE, rs.get("R1").state);
+    assertEquals(State.DOWN, rs.get("R3").state);
+    assertTrue(rs.get("R3").isLeader);
+    assertEquals(State.RECOVERING, rs.get("R6").state);
+    assertEquals(State.ACTIVE, rs.get("R4").state);
   }
 }
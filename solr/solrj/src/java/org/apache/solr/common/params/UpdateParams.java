@@ -76,4 +76,10 @@ public interface UpdateParams {
    * "In-Place" with out re-indexing the entire document.
    */
   public static final String REQUIRE_PARTIAL_DOC_UPDATES_INPLACE = "update.partial.requireInPlace";
+
+  /**
+   * If set to true, delete-by-query commands do not block concurrent updates: the documents they
+   * match are filtered out of searches, and deleted from the index by the next commit.
+   */
+  public static final String DEFER_DELETE_BY_QUERY = "update.deleteByQuery.defer";
 }